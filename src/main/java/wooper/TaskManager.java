@@ -4,6 +4,10 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.temporal.Temporal;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import wooper.enums.CommandType;
@@ -11,6 +15,10 @@ import wooper.exception.WooperException;
 import wooper.task.Deadline;
 import wooper.task.Event;
 import wooper.task.Task;
+import wooper.task.TaskChange;
+import wooper.task.TaskIndex;
+import wooper.task.TaskTree;
+import wooper.task.TrigramIndex;
 import wooper.task.ToDo;
 import wooper.util.DateTimeUtil;
 
@@ -21,15 +29,31 @@ import wooper.util.DateTimeUtil;
  * ensures task-related constraints are enforced.
  */
 public class TaskManager {
-    // wooper.task.Task List
-    private final ArrayList<Task> taskList = new ArrayList<>();
+    /**
+     * Tasks held, which are kept in {@code tree} unless they are a list that storage reads on access.
+     * Such a list is used as it is, so that its tasks are still only read when accessed.
+     */
+    private final TaskTree tree = new TaskTree();
+    private List<Task> taskList = tree;
+
+    /**
+     * Index over the task list, or null until it is first needed or given by {@link #useIndex}.
+     * Only kept while the tasks are held in {@code tree}, as it refers to tasks by ID.
+     */
+    private TaskIndex index = null;
+
+    /**
+     * Index of the descriptions for substring searches, or null until it is first needed.
+     * Only kept while the tasks are held in {@code tree}, as it refers to tasks by ID.
+     */
+    private TrigramIndex trigrams = null;
 
     /**
      * Returns the list of all tasks currently managed by the task manager.
      *
      * @return The list of tasks.
      */
-    public ArrayList<Task> getAllTasks() {
+    public List<Task> getAllTasks() {
         return taskList;
     }
 
@@ -74,6 +98,64 @@ public class TaskManager {
         return t;
     }
 
+    /**
+     * Returns the specified task.
+     *
+     * @param taskNo Index of the task.
+     * @return The task.
+     * @throws WooperException If the task index is out of bounds.
+     */
+    public Task getTask(int taskNo) throws WooperException {
+        validateTaskIndex(taskNo);
+        return taskList.get(taskNo);
+    }
+
+    /**
+     * Returns the task with the specified ID.
+     * Tasks of a list that storage reads on access keep their saved IDs, but are not found by them.
+     *
+     * @param id ID of the task.
+     * @return The task.
+     * @throws WooperException If no task has the ID.
+     */
+    public Task getTaskById(long id) throws WooperException {
+        Task t = taskList == tree ? tree.getById(id) : null;
+        if (t == null) {
+            throw new WooperException("There is no task with ID " + id + ".");
+        }
+        return t;
+    }
+
+    /**
+     * Returns the index of the task with the specified ID, for use with the methods taking a task index.
+     *
+     * @param id ID of the task.
+     * @return Index of the task.
+     * @throws WooperException If no task has the ID.
+     */
+    public int getTaskNo(long id) throws WooperException {
+        int taskNo = taskList == tree ? tree.indexOfId(id) : -1;
+        if (taskNo == -1) {
+            throw new WooperException("There is no task with ID " + id + ".");
+        }
+        return taskNo;
+    }
+
+    /**
+     * Points the specified task at notes written to the notes file.
+     *
+     * @param taskNo      Index of the task.
+     * @param notesOffset Offset of the notes in the notes file, or -1 to clear the notes.
+     * @return The task whose notes were changed.
+     * @throws WooperException If the task index is out of bounds.
+     */
+    public Task setTaskNotes(int taskNo, long notesOffset) throws WooperException {
+        validateTaskIndex(taskNo);
+        Task t = taskList.get(taskNo);
+        t.setNotesOffset(notesOffset);
+        return t;
+    }
+
     /**
      * Adds a new todo task to the task list.
      *
@@ -82,12 +164,9 @@ public class TaskManager {
      * @throws WooperException If the task description is empty or blank.
      */
     public ToDo addToDoTask(String taskName) throws WooperException {
-        if (taskName.isEmpty() || taskName.isBlank()) {
-            throw new WooperException("Please give the todo a description!");
-        }
-
-        ToDo tDo = new ToDo(taskName);
+        ToDo tDo = newToDo(taskName);
         taskList.add(tDo);
+        indexAddedTask(tDo);
         assert taskList.get(taskList.size() - 1) == tDo : "Newly added ToDo should be at end of task list";
 
         return tDo;
@@ -102,20 +181,9 @@ public class TaskManager {
      * @throws WooperException If the task description is empty or the deadline format is invalid.
      */
     public Deadline addDeadlineTask(String taskDesc, Temporal dl) throws WooperException {
-        if (taskDesc.isEmpty() || taskDesc.isBlank()) {
-            throw new WooperException("Please give the deadline a description!");
-        }
-
-        Deadline tDeadline;
-        if (dl instanceof LocalDateTime) {
-            tDeadline = new Deadline(taskDesc, (LocalDateTime) dl);
-        } else if (dl instanceof LocalDate) {
-            tDeadline = new Deadline(taskDesc, (LocalDate) dl);
-        } else {
-            throw new WooperException("Invalid deadline date format.");
-        }
-
+        Deadline tDeadline = newDeadline(taskDesc, dl);
         taskList.add(tDeadline);
+        indexAddedTask(tDeadline);
         assert taskList.get(taskList.size() - 1) == tDeadline : "Newly added Deadline task should be in task list";
 
         return tDeadline;
@@ -131,30 +199,60 @@ public class TaskManager {
      * @throws WooperException If the task description is empty or the date formats do not match.
      */
     public Event addEventTask(String taskDesc, Temporal sdl, Temporal edl) throws WooperException {
-        if (taskDesc.isEmpty() || taskDesc.isBlank()) {
-            throw new WooperException("Please give the event a description!");
-        }
-
-        validateEventDateRange(sdl, edl);
-
-        Event tEvent;
-        assert sdl != null && edl != null : "Event dates should not be null";
-
-        if (sdl instanceof LocalDateTime) {
-            tEvent = new Event(taskDesc, (LocalDateTime) sdl, (LocalDateTime) edl);
-        } else {
-            // must be LocalDate here because validate already checked
-            tEvent = new Event(taskDesc, (LocalDate) sdl, (LocalDate) edl);
-        }
-
-        assert sdl.getClass() == edl.getClass() : "Start and end dates should be same type";
-
+        Event tEvent = newEvent(taskDesc, sdl, edl);
         taskList.add(tEvent);
+        indexAddedTask(tEvent);
         assert taskList.get(taskList.size() - 1) == tEvent : "Newly added Event task should be in task list";
 
         return tEvent;
     }
 
+    /**
+     * Returns a new task built from fields given as text, such as a row of an imported file,
+     * checked by the same rules as tasks added one by one. The task is not added to the task list.
+     *
+     * @param type   Type of the task: {@code T}, {@code D} or {@code E}.
+     * @param desc   Description of the task.
+     * @param isDone Whether the task is completed.
+     * @param by     Deadline in the format DD/MM/YYYY or DD/MM/YYYY HH:mm, for a deadline task.
+     * @param from   Start in the same format, for an event task.
+     * @param to     End in the same format, for an event task.
+     * @return The new task.
+     * @throws WooperException If the type is unknown, or a field is missing or invalid.
+     */
+    public Task createTask(String type, String desc, boolean isDone, String by, String from, String to)
+            throws WooperException {
+        Task t;
+        switch (type.trim().toUpperCase()) {
+        case "T":
+            t = newToDo(desc.trim());
+            break;
+        case "D":
+            t = newDeadline(desc.trim(), DateTimeUtil.parseDateOrDateTime(by.trim(), CommandType.DEADLINE));
+            break;
+        case "E":
+            t = newEvent(desc.trim(), DateTimeUtil.parseDateOrDateTime(from.trim(), CommandType.EVENT),
+                    DateTimeUtil.parseDateOrDateTime(to.trim(), CommandType.EVENT));
+            break;
+        default:
+            throw new WooperException("Task type must be T, D or E.");
+        }
+        t.setDone(isDone);
+        return t;
+    }
+
+    /**
+     * Adds the specified tasks to the end of the task list, in order.
+     *
+     * @param tasks Tasks to be added, such as tasks returned by {@link #createTask}.
+     */
+    public void addTasks(List<Task> tasks) {
+        taskList.addAll(tasks);
+        for (Task t : tasks) {
+            indexAddedTask(t);
+        }
+    }
+
     /**
      * Removes the specified task from the task list.
      *
@@ -166,38 +264,277 @@ public class TaskManager {
         validateTaskIndex(taskNo);
         Task t = taskList.remove(taskNo);
         assert t != null : "Retrieved task should not be null";
+        if (index != null) {
+            index.remove(t.getId());
+        }
+        if (trigrams != null) {
+            trigrams.remove(t.getId());
+        }
 
         return t;
     }
 
+    /**
+     * Removes every completed task from the task list, keeping the order of the remaining tasks.
+     *
+     * @return The removed tasks, in their original order.
+     */
+    public ArrayList<Task> removeDoneTasks() {
+        ArrayList<Task> done = new ArrayList<>();
+        ArrayList<Task> active = new ArrayList<>();
+        for (Task t : taskList) {
+            if (t.isDone()) {
+                done.add(t);
+            } else {
+                active.add(t);
+            }
+        }
+
+        if (!done.isEmpty()) {
+            for (Task t : done) {
+                if (index != null) {
+                    index.remove(t.getId());
+                }
+                if (trigrams != null) {
+                    trigrams.remove(t.getId());
+                }
+            }
+            taskList = adopt(active);
+        }
+        return done;
+    }
+
     /**
      * Loads tasks from an external task list into the task manager.
+     * If no tasks are held yet, the given list is used directly rather than copied,
+     * so tasks of a lazily loaded list are still only read when accessed.
      *
      * @param inTaskList List of tasks to be loaded.
      */
-    public void loadTaskList(ArrayList<Task> inTaskList) {
-        taskList.addAll(inTaskList);
+    public void loadTaskList(List<Task> inTaskList) {
+        if (taskList.isEmpty()) {
+            taskList = adopt(inTaskList);
+        } else {
+            taskList.addAll(inTaskList);
+        }
+        index = null;
+        trigrams = null;
+    }
+
+    /**
+     * Replaces every task held with the specified tasks, such as tasks loaded again from storage.
+     *
+     * @param inTaskList List of tasks to be used from now on.
+     */
+    public void replaceTaskList(List<Task> inTaskList) {
+        taskList = adopt(inTaskList);
+        index = null;
+        trigrams = null;
+    }
+
+    /**
+     * Applies the specified changes to the task list in order, keeping the index up to date.
+     * Used for changes made outside the task manager, such as edits to the save file.
+     *
+     * @param changes Changes to be applied, with positions relative to the list as each is applied.
+     */
+    public void applyChanges(List<TaskChange> changes) {
+        for (TaskChange change : changes) {
+            int i = change.getIndex();
+            switch (change.getType()) {
+            case ADD:
+                taskList.add(i, change.getTask());
+                if (index != null) {
+                    index.add(change.getTask());
+                }
+                if (trigrams != null) {
+                    trigrams.add(change.getTask());
+                }
+                break;
+            case UPDATE:
+                taskList.set(i, change.getTask());
+                if (index != null) {
+                    index.update(change.getTask());
+                }
+                if (trigrams != null) {
+                    trigrams.update(change.getTask());
+                }
+                break;
+            case DELETE:
+                Task removed = taskList.remove(i);
+                if (index != null) {
+                    index.remove(removed.getId());
+                }
+                if (trigrams != null) {
+                    trigrams.remove(removed.getId());
+                }
+                break;
+            default:
+                assert false : "Unknown change type";
+            }
+        }
+    }
+
+    /**
+     * Uses the specified index, read back from storage, instead of building one from the task list.
+     * The index is ignored if the tasks are not held in the tree, or it does not cover exactly the IDs
+     * of the tasks held, as when tasks saved without IDs were given different ones on loading.
+     *
+     * @param inIndex Index of the current task list, or null if there is none.
+     */
+    public void useIndex(TaskIndex inIndex) {
+        if (inIndex != null && taskList == tree && inIndex.size() == taskList.size()
+                && inIndex.getIdChecksum() == TaskIndex.idChecksumOf(taskList)) {
+            index = inIndex;
+        }
+    }
+
+    /**
+     * Returns the index over the task list, building it first if there is none yet.
+     * The index is kept up to date as tasks are added, removed and updated.
+     * Tasks of a list that storage reads on access are not indexed, as they are not found by ID.
+     *
+     * @return The index of the current task list, or null if the tasks are not indexed.
+     */
+    public TaskIndex getIndex() {
+        if (taskList != tree) {
+            return null;
+        }
+        if (index == null) {
+            index = TaskIndex.build(taskList);
+        }
+        return index;
+    }
+
+    /**
+     * Returns the tasks at the specified positions, such as the positions matched by a search
+     * answered by storage.
+     *
+     * @param positions Positions of the tasks, in the order they are to be returned.
+     * @return The tasks at the given positions.
+     */
+    public ArrayList<Task> getTasksAt(int[] positions) {
+        ArrayList<Task> tasks = new ArrayList<>(positions.length);
+        for (int position : positions) {
+            tasks.add(taskList.get(position));
+        }
+        return tasks;
     }
 
     /**
      * Returns a list of tasks whose descriptions contain the specified search string.
+     * Keywords of at least three characters are looked up in a {@link TrigramIndex}, built when first
+     * needed, so only the tasks sharing every three-character sequence of the keyword are checked.
      *
      * @param taskStr Keyword used to match task descriptions.
      * @return A list of tasks whose names contain the specified string.
      * @throws WooperException If the search string is empty or blank.
      */
     public ArrayList<Task> findTasks(String taskStr) throws WooperException {
-        assert !taskList.contains(null) : "Task list should not contain null tasks";
+        String taskStrLower = taskStr.toLowerCase();
+        // short keywords have no sequence to look up, and tasks without IDs cannot be indexed
+        if (taskStr.isBlank() || taskStrLower.length() < TrigramIndex.GRAM_LENGTH || taskList != tree) {
+            assert !taskList.contains(null) : "Task list should not contain null tasks";
+            return findTasks(taskStr, taskList);
+        }
+        if (trigrams == null) {
+            trigrams = TrigramIndex.build(taskList);
+        }
+        // matches are returned in list order, as when every task is checked
+        int[] positions = positionsOf(trigrams.find(taskStrLower));
+        Arrays.sort(positions);
+        return getTasksAt(positions);
+    }
+
+    /**
+     * Returns a list of tasks from the specified list whose descriptions contain the specified search string.
+     * Used to search tasks that are not held by the task manager, such as archived tasks.
+     *
+     * @param taskStr  Keyword used to match task descriptions.
+     * @param searched Tasks to be searched.
+     * @return A list of tasks whose names contain the specified string, in the order of {@code searched}.
+     * @throws WooperException If the search string is empty or blank.
+     */
+    public ArrayList<Task> findTasks(String taskStr, List<Task> searched) throws WooperException {
         if (taskStr.isEmpty() || taskStr.isBlank()) {
             throw new WooperException("Let me know which task you are trying to find :>");
         }
         String taskStrLower = taskStr.toLowerCase();
-        ArrayList<Task> matchedTL = taskList.stream()
+        ArrayList<Task> matchedTL = searched.stream()
                 .filter(t -> t.getTaskName().toLowerCase().contains(taskStrLower))
                 .collect(Collectors.toCollection(ArrayList::new));
         return matchedTL;
     }
 
+    /**
+     * Returns the tasks whose descriptions contain every word of the specified query as a whole word,
+     * ignoring case. The search is answered from the word index, so it takes time in proportion to
+     * the matching tasks rather than to the task list. Tasks that are not indexed are checked one by one.
+     *
+     * @param query Words to be matched, separated by spaces or punctuation.
+     * @return The matching tasks, in list order.
+     * @throws WooperException If the query has no words.
+     */
+    public ArrayList<Task> findTasksByWords(String query) throws WooperException {
+        if (getIndex() == null) {
+            return findTasksByWords(query, taskList);
+        }
+        int[] positions = positionsOf(getIndex().findAll(tokensOfQuery(query)));
+        Arrays.sort(positions);
+        return getTasksAt(positions);
+    }
+
+    /**
+     * Returns the tasks from the specified list whose descriptions contain every word of the specified query.
+     * Used to search tasks that are not indexed, such as archived tasks.
+     *
+     * @param query    Words to be matched, separated by spaces or punctuation.
+     * @param searched Tasks to be searched.
+     * @return The matching tasks, in the order of {@code searched}.
+     * @throws WooperException If the query has no words.
+     */
+    public ArrayList<Task> findTasksByWords(String query, List<Task> searched) throws WooperException {
+        Set<String> tokens = tokensOfQuery(query);
+        return searched.stream()
+                .filter(t -> TaskIndex.tokensOf(t.getTaskName()).containsAll(tokens))
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    /**
+     * Returns the deadlines due within the specified range, in order of when they are due.
+     * Deadlines due at the same time are in list order.
+     *
+     * @param fromKey Earliest due time, inclusive, as a key of {@link TaskIndex#dueKeyOf}.
+     * @param toKey   Latest due time, inclusive.
+     * @return The deadlines due within the range.
+     */
+    public ArrayList<Task> findDeadlines(long fromKey, long toKey) {
+        if (getIndex() == null) {
+            ArrayList<Task> due = new ArrayList<>();
+            for (Task t : taskList) {
+                if (t instanceof Deadline d && TaskIndex.dueKeyOf(d) >= fromKey && TaskIndex.dueKeyOf(d) <= toKey) {
+                    due.add(t);
+                }
+            }
+            // the sort is stable, so deadlines due at the same time stay in list order
+            due.sort(Comparator.comparingLong(t -> TaskIndex.dueKeyOf((Deadline) t)));
+            return due;
+        }
+        int[] positions = positionsOf(getIndex().findDeadlines(fromKey, toKey));
+        // the index orders deadlines due at the same time by ID, which is not always list order
+        int from = 0;
+        while (from < positions.length) {
+            long key = TaskIndex.dueKeyOf((Deadline) taskList.get(positions[from]));
+            int to = from + 1;
+            while (to < positions.length && TaskIndex.dueKeyOf((Deadline) taskList.get(positions[to])) == key) {
+                to++;
+            }
+            Arrays.sort(positions, from, to);
+            from = to;
+        }
+        return getTasksAt(positions);
+    }
+
     /**
      * Updates fields of an existing task using the parsed update arguments.
      *
@@ -233,22 +570,117 @@ public class TaskManager {
             throw new WooperException("Please specify at least one field to update.");
         }
 
-        switch (actualType) {
-        case "todo":
-            updateTodo((ToDo) task, taskName, by, from, to);
-            break;
-        case "deadline":
-            updateDeadline((Deadline) task, taskName, by, from, to);
-            break;
-        case "event":
-            updateEvent((Event) task, taskName, by, from, to);
-            break;
-        default:
-            throw new WooperException("Unsupported task type for update.");
+        try {
+            switch (actualType) {
+            case "todo":
+                updateTodo((ToDo) task, taskName, by, from, to);
+                break;
+            case "deadline":
+                updateDeadline((Deadline) task, taskName, by, from, to);
+                break;
+            case "event":
+                updateEvent((Event) task, taskName, by, from, to);
+                break;
+            default:
+                throw new WooperException("Unsupported task type for update.");
+            }
+        } finally {
+            // a failed update can still have changed some fields
+            if (index != null) {
+                index.update(task);
+            }
+            if (trigrams != null) {
+                trigrams.update(task);
+            }
         }
         return task;
     }
 
+    private ToDo newToDo(String taskName) throws WooperException {
+        if (taskName.isEmpty() || taskName.isBlank()) {
+            throw new WooperException("Please give the todo a description!");
+        }
+        return new ToDo(taskName);
+    }
+
+    private Deadline newDeadline(String taskDesc, Temporal dl) throws WooperException {
+        if (taskDesc.isEmpty() || taskDesc.isBlank()) {
+            throw new WooperException("Please give the deadline a description!");
+        }
+
+        if (dl instanceof LocalDateTime) {
+            return new Deadline(taskDesc, (LocalDateTime) dl);
+        } else if (dl instanceof LocalDate) {
+            return new Deadline(taskDesc, (LocalDate) dl);
+        } else {
+            throw new WooperException("Invalid deadline date format.");
+        }
+    }
+
+    private Event newEvent(String taskDesc, Temporal sdl, Temporal edl) throws WooperException {
+        if (taskDesc.isEmpty() || taskDesc.isBlank()) {
+            throw new WooperException("Please give the event a description!");
+        }
+
+        validateEventDateRange(sdl, edl);
+
+        Event tEvent;
+        assert sdl != null && edl != null : "Event dates should not be null";
+
+        if (sdl instanceof LocalDateTime) {
+            tEvent = new Event(taskDesc, (LocalDateTime) sdl, (LocalDateTime) edl);
+        } else {
+            // must be LocalDate here because validate already checked
+            tEvent = new Event(taskDesc, (LocalDate) sdl, (LocalDate) edl);
+        }
+
+        assert sdl.getClass() == edl.getClass() : "Start and end dates should be same type";
+        return tEvent;
+    }
+
+    /**
+     * Returns the positions of the tasks with the specified IDs, which are held in the tree.
+     */
+    private int[] positionsOf(long[] ids) {
+        int[] positions = new int[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            positions[i] = tree.indexOfId(ids[i]);
+        }
+        return positions;
+    }
+
+    /**
+     * Returns the list to hold the specified tasks, which is the tree unless storage reads them on access.
+     */
+    private List<Task> adopt(List<Task> inTaskList) {
+        if (inTaskList == tree) {
+            return tree;
+        }
+        tree.clear();
+        if (!(inTaskList instanceof ArrayList)) {
+            return inTaskList;
+        }
+        tree.addAll(inTaskList);
+        return tree;
+    }
+
+    private Set<String> tokensOfQuery(String query) throws WooperException {
+        Set<String> tokens = TaskIndex.tokensOf(query);
+        if (tokens.isEmpty()) {
+            throw new WooperException("Let me know which task you are trying to find :>");
+        }
+        return tokens;
+    }
+
+    private void indexAddedTask(Task t) {
+        if (index != null) {
+            index.add(t);
+        }
+        if (trigrams != null) {
+            trigrams.add(t);
+        }
+    }
+
     private void validateTaskIndex(int taskNo) throws WooperException {
         if (taskNo < 0 || taskNo >= taskList.size()) {
             throw new WooperException("Choose a number from the task list!");
@@ -1,5 +1,7 @@
 package wooper;
 
+import java.util.function.Consumer;
+
 /**
  * Launches the Wooper task management application.
  */
@@ -10,6 +12,33 @@ public class Wooper {
         wooperController = new WooperController();
     }
 
+    /**
+     * Sets the listener that shows changes made to the save file elsewhere while Wooper is running.
+     *
+     * @param listener Called with the message to be shown, on a background thread.
+     */
+    public void setExternalChangeListener(Consumer<String> listener) {
+        wooperController.setExternalChangeListener(listener);
+    }
+
+    /**
+     * Sets the listener that shows the answers given once the saved tasks have loaded.
+     *
+     * @param listener Called with the message to be shown, on a background thread.
+     */
+    public void setLoadListener(Consumer<String> listener) {
+        wooperController.setLoadListener(listener);
+    }
+
+    /**
+     * Sets the listener that closes the application once the user has said bye and every change is saved.
+     *
+     * @param listener Called when the application should exit, possibly on a background thread.
+     */
+    public void setExitListener(Runnable listener) {
+        wooperController.setExitListener(listener);
+    }
+
     public String initWooper() {
         return wooperController.init();
     }
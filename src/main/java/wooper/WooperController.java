@@ -1,15 +1,37 @@
 package wooper;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
 import java.time.temporal.Temporal;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
 
 import wooper.enums.CommandType;
+import wooper.enums.StorageType;
+import wooper.enums.TransferFormat;
 import wooper.exception.WooperException;
 import wooper.parser.ParseResult;
 import wooper.parser.Parser;
+import wooper.storage.ChangeFeed;
+import wooper.storage.NoteFile;
+import wooper.storage.SaveFileWatcher;
 import wooper.storage.Storage;
+import wooper.storage.StorageConfig;
+import wooper.storage.TaskExportWriter;
+import wooper.storage.TaskImportReader;
+import wooper.storage.WriteBehindSaver;
 import wooper.task.Task;
+import wooper.task.TaskChange;
+import wooper.task.TaskIndex;
 import wooper.ui.UI;
 import wooper.util.DateTimeUtil;
 
@@ -20,28 +42,157 @@ import wooper.util.DateTimeUtil;
  */
 public class WooperController {
 
+    private static final String FEED_FAILED = "Failed to write change feed.";
+    private static final String CLEAR_NOTES = "/clear";
+    private static final String WORD_SEARCH = "/words";
+    private static final String ARCHIVE_SEARCH = "/archive";
+    private static final String DUE_BEFORE = "/before";
+    private static final String DUE_BETWEEN = "/between";
+    private static final int IMPORT_BATCH_SIZE = 1000;
+
     private final Parser parser = new Parser();
     private final TaskManager taskManager = new TaskManager();
     private final UI ui = new UI();
-    private final Storage storage = new Storage();
+    private final StorageConfig storageConfig;
+    private final Storage storage;
+    private final WriteBehindSaver saver;
+    private final ChangeFeed feed;
+    private final NoteFile notes;
+    private SaveFileWatcher watcher = null;
+    private Consumer<String> externalChangeListener = message -> { };
+    private Consumer<String> loadListener = message -> { };
+    private Runnable exitListener = () -> { };
+
+    /**
+     * Whether the saved tasks are still being loaded, and the commands waiting for them to be.
+     */
+    private boolean isLoading = false;
+    private final ArrayList<String> queuedInputs = new ArrayList<>();
+
+    /**
+     * Whether the saved tasks could not be loaded, in which case nothing is written to storage,
+     * and whether the user has said bye.
+     */
+    private boolean isLoadFailed = false;
+    private boolean hasExited = false;
 
     public WooperController() {
+        this(StorageConfig.load());
+    }
+
+    private WooperController(StorageConfig inStorageConfig) {
+        this(inStorageConfig, inStorageConfig.openStorage());
+    }
+
+    /**
+     * Creates a controller that keeps its tasks in the specified storage, set up with the specified settings.
+     *
+     * @param inStorageConfig Storage settings.
+     * @param inStorage       Storage the tasks are kept in.
+     */
+    WooperController(StorageConfig inStorageConfig, Storage inStorage) {
+        storageConfig = inStorageConfig;
+        storage = inStorage;
+        saver = new WriteBehindSaver(storage, storageConfig.getDurabilityMode(),
+                storageConfig.getFlushIntervalMillis());
+        feed = storageConfig.isChangeFeedEnabled() ? new ChangeFeed(storageConfig.getChangeFeedPath()) : null;
+        notes = new NoteFile(storageConfig.getNotesPath(),
+                storageConfig.isEncrypted() ? storageConfig.getEncryptionKey() : null);
+    }
+
+    /**
+     * Returns the greeting message at once and loads the saved tasks from storage in the background.
+     * Tasks can be added while loading and go after the saved tasks. Commands that need the saved tasks,
+     * and bye, are answered once they have loaded, through the load listener, which is also told when
+     * loading is done or has failed. If loading fails, the tasks added meanwhile are kept in memory only,
+     * and commands that would change the tasks are refused, so that the save file is never written over.
+     *
+     * @return The greeting message.
+     */
+    public synchronized String init() {
+        isLoading = true;
+        Thread t = new Thread(this::loadTasks, "wooper-loader");
+        t.setDaemon(true);
+        t.start();
+        return ui.printGreetingMessage() + "\n\n" + ui.printLoadingMessage();
+    }
+
+    /**
+     * Sets the listener told when the saved tasks have loaded, and given the answers to commands that
+     * were waiting for them. The listener is called on the loading thread.
+     *
+     * @param inListener Listener to be told the messages to be shown.
+     */
+    public void setLoadListener(Consumer<String> inListener) {
+        loadListener = inListener;
     }
 
     /**
-     * Returns the greeting message after loading saved tasks from storage.
+     * Sets the listener told when the user has said bye and every change has been written,
+     * so that the application can exit. The listener may be called on the loading thread.
      *
-     * @return The greeting message, or an error message if loading fails.
+     * @param inListener Listener to be told to exit.
      */
-    public String init() {
-        // load data from storage
+    public void setExitListener(Runnable inListener) {
+        exitListener = inListener;
+    }
+
+    private void loadTasks() {
+        List<Task> storageTasks = null;
+        TaskIndex index = null;
+        String error = null;
+        // the monitor is not held here, so tasks can be added meanwhile
         try {
-            ArrayList<Task> storageTasks = storage.load();
-            taskManager.loadTaskList(storageTasks);
+            storageTasks = storage.load();
+            index = storage.loadIndex();
         } catch (WooperException e) {
-            return "Error loading tasks: " + e.getMessage();
+            error = "Error loading tasks: " + e.getMessage();
+        }
+        finishLoading(storageTasks, index, error);
+    }
+
+    private synchronized void finishLoading(List<Task> storageTasks, TaskIndex index, String error) {
+        // tasks added while loading go after the saved tasks
+        List<Task> added = new ArrayList<>(taskManager.getAllTasks());
+        taskManager.replaceTaskList(storageTasks == null ? new ArrayList<>() : storageTasks);
+        taskManager.useIndex(index);
+        int savedCount = taskManager.getTaskListSize();
+        taskManager.addTasks(added);
+        isLoading = false;
+        isLoadFailed = error != null;
+
+        StringBuilder message = new StringBuilder();
+        if (error != null) {
+            message.append(error).append("\n\n").append(ui.printLoadFailedMessage(added.size()));
+        } else if (!storage.getDamagedRecords().isEmpty()) {
+            message.append(ui.printDamagedRecordsMessage(storage.getDamagedRecords(), storage.getQuarantinePath(),
+                    storage.getBackupPath())).append("\n\n");
         }
-        return ui.printGreetingMessage();
+        // a damaged save file takes the added tasks with it when repaired
+        if (error == null && !storage.isRepairPending()) {
+            try {
+                for (int i = 0; i < added.size(); i++) {
+                    saveChange(TaskChange.add(savedCount + i, added.get(i)));
+                }
+                message.append(ui.printTasksLoadedMessage(taskManager.getTaskListSize()));
+            } catch (IOException e) {
+                message.append(ui.printErrorMessage("Failed to save tasks."));
+            }
+        } else if (error == null) {
+            message.append(ui.printTasksLoadedMessage(taskManager.getTaskListSize()));
+        }
+        if (error == null && storageConfig.isWatching()) {
+            startWatching();
+        }
+        loadListener.accept(message.toString());
+
+        for (String input : queuedInputs) {
+            if (hasExited) {
+                break;
+            }
+            loadListener.accept(handleUserInput(input));
+        }
+        queuedInputs.clear();
     }
 
     /**
@@ -51,7 +202,7 @@ public class WooperController {
      * Repeatedly reads user input, parses commands, executes the requested actions, and saves task
      * updates when necessary. The loop terminates when the "bye" command is given.
      */
-    public String handleUserInput(String userInput) {
+    public synchronized String handleUserInput(String userInput) {
         // formatted user input
         ParseResult pr = parser.getActionAndArguments(userInput);
         assert pr != null : "Parser should not return null";
@@ -62,6 +213,21 @@ public class WooperController {
         ArrayList<String> args = pr.getArgs();
 
         try {
+            // bye waits too, as tasks added while loading are only saved once loading is done
+            if (isLoading && !canRunWhileLoading(action)) {
+                queuedInputs.add(userInput);
+                return ui.printStillLoadingMessage();
+            }
+            if (isLoadFailed && !isReadOnly(action)) {
+                return ui.printLoadFailedMessage(taskManager.getTaskListSize());
+            }
+            if (!isLoading && !isLoadFailed) {
+                refreshTasks();
+            }
+            // the storage is busy loading, and a repair can only be found once loading is done
+            if (!isLoading && storage.isRepairPending() && !isReadOnly(action)) {
+                return ui.printRepairPendingMessage();
+            }
             switch (action) {
             case LIST:
                 return handleList();
@@ -81,6 +247,20 @@ public class WooperController {
                 return handleFind(args);
             case UPDATE:
                 return handleUpdate(args);
+            case ARCHIVE:
+                return handleArchive();
+            case MIGRATE:
+                return handleMigrate(args);
+            case IMPORT:
+                return handleImport(args);
+            case EXPORT:
+                return handleExport(args);
+            case NOTE:
+                return handleNote(args);
+            case DUE:
+                return handleDue(args);
+            case REPAIR:
+                return handleRepair();
             case BYE:
                 return handleBye();
             case UNKNOWN:
@@ -90,40 +270,154 @@ public class WooperController {
         } catch (WooperException e) {
             return ui.printErrorMessage(e.getMessage());
         } catch (IOException e) {
-            throw new RuntimeException(e);
+            if (storage.isOutOfDate()) {
+                return handleConflict();
+            }
+            return ui.printErrorMessage("Failed to save tasks.");
+        }
+    }
+
+    /**
+     * Sets the listener told about changes made to the save file elsewhere while the save file is watched.
+     * The listener is called on the watcher thread with the message to be shown.
+     *
+     * @param inListener Listener to be told about changes.
+     */
+    public void setExternalChangeListener(Consumer<String> inListener) {
+        externalChangeListener = inListener;
+    }
+
+    private boolean canRunWhileLoading(CommandType action) {
+        return action == CommandType.TODO || action == CommandType.DEADLINE || action == CommandType.EVENT
+                || action == CommandType.UNKNOWN;
+    }
+
+    /**
+     * Returns whether the specified command leaves the tasks as they are, so that it can run
+     * while the save file waits to be repaired.
+     */
+    private boolean isReadOnly(CommandType action) {
+        switch (action) {
+        case LIST:
+        case FIND:
+        case EXPORT:
+        case DUE:
+        case REPAIR:
+        case BYE:
+        case UNKNOWN:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    private void startWatching() {
+        watcher = new SaveFileWatcher(storageConfig.getFilePath(), this::handleExternalChange);
+        try {
+            watcher.start();
+        } catch (IOException e) {
+            // changes made elsewhere are still picked up before the next command
+            watcher = null;
+        }
+    }
+
+    private synchronized void handleExternalChange() {
+        try {
+            if (refreshTasks()) {
+                externalChangeListener.accept(ui.printExternalChangeMessage(taskManager.getAllTasks()));
+            }
+        } catch (WooperException e) {
+            externalChangeListener.accept(ui.printErrorMessage(e.getMessage()));
+        }
+    }
+
+    /**
+     * Picks up changes made by other processes sharing the save file, or made to the save file by hand,
+     * unless changes of our own are still waiting to be written, in which case they are checked against
+     * the file when written. Edits to a JSON save file are applied as the tasks that differ.
+     *
+     * @return Whether the tasks were changed.
+     * @throws WooperException If the tasks cannot be read, or a change of our own was refused
+     *                         because the tasks had been changed elsewhere first.
+     */
+    private boolean refreshTasks() throws WooperException {
+        if (saver.hasPendingChanges()) {
+            return false;
         }
+        boolean wasOutOfDate = storage.isOutOfDate();
+        boolean isChanged = false;
+        List<TaskChange> changes = storage.readExternalChanges(taskManager.getAllTasks());
+        try {
+            if (changes != null) {
+                taskManager.applyChanges(changes);
+                recordChanges(changes);
+                isChanged = !changes.isEmpty();
+            } else {
+                List<Task> refreshed = storage.refresh(taskManager.getAllTasks());
+                // changes replayed from another process were recorded by that process
+                if (refreshed != null && refreshed != taskManager.getAllTasks() && feed != null) {
+                    feed.appendReload();
+                }
+                if (refreshed != null) {
+                    taskManager.replaceTaskList(refreshed);
+                    isChanged = true;
+                }
+            }
+        } catch (IOException e) {
+            throw new WooperException(FEED_FAILED);
+        }
+        if (isChanged) {
+            saver.resetTracking();
+        }
+        if (wasOutOfDate) {
+            throw new WooperException("Tasks were changed elsewhere, so the last change was not saved. "
+                    + "The latest tasks have been loaded, please try again.");
+        }
+        return isChanged;
     }
 
-    private String handleList() {
-        return ui.printTaskList(taskManager.getAllTasks());
+    private String handleConflict() {
+        try {
+            refreshTasks();
+        } catch (WooperException e) {
+            return ui.printErrorMessage(e.getMessage());
+        }
+        return ui.printErrorMessage("Failed to save tasks.");
+    }
+
+    private String handleList() throws WooperException {
+        String str = ui.printTaskList(taskManager.getAllTasks());
+        long archivedCount = storage.getArchivedCount();
+        if (archivedCount > 0) {
+            str += "\n" + ui.printArchivedCountMessage(archivedCount);
+        }
+        return str;
     }
 
     private String handleMark(ArrayList<String> args) throws WooperException, IOException {
         int taskNo = parseTaskIndex(args);
         Task t = taskManager.markTaskDone(taskNo);
-        saveAllTasks();
+        saveChange(TaskChange.update(taskNo, t));
         return ui.printMarkTaskDoneMessage(t);
     }
 
     private String handleUnmark(ArrayList<String> args) throws WooperException, IOException {
         int taskNo = parseTaskIndex(args);
         Task t = taskManager.unmarkTaskDone(taskNo);
-        saveAllTasks();
+        saveChange(TaskChange.update(taskNo, t));
         return ui.printUnmarkTaskDoneMessage(t);
     }
 
     private String handleTodo(ArrayList<String> args) throws WooperException, IOException {
         Task t = taskManager.addToDoTask(args.get(0));
-        saveAllTasks();
-        return ui.printAddTaskMessage(t, taskManager.getTaskListSize());
+        return saveAddedTask(t);
     }
 
     private String handleDeadline(ArrayList<String> args) throws WooperException, IOException {
         String taskDesc = args.get(0);
         Temporal dl = DateTimeUtil.parseDateOrDateTime(args.get(1), CommandType.DEADLINE);
         Task t = taskManager.addDeadlineTask(taskDesc, dl);
-        saveAllTasks();
-        return ui.printAddTaskMessage(t, taskManager.getTaskListSize());
+        return saveAddedTask(t);
     }
 
     private String handleEvent(ArrayList<String> args) throws WooperException, IOException {
@@ -131,39 +425,267 @@ public class WooperController {
         Temporal start = DateTimeUtil.parseDateOrDateTime(args.get(1), CommandType.EVENT);
         Temporal end = DateTimeUtil.parseDateOrDateTime(args.get(2), CommandType.EVENT);
         Task t = taskManager.addEventTask(taskDesc, start, end);
-        saveAllTasks();
-        return ui.printAddTaskMessage(t, taskManager.getTaskListSize());
+        return saveAddedTask(t);
     }
 
     private String handleDelete(ArrayList<String> args) throws WooperException, IOException {
         int taskNo = parseTaskIndex(args);
         Task t = taskManager.deleteTask(taskNo);
-        saveAllTasks();
+        saveChange(TaskChange.delete(taskNo, t));
         return ui.printDeleteTaskMessage(t, taskManager.getTaskListSize());
     }
 
     private String handleFind(ArrayList<String> args) throws WooperException {
-        ArrayList<Task> matchedTL = taskManager.findTasks(args.get(0));
-        return ui.printFindTasksMessage(matchedTL);
+        String keyword = args.get(0);
+        boolean isWordSearch = args.contains(WORD_SEARCH);
+        ArrayList<Task> matchedTL;
+        if (isWordSearch) {
+            matchedTL = taskManager.findTasksByWords(keyword);
+        } else {
+            // a database backend answers the search itself
+            int[] positions = keyword.isBlank() ? null : storage.findTasks(keyword);
+            matchedTL = positions == null ? taskManager.findTasks(keyword) : taskManager.getTasksAt(positions);
+        }
+        if (!args.contains(ARCHIVE_SEARCH)) {
+            return ui.printFindTasksMessage(matchedTL);
+        }
+        // the archive is only read when asked for
+        List<Task> archived = storage.getArchivedTasks();
+        ArrayList<Task> archivedTL = isWordSearch
+                ? taskManager.findTasksByWords(keyword, archived)
+                : taskManager.findTasks(keyword, archived);
+        return ui.printFindTasksMessage(matchedTL, archivedTL);
+    }
+
+    private String handleDue(ArrayList<String> args) throws WooperException {
+        long fromKey;
+        long toKey;
+        if (args.get(0).equals(DUE_BEFORE)) {
+            Temporal before = DateTimeUtil.parseDateOrDateTime(args.get(1), CommandType.DUE);
+            fromKey = Long.MIN_VALUE;
+            toKey = TaskIndex.dueKeyOf(before) - 1;
+        } else if (args.get(0).equals(DUE_BETWEEN)) {
+            Temporal from = DateTimeUtil.parseDateOrDateTime(args.get(1), CommandType.DUE);
+            Temporal to = DateTimeUtil.parseDateOrDateTime(args.get(2), CommandType.DUE);
+            fromKey = TaskIndex.dueKeyOf(from);
+            // an end date on its own takes in the whole day
+            toKey = to instanceof LocalDate d ? TaskIndex.dueKeyOf(d.plusDays(1)) - 1 : TaskIndex.dueKeyOf(to);
+            if (fromKey > toKey) {
+                throw new WooperException("The start of the range must not be after its end.");
+            }
+        } else {
+            throw new WooperException("Let me know when: due /before DATE or due /between DATE /and DATE.");
+        }
+
+        // a database backend answers the search itself
+        int[] positions = storage.findDeadlines(fromKey, toKey);
+        ArrayList<Task> dueTL = positions == null
+                ? taskManager.findDeadlines(fromKey, toKey)
+                : taskManager.getTasksAt(positions);
+        return ui.printDueTasksMessage(dueTL);
     }
 
     private String handleUpdate(ArrayList<String> args) throws WooperException, IOException {
         int taskNo = parseTaskIndex(args);
         Task t = taskManager.updateTask(taskNo, args);
-        saveAllTasks();
+        saveChange(TaskChange.update(taskNo, t));
         return ui.printUpdateTaskMessage(t);
     }
 
-    private String handleBye() {
+    private String handleNote(ArrayList<String> args) throws WooperException, IOException {
+        int taskNo = parseTaskIndex(args);
+        String text = args.get(1);
+        if (text.isBlank()) {
+            Task t = taskManager.getTask(taskNo);
+            // notes are only read from the notes file when asked for
+            return ui.printNotesMessage(t, t.hasNotes() ? notes.read(t.getNotesOffset()) : null);
+        }
+
+        long offset = -1;
+        if (!text.equals(CLEAR_NOTES)) {
+            // the task number is checked before the notes are written
+            taskManager.getTask(taskNo);
+            try {
+                offset = notes.write(text);
+            } catch (IOException e) {
+                throw new WooperException("Failed to save notes.");
+            }
+        }
+        Task t = taskManager.setTaskNotes(taskNo, offset);
+        saveChange(TaskChange.update(taskNo, t));
+        return ui.printNotesSavedMessage(t);
+    }
+
+    private String handleBye() throws IOException {
+        if (watcher != null) {
+            watcher.close();
+        }
+        saver.flush();
+        if (!isLoadFailed && storage.canPersistIndex() && taskManager.getIndex() != null) {
+            storage.saveIndex(taskManager.getIndex());
+        }
+        storage.close();
+        hasExited = true;
+        exitListener.run();
         return ui.printExitMessage();
     }
 
+    private String handleRepair() throws WooperException, IOException {
+        if (!storage.isRepairPending()) {
+            throw new WooperException("Your save file has nothing to repair.");
+        }
+        storage.repair(taskManager.getAllTasks());
+        return ui.printRepairedMessage(taskManager.getTaskListSize(), storage.getBackupPath());
+    }
+
+    private String handleArchive() throws WooperException, IOException {
+        saver.flush();
+        List<TaskChange> deletions = feed == null ? List.of() : getArchiveDeletions();
+        ArrayList<Task> archived = taskManager.removeDoneTasks();
+        if (!archived.isEmpty()) {
+            storage.archive(archived, taskManager.getAllTasks());
+            recordChanges(deletions);
+        }
+        return ui.printArchiveMessage(archived.size(), taskManager.getTaskListSize());
+    }
+
+    private String handleMigrate(ArrayList<String> args) throws WooperException, IOException {
+        StorageType target = StorageConfig.parseStorageType(args.get(0));
+        if (target == null) {
+            throw new WooperException("Let me know which storage to move your tasks to: file or sql.");
+        }
+        if (target == storageConfig.getStorageType()) {
+            throw new WooperException("Your tasks are already kept in " + target.name().toLowerCase() + " storage.");
+        }
+
+        saver.flush();
+        Storage targetStorage = storageConfig.openStorage(target);
+        try {
+            Storage.migrate(taskManager.getAllTasks(), storage, targetStorage);
+        } finally {
+            targetStorage.close();
+        }
+        return ui.printMigrateMessage(taskManager.getTaskListSize(), target.name().toLowerCase());
+    }
+
+    /**
+     * Adds the tasks of a CSV or NDJSON file, reading and checking them a batch at a time.
+     * Nothing is added unless every task in the file is valid, and the tasks are then saved with a single
+     * write instead of one per task.
+     */
+    private String handleImport(ArrayList<String> args) throws WooperException, IOException {
+        Path path = parseTransferPath(args, "import from");
+        TransferFormat format = TaskImportReader.formatOf(path);
+        ArrayList<Task> imported = new ArrayList<>();
+        try (Reader in = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            TaskImportReader reader = new TaskImportReader(in, format);
+            List<TaskImportReader.Record> batch;
+            while (!(batch = reader.readBatch(IMPORT_BATCH_SIZE)).isEmpty()) {
+                for (TaskImportReader.Record r : batch) {
+                    imported.add(createImportedTask(r));
+                }
+            }
+        } catch (NoSuchFileException e) {
+            throw new WooperException("I can't find " + path + ".");
+        } catch (IOException e) {
+            throw new WooperException("Failed to read " + path + ".");
+        }
+        if (imported.isEmpty()) {
+            return ui.printImportMessage(0, taskManager.getTaskListSize());
+        }
+
+        saver.flush();
+        int first = taskManager.getTaskListSize();
+        taskManager.addTasks(imported);
+        storage.save(taskManager.getAllTasks());
+        saver.resetTracking();
+        ArrayList<TaskChange> changes = new ArrayList<>(imported.size());
+        for (int i = 0; i < imported.size(); i++) {
+            changes.add(TaskChange.add(first + i, imported.get(i)));
+        }
+        recordChanges(changes);
+        return ui.printImportMessage(imported.size(), taskManager.getTaskListSize());
+    }
+
+    private Task createImportedTask(TaskImportReader.Record r) throws WooperException {
+        try {
+            return taskManager.createTask(r.getType(), r.getDesc(), r.isDone(), r.getBy(), r.getFrom(), r.getTo());
+        } catch (WooperException e) {
+            throw new WooperException("Line " + r.getLine() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes every task to a CSV or NDJSON file as it goes, without building the file content in memory.
+     */
+    private String handleExport(ArrayList<String> args) throws WooperException {
+        Path path = parseTransferPath(args, "export to");
+        TransferFormat format = TaskImportReader.formatOf(path);
+        List<Task> tasks = taskManager.getAllTasks();
+        try {
+            if (path.toAbsolutePath().getParent() != null) {
+                Files.createDirectories(path.toAbsolutePath().getParent());
+            }
+            try (BufferedWriter out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+                TaskExportWriter writer = new TaskExportWriter(out, format);
+                for (Task t : tasks) {
+                    writer.write(t);
+                }
+            }
+        } catch (IOException e) {
+            throw new WooperException("Failed to write " + path + ".");
+        }
+        return ui.printExportMessage(tasks.size(), path.toString());
+    }
+
+    private Path parseTransferPath(ArrayList<String> args, String action) throws WooperException {
+        if (args.isEmpty() || args.get(0).isBlank()) {
+            throw new WooperException("Let me know which file to " + action + ", e.g. tasks.csv or tasks.ndjson.");
+        }
+        try {
+            return Paths.get(args.get(0));
+        } catch (InvalidPathException e) {
+            throw new WooperException("That is not a valid file name.");
+        }
+    }
+
     private String handleUnknown() {
         return ui.printUnknownCommandMessage();
     }
 
-    private void saveAllTasks() throws IOException {
-        storage.save(taskManager.getAllTasks());
+    private String saveAddedTask(Task t) throws IOException {
+        if (isLoading) {
+            // saved after the saved tasks once they have loaded
+            return ui.printAddTaskWhileLoadingMessage(t);
+        }
+        saveChange(TaskChange.add(taskManager.getTaskListSize() - 1, t));
+        return ui.printAddTaskMessage(t, taskManager.getTaskListSize());
+    }
+
+    private void saveChange(TaskChange change) throws IOException {
+        saver.submit(change, taskManager.getAllTasks());
+        recordChanges(List.of(change));
+    }
+
+    private void recordChanges(List<TaskChange> changes) throws IOException {
+        if (feed != null && !changes.isEmpty()) {
+            feed.append(changes);
+        }
+    }
+
+    /**
+     * Returns the deletions that archiving the done tasks makes, each at its position once the done tasks
+     * before it have been removed.
+     */
+    private List<TaskChange> getArchiveDeletions() {
+        ArrayList<TaskChange> deletions = new ArrayList<>();
+        List<Task> tasks = taskManager.getAllTasks();
+        for (int i = 0; i < tasks.size(); i++) {
+            if (tasks.get(i).isDone()) {
+                deletions.add(TaskChange.delete(i - deletions.size(), tasks.get(i)));
+            }
+        }
+        return deletions;
     }
 
     private int parseTaskIndex(ArrayList<String> args) throws WooperException {
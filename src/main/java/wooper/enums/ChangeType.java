@@ -0,0 +1,10 @@
+package wooper.enums;
+
+/**
+ * Represents the kinds of changes that can be made to the task list.
+ */
+public enum ChangeType {
+    ADD,
+    UPDATE,
+    DELETE
+}
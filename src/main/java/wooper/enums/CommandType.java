@@ -14,5 +14,12 @@ public enum CommandType {
     BYE,
     UNKNOWN,
     FIND,
-    UPDATE
+    UPDATE,
+    ARCHIVE,
+    MIGRATE,
+    IMPORT,
+    EXPORT,
+    NOTE,
+    DUE,
+    REPAIR
 }
@@ -0,0 +1,13 @@
+package wooper.enums;
+
+/**
+ * Represents how eagerly changes to the task list are written to disk.
+ */
+public enum DurabilityMode {
+    /** Every change is written before the command returns. */
+    SYNC,
+    /** Changes are collected and written together after a short delay. */
+    INTERVAL,
+    /** Changes are only written on exit. */
+    ON_EXIT
+}
@@ -0,0 +1,10 @@
+package wooper.enums;
+
+/**
+ * Represents the formats a save file can be written in.
+ */
+public enum SnapshotFormat {
+    JSON,
+    BINARY,
+    PAGED
+}
@@ -0,0 +1,11 @@
+package wooper.enums;
+
+/**
+ * Represents the backends that tasks can be stored in.
+ */
+public enum StorageType {
+    /** Tasks are kept in a save file with a journal of changes. */
+    FILE,
+    /** Tasks are kept in an embedded SQL database, one row per task. */
+    SQL
+}
@@ -0,0 +1,9 @@
+package wooper.enums;
+
+/**
+ * Represents the file formats tasks can be imported from and exported to.
+ */
+public enum TransferFormat {
+    CSV,
+    NDJSON
+}
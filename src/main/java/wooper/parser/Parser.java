@@ -1,6 +1,8 @@
 package wooper.parser;
 
 import java.util.ArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import wooper.enums.CommandType;
 
@@ -14,6 +16,13 @@ public class Parser {
     private static final String TO = "/to";
     private static final String TASK_TYPE = "/tasktype";
     private static final String TASK_NAME = "/taskname";
+    private static final String ARCHIVE = "/archive";
+    private static final String CLEAR = "/clear";
+    private static final String WORDS = "/words";
+    private static final String BEFORE = "/before";
+    private static final String BETWEEN = "/between";
+    private static final String AND = "/and";
+    private static final Pattern TOKEN = Pattern.compile("\\S+");
 
     /**
      * Returns the command type and arguments parsed from the given user input.
@@ -57,8 +66,27 @@ public class Parser {
             args.add(rest);
             return new ParseResult(CommandType.DELETE, args);
         case "find":
-            args.add(rest);
+            parseFindArgs(rest, args);
             return new ParseResult(CommandType.FIND, args);
+        case "archive":
+            return new ParseResult(CommandType.ARCHIVE, args);
+        case "repair":
+            return new ParseResult(CommandType.REPAIR, args);
+        case "migrate":
+            args.add(rest);
+            return new ParseResult(CommandType.MIGRATE, args);
+        case "import":
+            args.add(rest);
+            return new ParseResult(CommandType.IMPORT, args);
+        case "export":
+            args.add(rest);
+            return new ParseResult(CommandType.EXPORT, args);
+        case "note":
+            parseNoteArgs(rest, args);
+            return new ParseResult(CommandType.NOTE, args);
+        case "due":
+            parseDueArgs(rest, args);
+            return new ParseResult(CommandType.DUE, args);
         case "update":
             parseUpdateArgs(rest, args);
             return new ParseResult(CommandType.UPDATE, args);
@@ -69,6 +97,73 @@ public class Parser {
         }
     }
 
+    private void parseFindArgs(String rest, ArrayList<String> args) {
+        StringBuilder keyword = new StringBuilder();
+        boolean isArchiveSearched = false;
+        boolean isWordSearch = false;
+        // flags can go anywhere around the keyword, in any order
+        int copied = 0;
+        Matcher token = TOKEN.matcher(rest);
+        while (token.find()) {
+            String word = token.group().toLowerCase();
+            if (!isArchiveSearched && word.equals(ARCHIVE)) {
+                isArchiveSearched = true;
+            } else if (!isWordSearch && word.equals(WORDS)) {
+                isWordSearch = true;
+            } else {
+                continue;
+            }
+            keyword.append(rest, copied, token.start());
+            // the space after the flag goes with it, so the words around it stay one space apart
+            copied = token.end();
+            while (copied < rest.length() && Character.isWhitespace(rest.charAt(copied))) {
+                copied++;
+            }
+        }
+        keyword.append(rest, copied, rest.length());
+
+        // the keyword is followed by the flags given, words before archive
+        args.add(keyword.toString().trim());
+        if (isWordSearch) {
+            args.add(WORDS);
+        }
+        if (isArchiveSearched) {
+            args.add(ARCHIVE);
+        }
+    }
+
+    private void parseNoteArgs(String rest, ArrayList<String> args) {
+        String[] parts = rest.split("\\s+", 2);
+        args.add(parts[0]);
+        String notes = (parts.length > 1) ? parts[1] : "";
+        args.add(notes.trim().equalsIgnoreCase(CLEAR) ? CLEAR : notes);
+    }
+
+    private void parseDueArgs(String rest, ArrayList<String> args) {
+        String lower = rest.toLowerCase();
+        if (lower.startsWith(BEFORE)) {
+            args.add(BEFORE);
+            args.add(rest.substring(BEFORE.length()).trim());
+            return;
+        }
+        if (!lower.startsWith(BETWEEN)) {
+            // no range given, so later code throws a clear error
+            args.add(rest);
+            return;
+        }
+
+        String range = rest.substring(BETWEEN.length());
+        int andIdx = range.toLowerCase().indexOf(AND);
+        args.add(BETWEEN);
+        if (andIdx == -1) {
+            args.add(range.trim());
+            args.add("");
+            return;
+        }
+        args.add(range.substring(0, andIdx).trim());
+        args.add(range.substring(andIdx + AND.length()).trim());
+    }
+
     private void parseDeadlineArgs(String rest, ArrayList<String> args) {
         int byIdx = rest.toLowerCase().indexOf(BY);
 
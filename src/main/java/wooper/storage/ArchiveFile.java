@@ -0,0 +1,199 @@
+package wooper.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import wooper.exception.WooperException;
+import wooper.task.Task;
+
+/**
+ * Represents a cold store for tasks moved out of the task list, such as completed tasks.
+ * Tasks are only ever appended, one JSON object per line, so archiving does not rewrite earlier tasks.
+ * A fixed header records how many tasks the file holds, so the count is known without reading them.
+ * The tasks themselves are read the first time they are asked for.
+ */
+public class ArchiveFile {
+    private static final byte[] MAGIC = {'W', 'A', 'R', 'C'};
+    private static final byte VERSION = 1;
+
+    /**
+     * Length of the header: the magic bytes, the version, padding, and the task count as a long.
+     */
+    private static final int HEADER_LENGTH = 16;
+    private static final int COUNT_OFFSET = 8;
+
+    private static final String CORRUPTED = "Archive file is corrupted.";
+
+    private final Path path;
+    private long count = -1;
+    private ArrayList<Task> tasks = null;
+
+    /**
+     * Length of the file and the task count before the last append, so that it can be undone.
+     */
+    private long appendStart = -1;
+    private long countBeforeAppend = -1;
+
+    /**
+     * Creates an archive backed by the specified file. The file is created when first archived to.
+     *
+     * @param inPath Path to the archive file.
+     */
+    public ArchiveFile(Path inPath) {
+        path = inPath;
+    }
+
+    /**
+     * Returns the number of archived tasks, reading only the header of the file.
+     *
+     * @return The number of archived tasks, or zero if nothing has been archived.
+     * @throws WooperException If the header cannot be read.
+     */
+    public long getCount() throws WooperException {
+        if (count != -1) {
+            return count;
+        }
+        if (!Files.exists(path)) {
+            count = 0;
+            return count;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // keep reading until the header is full or the file ends
+            }
+            if (header.hasRemaining() || !Arrays.equals(Arrays.copyOf(header.array(), MAGIC.length), MAGIC)
+                    || header.get(MAGIC.length) != VERSION) {
+                throw new WooperException(CORRUPTED);
+            }
+            count = header.getLong(COUNT_OFFSET);
+            return count;
+        } catch (IOException e) {
+            throw new WooperException("Failed to read archive file.");
+        }
+    }
+
+    /**
+     * Returns every archived task, in the order they were archived.
+     * The file is read the first time this is called; later calls return the same tasks.
+     *
+     * @return The archived tasks.
+     * @throws WooperException If the file cannot be read or holds a malformed task.
+     */
+    public List<Task> getTasks() throws WooperException {
+        if (tasks != null) {
+            return tasks;
+        }
+        ArrayList<Task> read = new ArrayList<>();
+        if (getCount() > 0) {
+            try {
+                byte[] content = Files.readAllBytes(path);
+                String body = new String(content, HEADER_LENGTH, content.length - HEADER_LENGTH,
+                        StandardCharsets.UTF_8);
+                for (String line : body.split("\n")) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    TaskJsonReader reader = new TaskJsonReader(new StringReader(line));
+                    read.add(reader.readTask());
+                    if (!reader.isAtEnd()) {
+                        throw new WooperException(CORRUPTED);
+                    }
+                }
+            } catch (IOException e) {
+                throw new WooperException("Failed to read archive file.");
+            }
+        }
+        // a crash after appending leaves the header behind the tasks actually written
+        count = read.size();
+        tasks = read;
+        return tasks;
+    }
+
+    /**
+     * Appends the specified tasks to the archive and forces them to disk before updating the count.
+     *
+     * @param archived Tasks to be archived.
+     * @throws IOException     If writing fails.
+     * @throws WooperException If the existing header cannot be read.
+     */
+    public void append(List<Task> archived) throws IOException, WooperException {
+        if (archived.isEmpty()) {
+            return;
+        }
+        long newCount = getCount() + archived.size();
+
+        ByteArrayOutputStream lines = new ByteArrayOutputStream();
+        Writer writer = new OutputStreamWriter(lines, StandardCharsets.UTF_8);
+        TaskJsonWriter json = new TaskJsonWriter(writer);
+        for (Task t : archived) {
+            json.writeTask(t);
+            writer.write('\n');
+        }
+        writer.flush();
+
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            if (channel.size() < HEADER_LENGTH) {
+                channel.truncate(0);
+                ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH).put(0, MAGIC).put(MAGIC.length, VERSION);
+                writeFully(channel, header, 0);
+            }
+            appendStart = channel.size();
+            countBeforeAppend = newCount - archived.size();
+            writeFully(channel, ByteBuffer.wrap(lines.toByteArray()), appendStart);
+            channel.force(false);
+            writeFully(channel, ByteBuffer.allocate(Long.BYTES).putLong(0, newCount), COUNT_OFFSET);
+            channel.force(false);
+        }
+
+        count = newCount;
+        if (tasks != null) {
+            tasks.addAll(archived);
+        }
+    }
+
+    /**
+     * Removes the tasks added by the last call to {@link #append}, when they could not be removed
+     * from the task list after all. The count is lowered before the tasks are cut off, so a crash
+     * in between leaves the tasks in the archive rather than counting tasks that are gone.
+     *
+     * @throws IOException If writing fails.
+     */
+    public void undoAppend() throws IOException {
+        if (appendStart == -1) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            writeFully(channel, ByteBuffer.allocate(Long.BYTES).putLong(0, countBeforeAppend), COUNT_OFFSET);
+            channel.force(false);
+            channel.truncate(appendStart);
+            channel.force(false);
+        }
+
+        if (tasks != null) {
+            tasks.subList((int) countBeforeAppend, tasks.size()).clear();
+        }
+        count = countBeforeAppend;
+        appendStart = -1;
+    }
+
+    private void writeFully(FileChannel channel, ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            position += channel.write(buf, position);
+        }
+    }
+}
@@ -0,0 +1,538 @@
+package wooper.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.Temporal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import wooper.exception.WooperException;
+import wooper.task.Deadline;
+import wooper.task.Event;
+import wooper.task.Task;
+import wooper.task.ToDo;
+
+/**
+ * Encodes tasks in a compact binary save file format and decodes them again.
+ * A file starts with the bytes {@code WOOP}, a version byte and the number of tasks as a varint.
+ * Each task follows as a varint byte length and a record holding a type byte, a flags byte,
+ * the dates as varint epoch days (or epoch minutes for date-times) and the length-prefixed
+ * UTF-8 description.
+ * Since version 2 the records are followed by an index of their file offsets as 8-byte integers
+ * and a fixed-size trailer, so that any task can be found without reading the ones before it.
+ * The trailer holds the offset of the index, an identifier of the file content and the bytes {@code WIDX}.
+ * Since version 3 each record is followed by a 4-byte CRC32 of the record, so that a damaged task
+ * can be detected and skipped without giving up on the rest of the file.
+ * A task with notes has a flag set and the offset of its notes as a varint after the description.
+ * A task with an ID likewise has a flag set and its ID as a varint after that.
+ */
+public class BinaryTaskCodec {
+    static final int TRAILER_LENGTH = 20;
+
+    private static final byte[] MAGIC = {'W', 'O', 'O', 'P'};
+    private static final byte[] TRAILER_MAGIC = {'W', 'I', 'D', 'X'};
+    private static final int VERSION = 3;
+    private static final int RECORD_CHECKSUM_LENGTH = 4;
+    private static final int HEADER_LENGTH = MAGIC.length + 1;
+
+    private static final int FLAG_DONE = 1;
+    private static final int FLAG_TIME = 1 << 1;
+    private static final int FLAG_SECONDS = 1 << 2;
+    private static final int FLAG_NOTES = 1 << 3;
+    private static final int FLAG_ID = 1 << 4;
+
+    private static final String CORRUPTED = "Save file is corrupted (invalid binary record).";
+
+    /**
+     * Returns whether the specified bytes start with the binary save file header.
+     *
+     * @param head First bytes of a file.
+     * @param length Number of bytes in {@code head} that were actually read.
+     * @return {@code true} if the bytes identify a binary save file.
+     */
+    public static boolean hasMagic(byte[] head, int length) {
+        if (length < MAGIC.length) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (head[i] != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of bytes needed to recognise a binary save file.
+     *
+     * @return The length of the file magic.
+     */
+    public static int getMagicLength() {
+        return MAGIC.length;
+    }
+
+    /**
+     * Writes the specified tasks to the output in the binary format.
+     *
+     * @param out      Destination of the encoded tasks. Should be buffered.
+     * @param taskList Tasks to be written.
+     * @throws IOException If writing fails.
+     */
+    public static void writeTaskList(OutputStream out, List<Task> taskList) throws IOException {
+        CRC32 crc = new CRC32();
+        CheckedOutputStream checked = new CheckedOutputStream(out, crc);
+        byte[] header = encodeHeader(taskList.size());
+        checked.write(header);
+
+        int count = taskList.size();
+        long[] offsets = new long[count];
+        long offset = header.length;
+        LazyTaskList lazyList = taskList instanceof LazyTaskList ? (LazyTaskList) taskList : null;
+        ByteArrayOutputStream record = new ByteArrayOutputStream();
+        for (int i = 0; i < count; i++) {
+            offsets[i] = offset;
+            ByteBuffer raw = lazyList == null ? null : lazyList.getUnreadRecord(i);
+            offset += writeRecord(checked, record, raw, taskList, i);
+        }
+        out.write(encodeFooter(offsets, offset, crc));
+    }
+
+    /**
+     * Returns the header of a binary save file holding the specified number of tasks.
+     */
+    static byte[] encodeHeader(int count) throws IOException {
+        ByteArrayOutputStream header = new ByteArrayOutputStream(HEADER_LENGTH + 5);
+        header.write(MAGIC);
+        header.write(VERSION);
+        writeVarint(header, count);
+        return header.toByteArray();
+    }
+
+    /**
+     * Writes the record of the task at the specified index, with its length and checksum.
+     * A record that was never decoded can be given as {@code raw} to be copied as it is.
+     *
+     * @return The number of bytes written.
+     */
+    static int writeRecord(OutputStream out, ByteArrayOutputStream record, ByteBuffer raw,
+            List<Task> taskList, int i) throws IOException {
+        record.reset();
+        if (raw != null) {
+            // copy tasks that were never read straight from the old file
+            byte[] bytes = new byte[raw.remaining()];
+            raw.get(bytes);
+            record.write(bytes);
+        } else {
+            encodeTask(record, taskList.get(i));
+        }
+        int length = record.size();
+        writeVarint(out, length);
+        record.writeTo(out);
+
+        byte[] checksum = ByteBuffer.allocate(RECORD_CHECKSUM_LENGTH)
+                .putInt(0, checksumOf(ByteBuffer.wrap(record.toByteArray()))).array();
+        out.write(checksum);
+        return varintLength(length) + length + RECORD_CHECKSUM_LENGTH;
+    }
+
+    /**
+     * Returns the record offset index and trailer that end a binary save file.
+     *
+     * @param offsets     File offset of each record.
+     * @param indexOffset File offset the index starts at, just after the last record.
+     * @param crc         Checksum of every byte before the index, which is updated with the index.
+     */
+    static byte[] encodeFooter(long[] offsets, long indexOffset, CRC32 crc) {
+        ByteBuffer footer = ByteBuffer.allocate(offsets.length * 8 + TRAILER_LENGTH);
+        for (long o : offsets) {
+            footer.putLong(o);
+        }
+        crc.update(footer.array(), 0, footer.position());
+
+        footer.putLong(indexOffset);
+        footer.putLong(crc.getValue());
+        footer.put(TRAILER_MAGIC);
+        return footer.array();
+    }
+
+    /**
+     * Returns the identifier stored in the trailer of the specified binary save file.
+     * The identifier changes whenever the content of the file changes.
+     *
+     * @param path Save file to be inspected.
+     * @return The content identifier, or -1 if the file is not a binary save file with a trailer.
+     * @throws IOException If reading fails.
+     */
+    public static long readSnapshotId(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer trailer = readTrailer(channel);
+            return trailer == null ? -1 : trailer.getLong(8);
+        }
+    }
+
+    /**
+     * Returns the trailer of the specified file, or null if it is not a binary save file with a trailer.
+     */
+    static ByteBuffer readTrailer(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < HEADER_LENGTH + TRAILER_LENGTH) {
+            return null;
+        }
+        ByteBuffer head = ByteBuffer.allocate(HEADER_LENGTH);
+        channel.read(head, 0);
+        if (!hasMagic(head.array(), head.position()) || head.get(MAGIC.length) < 2) {
+            return null;
+        }
+
+        ByteBuffer trailer = ByteBuffer.allocate(TRAILER_LENGTH);
+        channel.read(trailer, size - TRAILER_LENGTH);
+        for (int i = 0; i < TRAILER_MAGIC.length; i++) {
+            if (trailer.get(16 + i) != TRAILER_MAGIC[i]) {
+                return null;
+            }
+        }
+        long indexOffset = trailer.getLong(0);
+        if (indexOffset < HEADER_LENGTH || indexOffset > size - TRAILER_LENGTH) {
+            return null;
+        }
+        return trailer;
+    }
+
+    /**
+     * Returns the tasks read from a binary save file.
+     * A record that fails its checksum or cannot be decoded is put in the quarantine and skipped.
+     * If the framing itself is damaged, the rest of the file is put in the quarantine and the tasks
+     * read so far are returned.
+     *
+     * @param in         Source of the encoded tasks, positioned at the start of the file. Should be buffered.
+     * @param quarantine Collects the records that could not be read.
+     * @return The tasks that could be read.
+     * @throws IOException     If reading fails.
+     * @throws WooperException If the content is not a binary save file or is from a newer version.
+     */
+    public static ArrayList<Task> readTaskList(InputStream in, Quarantine quarantine)
+            throws IOException, WooperException {
+        byte[] head = in.readNBytes(HEADER_LENGTH);
+        if (!hasMagic(head, head.length) || head.length < HEADER_LENGTH) {
+            throw new WooperException("Save file is corrupted (missing binary header).");
+        }
+        int version = head[MAGIC.length];
+        if (version > VERSION) {
+            throw new WooperException("Save file was written by a newer version of Wooper.");
+        }
+
+        int count;
+        try {
+            count = (int) readVarint(in);
+        } catch (WooperException e) {
+            quarantine.add("task count", e.getMessage(), in.readAllBytes());
+            return new ArrayList<>();
+        }
+
+        ArrayList<Task> tasks = new ArrayList<>(Math.max(0, Math.min(count, 1 << 16)));
+        byte[] record = new byte[256];
+        for (int i = 0; i < count; i++) {
+            int length;
+            try {
+                length = (int) readVarint(in);
+            } catch (WooperException e) {
+                length = -1;
+            }
+            if (length > record.length) {
+                record = new byte[Math.max(length, record.length * 2)];
+            }
+            if (length < 0 || in.readNBytes(record, 0, length) != length) {
+                // without a record length there is no telling where the next record starts
+                quarantine.add("task " + (i + 1) + " onwards", "Save file is corrupted (truncated record).",
+                        in.readAllBytes());
+                return tasks;
+            }
+
+            String damage = null;
+            if (hasRecordChecksums(version)) {
+                byte[] checksum = in.readNBytes(RECORD_CHECKSUM_LENGTH);
+                if (checksum.length != RECORD_CHECKSUM_LENGTH
+                        || ByteBuffer.wrap(checksum).getInt() != checksumOf(ByteBuffer.wrap(record, 0, length))) {
+                    damage = "Save file is corrupted (record checksum mismatch).";
+                }
+            }
+            if (damage == null) {
+                try {
+                    tasks.add(decodeTask(ByteBuffer.wrap(record, 0, length)));
+                } catch (WooperException e) {
+                    damage = e.getMessage();
+                }
+            }
+            if (damage != null) {
+                quarantine.add("task " + (i + 1), damage, record, 0, length);
+            }
+        }
+
+        if (version >= 2) {
+            // the index is only needed for random access
+            byte[] trailer;
+            try {
+                in.skipNBytes(8L * count);
+                trailer = in.readNBytes(TRAILER_LENGTH);
+            } catch (EOFException e) {
+                trailer = new byte[0];
+            }
+            if (trailer.length != TRAILER_LENGTH
+                    || !Arrays.equals(trailer, 16, TRAILER_LENGTH, TRAILER_MAGIC, 0, TRAILER_MAGIC.length)) {
+                quarantine.add("trailer", "Save file is corrupted (missing binary trailer).", trailer);
+            }
+        }
+        return tasks;
+    }
+
+    /**
+     * Returns whether records in a file of the specified version are followed by a checksum.
+     */
+    static boolean hasRecordChecksums(int version) {
+        return version >= 3;
+    }
+
+    /**
+     * Returns the checksum stored after a record, computed over the record without its length prefix.
+     */
+    static int checksumOf(ByteBuffer record) {
+        CRC32 crc = new CRC32();
+        crc.update(record.duplicate());
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Writes the record for the specified task, without its length prefix.
+     *
+     * @param out Destination of the record.
+     * @param t   Task to be encoded.
+     * @throws IOException If writing fails.
+     */
+    public static void encodeTask(OutputStream out, Task t) throws IOException {
+        if (t instanceof Deadline d) {
+            Temporal by = d.getDueTemporal();
+            int flags = flagsFor(t, by);
+            out.write('D');
+            out.write(flags);
+            writeTemporal(out, by, flags);
+        } else if (t instanceof Event e) {
+            Temporal from = e.getStartTemporal();
+            Temporal to = e.getEndTemporal();
+            int flags = flagsFor(t, from) | flagsFor(t, to);
+            out.write('E');
+            out.write(flags);
+            writeTemporal(out, from, flags);
+            writeTemporal(out, to, flags);
+        } else {
+            out.write('T');
+            out.write(flagsFor(t, null));
+        }
+
+        byte[] desc = t.getTaskName().getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, desc.length);
+        out.write(desc);
+        if (t.hasNotes()) {
+            writeVarint(out, t.getNotesOffset());
+        }
+        if (t.getId() > 0) {
+            writeVarint(out, t.getId());
+        }
+    }
+
+    /**
+     * Returns the task stored in the record between the buffer's position and limit.
+     *
+     * @param buf Buffer holding the record, without its length prefix.
+     * @return The decoded task.
+     * @throws WooperException If the record is malformed.
+     */
+    public static Task decodeTask(ByteBuffer buf) throws WooperException {
+        try {
+            int type = buf.get();
+            int flags = buf.get();
+            Task task;
+            switch (type) {
+            case 'T':
+                task = new ToDo(readDescription(buf));
+                break;
+            case 'D':
+                Temporal by = readTemporal(buf, flags);
+                task = by instanceof LocalDateTime
+                        ? new Deadline(readDescription(buf), (LocalDateTime) by)
+                        : new Deadline(readDescription(buf), (LocalDate) by);
+                break;
+            case 'E':
+                Temporal from = readTemporal(buf, flags);
+                Temporal to = readTemporal(buf, flags);
+                task = from instanceof LocalDateTime
+                        ? new Event(readDescription(buf), (LocalDateTime) from, (LocalDateTime) to)
+                        : new Event(readDescription(buf), (LocalDate) from, (LocalDate) to);
+                break;
+            default:
+                throw new WooperException("Save file is corrupted (unknown task type).");
+            }
+            task.setDone((flags & FLAG_DONE) != 0);
+            if ((flags & FLAG_NOTES) != 0) {
+                task.setNotesOffset(readVarint(buf));
+            }
+            if ((flags & FLAG_ID) != 0) {
+                task.setId(readVarint(buf));
+            }
+            return task;
+        } catch (BufferUnderflowException | IllegalArgumentException | DateTimeException e) {
+            throw new WooperException(CORRUPTED);
+        }
+    }
+
+    /**
+     * Writes the specified value as an unsigned LEB128 varint.
+     *
+     * @param out   Destination of the varint.
+     * @param value Non-negative value to be written.
+     * @throws IOException If writing fails.
+     */
+    public static void writeVarint(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    /**
+     * Returns the unsigned LEB128 varint read from the stream.
+     *
+     * @param in Source of the varint.
+     * @return The value read.
+     * @throws IOException     If reading fails or the stream ends early.
+     * @throws WooperException If the varint is too long.
+     */
+    public static long readVarint(InputStream in) throws IOException, WooperException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b == -1) {
+                throw new EOFException();
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new WooperException(CORRUPTED);
+    }
+
+    /**
+     * Returns the unsigned LEB128 varint read from the buffer.
+     *
+     * @param buf Source of the varint.
+     * @return The value read.
+     * @throws WooperException If the varint is too long or runs past the buffer's limit.
+     */
+    public static long readVarint(ByteBuffer buf) throws WooperException {
+        long value = 0;
+        try {
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = buf.get();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+        } catch (BufferUnderflowException e) {
+            // falls through to corrupted
+        }
+        throw new WooperException(CORRUPTED);
+    }
+
+    private static int varintLength(long value) {
+        int length = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            length++;
+        }
+        return length;
+    }
+
+    private static int flagsFor(Task t, Temporal temporal) {
+        int flags = t.isDone() ? FLAG_DONE : 0;
+        if (t.hasNotes()) {
+            flags |= FLAG_NOTES;
+        }
+        if (t.getId() > 0) {
+            flags |= FLAG_ID;
+        }
+        if (temporal instanceof LocalDateTime dt) {
+            flags |= FLAG_TIME;
+            if (dt.getSecond() != 0 || dt.getNano() != 0) {
+                flags |= FLAG_SECONDS;
+            }
+        }
+        return flags;
+    }
+
+    private static void writeTemporal(OutputStream out, Temporal temporal, int flags) throws IOException {
+        if (temporal instanceof LocalDateTime dt) {
+            long seconds = dt.toEpochSecond(ZoneOffset.UTC);
+            // minute precision covers every date-time a user can enter, seconds only survive hand edits
+            boolean hasSeconds = (flags & FLAG_SECONDS) != 0;
+            writeSignedVarint(out, hasSeconds ? seconds : Math.floorDiv(seconds, 60));
+        } else {
+            writeSignedVarint(out, ((LocalDate) temporal).toEpochDay());
+        }
+    }
+
+    private static Temporal readTemporal(ByteBuffer buf, int flags) throws WooperException {
+        long value = readSignedVarint(buf);
+        if ((flags & FLAG_TIME) == 0) {
+            return LocalDate.ofEpochDay(value);
+        }
+        long seconds = (flags & FLAG_SECONDS) != 0 ? value : value * 60;
+        return LocalDateTime.ofEpochSecond(seconds, 0, ZoneOffset.UTC);
+    }
+
+    private static String readDescription(ByteBuffer buf) throws WooperException {
+        int length = (int) readVarint(buf);
+        if (length < 0 || length > buf.remaining()) {
+            throw new WooperException(CORRUPTED);
+        }
+        String desc;
+        if (buf.hasArray()) {
+            desc = new String(buf.array(), buf.arrayOffset() + buf.position(), length, StandardCharsets.UTF_8);
+            buf.position(buf.position() + length);
+        } else {
+            byte[] bytes = new byte[length];
+            buf.get(bytes);
+            desc = new String(bytes, StandardCharsets.UTF_8);
+        }
+        if (desc.isBlank()) {
+            throw new WooperException("Save file is corrupted (missing description).");
+        }
+        return desc;
+    }
+
+    private static void writeSignedVarint(OutputStream out, long value) throws IOException {
+        writeVarint(out, (value << 1) ^ (value >> 63));
+    }
+
+    private static long readSignedVarint(ByteBuffer buf) throws WooperException {
+        long raw = readVarint(buf);
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+}
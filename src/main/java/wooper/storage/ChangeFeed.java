@@ -0,0 +1,360 @@
+package wooper.storage;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import wooper.exception.WooperException;
+import wooper.task.Task;
+import wooper.task.TaskChange;
+
+/**
+ * Records every change made to the task list in an append-only file, for tools that follow the tasks.
+ * Each change is one JSON line carrying a sequence number that increases by one with every change,
+ * across every process writing to the same feed, followed by the time it was made, the operation
+ * ({@code A}dd, {@code U}pdate or {@code D}elete), the position in the task list and the task itself:
+ * <pre>{"seq":42,"time":1760000000000,"op":"U","i":3,"task":{"type":"T","desc":"read book","done":true}}</pre>
+ * An entry with operation {@code R} and no position means the tasks were replaced in a way that is not
+ * described by changes, and the save file must be read again.
+ * Entries are forced to disk before {@link #append} returns. A reader catches up with {@link #readAfter},
+ * which finds its place by binary search over the file, so it only reads the entries it has not seen.
+ */
+public class ChangeFeed {
+    private static final String SEQ_PREFIX = "{\"seq\":";
+    private static final int SEARCH_BLOCK = 4096;
+    private static final int READ_CHUNK = 4096;
+
+    private final Path path;
+    private final SaveFileLock lock;
+
+    /**
+     * Creates a feed backed by the specified file. The file is created when first appended to.
+     *
+     * @param inPath Path to the feed file.
+     */
+    public ChangeFeed(Path inPath) {
+        path = inPath;
+        lock = new SaveFileLock(inPath.resolveSibling(inPath.getFileName() + ".lock"));
+    }
+
+    /**
+     * Appends the specified changes, numbered after the last entry written by any process.
+     *
+     * @param changes Changes made to the task list, in the order they were made.
+     * @return The sequence number of the last entry written, or of the last entry in the feed if none were given.
+     * @throws IOException If writing fails.
+     */
+    public long append(List<TaskChange> changes) throws IOException {
+        return appendEntries(changes);
+    }
+
+    /**
+     * Appends an entry saying the tasks were replaced and must be read again from the save file.
+     *
+     * @return The sequence number of the entry.
+     * @throws IOException If writing fails.
+     */
+    public long appendReload() throws IOException {
+        return appendEntries(Collections.singletonList(null));
+    }
+
+    /**
+     * Appends an entry for each of the specified changes, where null stands for a reload entry.
+     */
+    private long appendEntries(List<TaskChange> changes) throws IOException {
+        lock.lock();
+        try {
+            Files.createDirectories(path.toAbsolutePath().getParent());
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE)) {
+                long end = completeLength(channel);
+                // an entry cut short by a crash was never acknowledged, so it is dropped
+                channel.truncate(end);
+                long seq = end == 0 ? 0 : readSeq(channel, lineStartBefore(channel, end - 1));
+                if (changes.isEmpty()) {
+                    return seq;
+                }
+
+                long time = System.currentTimeMillis();
+                StringWriter lines = new StringWriter();
+                for (TaskChange change : changes) {
+                    writeEntry(lines, ++seq, time, change);
+                }
+                ByteBuffer buf = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+                while (buf.hasRemaining()) {
+                    end += channel.write(buf, end);
+                }
+                channel.force(false);
+                return seq;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the entries with a sequence number greater than the specified one, in order.
+     *
+     * @param afterSeq Sequence number of the last entry already processed, or zero to read from the start.
+     * @param maxCount Largest number of entries to be returned.
+     * @return The entries that follow, at most {@code maxCount} of them.
+     * @throws IOException     If reading fails.
+     * @throws WooperException If an entry is malformed.
+     */
+    public List<Entry> readAfter(long afterSeq, int maxCount) throws IOException, WooperException {
+        ArrayList<Entry> entries = new ArrayList<>();
+        if (!Files.exists(path)) {
+            return entries;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long end = completeLength(channel);
+            long pos = findLineAfter(channel, afterSeq, end);
+            byte[] bytes = readRange(channel, pos, end);
+            int start = 0;
+            for (int i = 0; i < bytes.length && entries.size() < maxCount; i++) {
+                if (bytes[i] != '\n') {
+                    continue;
+                }
+                Entry entry = parseEntry(new String(bytes, start, i - start, StandardCharsets.UTF_8));
+                if (entry.getSeq() > afterSeq) {
+                    entries.add(entry);
+                }
+                start = i + 1;
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Returns the offset of a line at or before the first entry numbered after the specified sequence number.
+     * Narrows down the file by binary search until the remaining part is small enough to read through.
+     */
+    private long findLineAfter(FileChannel channel, long afterSeq, long end) throws IOException {
+        long lo = 0;
+        long hi = end;
+        while (hi - lo > SEARCH_BLOCK) {
+            long mid = lineStartAfter(channel, lo + (hi - lo) / 2, hi);
+            if (mid >= hi) {
+                break;
+            }
+            if (readSeq(channel, mid) <= afterSeq) {
+                lo = mid;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Returns the length of the feed up to the end of its last complete entry.
+     */
+    private long completeLength(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size == 0) {
+            return 0;
+        }
+        ByteBuffer last = ByteBuffer.allocate(1);
+        channel.read(last, size - 1);
+        if (last.get(0) == '\n') {
+            return size;
+        }
+        return lineStartBefore(channel, size - 1);
+    }
+
+    /**
+     * Returns the offset of the start of the line holding the byte at the specified offset.
+     */
+    private long lineStartBefore(FileChannel channel, long pos) throws IOException {
+        ByteBuffer chunk = ByteBuffer.allocate(READ_CHUNK);
+        long end = pos;
+        while (end > 0) {
+            long from = Math.max(0, end - READ_CHUNK);
+            chunk.clear().limit((int) (end - from));
+            readFully(channel, chunk, from);
+            for (int i = chunk.limit() - 1; i >= 0; i--) {
+                if (chunk.get(i) == '\n') {
+                    return from + i + 1;
+                }
+            }
+            end = from;
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the offset of the first line starting at or after the specified offset, or {@code limit} if none.
+     */
+    private long lineStartAfter(FileChannel channel, long pos, long limit) throws IOException {
+        if (pos == 0) {
+            return 0;
+        }
+        ByteBuffer chunk = ByteBuffer.allocate(READ_CHUNK);
+        long from = pos - 1;
+        while (from < limit) {
+            chunk.clear().limit((int) Math.min(READ_CHUNK, limit - from));
+            readFully(channel, chunk, from);
+            for (int i = 0; i < chunk.limit(); i++) {
+                if (chunk.get(i) == '\n') {
+                    return from + i + 1;
+                }
+            }
+            from += chunk.limit();
+        }
+        return limit;
+    }
+
+    private long readSeq(FileChannel channel, long lineStart) throws IOException {
+        ByteBuffer head = ByteBuffer.allocate(SEQ_PREFIX.length() + 20);
+        channel.read(head, lineStart);
+        String text = new String(head.array(), 0, head.position(), StandardCharsets.US_ASCII);
+        if (!text.startsWith(SEQ_PREFIX)) {
+            throw new IOException("Change feed is corrupted.");
+        }
+        int i = SEQ_PREFIX.length();
+        long seq = 0;
+        while (i < text.length() && Character.isDigit(text.charAt(i))) {
+            seq = seq * 10 + (text.charAt(i++) - '0');
+        }
+        return seq;
+    }
+
+    private byte[] readRange(FileChannel channel, long from, long to) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate((int) (to - from));
+        readFully(channel, buf, from);
+        return buf.array();
+    }
+
+    private void readFully(FileChannel channel, ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            int n = channel.read(buf, position + buf.position());
+            if (n < 0) {
+                throw new IOException("Change feed ended unexpectedly.");
+            }
+        }
+    }
+
+    private void writeEntry(StringWriter out, long seq, long time, TaskChange change) throws IOException {
+        out.write(SEQ_PREFIX + seq + ",\"time\":" + time + ",\"op\":");
+        if (change == null) {
+            out.write("\"R\"}\n");
+            return;
+        }
+        switch (change.getType()) {
+        case ADD:
+            out.write("\"A\"");
+            break;
+        case UPDATE:
+            out.write("\"U\"");
+            break;
+        default:
+            out.write("\"D\"");
+            break;
+        }
+        out.write(",\"i\":" + change.getIndex() + ",\"task\":");
+        new TaskJsonWriter(out).writeTask(change.getTask());
+        out.write("}\n");
+    }
+
+    private Entry parseEntry(String line) throws IOException, WooperException {
+        long seq = -1;
+        long time = 0;
+        String op = "";
+        int index = -1;
+        Task task = null;
+
+        TaskJsonReader reader = new TaskJsonReader(new StringReader(line));
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+            case "seq":
+                seq = reader.nextLong();
+                break;
+            case "time":
+                time = reader.nextLong();
+                break;
+            case "op":
+                op = reader.nextString();
+                break;
+            case "i":
+                index = (int) reader.nextLong();
+                break;
+            case "task":
+                task = reader.readTask();
+                break;
+            default:
+                reader.skipValue();
+                break;
+            }
+        }
+        reader.endObject();
+
+        switch (op) {
+        case "A":
+            return new Entry(seq, time, TaskChange.add(index, task));
+        case "U":
+            return new Entry(seq, time, TaskChange.update(index, task));
+        case "D":
+            return new Entry(seq, time, TaskChange.delete(index, task));
+        case "R":
+            return new Entry(seq, time, null);
+        default:
+            throw new WooperException("Change feed is corrupted (unknown operation).");
+        }
+    }
+
+    /**
+     * Represents one entry of the feed.
+     */
+    public static class Entry {
+        private final long seq;
+        private final long time;
+        private final TaskChange change;
+
+        private Entry(long inSeq, long inTime, TaskChange inChange) {
+            seq = inSeq;
+            time = inTime;
+            change = inChange;
+        }
+
+        public long getSeq() {
+            return seq;
+        }
+
+        /**
+         * Returns when the change was recorded, in milliseconds since the epoch.
+         *
+         * @return The time of the change.
+         */
+        public long getTime() {
+            return time;
+        }
+
+        /**
+         * Returns the change, or null if the tasks were replaced and must be read again.
+         *
+         * @return The change made to the task list.
+         */
+        public TaskChange getChange() {
+            return change;
+        }
+
+        /**
+         * Returns whether the tasks were replaced, so that the save file must be read again.
+         *
+         * @return {@code true} for a reload entry.
+         */
+        public boolean isReload() {
+            return change == null;
+        }
+    }
+}
@@ -0,0 +1,999 @@
+package wooper.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import javax.crypto.SecretKey;
+
+import wooper.enums.SnapshotFormat;
+import wooper.exception.WooperException;
+import wooper.task.Task;
+import wooper.task.TaskChange;
+import wooper.task.TaskIndex;
+
+/**
+ * Loads tasks from and saves tasks to a file on disk.
+ * Tasks are persisted in {@code data/wooper.json} as a JSON array by default, in the compact
+ * format of {@link BinaryTaskCodec}, or as a {@link PagedTaskFile}; the format is recognised
+ * from the file header when loading. Each format is read and written by its own class, which this
+ * storage chooses between: a {@link SnapshotFile} for JSON and binary files, a {@link PagedTaskFile},
+ * or a {@link ShardDirectory}. This storage ties them to the locking, journal, index and repair shared by all.
+ * Each task is stored with its type, description, completion status, and any relevant date information.
+ * Individual changes are appended to a {@link JournalFile} next to the save file and replayed on
+ * top of it when loading, so that a single change does not rewrite the whole file.
+ * The journal is folded back into the save file once it grows past a fixed size.
+ * A damaged record does not stop the rest of the tasks from loading: it is moved to a quarantine
+ * file next to the save file and reported through {@link #getDamagedRecords()}. The save file is then
+ * copied to a backup and left as it is, and nothing is written until {@link #repair} is called.
+ * The save file can be GZIP-compressed, which is chosen for files ending in {@code .gz};
+ * compressed and uncompressed files are both recognised when loading.
+ * Tasks can instead be partitioned by month into the shard files of a {@link ShardDirectory},
+ * so that old months are only read when needed.
+ * A {@link TaskIndex} over the tasks can be kept in an {@link IndexFile} next to the save file,
+ * and is loaded again only while it matches the tasks on disk.
+ * Tasks that are no longer active can be moved to an {@link ArchiveFile}, which is only read when searched.
+ * The save file can be encrypted, in which case it is kept as a {@link PagedTaskFile} whose pages are
+ * encrypted one by one.
+ * Several processes can share the same save file: every write is made under a {@link SaveFileLock},
+ * and changes written by another process are picked up with {@link #refresh}. Each write takes the lock
+ * and advances the generation of the save file once, however many files it touches; the helpers
+ * doing the work are only called with the lock already held.
+ * Within a process, reads, writes and the encoding of changes for a {@link WriteBehindSaver} all hold
+ * this storage's monitor, so that the journal counters are never changed by two threads at once.
+ */
+public class FileStorage implements Storage {
+    /**
+     * Number of journal entries after which the journal is checkpointed into the save file.
+     */
+    static final int CHECKPOINT_INTERVAL = 1000;
+
+    private static final String COMPRESSED_SUFFIX = ".gz";
+
+    /**
+     * Path to the file used for persisting tasks.
+     */
+    private final Path filePath;
+    private final SnapshotFile snapshotFile;
+
+    /**
+     * Journal holding changes made since the save file was last written.
+     */
+    private final JournalFile journal;
+
+    /**
+     * Format used when writing the save file. Either format is accepted when loading.
+     */
+    private SnapshotFormat format;
+
+    private long snapshotChecksum = -1;
+    private boolean isLazyLoading = false;
+    private boolean isCompressed;
+
+    /**
+     * Path to the file that damaged records are moved to when loading.
+     */
+    private final Path quarantinePath;
+    private Quarantine quarantine = new Quarantine();
+
+    /**
+     * Path to the copy of a damaged save file, and whether writes wait for the save file to be repaired.
+     */
+    private final Path backupPath;
+    private boolean isRepairPending = false;
+
+    private final IndexFile indexFile;
+
+    /**
+     * Lock shared with other processes using the same save file, and the generation of the save file
+     * this storage last read or wrote, or -1 if it has not loaded the save file yet.
+     */
+    private final SaveFileLock saveFileLock;
+    private long knownGeneration = -1;
+    private volatile boolean isOutOfDate = false;
+
+    /**
+     * Size and modification time of the save file when this storage last read or wrote it,
+     * used to tell when it has been edited by something other than a storage.
+     */
+    private long saveFileSize = -1;
+    private long saveFileModified = -1;
+
+    private final ArchiveFile archiveFile;
+    private int loadedSize = 0;
+
+    /**
+     * Save file held open while tasks are stored in pages, or null for the other formats.
+     */
+    private PagedTaskFile pagedFile = null;
+
+    /**
+     * Whether the save file is kept encrypted, and the key it is encrypted with.
+     */
+    private boolean isEncrypted = false;
+    private SecretKey encryptionKey = null;
+
+    /**
+     * Directory holding the monthly shards when partitioning is enabled.
+     */
+    private final ShardDirectory shardDirectory;
+    private boolean isPartitioned = false;
+    private int recentPartitionMonths = 0;
+    private ShardedTaskList shardedList = null;
+
+    /**
+     * Creates a storage backed by {@code data/wooper.json}.
+     */
+    public FileStorage() {
+        this(Paths.get("data", "wooper.json"));
+    }
+
+    /**
+     * Creates a storage backed by the specified JSON save file.
+     *
+     * @param inFilePath Path to the save file.
+     */
+    public FileStorage(Path inFilePath) {
+        this(inFilePath, SnapshotFormat.JSON);
+    }
+
+    /**
+     * Creates a storage backed by the specified save file, written in the specified format.
+     *
+     * @param inFilePath Path to the save file.
+     * @param inFormat   Format used when writing the save file.
+     */
+    public FileStorage(Path inFilePath, SnapshotFormat inFormat) {
+        filePath = inFilePath;
+        snapshotFile = new SnapshotFile(inFilePath);
+        journal = new JournalFile(inFilePath.resolveSibling(inFilePath.getFileName() + ".journal"));
+        quarantinePath = inFilePath.resolveSibling(inFilePath.getFileName() + ".quarantine");
+        backupPath = inFilePath.resolveSibling(inFilePath.getFileName() + ".bak");
+        indexFile = new IndexFile(inFilePath.resolveSibling(inFilePath.getFileName() + ".index"));
+        saveFileLock = new SaveFileLock(inFilePath.resolveSibling(inFilePath.getFileName() + ".lock"));
+        archiveFile = new ArchiveFile(inFilePath.resolveSibling(inFilePath.getFileName() + ".archive"));
+        shardDirectory = new ShardDirectory(inFilePath.resolveSibling(inFilePath.getFileName() + ".shards"));
+        format = inFormat;
+        isCompressed = inFilePath.getFileName().toString().endsWith(COMPRESSED_SUFFIX);
+    }
+
+    /**
+     * Sets the format used the next time the save file is written.
+     * The current content stays in its existing format until then.
+     *
+     * @param inFormat Format used when writing the save file.
+     */
+    public void setFormat(SnapshotFormat inFormat) {
+        format = inFormat;
+    }
+
+    /**
+     * Rewrites the save file in the specified format, folding in the journal.
+     * Either format can be converted to the other.
+     *
+     * @param source Save file to be converted. Its journal, if any, is applied first.
+     * @param target File the converted tasks are written to. May be the same as {@code source}.
+     * @param targetFormat Format to write the tasks in.
+     * @throws IOException     If writing the converted file fails.
+     * @throws WooperException If the source file cannot be read.
+     */
+    public static void convert(Path source, Path target, SnapshotFormat targetFormat)
+            throws IOException, WooperException {
+        FileStorage sourceStorage = new FileStorage(source);
+        List<Task> tasks = sourceStorage.load();
+        sourceStorage.close();
+
+        FileStorage targetStorage = new FileStorage(target, targetFormat);
+        targetStorage.save(tasks);
+        targetStorage.close();
+    }
+
+    /**
+     * Returns the list of tasks loaded from the save file, with any journalled changes applied.
+     * Returns an empty list if the save file does not exist or contains no tasks.
+     * Records that cannot be read are moved to the quarantine file, and the save file is rewritten
+     * with the remaining tasks. The journal is not applied in that case, since its positions
+     * refer to the tasks as they were before the damaged records were dropped.
+     *
+     * @return The list of tasks loaded from storage.
+     * @throws WooperException If the file cannot be read or the JSON content is invalid.
+     */
+    @Override
+    public synchronized List<Task> load() throws WooperException {
+        lockQuietly();
+        try {
+            // a damaged save file is rewritten while loading, which must not be taken for a stale write
+            knownGeneration = saveFileLock.readGeneration();
+            recordSaveFileStamp();
+            isOutOfDate = false;
+            List<Task> tasks = loadLocked();
+            knownGeneration = saveFileLock.readGeneration();
+            recordSaveFileStamp();
+            return tasks;
+        } catch (IOException e) {
+            throw new WooperException("Failed to read save file.");
+        } finally {
+            unlockQuietly();
+        }
+    }
+
+    private List<Task> loadLocked() throws WooperException {
+        if (isPartitioned) {
+            return loadPartitioned();
+        }
+        if (isEncrypted && encryptionKey == null) {
+            throw new WooperException("Save file encryption is on, but no key was given.");
+        }
+
+        quarantine = new Quarantine();
+        isRepairPending = false;
+        journal.reset();
+        List<Task> tasks = isLazyLoading ? loadMapped() : null;
+        if (tasks == null) {
+            tasks = loadSnapshot();
+        }
+
+        if (!quarantine.isEmpty()) {
+            quarantineDamagedRecords();
+        } else if (pagedFile == null) {
+            // a paged save file is updated in place and has no journal
+            journal.replay(tasks, snapshotChecksum);
+        }
+        if (isEncrypted && !isRepairPending && (pagedFile == null || !pagedFile.isEncrypted())
+                && Files.exists(filePath)) {
+            encryptSaveFile(tasks);
+        }
+        loadedSize = tasks.size();
+        return tasks;
+    }
+
+    /**
+     * Brings the specified tasks up to date with changes written by other processes since they were
+     * loaded or last refreshed. Only the generation counter is read if nothing has changed.
+     * Changes that another process appended to the journal are applied to the list in place;
+     * if it rewrote the save file instead, or the save file was edited by hand, the tasks are loaded again.
+     *
+     * @param tasks Tasks returned by the last load or refresh, with this storage's own changes applied.
+     * @return Null if nothing has changed, otherwise the up-to-date tasks, which may be {@code tasks} itself.
+     * @throws WooperException If the save file cannot be read.
+     */
+    @Override
+    public synchronized List<Task> refresh(List<Task> tasks) throws WooperException {
+        lockQuietly();
+        try {
+            long generation = saveFileLock.readGeneration();
+            boolean isSaveFileUnchanged = isSaveFileUnchanged();
+            if (knownGeneration == -1 || (generation == knownGeneration && !isOutOfDate && isSaveFileUnchanged)) {
+                return null;
+            }
+            if (!isOutOfDate && isSaveFileUnchanged && !isPartitioned && pagedFile == null
+                    && journal.replayNew(tasks)) {
+                knownGeneration = generation;
+                return tasks;
+            }
+            return load();
+        } catch (IOException e) {
+            throw new WooperException("Failed to read save file.");
+        } finally {
+            unlockQuietly();
+        }
+    }
+
+    /**
+     * Returns the changes that bring the specified tasks up to date with a JSON save file edited
+     * by something other than a storage, such as a text editor. Only the tasks that differ are decoded.
+     * The edited file is then taken as the save file the journal follows on from.
+     *
+     * @param tasks Tasks returned by the last load or refresh, with this storage's own changes applied.
+     * @return The changes to be applied to {@code tasks} in order, which are none if the save file is
+     *         unchanged, or null if the tasks must be brought up to date with {@link #refresh} instead.
+     * @throws WooperException If the save file cannot be read.
+     */
+    @Override
+    public synchronized List<TaskChange> readExternalChanges(List<Task> tasks) throws WooperException {
+        lockQuietly();
+        try {
+            if (knownGeneration == -1) {
+                return List.of();
+            }
+            if (isOutOfDate || saveFileLock.readGeneration() != knownGeneration) {
+                return null;
+            }
+            if (isSaveFileUnchanged()) {
+                return List.of();
+            }
+            if (isPartitioned || pagedFile != null || isRepairPending || !Files.exists(filePath)) {
+                return null;
+            }
+
+            BasicFileAttributes attributes = Files.readAttributes(filePath, BasicFileAttributes.class);
+            byte[] content = Files.readAllBytes(filePath);
+            List<TaskChange> changes;
+            try {
+                changes = SaveFileDiff.diff(tasks, content);
+            } catch (WooperException e) {
+                // a damaged task is left for a full load to quarantine
+                changes = null;
+            }
+            if (changes == null) {
+                return null;
+            }
+
+            saveFileSize = attributes.size();
+            saveFileModified = attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+            beginWrite();
+            try {
+                CRC32 crc = new CRC32();
+                crc.update(content);
+                snapshotChecksum = crc.getValue();
+                journal.start(snapshotChecksum, journal.getLastSeq());
+            } finally {
+                endWrite();
+            }
+            return changes;
+        } catch (IOException e) {
+            throw new WooperException("Failed to read save file.");
+        } finally {
+            unlockQuietly();
+        }
+    }
+
+    /**
+     * Returns whether a write was refused because another process had changed the tasks first.
+     * The tasks held by the caller are then out of date and are loaded again by the next {@link #refresh}.
+     *
+     * @return {@code true} if the tasks must be loaded again before they can be saved.
+     */
+    @Override
+    public synchronized boolean isOutOfDate() {
+        return isOutOfDate;
+    }
+
+    /**
+     * Returns the index stored alongside the tasks returned by the last load, if it is still up to date.
+     * The index is stale if the tasks were changed after it was saved, for example when the
+     * application did not exit normally.
+     *
+     * @return The stored index, or null if it has to be rebuilt.
+     */
+    @Override
+    public synchronized TaskIndex loadIndex() {
+        if (!canPersistIndex()) {
+            return null;
+        }
+        return indexFile.read(getGenerationId(), getGenerationSeq(), loadedSize);
+    }
+
+    /**
+     * Saves the specified index together with the generation of the tasks currently on disk.
+     * Every change to the tasks must already be written, so that the index matches them.
+     *
+     * @param index Index of the current tasks.
+     * @throws IOException If writing the index fails.
+     */
+    @Override
+    public synchronized void saveIndex(TaskIndex index) throws IOException {
+        if (canPersistIndex()) {
+            indexFile.write(index, getGenerationId(), getGenerationSeq());
+        }
+    }
+
+    /**
+     * Returns whether an index can be saved for the tasks on disk.
+     * Partitioned tasks have no single generation to tie an index to, and the index of an encrypted
+     * save file is not kept, since it holds the words of every description.
+     *
+     * @return {@code true} if {@link #saveIndex} stores the index.
+     */
+    @Override
+    public synchronized boolean canPersistIndex() {
+        return !isPartitioned && !isEncrypted && (pagedFile != null || snapshotChecksum != -1);
+    }
+
+    /**
+     * Returns the identity of the save file, or -1 for a paged save file, which is changed in place.
+     */
+    private long getGenerationId() {
+        return pagedFile != null ? -1 : snapshotChecksum;
+    }
+
+    /**
+     * Returns the sequence number of the last change written to the save file or its journal.
+     */
+    private long getGenerationSeq() {
+        return pagedFile != null ? pagedFile.getLastLsn() : journal.getLastSeq();
+    }
+
+    /**
+     * Moves the specified tasks to the archive and saves the tasks that remain.
+     * Nothing is archived unless the save file may be written. The archive is written first, so a crash
+     * part way through never loses a task, and it is cut back if the save file cannot be written.
+     *
+     * @param archived Tasks removed from the task list.
+     * @param taskList Tasks that remain in the task list.
+     * @throws IOException     If writing the archive or the save file fails.
+     * @throws WooperException If the existing archive cannot be read.
+     */
+    @Override
+    public synchronized void archive(List<Task> archived, List<Task> taskList) throws IOException, WooperException {
+        beginWrite();
+        try {
+            archiveFile.append(archived);
+            try {
+                saveLocked(taskList);
+            } catch (IOException e) {
+                archiveFile.undoAppend();
+                throw e;
+            }
+        } finally {
+            endWrite();
+        }
+    }
+
+    /**
+     * Returns the number of archived tasks without reading them.
+     *
+     * @return The number of tasks in the archive.
+     * @throws WooperException If the archive cannot be read.
+     */
+    @Override
+    public long getArchivedCount() throws WooperException {
+        return archiveFile.getCount();
+    }
+
+    /**
+     * Returns the archived tasks, reading the archive the first time they are asked for.
+     *
+     * @return The archived tasks, in the order they were archived.
+     * @throws WooperException If the archive cannot be read.
+     */
+    @Override
+    public List<Task> getArchivedTasks() throws WooperException {
+        return archiveFile.getTasks();
+    }
+
+    /**
+     * Returns a description of each record that could not be read during the last load.
+     *
+     * @return The descriptions of the damaged records, or an empty list if every record was read.
+     */
+    @Override
+    public List<String> getDamagedRecords() {
+        return quarantine.getReports();
+    }
+
+    /**
+     * Returns the path of the file that damaged records are moved to.
+     *
+     * @return The path of the quarantine file.
+     */
+    @Override
+    public Path getQuarantinePath() {
+        return quarantinePath;
+    }
+
+    /**
+     * Returns whether the last load found damaged records, so that the save file is not written
+     * until it is repaired.
+     *
+     * @return {@code true} if writes are refused until {@link #repair} is called.
+     */
+    @Override
+    public synchronized boolean isRepairPending() {
+        return isRepairPending;
+    }
+
+    /**
+     * Rewrites a save file that held damaged records with the specified tasks that could be read.
+     * The save file was copied to the backup when the damage was found, so the damaged records are kept there.
+     *
+     * @param taskList Tasks to be saved in place of the damaged save file.
+     * @throws IOException If writing the save file fails.
+     */
+    @Override
+    public synchronized void repair(List<Task> taskList) throws IOException {
+        if (!isRepairPending) {
+            return;
+        }
+        isRepairPending = false;
+        try {
+            save(taskList);
+        } catch (IOException e) {
+            isRepairPending = true;
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the path that a damaged save file is copied to before it is repaired.
+     *
+     * @return The path of the backup file.
+     */
+    @Override
+    public Path getBackupPath() {
+        return backupPath;
+    }
+
+    /**
+     * Sets whether binary save files are memory-mapped and their tasks read only when accessed.
+     * Has no effect on JSON save files, which are always read in full.
+     *
+     * @param isLazy Whether tasks should be read lazily.
+     */
+    public void setLazyLoading(boolean isLazy) {
+        isLazyLoading = isLazy;
+    }
+
+    /**
+     * Sets whether the save file is GZIP-compressed the next time it is written.
+     * Has no effect on paged save files, which are updated in place.
+     *
+     * @param inIsCompressed Whether the save file should be compressed.
+     */
+    public void setCompressed(boolean inIsCompressed) {
+        isCompressed = inIsCompressed;
+    }
+
+    /**
+     * Sets whether the save file is encrypted. An encrypted save file is always kept in the paged format,
+     * and a save file that is not encrypted yet is rewritten encrypted when next loaded.
+     * The key is also used to read a save file that is encrypted even when encryption is turned off,
+     * so that it can be written back unencrypted.
+     *
+     * @param inIsEncrypted Whether the save file should be encrypted.
+     * @param inKey         AES key for the save file, or null if none was given.
+     */
+    public void setEncryption(boolean inIsEncrypted, SecretKey inKey) {
+        isEncrypted = inIsEncrypted;
+        encryptionKey = inKey;
+        if (inIsEncrypted) {
+            format = SnapshotFormat.PAGED;
+        }
+    }
+
+    /**
+     * Sets whether tasks are stored in monthly shards instead of the save file.
+     * When enabled, the first load moves the tasks of an existing save file into shards,
+     * leaving the save file itself in place. Shards are always written as JSON.
+     *
+     * @param inIsPartitioned Whether tasks are partitioned by month.
+     * @param inRecentMonths  Number of past months whose shards are read when loading.
+     */
+    public void setPartitioning(boolean inIsPartitioned, int inRecentMonths) {
+        isPartitioned = inIsPartitioned;
+        recentPartitionMonths = inRecentMonths;
+    }
+
+    /**
+     * Saves the specified list of tasks to the save file and clears the journal.
+     * Creates the parent directory if it does not already exist.
+     *
+     * @param taskList List of tasks to be saved.
+     * @throws IOException If writing to the save file fails.
+     */
+    @Override
+    public synchronized void save(List<Task> taskList) throws IOException {
+        beginWrite();
+        try {
+            saveLocked(taskList);
+        } finally {
+            endWrite();
+        }
+    }
+
+    /**
+     * Appends the specified change to the journal.
+     * Checkpoints the journal into the save file once it holds too many entries.
+     *
+     * @param change   Change made to the task list.
+     * @param taskList Current list of tasks, used when a checkpoint is due.
+     * @throws IOException If writing to the journal or the save file fails.
+     */
+    @Override
+    public synchronized void append(TaskChange change, List<Task> taskList) throws IOException {
+        beginWrite();
+        try {
+            if (isPartitioned) {
+                if (shardedList == null || shardedList != taskList) {
+                    savePartitioned(taskList);
+                } else {
+                    shardDirectory.write(shardedList.apply(change));
+                }
+                return;
+            }
+            if (format == SnapshotFormat.PAGED) {
+                if (pagedFile == null) {
+                    savePaged(taskList);
+                } else {
+                    pagedFile.write(pagedFile.apply(change));
+                }
+                return;
+            }
+
+            String line = journal.encode(change);
+            if (!journal.isReady() || journal.getEntries() + 1 >= CHECKPOINT_INTERVAL) {
+                // no save file to journal against yet, or the journal is due to be folded in
+                saveLocked(taskList);
+                return;
+            }
+            journal.append(List.of(line));
+        } finally {
+            endWrite();
+        }
+    }
+
+    /**
+     * Releases the save file if it is held open.
+     *
+     * @throws IOException If closing the file fails.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (pagedFile != null) {
+            pagedFile.close();
+            pagedFile = null;
+        }
+    }
+
+    synchronized boolean isPartitioned() {
+        return isPartitioned;
+    }
+
+    /**
+     * Returns the shard files to be rewritten for the specified change without writing them.
+     * If the list is not the one loaded from the shards, every shard is rewritten right away instead.
+     */
+    synchronized List<ShardDirectory.ShardWrite> encodeShardChange(TaskChange change, List<Task> taskList)
+            throws IOException {
+        if (shardedList == null || shardedList != taskList) {
+            save(taskList);
+            return List.of();
+        }
+        return shardedList.apply(change);
+    }
+
+    /**
+     * Writes the specified shard files.
+     */
+    synchronized void writeShards(List<ShardDirectory.ShardWrite> writes) throws IOException {
+        beginWrite();
+        try {
+            shardDirectory.write(writes);
+        } finally {
+            endWrite();
+        }
+    }
+
+    synchronized boolean isPaged() {
+        return format == SnapshotFormat.PAGED;
+    }
+
+    /**
+     * Returns the pages to be rewritten for the specified change without writing them.
+     * If the save file is not paged yet, it is rewritten in the paged format right away instead.
+     */
+    synchronized List<PagedTaskFile.PageWrite> encodePageChange(TaskChange change, List<Task> taskList)
+            throws IOException {
+        if (pagedFile == null) {
+            save(taskList);
+            return List.of();
+        }
+        return pagedFile.apply(change);
+    }
+
+    /**
+     * Writes the specified pages to the paged save file.
+     */
+    synchronized void writePages(List<PagedTaskFile.PageWrite> pageWrites) throws IOException {
+        beginWrite();
+        try {
+            if (pagedFile != null) {
+                pagedFile.write(pageWrites);
+            }
+        } finally {
+            endWrite();
+        }
+    }
+
+    synchronized boolean isJournalReady() {
+        return journal.isReady();
+    }
+
+    synchronized int getJournalEntries() {
+        return journal.getEntries();
+    }
+
+    /**
+     * Returns the save file content for the specified list of tasks without writing it.
+     * Changes encoded before this call are considered part of the returned snapshot.
+     */
+    synchronized EncodedSnapshot encodeSnapshot(List<Task> taskList) throws IOException {
+        return new EncodedSnapshot(SnapshotFile.encode(taskList, format), journal.getLastSeq());
+    }
+
+    /**
+     * Returns the journal line for the specified change without writing it.
+     * Each call assigns the next sequence number, so lines must be appended in the order encoded.
+     */
+    synchronized String encodeChange(TaskChange change) throws IOException {
+        return journal.encode(change);
+    }
+
+    /**
+     * Replaces the save file with the specified snapshot and starts a new journal on top of it.
+     */
+    synchronized void writeSnapshot(EncodedSnapshot snapshot) throws IOException {
+        beginWrite();
+        try {
+            writeSnapshotLocked(snapshot);
+        } finally {
+            endWrite();
+        }
+    }
+
+    /**
+     * Appends the specified encoded changes to the journal in a single write.
+     */
+    synchronized void appendToJournal(List<String> lines) throws IOException {
+        beginWrite();
+        try {
+            journal.append(lines);
+        } finally {
+            endWrite();
+        }
+    }
+
+    /**
+     * Saves the specified tasks in the format in use. The lock must be held.
+     */
+    private void saveLocked(List<Task> taskList) throws IOException {
+        if (isPartitioned) {
+            savePartitioned(taskList);
+            return;
+        }
+        if (format == SnapshotFormat.PAGED) {
+            savePaged(taskList);
+            return;
+        }
+        close();
+        snapshotChecksum = snapshotFile.write(taskList, format, isCompressed);
+        journal.start(snapshotChecksum, journal.getLastSeq());
+    }
+
+    /**
+     * Replaces the save file with the specified snapshot and starts a new journal on top of it.
+     * The lock must be held.
+     */
+    private void writeSnapshotLocked(EncodedSnapshot snapshot) throws IOException {
+        snapshotChecksum = snapshotFile.write(snapshot.getContent(), isCompressed);
+        journal.start(snapshotChecksum, snapshot.getLastSeq());
+    }
+
+    private ArrayList<Task> loadSnapshot() throws WooperException {
+        // if file dont exist = no data
+        if (!Files.exists(filePath)) {
+            return new ArrayList<>();
+        }
+
+        try {
+            // only the header is read to tell the paged format from the others
+            byte[] head = snapshotFile.readHead();
+            if (PagedTaskFile.hasMagic(head, head.length)) {
+                close();
+                pagedFile = PagedTaskFile.open(filePath, quarantine, encryptionKey);
+                return pagedFile.getLoadedTasks();
+            }
+        } catch (IOException e) {
+            throw new WooperException("Failed to read save file.");
+        }
+        SnapshotFile.Contents contents = snapshotFile.read(quarantine);
+        snapshotChecksum = contents.getSnapshotId();
+        return contents.getTasks();
+    }
+
+    /**
+     * Moves the damaged records found while loading to the quarantine file and copies the save file to the
+     * backup. The save file itself is left as it is until {@link #repair} is called, however few tasks
+     * could be read. Records already moved when the save file was last loaded are not moved again.
+     */
+    private void quarantineDamagedRecords() throws WooperException {
+        isRepairPending = true;
+        try {
+            if (Files.exists(backupPath) && Files.mismatch(filePath, backupPath) == -1) {
+                return;
+            }
+            byte[] unapplied = journal.readIfChanged();
+            if (unapplied != null) {
+                quarantine.add("journal", "Not applied because earlier records were damaged.", unapplied);
+            }
+            // records recovered from decrypted pages, or bound for an encrypted file, are not written out in the clear
+            boolean isSecret = isEncrypted || (pagedFile != null && pagedFile.isEncrypted());
+            quarantine.appendTo(quarantinePath, isSecret ? encryptionKey : null);
+            Files.copy(filePath, backupPath, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new WooperException("Failed to move damaged records to " + quarantinePath + ".");
+        }
+    }
+
+    /**
+     * Rewrites the save file as an encrypted paged file holding the specified tasks,
+     * removing the unencrypted journal and index along with it.
+     */
+    private void encryptSaveFile(List<Task> tasks) throws WooperException {
+        try {
+            close();
+            save(tasks);
+            indexFile.delete();
+        } catch (IOException e) {
+            throw new WooperException("Failed to encrypt save file.");
+        }
+    }
+
+    /**
+     * Returns the tasks of a binary save file as a list that reads each task when it is first accessed,
+     * or null if the save file does not support this.
+     */
+    private List<Task> loadMapped() throws WooperException {
+        if (!Files.exists(filePath)) {
+            return null;
+        }
+        try {
+            MappedTaskStore store = MappedTaskStore.open(filePath);
+            if (store == null) {
+                return null;
+            }
+            snapshotChecksum = store.getSnapshotId();
+            return new LazyTaskList(store);
+        } catch (IOException e) {
+            throw new WooperException("Failed to read save file.");
+        }
+    }
+
+    /**
+     * Returns the tasks stored in the monthly shards, moving the tasks of the save file
+     * into shards first if there are none yet.
+     */
+    private List<Task> loadPartitioned() throws WooperException {
+        if (shardDirectory.exists()) {
+            shardedList = ShardedTaskList.open(shardDirectory, recentPartitionMonths);
+            return shardedList;
+        }
+
+        isPartitioned = false;
+        try {
+            List<Task> tasks = load();
+            close();
+            shardedList = ShardedTaskList.create(shardDirectory, tasks);
+            writeShards(shardedList.takeWrites());
+            return shardedList;
+        } catch (IOException e) {
+            throw new WooperException("Failed to write save file.");
+        } finally {
+            isPartitioned = true;
+        }
+    }
+
+    private void savePartitioned(List<Task> taskList) throws IOException {
+        if (shardedList != null && shardedList == taskList) {
+            shardedList.markAllChanged();
+        } else {
+            shardedList = ShardedTaskList.create(shardDirectory, taskList);
+        }
+        shardDirectory.write(shardedList.takeWrites());
+    }
+
+    /**
+     * Writes the specified tasks to the paged save file, rewriting only the pages that changed.
+     * Replaces the save file with a new paged one if it is not paged yet.
+     */
+    private void savePaged(List<Task> taskList) throws IOException {
+        if (pagedFile != null) {
+            pagedFile.write(pagedFile.sync(taskList));
+            return;
+        }
+
+        // create folder if missing
+        Files.createDirectories(filePath.getParent());
+        Path tmpPath = filePath.resolveSibling(filePath.getFileName() + ".tmp");
+        pagedFile = PagedTaskFile.create(filePath, tmpPath, taskList, isEncrypted ? encryptionKey : null);
+
+        // changes are now written to the pages directly
+        journal.delete();
+    }
+
+    /**
+     * Takes the lock for a write, refusing to write over changes made by another process
+     * that this storage has not seen. A storage that has not loaded the save file replaces it blindly.
+     */
+    private void beginWrite() throws IOException {
+        if (isRepairPending) {
+            throw new IOException("Save file has damaged records and must be repaired before it is written.");
+        }
+        saveFileLock.lock();
+        if (isOutOfDate || (knownGeneration != -1
+                && (saveFileLock.readGeneration() != knownGeneration || !isSaveFileUnchanged()))) {
+            isOutOfDate = true;
+            saveFileLock.unlock();
+            throw new IOException("Tasks were changed by another process since they were last read.");
+        }
+    }
+
+    /**
+     * Records that the save file has changed and releases the lock taken by {@link #beginWrite}.
+     */
+    private void endWrite() throws IOException {
+        try {
+            knownGeneration = saveFileLock.readGeneration() + 1;
+            saveFileLock.writeGeneration(knownGeneration);
+            recordSaveFileStamp();
+        } finally {
+            saveFileLock.unlock();
+        }
+    }
+
+    private boolean isSaveFileUnchanged() throws IOException {
+        if (!Files.exists(filePath)) {
+            return saveFileSize == -1;
+        }
+        BasicFileAttributes attributes = Files.readAttributes(filePath, BasicFileAttributes.class);
+        return attributes.size() == saveFileSize
+                && attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS) == saveFileModified;
+    }
+
+    private void recordSaveFileStamp() throws IOException {
+        if (!Files.exists(filePath)) {
+            saveFileSize = -1;
+            saveFileModified = -1;
+            return;
+        }
+        BasicFileAttributes attributes = Files.readAttributes(filePath, BasicFileAttributes.class);
+        saveFileSize = attributes.size();
+        saveFileModified = attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+    }
+
+    private void lockQuietly() throws WooperException {
+        try {
+            saveFileLock.lock();
+        } catch (IOException e) {
+            throw new WooperException("Failed to lock save file.");
+        }
+    }
+
+    private void unlockQuietly() throws WooperException {
+        try {
+            saveFileLock.unlock();
+        } catch (IOException e) {
+            throw new WooperException("Failed to unlock save file.");
+        }
+    }
+
+    /**
+     * Holds the encoded content of a save file, split across one or more buffers in file order,
+     * together with the sequence number of the last change it includes.
+     */
+    static class EncodedSnapshot {
+        private final ByteBuffer[] content;
+        private final long lastSeq;
+
+        EncodedSnapshot(ByteBuffer[] inContent, long inLastSeq) {
+            content = inContent;
+            lastSeq = inLastSeq;
+        }
+
+        ByteBuffer[] getContent() {
+            return content;
+        }
+
+        long getLastSeq() {
+            return lastSeq;
+        }
+    }
+}
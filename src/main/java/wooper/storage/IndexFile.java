@@ -0,0 +1,202 @@
+package wooper.storage;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import wooper.exception.WooperException;
+import wooper.task.TaskIndex;
+
+/**
+ * Stores a {@link TaskIndex} in a file next to the save file, so it does not have to be rebuilt on startup.
+ * The file records the generation of the task data it was built from: the identity of the save file
+ * and the last change applied on top of it. An index whose generation does not match the data
+ * that was loaded is stale and is ignored.
+ *
+ * <p>An index refers to tasks by ID, and tasks saved before IDs were kept are given new ones each
+ * time they are loaded. The file therefore also records a checksum of the IDs it covers, which is
+ * checked against the loaded tasks before the index is used.
+ *
+ * <p>Layout: the magic bytes {@code WIDX}, a version byte, the generation as two longs, the checksum
+ * of the task IDs as a long, then varints for the task count, each word with the IDs of its tasks
+ * stored as differences, and each deadline with its due time and ID, followed by a CRC32 of everything
+ * before it.
+ */
+public class IndexFile {
+    private static final byte[] MAGIC = {'W', 'I', 'D', 'X'};
+    private static final byte VERSION = 3;
+
+    private final Path path;
+
+    /**
+     * Creates an index file at the specified path.
+     *
+     * @param inPath Path to the index file.
+     */
+    public IndexFile(Path inPath) {
+        path = inPath;
+    }
+
+    /**
+     * Returns the index stored in the file if it was built from the specified generation of the task data.
+     *
+     * @param snapshotId Identity of the save file the tasks were loaded from.
+     * @param lastSeq    Sequence number of the last change applied on top of the save file.
+     * @param size       Number of tasks loaded.
+     * @return The stored index, or null if there is none, it is stale, or it cannot be read.
+     */
+    public TaskIndex read(long snapshotId, long lastSeq, int size) {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try {
+            byte[] content = Files.readAllBytes(path);
+            if (content.length < MAGIC.length + 1 + 4
+                    || !Arrays.equals(Arrays.copyOf(content, MAGIC.length), MAGIC)
+                    || content[MAGIC.length] != VERSION) {
+                return null;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(content, 0, content.length - 4);
+            if (ByteBuffer.wrap(content).getInt(content.length - 4) != (int) crc.getValue()) {
+                return null;
+            }
+
+            DataInputStream in = new DataInputStream(
+                    new ByteArrayInputStream(content, MAGIC.length + 1, content.length - MAGIC.length - 5));
+            if (in.readLong() != snapshotId || in.readLong() != lastSeq) {
+                return null;
+            }
+            long idChecksum = in.readLong();
+            if (readCount(in) != size) {
+                return null;
+            }
+            return readEntries(in, size, idChecksum);
+        } catch (IOException | WooperException | RuntimeException e) {
+            // a damaged index is rebuilt like a stale one
+            return null;
+        }
+    }
+
+    /**
+     * Writes the specified index, built from the specified generation of the task data.
+     * The file is written under a temporary name first and then moved into place.
+     *
+     * @param index      Index to be stored.
+     * @param snapshotId Identity of the save file the tasks are stored in.
+     * @param lastSeq    Sequence number of the last change applied on top of the save file.
+     * @throws IOException If writing fails.
+     */
+    public void write(TaskIndex index, long snapshotId, long lastSeq) throws IOException {
+        Path tmpPath = path.resolveSibling(path.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (OutputStream file = new BufferedOutputStream(Files.newOutputStream(tmpPath))) {
+            DataOutputStream out = new DataOutputStream(new CheckedOutputStream(file, crc));
+            out.write(MAGIC);
+            out.write(VERSION);
+            out.writeLong(snapshotId);
+            out.writeLong(lastSeq);
+            out.writeLong(index.getIdChecksum());
+            writeEntries(out, index);
+            out.flush();
+            new DataOutputStream(file).writeInt((int) crc.getValue());
+        }
+        Files.move(tmpPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Deletes the index file if it exists.
+     *
+     * @throws IOException If deleting fails.
+     */
+    public void delete() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    private void writeEntries(OutputStream out, TaskIndex index) throws IOException {
+        BinaryTaskCodec.writeVarint(out, index.size());
+        BinaryTaskCodec.writeVarint(out, index.getTokens().size());
+        for (String token : index.getTokens()) {
+            byte[] bytes = token.getBytes(StandardCharsets.UTF_8);
+            BinaryTaskCodec.writeVarint(out, bytes.length);
+            out.write(bytes);
+            long[] ids = index.getPostings(token);
+            BinaryTaskCodec.writeVarint(out, ids.length);
+            long previous = 0;
+            for (long id : ids) {
+                BinaryTaskCodec.writeVarint(out, id - previous);
+                previous = id;
+            }
+        }
+
+        long[] keys = index.getDeadlineKeys();
+        long[] ids = index.getDeadlineOrder();
+        BinaryTaskCodec.writeVarint(out, keys.length);
+        long previousKey = 0;
+        for (int i = 0; i < keys.length; i++) {
+            long delta = keys[i] - previousKey;
+            // the first key can be before the epoch; the rest only go up
+            BinaryTaskCodec.writeVarint(out, (delta << 1) ^ (delta >> 63));
+            BinaryTaskCodec.writeVarint(out, ids[i]);
+            previousKey = keys[i];
+        }
+    }
+
+    private TaskIndex readEntries(InputStream in, int size, long idChecksum) throws IOException, WooperException {
+        int tokenCount = readCount(in);
+        HashMap<String, long[]> postings = new HashMap<>(tokenCount * 2);
+        for (int i = 0; i < tokenCount; i++) {
+            byte[] bytes = in.readNBytes(readCount(in));
+            long[] ids = new long[readCount(in)];
+            long previous = 0;
+            for (int j = 0; j < ids.length; j++) {
+                long delta = BinaryTaskCodec.readVarint(in);
+                if (delta <= 0) {
+                    throw new WooperException("Invalid task ID in index.");
+                }
+                previous += delta;
+                ids[j] = previous;
+            }
+            postings.put(new String(bytes, StandardCharsets.UTF_8), ids);
+        }
+
+        int dueCount = readCount(in);
+        long[] keys = new long[dueCount];
+        long[] ids = new long[dueCount];
+        long previousKey = 0;
+        for (int i = 0; i < dueCount; i++) {
+            long zigzag = BinaryTaskCodec.readVarint(in);
+            previousKey += (zigzag >>> 1) ^ -(zigzag & 1);
+            keys[i] = previousKey;
+            ids[i] = BinaryTaskCodec.readVarint(in);
+            if (ids[i] <= 0) {
+                throw new WooperException("Invalid task ID in index.");
+            }
+        }
+        if (in.read() != -1) {
+            throw new WooperException("Unexpected data after index.");
+        }
+        return TaskIndex.of(size, idChecksum, postings, keys, ids);
+    }
+
+    private int readCount(InputStream in) throws IOException, WooperException {
+        long count = BinaryTaskCodec.readVarint(in);
+        if (count < 0 || count > Integer.MAX_VALUE - 8) {
+            throw new WooperException("Invalid count in index.");
+        }
+        return (int) count;
+    }
+}
@@ -0,0 +1,355 @@
+package wooper.storage;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+import wooper.enums.ChangeType;
+import wooper.exception.WooperException;
+import wooper.task.Task;
+import wooper.task.TaskChange;
+
+/**
+ * Represents the journal kept next to a JSON or binary save file, holding the changes made since the
+ * save file was last written, one JSON object per line. The first line ties the journal to the save file
+ * it follows on from, by the identity of that file and the sequence number of the last change it includes.
+ * Each later line records one change with its own sequence number.
+ */
+public class JournalFile {
+    private final Path path;
+
+    /**
+     * Header line of the journal and the number of its bytes that have been applied to the loaded tasks.
+     */
+    private String header = null;
+    private long offset = 0;
+
+    private long nextSeq = 1;
+    private int entries = 0;
+    private boolean isReady = false;
+
+    /**
+     * Creates a journal backed by the specified file. The file is created when a journal is started.
+     *
+     * @param inPath Path to the journal file.
+     */
+    public JournalFile(Path inPath) {
+        path = inPath;
+    }
+
+    /**
+     * Returns whether a journal tied to the current save file has been read or started,
+     * so that changes can be appended to it.
+     *
+     * @return {@code true} if changes can be appended.
+     */
+    public boolean isReady() {
+        return isReady;
+    }
+
+    /**
+     * Returns the number of changes in the journal.
+     *
+     * @return The number of entries after the header.
+     */
+    public int getEntries() {
+        return entries;
+    }
+
+    /**
+     * Returns the sequence number of the last change encoded, which the next save file includes.
+     *
+     * @return The last sequence number given out, or zero if none has been.
+     */
+    public long getLastSeq() {
+        return nextSeq - 1;
+    }
+
+    /**
+     * Forgets what was read from the journal, before the save file is loaded again.
+     */
+    public void reset() {
+        isReady = false;
+        entries = 0;
+        header = null;
+        offset = 0;
+    }
+
+    /**
+     * Applies the changes recorded in the journal to the specified list of tasks.
+     * The journal is ignored if it was written against a different save file, which happens
+     * when a checkpoint was interrupted after the save file had already been replaced.
+     * Replay stops at the first unreadable entry and the journal is cut back to that point,
+     * dropping a change that was only partially written.
+     *
+     * @param tasks      Tasks read from the save file.
+     * @param snapshotId Identity of the save file the tasks were read from.
+     * @throws WooperException If the journal cannot be read.
+     */
+    public void replay(List<Task> tasks, long snapshotId) throws WooperException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try {
+            byte[] journal = Files.readAllBytes(path);
+            int lineEnd = indexOf(journal, 0, (byte) '\n');
+            if (lineEnd == -1 || !isJournalFor(new String(journal, 0, lineEnd, StandardCharsets.UTF_8), snapshotId)) {
+                return;
+            }
+            isReady = true;
+            header = new String(journal, 0, lineEnd + 1, StandardCharsets.UTF_8);
+            offset = journal.length;
+
+            int lineStart = lineEnd + 1;
+            while (lineStart < journal.length) {
+                lineEnd = indexOf(journal, lineStart, (byte) '\n');
+                // a line without its newline was cut short by a crash
+                if (lineEnd == -1
+                        || !applyLine(new String(journal, lineStart, lineEnd - lineStart,
+                                StandardCharsets.UTF_8), tasks)) {
+                    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                        channel.truncate(lineStart);
+                    }
+                    offset = lineStart;
+                    break;
+                }
+                entries++;
+                lineStart = lineEnd + 1;
+            }
+        } catch (IOException e) {
+            throw new WooperException("Failed to read journal file.");
+        }
+    }
+
+    /**
+     * Applies the journal entries written by other processes since the journal was last read.
+     *
+     * @param tasks Tasks with every entry read so far applied.
+     * @return False if the save file was rewritten in the meantime or an entry cannot be applied,
+     *         in which case the tasks must be loaded again.
+     * @throws IOException If the journal cannot be read.
+     */
+    public boolean replayNew(List<Task> tasks) throws IOException {
+        if (header == null || !Files.exists(path)) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            byte[] headerBytes = header.getBytes(StandardCharsets.UTF_8);
+            ByteBuffer head = ByteBuffer.allocate(headerBytes.length);
+            channel.read(head, 0);
+            if (!Arrays.equals(head.array(), headerBytes) || channel.size() < offset) {
+                return false;
+            }
+
+            ByteBuffer added = ByteBuffer.allocate((int) (channel.size() - offset));
+            while (added.hasRemaining() && channel.read(added, offset + added.position()) >= 0) {
+                // read up to the end of the journal
+            }
+            byte[] journal = added.array();
+            int lineStart = 0;
+            int lineEnd;
+            while ((lineEnd = indexOf(journal, lineStart, (byte) '\n')) != -1) {
+                if (!applyLine(new String(journal, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8), tasks)) {
+                    return false;
+                }
+                entries++;
+                lineStart = lineEnd + 1;
+            }
+            offset += lineStart;
+            return true;
+        }
+    }
+
+    /**
+     * Returns the content of the journal if it holds any changes, such as changes that could not be
+     * applied because the save file was damaged.
+     *
+     * @return The whole journal, or null if it does not exist or holds no changes.
+     * @throws IOException If the journal cannot be read.
+     */
+    public byte[] readIfChanged() throws IOException {
+        byte[] journal = Files.exists(path) ? Files.readAllBytes(path) : new byte[0];
+        int headerEnd = indexOf(journal, 0, (byte) '\n');
+        return headerEnd != -1 && headerEnd + 1 < journal.length ? journal : null;
+    }
+
+    /**
+     * Starts a new, empty journal tied to the save file that was just written,
+     * and forces its header to disk before returning.
+     *
+     * @param snapshotId Identity of the save file.
+     * @param lastSeq    Sequence number of the last change the save file includes.
+     * @throws IOException If the journal cannot be written.
+     */
+    public void start(long snapshotId, long lastSeq) throws IOException {
+        String line = "{\"snapshot\":" + snapshotId + ",\"seq\":" + lastSeq + "}\n";
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, ByteBuffer.wrap(bytes));
+            channel.force(false);
+        }
+        header = line;
+        offset = bytes.length;
+        entries = 0;
+        isReady = true;
+    }
+
+    /**
+     * Deletes the journal, once changes are written to the save file directly.
+     *
+     * @throws IOException If the journal cannot be deleted.
+     */
+    public void delete() throws IOException {
+        Files.deleteIfExists(path);
+        isReady = false;
+        entries = 0;
+    }
+
+    /**
+     * Returns the journal line for the specified change without writing it.
+     * Each call assigns the next sequence number, so lines must be appended in the order encoded.
+     *
+     * @param change Change made to the task list.
+     * @return The line, without its newline.
+     * @throws IOException If the task cannot be encoded.
+     */
+    public String encode(TaskChange change) throws IOException {
+        StringWriter line = new StringWriter();
+        line.write("{\"seq\":" + nextSeq++ + ",\"i\":" + change.getIndex() + ",\"op\":");
+        if (change.getType() == ChangeType.DELETE) {
+            line.write("\"D\"");
+        } else {
+            line.write(change.getType() == ChangeType.ADD ? "\"A\"" : "\"U\"");
+            line.write(",\"task\":");
+            new TaskJsonWriter(line).writeTask(change.getTask());
+        }
+        line.write('}');
+        return line.toString();
+    }
+
+    /**
+     * Appends the specified encoded changes to the journal in a single write,
+     * and forces them to disk before returning.
+     *
+     * @param lines Lines returned by {@link #encode}, in order.
+     * @throws IOException If writing fails.
+     */
+    public void append(List<String> lines) throws IOException {
+        assert isReady : "Journal should only be appended to after a snapshot is written";
+        StringBuilder sb = new StringBuilder();
+        for (String line : lines) {
+            sb.append(line).append('\n');
+        }
+        byte[] bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            writeFully(channel, ByteBuffer.wrap(bytes));
+            channel.force(false);
+        }
+        entries += lines.size();
+        offset += bytes.length;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+    }
+
+    private static int indexOf(byte[] bytes, int from, byte b) {
+        for (int i = from; i < bytes.length; i++) {
+            if (bytes[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean isJournalFor(String headerLine, long snapshotId) {
+        long snapshot = -2;
+        try {
+            TaskJsonReader reader = new TaskJsonReader(new StringReader(headerLine));
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (name.equals("snapshot")) {
+                    snapshot = reader.nextLong();
+                } else if (name.equals("seq")) {
+                    nextSeq = Math.max(nextSeq, reader.nextLong() + 1);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } catch (IOException | WooperException e) {
+            return false;
+        }
+        return snapshot == snapshotId;
+    }
+
+    private boolean applyLine(String line, List<Task> tasks) {
+        long seq = 0;
+        int index = -1;
+        String op = "";
+        Task task = null;
+        try {
+            TaskJsonReader reader = new TaskJsonReader(new StringReader(line));
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                case "seq":
+                    seq = reader.nextLong();
+                    break;
+                case "i":
+                    index = (int) reader.nextLong();
+                    break;
+                case "op":
+                    op = reader.nextString();
+                    break;
+                case "task":
+                    task = reader.readTask();
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+                }
+            }
+            reader.endObject();
+        } catch (IOException | WooperException e) {
+            return false;
+        }
+
+        switch (op) {
+        case "A":
+            if (task == null || index != tasks.size()) {
+                return false;
+            }
+            tasks.add(task);
+            break;
+        case "U":
+            if (task == null || index < 0 || index >= tasks.size()) {
+                return false;
+            }
+            tasks.set(index, task);
+            break;
+        case "D":
+            if (index < 0 || index >= tasks.size()) {
+                return false;
+            }
+            tasks.remove(index);
+            break;
+        default:
+            return false;
+        }
+        nextSeq = Math.max(nextSeq, seq + 1);
+        return true;
+    }
+}
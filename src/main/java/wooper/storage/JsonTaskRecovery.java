@@ -0,0 +1,173 @@
+package wooper.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+import wooper.exception.WooperException;
+import wooper.task.Task;
+
+/**
+ * Reads as many tasks as possible from a damaged JSON save file.
+ * Each top-level object is decoded on its own, and one that cannot be decoded is put in the quarantine.
+ * Where the structure itself is broken, reading resumes at the next line that starts a new object,
+ * which is where every task begins in files written by {@link TaskJsonWriter}.
+ * The file is read once from start to end, so recovery takes time in proportion to its size.
+ */
+public class JsonTaskRecovery {
+    private final byte[] content;
+    private final Quarantine quarantine;
+    private final ArrayList<Task> tasks = new ArrayList<>();
+    private int pos = 0;
+    private int line = 1;
+    private int lineCountedTo = 0;
+
+    private JsonTaskRecovery(byte[] inContent, Quarantine inQuarantine) {
+        content = inContent;
+        quarantine = inQuarantine;
+    }
+
+    /**
+     * Returns the tasks that can be read from the specified save file content.
+     *
+     * @param content    Raw bytes of a JSON save file.
+     * @param quarantine Collects the parts of the file that could not be read.
+     * @return The tasks that could be read, in file order.
+     */
+    public static ArrayList<Task> readTaskList(byte[] content, Quarantine quarantine) {
+        JsonTaskRecovery recovery = new JsonTaskRecovery(content, quarantine);
+        recovery.run();
+        return recovery.tasks;
+    }
+
+    private void run() {
+        skipWhitespace();
+        if (pos < content.length && content[pos] == '[') {
+            pos++;
+        }
+
+        while (true) {
+            skipSeparators();
+            if (pos >= content.length) {
+                return;
+            }
+            if (content[pos] == ']') {
+                pos++;
+                skipWhitespace();
+                if (pos < content.length) {
+                    quarantineUntil(content.length, "Save file is corrupted (unexpected data after last task).");
+                }
+                return;
+            }
+            if (content[pos] != '{') {
+                quarantineUntil(nextRecordLine(pos + 1), "Save file is corrupted (invalid JSON).");
+                continue;
+            }
+            readRecord();
+        }
+    }
+
+    private void readRecord() {
+        int end = findObjectEnd(pos);
+        String damage = null;
+        if (end != -1) {
+            try {
+                TaskJsonReader reader = new TaskJsonReader(new InputStreamReader(
+                        new ByteArrayInputStream(content, pos, end - pos), StandardCharsets.UTF_8));
+                Task t = reader.readTask();
+                if (!reader.isAtEnd()) {
+                    throw new WooperException("Save file is corrupted (invalid JSON).");
+                }
+                tasks.add(t);
+                pos = end;
+                return;
+            } catch (IOException | WooperException e) {
+                damage = e.getMessage();
+            }
+        }
+
+        // an object that swallows the start of the next task is cut back to it
+        int next = nextRecordLine(pos + 1);
+        int stop = end != -1 && next >= end ? end : next;
+        quarantineUntil(stop, damage != null ? damage : "Save file is corrupted (unterminated task).");
+    }
+
+    /**
+     * Returns the position just after the object starting at the specified position, or -1 if it is not closed.
+     */
+    private int findObjectEnd(int start) {
+        int depth = 0;
+        boolean isInString = false;
+        boolean isEscaped = false;
+        for (int i = start; i < content.length; i++) {
+            byte b = content[i];
+            if (isInString) {
+                if (isEscaped) {
+                    isEscaped = false;
+                } else if (b == '\\') {
+                    isEscaped = true;
+                } else if (b == '"') {
+                    isInString = false;
+                }
+            } else if (b == '"') {
+                isInString = true;
+            } else if (b == '{' || b == '[') {
+                depth++;
+            } else if (b == '}' || b == ']') {
+                depth--;
+                if (depth == 0) {
+                    return i + 1;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the start of the first line at or after the specified position whose first non-blank
+     * character opens an object, or the end of the content if there is none.
+     */
+    private int nextRecordLine(int from) {
+        for (int i = from; i < content.length; i++) {
+            if (content[i] != '\n') {
+                continue;
+            }
+            int j = i + 1;
+            while (j < content.length && (content[j] == ' ' || content[j] == '\t' || content[j] == '\r')) {
+                j++;
+            }
+            if (j < content.length && content[j] == '{') {
+                return j;
+            }
+        }
+        return content.length;
+    }
+
+    private void quarantineUntil(int stop, String reason) {
+        quarantine.add("line " + lineAt(pos), reason, content, pos, stop - pos);
+        pos = stop;
+    }
+
+    private int lineAt(int position) {
+        for (; lineCountedTo < position; lineCountedTo++) {
+            if (content[lineCountedTo] == '\n') {
+                line++;
+            }
+        }
+        return line;
+    }
+
+    private void skipWhitespace() {
+        while (pos < content.length && Character.isWhitespace(content[pos])) {
+            pos++;
+        }
+    }
+
+    private void skipSeparators() {
+        while (pos < content.length && (content[pos] == ',' || Character.isWhitespace(content[pos]))) {
+            pos++;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package wooper.storage;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+import wooper.exception.WooperException;
+import wooper.task.Task;
+
+/**
+ * Represents a task list whose tasks are read from a {@link MappedTaskStore} only when first accessed.
+ * Tasks can be added, replaced and removed like in any other list. Tasks that have never been
+ * accessed stay in the store and take no memory beyond a slot in this list.
+ */
+public class LazyTaskList extends AbstractList<Task> implements RandomAccess {
+    private final MappedTaskStore store;
+
+    /**
+     * Tasks that have been read or added, with null for tasks still only in the store.
+     */
+    private Task[] tasks;
+
+    /**
+     * Position in the store of the task in each slot, or null while slots still match the store one-to-one.
+     */
+    private int[] ordinals = null;
+
+    private int size;
+
+    /**
+     * Creates a list holding every task in the specified store, none of which are read yet.
+     *
+     * @param inStore Store the tasks are read from.
+     */
+    public LazyTaskList(MappedTaskStore inStore) {
+        store = inStore;
+        size = inStore.size();
+        tasks = new Task[size];
+    }
+
+    @Override
+    public Task get(int index) {
+        checkIndex(index, size);
+        Task t = tasks[index];
+        if (t == null) {
+            try {
+                t = store.read(ordinalOf(index));
+            } catch (WooperException e) {
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+            tasks[index] = t;
+        }
+        return t;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Task set(int index, Task t) {
+        Task old = get(index);
+        tasks[index] = t;
+        return old;
+    }
+
+    @Override
+    public void add(int index, Task t) {
+        checkIndex(index, size + 1);
+        if (size == tasks.length) {
+            int capacity = Math.max(16, size + (size >> 1));
+            tasks = Arrays.copyOf(tasks, capacity);
+            if (ordinals != null) {
+                ordinals = Arrays.copyOf(ordinals, capacity);
+            }
+        }
+        if (index < size) {
+            ensureOrdinals();
+            System.arraycopy(tasks, index, tasks, index + 1, size - index);
+            System.arraycopy(ordinals, index, ordinals, index + 1, size - index);
+        }
+        tasks[index] = t;
+        if (ordinals != null) {
+            ordinals[index] = -1;
+        }
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public Task remove(int index) {
+        Task old = get(index);
+        if (index < size - 1) {
+            ensureOrdinals();
+            System.arraycopy(tasks, index + 1, tasks, index, size - index - 1);
+            System.arraycopy(ordinals, index + 1, ordinals, index, size - index - 1);
+        }
+        size--;
+        tasks[size] = null;
+        modCount++;
+        return old;
+    }
+
+    /**
+     * Returns the encoded record of the task at the specified position if it has never been read,
+     * so that it can be copied without decoding it.
+     *
+     * @param index Position of the task in the list.
+     * @return The record without its length prefix, or null if the task has been read or added since loading.
+     */
+    public ByteBuffer getUnreadRecord(int index) {
+        checkIndex(index, size);
+        if (tasks[index] != null) {
+            return null;
+        }
+        try {
+            return store.readRecord(ordinalOf(index));
+        } catch (WooperException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Returns the number of tasks that have been read from the store or added since loading.
+     *
+     * @return The number of tasks held in memory.
+     */
+    public int getMaterializedCount() {
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (tasks[i] != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private int ordinalOf(int index) {
+        return ordinals == null ? index : ordinals[index];
+    }
+
+    private void ensureOrdinals() {
+        if (ordinals != null) {
+            return;
+        }
+        ordinals = new int[tasks.length];
+        for (int i = 0; i < size; i++) {
+            // slots past the store's tasks were added later and are always held in memory
+            ordinals[i] = i < store.size() ? i : -1;
+        }
+    }
+
+    private void checkIndex(int index, int bound) {
+        if (index < 0 || index >= bound) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package wooper.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import wooper.exception.WooperException;
+import wooper.task.Task;
+
+/**
+ * Gives random access to the tasks in a binary save file by memory-mapping it.
+ * The file is mapped in fixed-size segments as they are first needed, and a task is only decoded
+ * when it is asked for, so opening a large file costs about the same as opening a small one.
+ * Each segment overlaps the next slightly so that most records can be read from a single mapping.
+ * The file stays open, so it keeps its content even after a newer save file replaces it.
+ */
+public class MappedTaskStore {
+    private static final int SEGMENT_SIZE = 1 << 24;
+    private static final int SEGMENT_OVERLAP = 1 << 16;
+
+    private final FileChannel channel;
+    private final long dataEnd;
+    private final int size;
+    private final long snapshotId;
+    private final boolean hasChecksums;
+    private final MappedByteBuffer index;
+    private final MappedByteBuffer[] segments;
+
+    private MappedTaskStore(FileChannel inChannel, ByteBuffer trailer) throws IOException {
+        channel = inChannel;
+        dataEnd = trailer.getLong(0);
+        snapshotId = trailer.getLong(8);
+
+        ByteBuffer head = ByteBuffer.allocate(BinaryTaskCodec.getMagicLength() + 1);
+        channel.read(head, 0);
+        hasChecksums = BinaryTaskCodec.hasRecordChecksums(head.get(BinaryTaskCodec.getMagicLength()));
+
+        long indexLength = channel.size() - BinaryTaskCodec.TRAILER_LENGTH - dataEnd;
+        size = (int) (indexLength / 8);
+        index = channel.map(FileChannel.MapMode.READ_ONLY, dataEnd, indexLength);
+        segments = new MappedByteBuffer[(int) ((dataEnd + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+    }
+
+    /**
+     * Returns a store over the specified save file, or null if it is not a binary file with an index.
+     *
+     * @param path Save file to be opened.
+     * @return The store, or null if the file cannot be read lazily.
+     * @throws IOException If the file cannot be opened or mapped.
+     */
+    public static MappedTaskStore open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            ByteBuffer trailer = BinaryTaskCodec.readTrailer(channel);
+            long indexLength = trailer == null ? -1
+                    : channel.size() - BinaryTaskCodec.TRAILER_LENGTH - trailer.getLong(0);
+            if (trailer == null || indexLength % 8 != 0 || indexLength / 8 > Integer.MAX_VALUE) {
+                channel.close();
+                return null;
+            }
+            return new MappedTaskStore(channel, trailer);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the number of tasks in the file.
+     *
+     * @return The number of tasks.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the identifier of the file content stored in its trailer.
+     *
+     * @return The content identifier.
+     */
+    public long getSnapshotId() {
+        return snapshotId;
+    }
+
+    /**
+     * Returns the task at the specified position in the file, decoding it from its record.
+     *
+     * @param ordinal Position of the task in the file.
+     * @return The decoded task.
+     * @throws WooperException If the record cannot be read or is malformed.
+     */
+    public Task read(int ordinal) throws WooperException {
+        return BinaryTaskCodec.decodeTask(readRecord(ordinal));
+    }
+
+    /**
+     * Returns the encoded record of the task at the specified position, without its length prefix.
+     * The record is checked against its checksum if the file has one.
+     *
+     * @param ordinal Position of the task in the file.
+     * @return A buffer holding the record between its position and limit.
+     * @throws WooperException If the record cannot be read or is damaged.
+     */
+    public ByteBuffer readRecord(int ordinal) throws WooperException {
+        assert ordinal >= 0 && ordinal < size : "Record ordinal should be within the file";
+        long offset = index.getLong(ordinal * 8);
+        if (offset < 0 || offset >= dataEnd) {
+            throw new WooperException("Save file is corrupted (invalid record offset).");
+        }
+
+        try {
+            ByteBuffer buf = segment((int) (offset / SEGMENT_SIZE)).duplicate();
+            buf.position((int) (offset % SEGMENT_SIZE));
+            int length = (int) BinaryTaskCodec.readVarint(buf);
+            int checksumLength = hasChecksums ? 4 : 0;
+            long start = offset + (buf.position() - offset % SEGMENT_SIZE);
+            if (length < 0 || start + length + checksumLength > dataEnd) {
+                throw new WooperException("Save file is corrupted (invalid record length).");
+            }
+
+            ByteBuffer record;
+            if (buf.position() + length + checksumLength <= buf.limit()) {
+                record = buf.limit(buf.position() + length + checksumLength).slice();
+            } else {
+                // record runs past the end of the segment mapping
+                record = ByteBuffer.allocate(length + checksumLength);
+                while (record.hasRemaining()) {
+                    if (channel.read(record, start + record.position()) == -1) {
+                        throw new WooperException("Save file is corrupted (truncated record).");
+                    }
+                }
+                record.flip();
+            }
+
+            int storedChecksum = hasChecksums ? record.getInt(record.position() + length) : 0;
+            ByteBuffer payload = record.limit(record.position() + length).slice();
+            if (hasChecksums && storedChecksum != BinaryTaskCodec.checksumOf(payload)) {
+                throw new WooperException("Save file is corrupted (record checksum mismatch).");
+            }
+            return payload;
+        } catch (IOException e) {
+            throw new WooperException("Failed to read save file.");
+        }
+    }
+
+    private synchronized MappedByteBuffer segment(int i) throws IOException {
+        if (segments[i] == null) {
+            long start = (long) i * SEGMENT_SIZE;
+            long length = Math.min(dataEnd - start, SEGMENT_SIZE + SEGMENT_OVERLAP);
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        }
+        return segments[i];
+    }
+}
@@ -0,0 +1,130 @@
+package wooper.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import javax.crypto.SecretKey;
+
+import wooper.exception.WooperException;
+
+/**
+ * Keeps the notes of tasks in a file of their own, so that the save file and the tasks held in memory
+ * only carry the offset of each task's notes. Notes are read only when they are looked at.
+ * The file is append-only: changing a task's notes writes them again at the end of the file,
+ * and the notes a task no longer refers to are left in place.
+ *
+ * <p>Each entry is a 4-byte length, a flags byte, a CRC32 of the stored bytes and then the notes as UTF-8.
+ * When the save file is encrypted, the notes are encrypted too, with the same key.</p>
+ */
+public class NoteFile {
+    private static final int HEADER_LENGTH = 4 + 1 + 4;
+    private static final byte FLAG_ENCRYPTED = 1;
+    private static final String CORRUPTED = "Notes file is corrupted.";
+
+    private final Path path;
+    private final SaveFileLock lock;
+    private final PageCipher cipher;
+
+    /**
+     * Creates a notes file at the specified path. The file is created when notes are first written.
+     *
+     * @param inPath Path to the notes file.
+     * @param inKey  Key notes are encrypted with, or null to write them unencrypted.
+     */
+    public NoteFile(Path inPath, SecretKey inKey) {
+        path = inPath;
+        lock = new SaveFileLock(inPath.resolveSibling(inPath.getFileName() + ".lock"));
+        cipher = inKey == null ? null : new PageCipher(inKey);
+    }
+
+    /**
+     * Appends the specified notes and returns where they were written.
+     * The notes are forced to disk before returning, so the offset can be saved right away.
+     *
+     * @param notes Notes to be written.
+     * @return The offset to be kept in the task.
+     * @throws IOException If writing fails.
+     */
+    public long write(String notes) throws IOException {
+        byte[] bytes = notes.getBytes(StandardCharsets.UTF_8);
+        byte flags = 0;
+        if (cipher != null) {
+            bytes = cipher.seal(bytes, 0, 0);
+            flags = FLAG_ENCRYPTED;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        ByteBuffer entry = ByteBuffer.allocate(HEADER_LENGTH + bytes.length);
+        entry.putInt(bytes.length).put(flags).putInt((int) crc.getValue()).put(bytes);
+        entry.flip();
+
+        lock.lock();
+        try {
+            Files.createDirectories(path.toAbsolutePath().getParent());
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                long offset = channel.size();
+                long position = offset;
+                while (entry.hasRemaining()) {
+                    position += channel.write(entry, position);
+                }
+                channel.force(false);
+                return offset;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the notes written at the specified offset.
+     *
+     * @param offset Offset returned by {@link #write}.
+     * @return The notes.
+     * @throws WooperException If the notes cannot be read, or are encrypted and no key was given.
+     */
+    public String read(long offset) throws WooperException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+            readFully(channel, header, offset);
+            int length = header.getInt(0);
+            byte flags = header.get(4);
+            if (length < 0 || offset + HEADER_LENGTH + length > channel.size()) {
+                throw new WooperException(CORRUPTED);
+            }
+
+            ByteBuffer bytes = ByteBuffer.allocate(length);
+            readFully(channel, bytes, offset + HEADER_LENGTH);
+            CRC32 crc = new CRC32();
+            crc.update(bytes.array());
+            if (header.getInt(5) != (int) crc.getValue()) {
+                throw new WooperException(CORRUPTED);
+            }
+            if ((flags & FLAG_ENCRYPTED) == 0) {
+                return new String(bytes.array(), StandardCharsets.UTF_8);
+            }
+            if (cipher == null) {
+                throw new WooperException("Notes are encrypted, but no key was given.");
+            }
+            byte[] plain = cipher.open(bytes.array(), 0);
+            if (plain == null) {
+                throw new WooperException("Notes were encrypted with a different key.");
+            }
+            return new String(plain, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new WooperException("Failed to read notes.");
+        }
+    }
+
+    private void readFully(FileChannel channel, ByteBuffer buf, long position) throws IOException, WooperException {
+        while (buf.hasRemaining()) {
+            if (channel.read(buf, position + buf.position()) < 0) {
+                throw new WooperException(CORRUPTED);
+            }
+        }
+    }
+}
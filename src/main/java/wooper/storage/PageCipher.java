@@ -0,0 +1,148 @@
+package wooper.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Encrypts and authenticates the pages of a {@link PagedTaskFile} with AES-GCM, one page at a time,
+ * so that a change re-encrypts only the pages it rewrites.
+ * An encrypted page keeps its size on disk: it holds its span in the clear, then a fresh random nonce,
+ * then the encrypted page content and the authentication tag, leaving {@link #OVERHEAD} bytes less room
+ * for tasks. The page number and span are authenticated along with the content, so a page copied to
+ * another position is rejected like a damaged one.
+ */
+public class PageCipher {
+    /**
+     * Number of bytes of each page taken up by the span, the nonce and the authentication tag.
+     */
+    static final int OVERHEAD = 4 + 12 + 16;
+
+    /**
+     * Length of the value that tells whether a key is the one a file was encrypted with.
+     */
+    static final int KEY_CHECK_LENGTH = 12 + 16;
+
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int NONCE_LENGTH = 12;
+    private static final int TAG_BITS = 128;
+
+    private final SecretKey key;
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * Creates a cipher using the specified AES key.
+     *
+     * @param inKey AES key of 128, 192 or 256 bits.
+     */
+    public PageCipher(SecretKey inKey) {
+        key = inKey;
+    }
+
+    /**
+     * Returns the AES key encoded in the specified Base64 text.
+     *
+     * @param base64 Key of 16, 24 or 32 bytes in Base64.
+     * @return The key, or null if the text is not a valid key.
+     */
+    public static SecretKey parseKey(String base64) {
+        try {
+            byte[] bytes = Base64.getDecoder().decode(base64.trim());
+            if (bytes.length != 16 && bytes.length != 24 && bytes.length != 32) {
+                return null;
+            }
+            return new SecretKeySpec(bytes, "AES");
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the encrypted form of the specified page content.
+     *
+     * @param plain      Page content, {@link #OVERHEAD} bytes shorter than the page.
+     * @param pageNumber Number of the page in the file.
+     * @param span       Number of pages the page spans.
+     * @return The bytes to be written to the file, as long as the page.
+     * @throws IOException If encryption fails.
+     */
+    public byte[] seal(byte[] plain, int pageNumber, int span) throws IOException {
+        byte[] nonce = new byte[NONCE_LENGTH];
+        random.nextBytes(nonce);
+        ByteBuffer page = ByteBuffer.allocate(plain.length + OVERHEAD);
+        page.putInt(span).put(nonce);
+        try {
+            Cipher cipher = init(Cipher.ENCRYPT_MODE, nonce, pageNumber, span);
+            cipher.doFinal(ByteBuffer.wrap(plain), page);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Failed to encrypt save file.", e);
+        }
+        return page.array();
+    }
+
+    /**
+     * Returns the page content held in the specified encrypted page.
+     *
+     * @param sealed     Bytes of the page as read from the file.
+     * @param pageNumber Number of the page in the file.
+     * @return The page content, or null if the page is damaged or was not encrypted with this key.
+     * @throws IOException If decryption cannot be set up.
+     */
+    public byte[] open(byte[] sealed, int pageNumber) throws IOException {
+        if (sealed.length < OVERHEAD) {
+            return null;
+        }
+        ByteBuffer page = ByteBuffer.wrap(sealed);
+        int span = page.getInt();
+        byte[] nonce = new byte[NONCE_LENGTH];
+        page.get(nonce);
+        try {
+            Cipher cipher = init(Cipher.DECRYPT_MODE, nonce, pageNumber, span);
+            return cipher.doFinal(sealed, page.position(), page.remaining());
+        } catch (AEADBadTagException e) {
+            return null;
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Failed to decrypt save file.", e);
+        }
+    }
+
+    /**
+     * Returns a new value to be kept in the file header, by which this key is recognised later.
+     *
+     * @return The key check value, {@link #KEY_CHECK_LENGTH} bytes long.
+     * @throws IOException If encryption fails.
+     */
+    public byte[] createKeyCheck() throws IOException {
+        byte[] check = seal(new byte[0], 0, 0);
+        byte[] value = new byte[KEY_CHECK_LENGTH];
+        System.arraycopy(check, 4, value, 0, KEY_CHECK_LENGTH);
+        return value;
+    }
+
+    /**
+     * Returns whether the specified key check value was created with this key.
+     *
+     * @param value Key check value read from the file header.
+     * @return {@code true} if the file was encrypted with this key.
+     * @throws IOException If decryption cannot be set up.
+     */
+    public boolean matchesKeyCheck(byte[] value) throws IOException {
+        byte[] check = new byte[4 + KEY_CHECK_LENGTH];
+        System.arraycopy(value, 0, check, 4, KEY_CHECK_LENGTH);
+        return open(check, 0) != null;
+    }
+
+    private Cipher init(int mode, byte[] nonce, int pageNumber, int span) throws GeneralSecurityException {
+        Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+        cipher.init(mode, key, new GCMParameterSpec(TAG_BITS, nonce));
+        cipher.updateAAD(ByteBuffer.allocate(8).putInt(pageNumber).putInt(span).array());
+        return cipher;
+    }
+}
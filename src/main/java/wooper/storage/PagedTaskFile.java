@@ -0,0 +1,650 @@
+package wooper.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import javax.crypto.SecretKey;
+
+import wooper.exception.WooperException;
+import wooper.task.Task;
+import wooper.task.TaskChange;
+
+/**
+ * Represents a save file made of fixed-size pages, where each task occupies a slot in one page.
+ * A change rewrites only the pages holding the affected tasks, so marking or updating a task costs
+ * the same amount of I/O however many tasks there are.
+ *
+ * <p>The first page is the file header. Every other page starts with a checksum, a write sequence number,
+ * the number of pages it spans and a slot directory giving the length of each slot, followed by the
+ * records of the occupied slots. A record is an order key followed by a task encoded by
+ * {@link BinaryTaskCodec}; tasks are listed in order of their keys. Space freed by deleted tasks goes
+ * on a free-list and is reused by later tasks. A task too large for one page gets a run of pages
+ * to itself.</p>
+ *
+ * <p>The pages can be encrypted with a {@link PageCipher}, in which case each page is encrypted on its own
+ * and the header holds a value that recognises the key. Rewriting a page then re-encrypts only that page.</p>
+ */
+public class PagedTaskFile {
+    static final int PAGE_SIZE = 4096;
+
+    private static final byte[] MAGIC = {'W', 'P', 'A', 'G'};
+    private static final byte VERSION = 1;
+    private static final int PAGE_HEADER_LENGTH = 4 + 8 + 4 + 4;
+    private static final int SLOT_ENTRY_LENGTH = 4;
+    private static final int ORDER_LENGTH = 8;
+    private static final int FLAGS_OFFSET = 9;
+    private static final byte FLAG_ENCRYPTED = 1;
+
+    /**
+     * Pages with less free space than this are dropped from the free-list.
+     */
+    private static final int MIN_USEFUL_SPACE = 64;
+
+    private static final String CORRUPTED = "Save file is corrupted (invalid page).";
+
+    private FileChannel channel;
+    private PageCipher cipher;
+    private final IdentityHashMap<Task, Slot> slots = new IdentityHashMap<>();
+    private final ArrayDeque<Page> freeList = new ArrayDeque<>();
+
+    /**
+     * Pages changed since they were last encoded, in the order they should be written.
+     */
+    private final LinkedHashSet<Page> dirtyPages = new LinkedHashSet<>();
+
+    private final ArrayList<Task> loadedTasks = new ArrayList<>();
+    private Page tailPage = null;
+    private int nextPageNumber = 1;
+    private long nextOrder = 0;
+    private long nextLsn = 1;
+
+    private PagedTaskFile(FileChannel inChannel, PageCipher inCipher) {
+        channel = inChannel;
+        cipher = inCipher;
+    }
+
+    /**
+     * Returns whether the specified bytes start with the paged save file header.
+     *
+     * @param head   Bytes at the start of a file.
+     * @param length Number of valid bytes in {@code head}.
+     * @return {@code true} if the bytes are the start of a paged save file.
+     */
+    public static boolean hasMagic(byte[] head, int length) {
+        if (length < MAGIC.length) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (head[i] != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes a new paged save file holding the specified tasks, replacing any existing file.
+     * The file is written under a temporary name first and then moved into place, so a crash never
+     * leaves a half-written file. The returned file keeps track of the given task objects.
+     *
+     * @param path     File to be written.
+     * @param tmpPath  Temporary file used while writing.
+     * @param taskList Tasks to be stored, in order.
+     * @param key      Key the pages are encrypted with, or null to leave them unencrypted.
+     * @return The written file, open for further changes.
+     * @throws IOException If writing fails.
+     */
+    public static PagedTaskFile create(Path path, Path tmpPath, List<Task> taskList, SecretKey key)
+            throws IOException {
+        PagedTaskFile file = new PagedTaskFile(FileChannel.open(tmpPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING),
+                key == null ? null : new PageCipher(key));
+        try {
+            file.writeFileHeader();
+            for (Task t : taskList) {
+                long order = file.nextOrder++;
+                file.place(t, order, file.encodeRecord(t, order));
+            }
+            file.write(file.takePageWrites());
+        } finally {
+            file.channel.close();
+        }
+
+        Files.move(tmpPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        file.channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return file;
+    }
+
+    /**
+     * Opens the specified paged save file and reads every task in it.
+     * The file stays open so that later changes can be written to it.
+     * A page that fails its checksum, and a task that cannot be decoded, is put in the quarantine
+     * and cleared, so that the next write replaces it.
+     *
+     * @param path       File to be opened.
+     * @param quarantine Collects the pages and tasks that could not be read.
+     * @param key        Key an encrypted file is decrypted with, or null if none was given.
+     *                   An unencrypted file is read without it.
+     * @return The opened file.
+     * @throws IOException     If reading fails.
+     * @throws WooperException If the file is not a valid paged save file, or it is encrypted
+     *                         and the key is missing or wrong.
+     */
+    public static PagedTaskFile open(Path path, Quarantine quarantine, SecretKey key)
+            throws IOException, WooperException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            PagedTaskFile file = new PagedTaskFile(channel, null);
+            file.readFileHeader(key);
+            file.readPages(quarantine);
+            return file;
+        } catch (IOException | WooperException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the sequence number of the last page encoded, which goes up with every change to the file.
+     *
+     * @return The highest page sequence number so far.
+     */
+    public long getLastLsn() {
+        return nextLsn - 1;
+    }
+
+    /**
+     * Returns whether the pages of this file are encrypted.
+     *
+     * @return {@code true} if the file was created or opened with a key.
+     */
+    public boolean isEncrypted() {
+        return cipher != null;
+    }
+
+    /**
+     * Returns the tasks read when the file was opened, in order.
+     *
+     * @return The stored tasks.
+     */
+    public ArrayList<Task> getLoadedTasks() {
+        return loadedTasks;
+    }
+
+    /**
+     * Applies the specified change to the slots and returns the pages that must be rewritten for it.
+     * Pages are encoded immediately, so the result stays valid if the tasks change again before writing.
+     *
+     * @param change Change made to the task list.
+     * @return The encoded pages, in the order they should be written.
+     * @throws IOException If a task cannot be encoded.
+     */
+    public List<PageWrite> apply(TaskChange change) throws IOException {
+        Task t = change.getTask();
+        switch (change.getType()) {
+        case ADD:
+            long order = nextOrder++;
+            place(t, order, encodeRecord(t, order));
+            break;
+        case UPDATE:
+            Slot slot = slots.get(t);
+            if (slot == null) {
+                order = nextOrder++;
+                place(t, order, encodeRecord(t, order));
+            } else if (t.isDirty()) {
+                rewrite(slot);
+            }
+            break;
+        case DELETE:
+            free(slots.get(t));
+            break;
+        default:
+            break;
+        }
+        return takePageWrites();
+    }
+
+    /**
+     * Brings the slots in line with the specified list and returns the pages that must be rewritten.
+     * Only tasks that were added, removed, moved or marked dirty cause a page to be rewritten.
+     *
+     * @param taskList Current list of tasks, in order.
+     * @return The encoded pages, in the order they should be written.
+     * @throws IOException If a task cannot be encoded.
+     */
+    public List<PageWrite> sync(List<Task> taskList) throws IOException {
+        Set<Task> current = Collections.newSetFromMap(new IdentityHashMap<>());
+        current.addAll(taskList);
+        for (Slot slot : new ArrayList<>(slots.values())) {
+            if (!current.contains(slot.task)) {
+                free(slot);
+            }
+        }
+
+        long previousOrder = -1;
+        for (Task t : taskList) {
+            Slot slot = slots.get(t);
+            if (slot == null) {
+                long order = nextOrder++;
+                place(t, order, encodeRecord(t, order));
+            } else if (slot.order <= previousOrder) {
+                // the task now comes after one that used to follow it
+                slot.order = nextOrder++;
+                rewrite(slot);
+            } else if (t.isDirty()) {
+                rewrite(slot);
+            }
+            previousOrder = slots.get(t).order;
+        }
+        return takePageWrites();
+    }
+
+    /**
+     * Writes the specified pages and forces them to the disk.
+     *
+     * @param pageWrites Pages to be written, in order.
+     * @throws IOException If writing fails.
+     */
+    public void write(List<PageWrite> pageWrites) throws IOException {
+        if (pageWrites.isEmpty()) {
+            return;
+        }
+        for (PageWrite pageWrite : pageWrites) {
+            ByteBuffer buf = ByteBuffer.wrap(pageWrite.bytes);
+            long position = pageWrite.position;
+            while (buf.hasRemaining()) {
+                position += channel.write(buf, position);
+            }
+        }
+        channel.force(false);
+    }
+
+    /**
+     * Closes the underlying file.
+     *
+     * @throws IOException If closing fails.
+     */
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void writeFileHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(PAGE_SIZE);
+        header.put(MAGIC).put(VERSION).putInt(PAGE_SIZE);
+        if (cipher != null) {
+            header.put(FLAG_ENCRYPTED).put(cipher.createKeyCheck());
+        }
+        header.flip();
+        channel.write(header, 0);
+    }
+
+    /**
+     * Checks the file header and sets up decryption if the pages are encrypted.
+     */
+    private void readFileHeader(SecretKey key) throws IOException, WooperException {
+        ByteBuffer header = ByteBuffer.allocate(FLAGS_OFFSET + 1 + PageCipher.KEY_CHECK_LENGTH);
+        channel.read(header, 0);
+        if (!hasMagic(header.array(), header.position()) || header.get(MAGIC.length) != VERSION
+                || header.getInt(MAGIC.length + 1) != PAGE_SIZE) {
+            throw new WooperException(CORRUPTED);
+        }
+        if (header.get(FLAGS_OFFSET) != FLAG_ENCRYPTED) {
+            return;
+        }
+        if (key == null) {
+            throw new WooperException("Save file is encrypted, but no key was given.");
+        }
+        byte[] keyCheck = new byte[PageCipher.KEY_CHECK_LENGTH];
+        header.get(FLAGS_OFFSET + 1, keyCheck);
+        PageCipher keyCipher = new PageCipher(key);
+        if (!keyCipher.matchesKeyCheck(keyCheck)) {
+            // every page would fail to decrypt and be quarantined
+            throw new WooperException("Save file was encrypted with a different key.");
+        }
+        cipher = keyCipher;
+    }
+
+    private void readPages(Quarantine quarantine) throws IOException, WooperException {
+        long size = channel.size();
+
+        HashMap<Long, Slot> byOrder = new HashMap<>();
+        long position = PAGE_SIZE;
+        while (position < size) {
+            Page page = readPage(position, size, quarantine);
+            for (int i = 0; i < page.slots.size(); i++) {
+                Slot slot = page.slots.get(i);
+                if (slot == null) {
+                    continue;
+                }
+                // a task moved between pages can be in both if a crash came between the two writes
+                Slot other = byOrder.put(slot.order, slot);
+                if (other != null) {
+                    Slot stale = other.page.lsn > page.lsn ? slot : other;
+                    byOrder.put(slot.order, stale == slot ? other : slot);
+                    stale.page.slots.set(stale.index, null);
+                    stale.page.usedBytes -= stale.record.length;
+                    dirtyPages.add(stale.page);
+                }
+            }
+            position += (long) page.span * PAGE_SIZE;
+        }
+        ArrayList<Slot> loaded = new ArrayList<>(byOrder.values());
+        loaded.sort((a, b) -> Long.compare(a.order, b.order));
+        loadedTasks.ensureCapacity(loaded.size());
+        for (Slot slot : loaded) {
+            slots.put(slot.task, slot);
+            loadedTasks.add(slot.task);
+            nextOrder = Math.max(nextOrder, slot.order + 1);
+        }
+    }
+
+    private Page readPage(long position, long fileSize, Quarantine quarantine) throws IOException {
+        int number = (int) (position / PAGE_SIZE);
+        int span = 1;
+        if (fileSize - position >= PAGE_HEADER_LENGTH) {
+            ByteBuffer head = ByteBuffer.allocate(PAGE_HEADER_LENGTH);
+            readFully(head, position);
+            // an encrypted page keeps its span in the clear
+            span = head.getInt(cipher == null ? 12 : 0);
+        }
+        if (span < 1 || position + (long) span * PAGE_SIZE > fileSize) {
+            // the span cannot be trusted, so only this page is given up
+            span = 1;
+            byte[] raw = new byte[(int) Math.min(PAGE_SIZE, fileSize - position)];
+            readFully(ByteBuffer.wrap(raw), position);
+            return replaceDamagedPage(number, span, raw, quarantine);
+        }
+
+        ByteBuffer buf = ByteBuffer.allocate(span * PAGE_SIZE);
+        readFully(buf, position);
+        if (cipher != null) {
+            byte[] plain = cipher.open(buf.array(), number);
+            if (plain == null) {
+                return replaceDamagedPage(number, span, buf.array(), quarantine);
+            }
+            buf = ByteBuffer.wrap(plain);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buf.array(), 4, buf.capacity() - 4);
+        int slotCount = buf.getInt(16);
+        if (buf.getInt(0) != (int) crc.getValue() || slotCount < 0
+                || PAGE_HEADER_LENGTH + (long) slotCount * SLOT_ENTRY_LENGTH > buf.capacity()) {
+            return replaceDamagedPage(number, span, buf.array(), quarantine);
+        }
+
+        Page page = newPage(number, span);
+        page.lsn = buf.getLong(4);
+        nextLsn = Math.max(nextLsn, page.lsn + 1);
+        nextPageNumber = Math.max(nextPageNumber, page.number + span);
+
+        int recordPos = PAGE_HEADER_LENGTH + slotCount * SLOT_ENTRY_LENGTH;
+        for (int i = 0; i < slotCount; i++) {
+            int length = buf.getInt(PAGE_HEADER_LENGTH + i * SLOT_ENTRY_LENGTH);
+            if (length == 0) {
+                page.slots.add(null);
+                continue;
+            }
+            if (length < ORDER_LENGTH || length > buf.capacity() - recordPos) {
+                // later records cannot be located without this length
+                quarantine.add("page " + number + " slot " + i + " onwards", CORRUPTED,
+                        buf.array(), recordPos, buf.capacity() - recordPos);
+                dirtyPages.add(page);
+                break;
+            }
+            byte[] record = new byte[length];
+            buf.get(recordPos, record);
+            recordPos += length;
+            Task t;
+            try {
+                t = BinaryTaskCodec.decodeTask(ByteBuffer.wrap(record, ORDER_LENGTH, length - ORDER_LENGTH));
+            } catch (WooperException | RuntimeException e) {
+                quarantine.add("page " + number + " slot " + i, e.getMessage(), record);
+                page.slots.add(null);
+                dirtyPages.add(page);
+                continue;
+            }
+            t.clearDirty();
+
+            Slot slot = new Slot(t, ByteBuffer.wrap(record).getLong());
+            slot.record = record;
+            slot.page = page;
+            slot.index = i;
+            page.slots.add(slot);
+            page.usedBytes += length;
+        }
+
+        if (page.getFreeSpace() >= MIN_USEFUL_SPACE) {
+            freeList.add(page);
+        }
+        return page;
+    }
+
+    /**
+     * Puts the specified damaged page in the quarantine and returns an empty page to take its place.
+     */
+    private Page replaceDamagedPage(int number, int span, byte[] raw, Quarantine quarantine) {
+        quarantine.add("page " + number, CORRUPTED, raw);
+        Page page = newPage(number, span);
+        nextPageNumber = Math.max(nextPageNumber, number + span);
+        dirtyPages.add(page);
+        freeList.add(page);
+        return page;
+    }
+
+    private void readFully(ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            if (channel.read(buf, position + buf.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    private byte[] encodeRecord(Task t, long order) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new DataOutputStream(bytes).writeLong(order);
+        BinaryTaskCodec.encodeTask(bytes, t);
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Puts the specified task into the first page with room for it.
+     */
+    private void place(Task t, long order, byte[] record) {
+        Slot slot = new Slot(t, order);
+        slot.record = record;
+        Page page = findPageFor(record.length);
+        page.addSlot(slot);
+        slots.put(t, slot);
+        dirtyPages.add(page);
+        t.clearDirty();
+    }
+
+    /**
+     * Re-encodes the task in the specified slot, moving it to another page if it no longer fits.
+     */
+    private void rewrite(Slot slot) throws IOException {
+        Page page = slot.page;
+        byte[] record = encodeRecord(slot.task, slot.order);
+        if (record.length - slot.record.length <= page.getFreeSpace()) {
+            page.usedBytes += record.length - slot.record.length;
+            slot.record = record;
+            dirtyPages.add(page);
+            slot.task.clearDirty();
+            return;
+        }
+
+        // write the task's new page before the one it leaves, so a crash in between never loses it
+        free(slot);
+        dirtyPages.remove(page);
+        place(slot.task, slot.order, record);
+        dirtyPages.add(page);
+    }
+
+    private void free(Slot slot) {
+        if (slot == null) {
+            return;
+        }
+        Page page = slot.page;
+        page.slots.set(slot.index, null);
+        page.usedBytes -= slot.record.length;
+        slots.remove(slot.task);
+        dirtyPages.add(page);
+        if (page != tailPage && page.getFreeSpace() >= MIN_USEFUL_SPACE && !freeList.contains(page)) {
+            freeList.add(page);
+        }
+    }
+
+    private Page findPageFor(int recordLength) {
+        int needed = recordLength + SLOT_ENTRY_LENGTH;
+        while (!freeList.isEmpty()) {
+            Page page = freeList.peek();
+            if (page.getFreeSpace() >= needed) {
+                return page;
+            }
+            if (page.getFreeSpace() >= MIN_USEFUL_SPACE) {
+                // keep the page for a smaller task rather than searching the whole list
+                break;
+            }
+            freeList.poll();
+        }
+        if (tailPage != null && tailPage.getFreeSpace() >= needed) {
+            return tailPage;
+        }
+
+        int span = Math.max(1, (PAGE_HEADER_LENGTH + getOverhead() + needed + PAGE_SIZE - 1) / PAGE_SIZE);
+        Page page = newPage(nextPageNumber, span);
+        nextPageNumber += span;
+        if (span == 1) {
+            if (tailPage != null && tailPage.getFreeSpace() >= MIN_USEFUL_SPACE) {
+                freeList.add(tailPage);
+            }
+            tailPage = page;
+        }
+        return page;
+    }
+
+    private Page newPage(int number, int span) {
+        return new Page(number, span, span * PAGE_SIZE - getOverhead());
+    }
+
+    /**
+     * Returns the number of bytes of each page taken up by encryption.
+     */
+    private int getOverhead() {
+        return cipher == null ? 0 : PageCipher.OVERHEAD;
+    }
+
+    /**
+     * Encodes every dirty page, encrypting it if the file is encrypted, and clears the dirty set.
+     */
+    private List<PageWrite> takePageWrites() throws IOException {
+        List<PageWrite> writes = new ArrayList<>(dirtyPages.size());
+        for (Page page : dirtyPages) {
+            byte[] bytes = page.encode(nextLsn++);
+            if (cipher != null) {
+                bytes = cipher.seal(bytes, page.number, page.span);
+            }
+            writes.add(new PageWrite((long) page.number * PAGE_SIZE, bytes));
+        }
+        dirtyPages.clear();
+        return writes;
+    }
+
+    /**
+     * Represents the encoded content of a page and where it goes in the file.
+     */
+    public static class PageWrite {
+        private final long position;
+        private final byte[] bytes;
+
+        private PageWrite(long inPosition, byte[] inBytes) {
+            position = inPosition;
+            bytes = inBytes;
+        }
+    }
+
+    private static class Slot {
+        private final Task task;
+        private long order;
+        private byte[] record;
+        private Page page;
+        private int index;
+
+        private Slot(Task inTask, long inOrder) {
+            task = inTask;
+            order = inOrder;
+        }
+    }
+
+    private static class Page {
+        private final int number;
+        private final int span;
+        private final int capacity;
+        private final ArrayList<Slot> slots = new ArrayList<>();
+        private int usedBytes = 0;
+        private long lsn = 0;
+
+        private Page(int inNumber, int inSpan, int inCapacity) {
+            number = inNumber;
+            span = inSpan;
+            capacity = inCapacity;
+        }
+
+        private int getFreeSpace() {
+            return capacity - PAGE_HEADER_LENGTH - slots.size() * SLOT_ENTRY_LENGTH - usedBytes;
+        }
+
+        private void addSlot(Slot slot) {
+            int index = slots.indexOf(null);
+            if (index == -1) {
+                index = slots.size();
+                slots.add(slot);
+            } else {
+                slots.set(index, slot);
+            }
+            slot.page = this;
+            slot.index = index;
+            usedBytes += slot.record.length;
+        }
+
+        private byte[] encode(long inLsn) {
+            lsn = inLsn;
+            while (!slots.isEmpty() && slots.get(slots.size() - 1) == null) {
+                slots.remove(slots.size() - 1);
+            }
+
+            ByteBuffer buf = ByteBuffer.allocate(capacity);
+            buf.putInt(0).putLong(lsn).putInt(span).putInt(slots.size());
+            for (Slot slot : slots) {
+                buf.putInt(slot == null ? 0 : slot.record.length);
+            }
+            for (Slot slot : slots) {
+                if (slot != null) {
+                    buf.put(slot.record);
+                }
+            }
+
+            CRC32 crc = new CRC32();
+            crc.update(buf.array(), 4, buf.capacity() - 4);
+            buf.putInt(0, (int) crc.getValue());
+            return buf.array();
+        }
+    }
+}
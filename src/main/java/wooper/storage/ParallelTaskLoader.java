@@ -0,0 +1,161 @@
+package wooper.storage;
+
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import wooper.exception.WooperException;
+import wooper.task.Task;
+
+/**
+ * Reads a JSON save file by decoding slices of it on several threads at once.
+ * A single pass over the raw bytes finds commas between top-level tasks at which the array can be
+ * cut, so that every slice holds whole tasks. The slices are then decoded on the common
+ * fork-join pool and joined back together in their original order.
+ */
+public class ParallelTaskLoader {
+    /**
+     * Files smaller than this are faster to read on a single thread.
+     */
+    public static final long MIN_FILE_SIZE = 1 << 20;
+
+    private static final int MIN_CHUNK_SIZE = 1 << 18;
+    private static final String CORRUPTED = "Save file is corrupted (invalid JSON).";
+
+    /**
+     * Returns the tasks stored in the specified JSON save file content.
+     *
+     * @param content Raw bytes of the save file between the buffer's position and limit.
+     * @return The tasks in the order they appear in the file.
+     * @throws WooperException If the content is not a valid save file.
+     */
+    public static ArrayList<Task> readTaskList(ByteBuffer content) throws WooperException {
+        int parallelism = ForkJoinPool.getCommonPoolParallelism();
+        int chunkSize = Math.max(MIN_CHUNK_SIZE, content.remaining() / (parallelism * 4));
+        List<int[]> chunks = findChunks(content, chunkSize);
+
+        List<Callable<ArrayList<Task>>> jobs = new ArrayList<>();
+        for (int[] chunk : chunks) {
+            jobs.add(() -> decodeChunk(content, chunk[0], chunk[1]));
+        }
+
+        ArrayList<ArrayList<Task>> results = new ArrayList<>();
+        int total = 0;
+        try {
+            for (Future<ArrayList<Task>> future : ForkJoinPool.commonPool().invokeAll(jobs)) {
+                ArrayList<Task> part = future.get();
+                results.add(part);
+                total += part.size();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof WooperException) {
+                throw (WooperException) e.getCause();
+            }
+            throw new WooperException(CORRUPTED);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WooperException("Loading was interrupted.");
+        }
+
+        ArrayList<Task> tasks = new ArrayList<>(total);
+        for (ArrayList<Task> part : results) {
+            tasks.addAll(part);
+        }
+        return tasks;
+    }
+
+    /**
+     * Returns the byte ranges, as start and end offsets, of slices of the top-level array
+     * that each hold whole tasks separated by commas.
+     */
+    private static List<int[]> findChunks(ByteBuffer content, int chunkSize) throws WooperException {
+        List<int[]> chunks = new ArrayList<>();
+        int depth = 0;
+        boolean isInString = false;
+        boolean isEscaped = false;
+        int chunkStart = -1;
+        int arrayEnd = -1;
+
+        int limit = content.limit();
+        for (int i = content.position(); i < limit; i++) {
+            byte b = content.get(i);
+            if (isInString) {
+                if (isEscaped) {
+                    isEscaped = false;
+                } else if (b == '\\') {
+                    isEscaped = true;
+                } else if (b == '"') {
+                    isInString = false;
+                }
+                continue;
+            }
+
+            switch (b) {
+            case '"':
+                isInString = true;
+                break;
+            case '[':
+            case '{':
+                if (depth == 0 && (b != '[' || chunkStart != -1)) {
+                    throw new WooperException(CORRUPTED);
+                }
+                if (depth == 0) {
+                    chunkStart = i + 1;
+                }
+                depth++;
+                break;
+            case ']':
+            case '}':
+                depth--;
+                if (depth == 0 && b == '}') {
+                    throw new WooperException(CORRUPTED);
+                } else if (depth == 0) {
+                    arrayEnd = i;
+                    chunks.add(new int[] {chunkStart, arrayEnd});
+                } else if (depth < 0) {
+                    throw new WooperException(CORRUPTED);
+                }
+                break;
+            case ',':
+                if (depth == 1 && i - chunkStart >= chunkSize) {
+                    chunks.add(new int[] {chunkStart, i});
+                    chunkStart = i + 1;
+                }
+                break;
+            default:
+                if (depth == 0 && !Character.isWhitespace(b)) {
+                    throw new WooperException(CORRUPTED);
+                }
+                break;
+            }
+        }
+
+        if (depth != 0 || isInString || (chunkStart != -1 && arrayEnd == -1)) {
+            throw new WooperException(CORRUPTED);
+        }
+        return chunks;
+    }
+
+    private static ArrayList<Task> decodeChunk(ByteBuffer content, int start, int end)
+            throws IOException, WooperException {
+        CharBuffer chars = StandardCharsets.UTF_8.decode(content.duplicate().limit(end).position(start));
+        TaskJsonReader reader = new TaskJsonReader(
+                new CharArrayReader(chars.array(), chars.arrayOffset() + chars.position(), chars.remaining()));
+
+        ArrayList<Task> tasks = new ArrayList<>();
+        reader.beginFragment();
+        while (reader.hasNext()) {
+            tasks.add(reader.readTask());
+        }
+        reader.endFragment();
+        return tasks;
+    }
+}
@@ -0,0 +1,168 @@
+package wooper.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+
+import wooper.enums.SnapshotFormat;
+import wooper.task.Task;
+import wooper.task.TaskTree;
+
+/**
+ * Encodes a save file by serializing contiguous ranges of the task list on several threads at once.
+ * Each range is encoded into a buffer of its own on the common fork-join pool, and the buffers are
+ * returned in file order, ready for a single gathering write. The result is byte for byte the same
+ * as encoding the list on one thread.
+ */
+public class ParallelTaskWriter {
+    /**
+     * Lists shorter than this are faster to encode on a single thread.
+     */
+    public static final int MIN_TASK_COUNT = 4096;
+
+    private static final int MIN_CHUNK_TASKS = 1024;
+
+    /**
+     * Returns whether the specified list is worth encoding in parallel and safe to read from several threads.
+     * A lazily read list decodes tasks as they are accessed, so it is left to a single thread.
+     * A {@link TaskTree} is read by position in O(log n) time without changing, so it is encoded in parallel too.
+     *
+     * @param taskList Tasks to be saved.
+     * @return {@code true} if {@link #encode} should be used.
+     */
+    public static boolean canEncode(List<Task> taskList) {
+        return taskList.size() >= MIN_TASK_COUNT
+                && (taskList instanceof RandomAccess || taskList instanceof TaskTree)
+                && !(taskList instanceof LazyTaskList);
+    }
+
+    /**
+     * Returns the content of a save file holding the specified tasks, split across several buffers.
+     *
+     * @param taskList Tasks to be saved.
+     * @param format   Format of the save file. Must not be {@link SnapshotFormat#PAGED}.
+     * @return The buffers holding the file content, in order.
+     * @throws IOException If a task cannot be encoded.
+     */
+    public static ByteBuffer[] encode(List<Task> taskList, SnapshotFormat format) throws IOException {
+        assert format != SnapshotFormat.PAGED : "Paged save files are not written as a whole";
+        int count = taskList.size();
+        int parallelism = ForkJoinPool.getCommonPoolParallelism();
+        int chunkTasks = Math.max(MIN_CHUNK_TASKS, (count + parallelism * 4 - 1) / (parallelism * 4));
+
+        List<Callable<EncodedRange>> jobs = new ArrayList<>();
+        for (int from = 0; from < count; from += chunkTasks) {
+            int start = from;
+            int end = Math.min(count, from + chunkTasks);
+            jobs.add(() -> format == SnapshotFormat.BINARY
+                    ? encodeBinaryRange(taskList, start, end)
+                    : encodeJsonRange(taskList, start, end));
+        }
+        List<EncodedRange> ranges = invokeAll(jobs);
+
+        if (format == SnapshotFormat.BINARY) {
+            return joinBinary(ranges, count);
+        }
+        ByteBuffer[] buffers = new ByteBuffer[ranges.size() + 2];
+        buffers[0] = ByteBuffer.wrap(new byte[] {'['});
+        for (int i = 0; i < ranges.size(); i++) {
+            buffers[i + 1] = ByteBuffer.wrap(ranges.get(i).bytes);
+        }
+        buffers[buffers.length - 1] = ByteBuffer.wrap("\n]\n".getBytes(StandardCharsets.UTF_8));
+        return buffers;
+    }
+
+    private static List<EncodedRange> invokeAll(List<Callable<EncodedRange>> jobs) throws IOException {
+        List<EncodedRange> ranges = new ArrayList<>(jobs.size());
+        try {
+            for (Future<EncodedRange> future : ForkJoinPool.commonPool().invokeAll(jobs)) {
+                ranges.add(future.get());
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Failed to encode tasks.", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Saving was interrupted.");
+        }
+        return ranges;
+    }
+
+    private static EncodedRange encodeJsonRange(List<Task> taskList, int from, int to) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream((to - from) * 64);
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        new TaskJsonWriter(writer).writeElements(taskList, from, to);
+        writer.flush();
+        return new EncodedRange(out.toByteArray(), null);
+    }
+
+    private static EncodedRange encodeBinaryRange(List<Task> taskList, int from, int to) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream((to - from) * 32);
+        ByteArrayOutputStream record = new ByteArrayOutputStream();
+        long[] offsets = new long[to - from];
+        for (int i = from; i < to; i++) {
+            offsets[i - from] = out.size();
+            BinaryTaskCodec.writeRecord(out, record, null, taskList, i);
+        }
+        return new EncodedRange(out.toByteArray(), offsets);
+    }
+
+    /**
+     * Places the encoded ranges between the header and the footer, turning the offsets of the
+     * records within each range into file offsets.
+     */
+    private static ByteBuffer[] joinBinary(List<EncodedRange> ranges, int count) {
+        byte[] header;
+        try {
+            header = BinaryTaskCodec.encodeHeader(count);
+        } catch (IOException e) {
+            // writing to a byte array does not fail
+            throw new UncheckedIOException(e);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(header);
+        long[] offsets = new long[count];
+        long offset = header.length;
+        int k = 0;
+        ByteBuffer[] buffers = new ByteBuffer[ranges.size() + 2];
+        buffers[0] = ByteBuffer.wrap(header);
+        for (int i = 0; i < ranges.size(); i++) {
+            EncodedRange range = ranges.get(i);
+            for (long local : range.offsets) {
+                offsets[k++] = offset + local;
+            }
+            offset += range.bytes.length;
+            crc.update(range.bytes);
+            buffers[i + 1] = ByteBuffer.wrap(range.bytes);
+        }
+        buffers[buffers.length - 1] = ByteBuffer.wrap(BinaryTaskCodec.encodeFooter(offsets, offset, crc));
+        return buffers;
+    }
+
+    /**
+     * Holds the encoded tasks of one range, with the offset of each record within it for the binary format.
+     */
+    private static class EncodedRange {
+        private final byte[] bytes;
+        private final long[] offsets;
+
+        private EncodedRange(byte[] inBytes, long[] inOffsets) {
+            bytes = inBytes;
+            offsets = inOffsets;
+        }
+    }
+}
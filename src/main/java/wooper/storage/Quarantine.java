@@ -0,0 +1,101 @@
+package wooper.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import javax.crypto.SecretKey;
+
+/**
+ * Collects the records that could not be read while loading, so that the remaining tasks can still be used.
+ * Each damaged record is kept with a description of where it was and what was wrong with it,
+ * and can be written out to a file for manual repair.
+ * Records read from an encrypted save file are written out encrypted with the same key.
+ */
+public class Quarantine {
+    private final ArrayList<String> reports = new ArrayList<>();
+    private final ByteArrayOutputStream content = new ByteArrayOutputStream();
+
+    /**
+     * Records a damaged record.
+     *
+     * @param location Where the record was found, such as {@code "line 12"}.
+     * @param reason   What was wrong with the record.
+     * @param raw      The bytes of the record as stored.
+     */
+    public void add(String location, String reason, byte[] raw) {
+        add(location, reason, raw, 0, raw.length);
+    }
+
+    /**
+     * Records a damaged record held in part of an array.
+     *
+     * @param location Where the record was found, such as {@code "line 12"}.
+     * @param reason   What was wrong with the record.
+     * @param raw      Array holding the bytes of the record as stored.
+     * @param offset   Start of the record in {@code raw}.
+     * @param length   Length of the record.
+     */
+    public void add(String location, String reason, byte[] raw, int offset, int length) {
+        String report = location + ": " + reason;
+        reports.add(report);
+        content.writeBytes(("# " + report + "\n").getBytes(StandardCharsets.UTF_8));
+        content.write(raw, offset, length);
+        content.write('\n');
+    }
+
+    /**
+     * Returns whether no damaged records were found.
+     *
+     * @return {@code true} if every record was read.
+     */
+    public boolean isEmpty() {
+        return reports.isEmpty();
+    }
+
+    /**
+     * Returns a description of each damaged record, in the order they were found.
+     *
+     * @return The descriptions of the damaged records.
+     */
+    public List<String> getReports() {
+        return reports;
+    }
+
+    /**
+     * Appends the damaged records, each preceded by its description, to the specified file.
+     *
+     * @param path File the records are appended to. Created if it does not exist.
+     * @throws IOException If writing fails.
+     */
+    public void appendTo(Path path) throws IOException {
+        appendTo(path, null);
+    }
+
+    /**
+     * Appends the damaged records to the specified file, encrypted with the specified key if one is given.
+     * Encrypted records are written as a single line of Base64 after a comment naming how many there are,
+     * so that they can be decrypted with the key of the save file they came from.
+     *
+     * @param path File the records are appended to. Created if it does not exist.
+     * @param key  Key of the encrypted save file the records were read from, or null to write them as they are.
+     * @throws IOException If writing fails.
+     */
+    public void appendTo(Path path, SecretKey key) throws IOException {
+        if (isEmpty()) {
+            return;
+        }
+        byte[] bytes = content.toByteArray();
+        if (key != null) {
+            String sealed = "# " + reports.size() + " encrypted damaged records\n"
+                    + Base64.getEncoder().encodeToString(new PageCipher(key).seal(bytes, 0, 0)) + "\n";
+            bytes = sealed.getBytes(StandardCharsets.UTF_8);
+        }
+        Files.write(path, bytes, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+}
@@ -0,0 +1,142 @@
+package wooper.storage;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import wooper.exception.WooperException;
+import wooper.task.Task;
+import wooper.task.TaskChange;
+
+/**
+ * Works out the changes that turn a list of tasks into the tasks of a JSON save file edited elsewhere.
+ * Each task is compared as the single line {@link TaskJsonWriter} writes it, so in a file laid out
+ * one task per line only the lines that differ from the current tasks are decoded.
+ * The tasks kept at the start and at the end of the list are left alone, and the tasks in between
+ * are updated in place, with any tasks left over removed or added after them.
+ * A file laid out differently, such as one reformatted by another tool, is not compared.
+ */
+public class SaveFileDiff {
+    private static final String CORRUPTED = "Save file is corrupted (invalid JSON).";
+
+    private final List<Task> current;
+    private final String[] lines;
+
+    private SaveFileDiff(List<Task> inCurrent, String[] inLines) {
+        current = inCurrent;
+        lines = inLines;
+    }
+
+    /**
+     * Returns the changes that turn the specified tasks into the tasks of the specified save file content.
+     *
+     * @param current Tasks held at the moment.
+     * @param content Raw bytes of the JSON save file.
+     * @return The changes to be applied to {@code current} in order, or null if the file is not laid out
+     *         one task per line, in which case it must be read as a whole.
+     * @throws WooperException If a task that changed cannot be decoded.
+     */
+    public static List<TaskChange> diff(List<Task> current, byte[] content) throws WooperException {
+        String[] lines = splitRecords(new String(content, StandardCharsets.UTF_8));
+        if (lines == null) {
+            return null;
+        }
+        return new SaveFileDiff(current, lines).run();
+    }
+
+    private List<TaskChange> run() throws WooperException {
+        int oldSize = current.size();
+        int newSize = lines.length;
+        String[] old = new String[oldSize];
+        for (int i = 0; i < oldSize; i++) {
+            old[i] = encode(current.get(i));
+        }
+
+        int start = 0;
+        while (start < oldSize && start < newSize && old[start].equals(lines[start])) {
+            start++;
+        }
+        int oldEnd = oldSize;
+        int newEnd = newSize;
+        while (oldEnd > start && newEnd > start && old[oldEnd - 1].equals(lines[newEnd - 1])) {
+            oldEnd--;
+            newEnd--;
+        }
+
+        ArrayList<TaskChange> changes = new ArrayList<>();
+        int common = Math.min(oldEnd - start, newEnd - start);
+        for (int i = start; i < start + common; i++) {
+            if (!old[i].equals(lines[i])) {
+                changes.add(TaskChange.update(i, taskAt(i)));
+            }
+        }
+        int at = start + common;
+        for (int i = at; i < oldEnd; i++) {
+            changes.add(TaskChange.delete(at, current.get(i)));
+        }
+        for (int i = at; i < newEnd; i++) {
+            changes.add(TaskChange.add(i, taskAt(i)));
+        }
+        return changes;
+    }
+
+    private Task taskAt(int i) throws WooperException {
+        try {
+            TaskJsonReader reader = new TaskJsonReader(new StringReader(lines[i]));
+            Task t = reader.readTask();
+            if (!reader.isAtEnd()) {
+                throw new WooperException(CORRUPTED);
+            }
+            return t;
+        } catch (IOException e) {
+            throw new WooperException(CORRUPTED);
+        }
+    }
+
+    /**
+     * Returns the task objects of a save file written one task per line, without their separators,
+     * or null if the file is laid out differently.
+     */
+    private static String[] splitRecords(String text) {
+        String[] fileLines = text.split("\n");
+        int last = fileLines.length - 1;
+        while (last >= 0 && fileLines[last].isBlank()) {
+            last--;
+        }
+        if (last < 1 || !fileLines[0].trim().equals("[") || !fileLines[last].trim().equals("]")) {
+            return null;
+        }
+
+        String[] records = new String[last - 1];
+        for (int i = 1; i < last; i++) {
+            String record = fileLines[i].trim();
+            boolean hasSeparator = record.endsWith(",");
+            if (hasSeparator != (i < last - 1)) {
+                return null;
+            }
+            if (hasSeparator) {
+                record = record.substring(0, record.length() - 1).trim();
+            }
+            if (!record.startsWith("{") || !record.endsWith("}")) {
+                return null;
+            }
+            records[i - 1] = record;
+        }
+        return records;
+    }
+
+    private static String encode(Task t) {
+        StringWriter out = new StringWriter();
+        try {
+            new TaskJsonWriter(out).writeTask(t);
+        } catch (IOException e) {
+            // writing to a string does not fail
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,118 @@
+package wooper.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Coordinates access to a save file shared by several processes.
+ * An advisory lock is taken on a lock file next to the save file, which also holds a generation
+ * counter that every writer increments. A process that remembers the generation it last saw
+ * can tell whether another process has written since, by reading the counter alone.
+ * The lock can be taken again by the thread that holds it, and also keeps out other threads
+ * of the same process, which file locks do not.
+ */
+public class SaveFileLock {
+    private static final ConcurrentHashMap<Path, ReentrantLock> PROCESS_LOCKS = new ConcurrentHashMap<>();
+
+    private final Path path;
+    private final ReentrantLock processLock;
+    private FileChannel channel = null;
+    private int depth = 0;
+
+    /**
+     * Creates a lock backed by the specified lock file. The file is created when first locked.
+     *
+     * @param inPath Path to the lock file.
+     */
+    public SaveFileLock(Path inPath) {
+        path = inPath;
+        processLock = PROCESS_LOCKS.computeIfAbsent(inPath.toAbsolutePath().normalize(), p -> new ReentrantLock());
+    }
+
+    /**
+     * Waits until no other process or thread holds the lock, then takes it.
+     *
+     * @throws IOException If the lock file cannot be opened or locked.
+     */
+    public void lock() throws IOException {
+        processLock.lock();
+        if (depth > 0) {
+            depth++;
+            return;
+        }
+        try {
+            Path parent = path.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            channel.lock();
+            depth = 1;
+        } catch (IOException e) {
+            closeChannel();
+            processLock.unlock();
+            throw e;
+        }
+    }
+
+    /**
+     * Releases the lock once it has been released as many times as it was taken.
+     *
+     * @throws IOException If the lock file cannot be released.
+     */
+    public void unlock() throws IOException {
+        assert processLock.isHeldByCurrentThread() : "Lock should be held by the thread releasing it";
+        try {
+            if (--depth == 0) {
+                // closing the channel also releases the file lock
+                closeChannel();
+            }
+        } finally {
+            processLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the generation of the save file. Must be called while holding the lock.
+     *
+     * @return The number of writes recorded so far, or zero if nothing has been written.
+     * @throws IOException If the lock file cannot be read.
+     */
+    public long readGeneration() throws IOException {
+        assert depth > 0 : "Generation should only be read while locked";
+        ByteBuffer buf = ByteBuffer.allocate(Long.BYTES);
+        while (buf.hasRemaining()) {
+            if (channel.read(buf, buf.position()) < 0) {
+                return 0;
+            }
+        }
+        return buf.getLong(0);
+    }
+
+    /**
+     * Records the specified generation of the save file. Must be called while holding the lock.
+     *
+     * @param generation The new generation.
+     * @throws IOException If the lock file cannot be written.
+     */
+    public void writeGeneration(long generation) throws IOException {
+        assert depth > 0 : "Generation should only be written while locked";
+        ByteBuffer buf = ByteBuffer.allocate(Long.BYTES).putLong(0, generation);
+        while (buf.hasRemaining()) {
+            channel.write(buf, buf.position());
+        }
+    }
+
+    private void closeChannel() throws IOException {
+        if (channel != null) {
+            FileChannel open = channel;
+            channel = null;
+            open.close();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package wooper.storage;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches a save file, its journal and its lock file for changes made outside this process.
+ * Changes are reported on a background thread once the files have been quiet for a short while,
+ * so that a file written in several steps is reported once. Writes made by this process are
+ * reported too, and are expected to be recognised as already known by the listener.
+ */
+public class SaveFileWatcher {
+    private static final long SETTLE_MILLIS = 50;
+
+    private final Path directory;
+    private final Set<Path> watchedNames;
+    private final Runnable onChange;
+    private WatchService watchService = null;
+
+    /**
+     * Creates a watcher for the specified save file. Nothing is watched until {@link #start} is called.
+     *
+     * @param inFilePath Path to the save file.
+     * @param inOnChange Called on the watcher thread after the save file or its journal changed.
+     */
+    public SaveFileWatcher(Path inFilePath, Runnable inOnChange) {
+        Path absolute = inFilePath.toAbsolutePath();
+        directory = absolute.getParent();
+        String name = absolute.getFileName().toString();
+        watchedNames = Set.of(Path.of(name), Path.of(name + ".journal"), Path.of(name + ".lock"));
+        onChange = inOnChange;
+    }
+
+    /**
+     * Starts watching on a daemon thread.
+     *
+     * @throws IOException If the directory of the save file cannot be watched.
+     */
+    public void start() throws IOException {
+        Files.createDirectories(directory);
+        watchService = directory.getFileSystem().newWatchService();
+        directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY);
+
+        Thread t = new Thread(this::run, "wooper-watcher");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /**
+     * Stops watching.
+     *
+     * @throws IOException If the watch service cannot be closed.
+     */
+    public void close() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                boolean isChanged = isRelevant(watchService.take());
+                // wait for the files to settle before reporting
+                WatchKey next;
+                while ((next = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    isChanged |= isRelevant(next);
+                }
+                if (isChanged) {
+                    onChange.run();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // watching stopped
+        }
+    }
+
+    private boolean isRelevant(WatchKey key) {
+        boolean isRelevant = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            // events may have been lost, so anything might have changed
+            if (event.kind() == OVERFLOW || watchedNames.contains((Path) event.context())) {
+                isRelevant = true;
+            }
+        }
+        key.reset();
+        return isRelevant;
+    }
+}
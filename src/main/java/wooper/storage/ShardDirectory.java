@@ -0,0 +1,262 @@
+package wooper.storage;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.Temporal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import wooper.exception.WooperException;
+import wooper.task.Deadline;
+import wooper.task.Event;
+import wooper.task.Task;
+
+/**
+ * Represents a directory of shard files that together hold the task list, one shard per month.
+ * A deadline belongs to the month it is due and an event to the month it starts; todos have no date
+ * and go in a shard of their own. Each shard is a JSON array of its tasks in list order.
+ * A manifest records which shard each position of the list belongs to, so the list can be put
+ * back together without reading every shard.
+ */
+public class ShardDirectory {
+    /**
+     * Shard holding tasks without a date.
+     */
+    static final int UNDATED = -1;
+
+    private static final String MANIFEST_NAME = "manifest";
+    private static final String SHARD_SUFFIX = ".json";
+    private static final String UNDATED_NAME = "undated" + SHARD_SUFFIX;
+    private static final byte[] MAGIC = {'W', 'S', 'H', 'D'};
+
+    private static final String CORRUPTED = "Save file is corrupted (invalid shard manifest).";
+
+    private final Path dir;
+
+    /**
+     * Creates a shard directory at the specified path. The directory is created when first written to.
+     *
+     * @param inDir Path to the directory.
+     */
+    public ShardDirectory(Path inDir) {
+        dir = inDir;
+    }
+
+    /**
+     * Returns whether the directory holds a task list.
+     *
+     * @return {@code true} if a manifest has been written.
+     */
+    public boolean exists() {
+        return Files.exists(dir.resolve(MANIFEST_NAME));
+    }
+
+    /**
+     * Returns the shard the specified task belongs to.
+     *
+     * @param t Task to be placed.
+     * @return The shard of the task's month, or {@link #UNDATED} if it has no date.
+     */
+    public static int shardOf(Task t) {
+        if (t instanceof Deadline d) {
+            return shardOf(d.getDueTemporal());
+        }
+        if (t instanceof Event e) {
+            return shardOf(e.getStartTemporal());
+        }
+        return UNDATED;
+    }
+
+    /**
+     * Returns the shard of the month containing the specified date.
+     *
+     * @param date Date within the month.
+     * @return The shard of that month.
+     */
+    public static int shardOf(LocalDate date) {
+        return date.getYear() * 12 + date.getMonthValue() - 1;
+    }
+
+    private static int shardOf(Temporal temporal) {
+        if (temporal instanceof LocalDateTime) {
+            return shardOf(((LocalDateTime) temporal).toLocalDate());
+        }
+        return shardOf((LocalDate) temporal);
+    }
+
+    /**
+     * Returns the shard of each position in the task list, as recorded in the manifest.
+     *
+     * @return The shard of each task, in list order.
+     * @throws WooperException If the manifest cannot be read or is malformed.
+     */
+    public int[] readManifest() throws WooperException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(dir.resolve(MANIFEST_NAME)))) {
+            byte[] head = in.readNBytes(MAGIC.length);
+            if (!Arrays.equals(head, MAGIC)) {
+                throw new WooperException(CORRUPTED);
+            }
+
+            long count = BinaryTaskCodec.readVarint(in);
+            if (count < 0 || count > Integer.MAX_VALUE - 8) {
+                throw new WooperException(CORRUPTED);
+            }
+            int[] shards = new int[(int) count];
+            int previous = 0;
+            for (int i = 0; i < shards.length; i++) {
+                long zigzag = BinaryTaskCodec.readVarint(in);
+                // stored as the difference from the previous entry, which is small for tasks added together
+                previous += (int) ((zigzag >>> 1) ^ -(zigzag & 1));
+                shards[i] = previous - 1;
+            }
+            if (in.read() != -1) {
+                throw new WooperException(CORRUPTED);
+            }
+            return shards;
+        } catch (IOException e) {
+            throw new WooperException("Failed to read save file.");
+        }
+    }
+
+    /**
+     * Returns the tasks stored in the specified shard, in list order.
+     *
+     * @param shard Shard to be read.
+     * @return The tasks in the shard, or an empty list if it has no file.
+     * @throws WooperException If the shard cannot be read or is malformed.
+     */
+    public ArrayList<Task> readShard(int shard) throws WooperException {
+        Path path = dir.resolve(fileNameOf(shard));
+        ArrayList<Task> tasks = new ArrayList<>();
+        if (!Files.exists(path)) {
+            return tasks;
+        }
+
+        try (InputStreamReader in = new InputStreamReader(
+                new BufferedInputStream(Files.newInputStream(path)), StandardCharsets.UTF_8)) {
+            TaskJsonReader reader = new TaskJsonReader(in);
+            reader.beginArray();
+            while (reader.hasNext()) {
+                tasks.add(reader.readTask());
+            }
+            reader.endArray();
+            if (!reader.isAtEnd()) {
+                throw new WooperException("Save file is corrupted (invalid JSON).");
+            }
+            return tasks;
+        } catch (IOException e) {
+            throw new WooperException("Failed to read save file.");
+        }
+    }
+
+    /**
+     * Returns the manifest content for the specified shard of each position, without writing it.
+     */
+    ShardWrite encodeManifest(int[] shards, int size) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(size + 16);
+        out.write(MAGIC);
+        BinaryTaskCodec.writeVarint(out, size);
+        int previous = 0;
+        for (int i = 0; i < size; i++) {
+            long delta = shards[i] + 1 - previous;
+            BinaryTaskCodec.writeVarint(out, (delta << 1) ^ (delta >> 63));
+            previous = shards[i] + 1;
+        }
+        return new ShardWrite(dir.resolve(MANIFEST_NAME), out.toByteArray());
+    }
+
+    /**
+     * Returns the content of the specified shard holding the specified tasks, without writing it.
+     * A shard without tasks is removed instead.
+     */
+    ShardWrite encodeShard(int shard, List<Task> tasks) throws IOException {
+        Path path = dir.resolve(fileNameOf(shard));
+        if (tasks.isEmpty()) {
+            return new ShardWrite(path, null);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        new TaskJsonWriter(writer).writeTaskList(tasks);
+        writer.flush();
+        return new ShardWrite(path, out.toByteArray());
+    }
+
+    /**
+     * Returns removals for every shard file in the directory other than the specified shards.
+     */
+    List<ShardWrite> encodeRemovalsExcept(Set<Integer> shards) throws IOException {
+        List<ShardWrite> removals = new ArrayList<>();
+        if (!Files.isDirectory(dir)) {
+            return removals;
+        }
+        Set<String> kept = new HashSet<>();
+        for (int shard : shards) {
+            kept.add(fileNameOf(shard));
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + SHARD_SUFFIX)) {
+            for (Path file : files) {
+                if (!kept.contains(file.getFileName().toString())) {
+                    removals.add(new ShardWrite(file, null));
+                }
+            }
+        }
+        return removals;
+    }
+
+    /**
+     * Writes the specified shard files in order. Each file is replaced atomically.
+     *
+     * @param writes Encoded shard files to be written or removed.
+     * @throws IOException If writing fails.
+     */
+    public void write(List<ShardWrite> writes) throws IOException {
+        if (writes.isEmpty()) {
+            return;
+        }
+        Files.createDirectories(dir);
+        for (ShardWrite write : writes) {
+            if (write.content == null) {
+                Files.deleteIfExists(write.path);
+                continue;
+            }
+            Path tmpPath = write.path.resolveSibling(write.path.getFileName() + ".tmp");
+            Files.write(tmpPath, write.content);
+            Files.move(tmpPath, write.path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    private static String fileNameOf(int shard) {
+        if (shard == UNDATED) {
+            return UNDATED_NAME;
+        }
+        return String.format("%04d-%02d%s", shard / 12, shard % 12 + 1, SHARD_SUFFIX);
+    }
+
+    /**
+     * Represents the encoded content of a shard file or the manifest, or the removal of a shard file.
+     */
+    public static class ShardWrite {
+        private final Path path;
+        private final byte[] content;
+
+        private ShardWrite(Path inPath, byte[] inContent) {
+            path = inPath;
+            content = inContent;
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package wooper.storage;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.RandomAccess;
+
+import wooper.enums.ChangeType;
+import wooper.exception.WooperException;
+import wooper.task.Task;
+import wooper.task.TaskChange;
+
+/**
+ * Represents a task list stored across the shards of a {@link ShardDirectory}.
+ * Only the shards for recent and upcoming months, and undated tasks, are read when the list is opened.
+ * A shard is read in full the first time one of its tasks is accessed. Changes to the list are
+ * tracked per shard, so that saving rewrites only the shards that changed.
+ */
+public class ShardedTaskList extends AbstractList<Task> implements RandomAccess {
+    private final ShardDirectory directory;
+
+    /**
+     * Tasks of the shards read so far, with null for tasks of shards not read yet.
+     */
+    private Task[] tasks;
+
+    /**
+     * Shard of the task in each slot.
+     */
+    private int[] shards;
+
+    private int size;
+    private final HashSet<Integer> loadedShards = new HashSet<>();
+    private final LinkedHashSet<Integer> dirtyShards = new LinkedHashSet<>();
+    private boolean isManifestDirty = false;
+    private List<ShardDirectory.ShardWrite> pendingRemovals = List.of();
+
+    private ShardedTaskList(ShardDirectory inDirectory, int[] inShards) {
+        directory = inDirectory;
+        shards = inShards;
+        size = inShards.length;
+        tasks = new Task[size];
+    }
+
+    /**
+     * Opens the task list stored in the specified directory, reading the undated shard and the shards
+     * of the current month, the specified number of months before it, and every month after it.
+     *
+     * @param directory    Directory holding the shards.
+     * @param recentMonths Number of past months whose shards are read straight away.
+     * @return The opened list.
+     * @throws WooperException If the manifest or one of the shards read cannot be read.
+     */
+    public static ShardedTaskList open(ShardDirectory directory, int recentMonths) throws WooperException {
+        ShardedTaskList list = new ShardedTaskList(directory, directory.readManifest());
+        int firstRecent = ShardDirectory.shardOf(LocalDate.now()) - recentMonths;
+        for (int i = 0; i < list.size; i++) {
+            int shard = list.shards[i];
+            if (shard == ShardDirectory.UNDATED || shard >= firstRecent) {
+                list.loadShard(shard);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Returns a list holding the specified tasks that will be stored in the specified directory.
+     * Every shard is marked as changed, and shard files left over from an earlier list are removed
+     * when the changes are written.
+     *
+     * @param directory Directory the shards are written to.
+     * @param taskList  Tasks to be stored, in order.
+     * @return The new list.
+     * @throws IOException If the directory cannot be listed.
+     */
+    public static ShardedTaskList create(ShardDirectory directory, List<Task> taskList) throws IOException {
+        int[] shards = new int[taskList.size()];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = ShardDirectory.shardOf(taskList.get(i));
+        }
+        ShardedTaskList list = new ShardedTaskList(directory, shards);
+        taskList.toArray(list.tasks);
+        for (int shard : shards) {
+            // nothing to read, as every task is already held
+            list.loadedShards.add(shard);
+        }
+        list.markAllChanged();
+        list.pendingRemovals = directory.encodeRemovalsExcept(list.loadedShards);
+        return list;
+    }
+
+    @Override
+    public Task get(int index) {
+        checkIndex(index, size);
+        if (tasks[index] == null) {
+            loadShardQuietly(shards[index]);
+        }
+        return tasks[index];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Task set(int index, Task t) {
+        Task old = get(index);
+        int shard = ShardDirectory.shardOf(t);
+        loadShardQuietly(shard);
+        markChanged(shards[index]);
+        markChanged(shard);
+        isManifestDirty |= shard != shards[index];
+        tasks[index] = t;
+        shards[index] = shard;
+        return old;
+    }
+
+    @Override
+    public void add(int index, Task t) {
+        checkIndex(index, size + 1);
+        int shard = ShardDirectory.shardOf(t);
+        // positions of a shard are matched to its tasks in order, so the shard must be read first
+        loadShardQuietly(shard);
+        if (size == tasks.length) {
+            int capacity = Math.max(16, size + (size >> 1));
+            tasks = Arrays.copyOf(tasks, capacity);
+            shards = Arrays.copyOf(shards, capacity);
+        }
+        System.arraycopy(tasks, index, tasks, index + 1, size - index);
+        System.arraycopy(shards, index, shards, index + 1, size - index);
+        tasks[index] = t;
+        shards[index] = shard;
+        size++;
+        modCount++;
+        markChanged(shard);
+        isManifestDirty = true;
+    }
+
+    @Override
+    public Task remove(int index) {
+        Task old = get(index);
+        markChanged(shards[index]);
+        System.arraycopy(tasks, index + 1, tasks, index, size - index - 1);
+        System.arraycopy(shards, index + 1, shards, index, size - index - 1);
+        size--;
+        tasks[size] = null;
+        modCount++;
+        isManifestDirty = true;
+        return old;
+    }
+
+    /**
+     * Records the specified change and returns the shard files that must be rewritten for it.
+     * Additions and removals are already tracked by the list; an update may move the task to another shard.
+     * The files are encoded immediately, so the result stays valid if the list changes again before writing.
+     *
+     * @param change Change made to the list.
+     * @return The encoded shard files, in the order they should be written.
+     * @throws IOException If a shard cannot be encoded.
+     */
+    public List<ShardDirectory.ShardWrite> apply(TaskChange change) throws IOException {
+        if (change.getType() == ChangeType.UPDATE) {
+            int index = change.getIndex();
+            int shard = ShardDirectory.shardOf(get(index));
+            if (shard != shards[index]) {
+                loadShardQuietly(shard);
+                markChanged(shards[index]);
+                shards[index] = shard;
+                isManifestDirty = true;
+            }
+            markChanged(shard);
+        }
+        return takeWrites();
+    }
+
+    /**
+     * Marks every shard read so far as changed, so that the next write rewrites them all.
+     */
+    public void markAllChanged() {
+        dirtyShards.addAll(loadedShards);
+        isManifestDirty = true;
+    }
+
+    /**
+     * Returns the shard files changed since the last call, encoded and ready to be written.
+     * Shards are written before the manifest, so the manifest never refers to tasks not yet written,
+     * and leftover shard files are removed last.
+     *
+     * @return The encoded shard files, in the order they should be written.
+     * @throws IOException If a shard cannot be encoded.
+     */
+    public List<ShardDirectory.ShardWrite> takeWrites() throws IOException {
+        List<ShardDirectory.ShardWrite> writes = new ArrayList<>();
+        for (int shard : dirtyShards) {
+            writes.add(directory.encodeShard(shard, tasksOf(shard)));
+        }
+        if (isManifestDirty) {
+            writes.add(directory.encodeManifest(shards, size));
+        }
+        writes.addAll(pendingRemovals);
+        pendingRemovals = List.of();
+        dirtyShards.clear();
+        isManifestDirty = false;
+        return writes;
+    }
+
+    /**
+     * Returns whether the tasks of the specified shard have been read.
+     *
+     * @param shard Shard to be checked.
+     * @return {@code true} if the shard is held in memory.
+     */
+    public boolean isShardLoaded(int shard) {
+        return loadedShards.contains(shard);
+    }
+
+    private List<Task> tasksOf(int shard) {
+        List<Task> result = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            if (shards[i] == shard) {
+                result.add(tasks[i]);
+            }
+        }
+        return result;
+    }
+
+    private void markChanged(int shard) {
+        dirtyShards.add(shard);
+    }
+
+    private void loadShardQuietly(int shard) {
+        try {
+            loadShard(shard);
+        } catch (WooperException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reads the specified shard and fills in the positions that belong to it, in order.
+     */
+    private void loadShard(int shard) throws WooperException {
+        if (!loadedShards.add(shard)) {
+            return;
+        }
+        ArrayList<Task> shardTasks = directory.readShard(shard);
+        int next = 0;
+        for (int i = 0; i < size; i++) {
+            if (shards[i] != shard) {
+                continue;
+            }
+            if (next == shardTasks.size()) {
+                loadedShards.remove(shard);
+                throw new WooperException("Save file is corrupted (shard does not match manifest).");
+            }
+            tasks[i] = shardTasks.get(next++);
+        }
+        if (next != shardTasks.size()) {
+            loadedShards.remove(shard);
+            throw new WooperException("Save file is corrupted (shard does not match manifest).");
+        }
+    }
+
+    private void checkIndex(int index, int bound) {
+        if (index < 0 || index >= bound) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+}
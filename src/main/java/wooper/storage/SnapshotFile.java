@@ -0,0 +1,348 @@
+package wooper.storage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import wooper.enums.SnapshotFormat;
+import wooper.exception.WooperException;
+import wooper.task.Task;
+
+/**
+ * Represents a save file holding every task as a whole, as a JSON array or in the compact format of
+ * {@link BinaryTaskCodec}, optionally GZIP-compressed. The format is recognised from the file header
+ * when reading. The file is always replaced as a whole, through a temporary file, so a crash never
+ * leaves it half-written.
+ *
+ * <p>Each version of the file has an identity, which a journal or an index uses to tell whether it
+ * follows on from it: the snapshot ID of a binary file, or the CRC32 of the file otherwise.</p>
+ */
+public class SnapshotFile {
+    private static final int COMPRESSION_BUFFER_SIZE = 1 << 16;
+
+    private final Path path;
+    private final Path tmpPath;
+
+    /**
+     * Creates a save file at the specified path.
+     *
+     * @param inPath Path to the save file.
+     */
+    public SnapshotFile(Path inPath) {
+        path = inPath;
+        tmpPath = inPath.resolveSibling(inPath.getFileName() + ".tmp");
+    }
+
+    /**
+     * Returns the first bytes of the save file, enough to hold the header of any save file format.
+     *
+     * @return The first bytes, fewer if the file is shorter.
+     * @throws IOException If the file cannot be read.
+     */
+    public byte[] readHead() throws IOException {
+        try (InputStream in = Files.newInputStream(path)) {
+            return in.readNBytes(BinaryTaskCodec.getMagicLength());
+        }
+    }
+
+    /**
+     * Returns the tasks of the save file. Records that cannot be read are put in the specified quarantine,
+     * and the tasks that can still be read are returned. A large uncompressed JSON file is decoded on
+     * several threads.
+     *
+     * @param quarantine Quarantine for damaged records.
+     * @return The tasks read and the identity of the file.
+     * @throws WooperException If the file cannot be read.
+     */
+    public Contents read(Quarantine quarantine) throws WooperException {
+        try {
+            byte[] head = readHead();
+            long size = Files.size(path);
+            if (size >= ParallelTaskLoader.MIN_FILE_SIZE && size <= Integer.MAX_VALUE
+                    && !BinaryTaskCodec.hasMagic(head, head.length) && !hasGzipMagic(head)) {
+                return readJsonInParallel(quarantine);
+            }
+        } catch (IOException e) {
+            throw new WooperException("Failed to read save file.");
+        }
+
+        CRC32 crc = new CRC32();
+        try (InputStream raw = new BufferedInputStream(new CheckedInputStream(Files.newInputStream(path), crc))) {
+            InputStream in = raw;
+            if (isGzip(raw)) {
+                in = new BufferedInputStream(new GZIPInputStream(raw, COMPRESSION_BUFFER_SIZE));
+            }
+
+            ArrayList<Task> tasks;
+            if (isBinary(in)) {
+                tasks = BinaryTaskCodec.readTaskList(in, quarantine);
+                byte[] rest = in.readAllBytes();
+                if (rest.length > 0) {
+                    quarantine.add("end of file", "Save file is corrupted (unexpected data after last task).", rest);
+                }
+            } else {
+                try {
+                    tasks = readJsonTaskList(new InputStreamReader(in, StandardCharsets.UTF_8));
+                } catch (WooperException e) {
+                    return recoverJsonTaskList(quarantine);
+                }
+            }
+            // the checksum covers the whole file, including anything the decompressor left unread
+            raw.transferTo(OutputStream.nullOutputStream());
+
+            long snapshotId = BinaryTaskCodec.readSnapshotId(path);
+            return new Contents(tasks, snapshotId != -1 ? snapshotId : crc.getValue());
+        } catch (IOException e) {
+            throw new WooperException("Failed to read save file.");
+        }
+    }
+
+    /**
+     * Replaces the save file with the specified tasks.
+     *
+     * @param taskList     Tasks to be saved.
+     * @param format       Format of the save file. Must not be {@link SnapshotFormat#PAGED}.
+     * @param isCompressed Whether the file is GZIP-compressed.
+     * @return The identity of the new file.
+     * @throws IOException If writing fails.
+     */
+    public long write(List<Task> taskList, SnapshotFormat format, boolean isCompressed) throws IOException {
+        if (ParallelTaskWriter.canEncode(taskList)) {
+            return write(ParallelTaskWriter.encode(taskList, format), isCompressed);
+        }
+        return write(out -> writeTaskList(out, taskList, format), isCompressed);
+    }
+
+    /**
+     * Replaces the save file with the specified content, as returned by {@link #encode}.
+     * Uncompressed content is written with a single gathering write.
+     *
+     * @param content      Content of the file, split across buffers in file order.
+     * @param isCompressed Whether the file is GZIP-compressed.
+     * @return The identity of the new file.
+     * @throws IOException If writing fails.
+     */
+    public long write(ByteBuffer[] content, boolean isCompressed) throws IOException {
+        if (isCompressed) {
+            return write(out -> {
+                for (ByteBuffer buf : content) {
+                    out.write(buf.array(), buf.arrayOffset() + buf.position(), buf.remaining());
+                }
+            }, true);
+        }
+
+        // create folder if missing
+        Files.createDirectories(path.getParent());
+        CRC32 crc = new CRC32();
+        ByteBuffer[] buffers = new ByteBuffer[content.length];
+        long remaining = 0;
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = content[i].duplicate();
+            crc.update(buffers[i].duplicate());
+            remaining += buffers[i].remaining();
+        }
+        try (FileChannel channel = FileChannel.open(tmpPath, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            // a single gathering write, repeated only if the channel accepts part of the buffers
+            while (remaining > 0) {
+                remaining -= channel.write(buffers);
+            }
+        }
+        return replace(crc);
+    }
+
+    /**
+     * Returns the content of a save file holding the specified tasks without writing it.
+     *
+     * @param taskList Tasks to be saved.
+     * @param format   Format of the save file. Must not be {@link SnapshotFormat#PAGED}.
+     * @return The content, split across buffers in file order.
+     * @throws IOException If a task cannot be encoded.
+     */
+    public static ByteBuffer[] encode(List<Task> taskList, SnapshotFormat format) throws IOException {
+        if (ParallelTaskWriter.canEncode(taskList)) {
+            return ParallelTaskWriter.encode(taskList, format);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeTaskList(out, taskList, format);
+        return new ByteBuffer[] {ByteBuffer.wrap(out.toByteArray())};
+    }
+
+    /**
+     * Returns whether the specified bytes start with the GZIP header.
+     *
+     * @param head First bytes of a file.
+     * @return {@code true} if the file is GZIP-compressed.
+     */
+    public static boolean hasGzipMagic(byte[] head) {
+        return head.length >= 2 && (head[0] & 0xFF) == 0x1F && (head[1] & 0xFF) == 0x8B;
+    }
+
+    /**
+     * Returns the tasks of a large uncompressed JSON save file, decoded on several threads.
+     * The file is read onto the heap rather than mapped, so that it can still be replaced on every platform.
+     */
+    private Contents readJsonInParallel(Quarantine quarantine) throws IOException {
+        byte[] content = Files.readAllBytes(path);
+        ArrayList<Task> tasks;
+        try {
+            tasks = ParallelTaskLoader.readTaskList(ByteBuffer.wrap(content));
+        } catch (WooperException e) {
+            tasks = JsonTaskRecovery.readTaskList(content, quarantine);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        return new Contents(tasks, crc.getValue());
+    }
+
+    /**
+     * Returns the tasks that can still be read from a damaged JSON save file, putting the rest in the quarantine.
+     */
+    private Contents recoverJsonTaskList(Quarantine quarantine) throws IOException {
+        byte[] raw = Files.readAllBytes(path);
+        CRC32 crc = new CRC32();
+        crc.update(raw);
+
+        byte[] content = raw;
+        if (hasGzipMagic(raw)) {
+            try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(raw), COMPRESSION_BUFFER_SIZE)) {
+                content = in.readAllBytes();
+            } catch (EOFException e) {
+                // a cut-off compressed file still yields the tasks before the cut
+                content = new byte[0];
+            }
+        }
+        return new Contents(JsonTaskRecovery.readTaskList(content, quarantine), crc.getValue());
+    }
+
+    /**
+     * Returns whether the stream starts with the GZIP header, without consuming it.
+     */
+    private static boolean isGzip(InputStream in) throws IOException {
+        in.mark(2);
+        byte[] head = in.readNBytes(2);
+        in.reset();
+        return hasGzipMagic(head);
+    }
+
+    /**
+     * Returns whether the stream starts with the binary save file header, without consuming it.
+     */
+    private static boolean isBinary(InputStream in) throws IOException {
+        int length = BinaryTaskCodec.getMagicLength();
+        in.mark(length);
+        byte[] head = in.readNBytes(length);
+        in.reset();
+        return BinaryTaskCodec.hasMagic(head, head.length);
+    }
+
+    private static ArrayList<Task> readJsonTaskList(Reader in) throws IOException, WooperException {
+        TaskJsonReader reader = new TaskJsonReader(in);
+        ArrayList<Task> tasks = new ArrayList<>();
+
+        // file empty = no data
+        if (reader.isAtEnd()) {
+            return tasks;
+        }
+
+        reader.beginArray();
+        while (reader.hasNext()) {
+            tasks.add(reader.readTask());
+        }
+        reader.endArray();
+        if (!reader.isAtEnd()) {
+            throw new WooperException("Save file is corrupted (invalid JSON).");
+        }
+        return tasks;
+    }
+
+    private static void writeTaskList(OutputStream out, List<Task> taskList, SnapshotFormat format)
+            throws IOException {
+        if (format == SnapshotFormat.BINARY) {
+            BinaryTaskCodec.writeTaskList(out, taskList);
+            return;
+        }
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        new TaskJsonWriter(writer).writeTaskList(taskList);
+        writer.flush();
+    }
+
+    /**
+     * Writes a new save file through the specified body.
+     */
+    private long write(Body body, boolean isCompressed) throws IOException {
+        // create folder if missing
+        Files.createDirectories(path.getParent());
+
+        CRC32 crc = new CRC32();
+        OutputStream file = new CheckedOutputStream(Files.newOutputStream(tmpPath), crc);
+        if (isCompressed) {
+            file = new GZIPOutputStream(file, COMPRESSION_BUFFER_SIZE);
+        }
+        try (OutputStream out = new BufferedOutputStream(file)) {
+            body.writeTo(out);
+        }
+        return replace(crc);
+    }
+
+    /**
+     * Moves the fully written temporary file over the save file and returns the identity of the new file.
+     */
+    private long replace(CRC32 crc) throws IOException {
+        Files.move(tmpPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        long snapshotId = BinaryTaskCodec.readSnapshotId(path);
+        return snapshotId != -1 ? snapshotId : crc.getValue();
+    }
+
+    /**
+     * Writes the content of a save file to an output stream.
+     */
+    private interface Body {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /**
+     * Holds the tasks read from a save file together with the identity of the file.
+     */
+    public static class Contents {
+        private final ArrayList<Task> tasks;
+        private final long snapshotId;
+
+        private Contents(ArrayList<Task> inTasks, long inSnapshotId) {
+            tasks = inTasks;
+            snapshotId = inSnapshotId;
+        }
+
+        public ArrayList<Task> getTasks() {
+            return tasks;
+        }
+
+        public long getSnapshotId() {
+            return snapshotId;
+        }
+    }
+}
@@ -0,0 +1,463 @@
+package wooper.storage;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import wooper.exception.WooperException;
+import wooper.task.Deadline;
+import wooper.task.Event;
+import wooper.task.Task;
+import wooper.task.TaskChange;
+import wooper.task.TaskIndex;
+import wooper.task.ToDo;
+
+/**
+ * Loads tasks from and saves tasks to an embedded SQL database, such as an H2 database file.
+ * Each task is a row holding an order key, and tasks are listed in order of their keys. Keys are spaced
+ * apart, so adding a task between two others gives it a key between theirs, and adding, updating or
+ * removing a task writes only its own row. The keys are only renumbered once two neighbours run out
+ * of room between them. The key of each position is kept in memory to find the row of a task.
+ * Searches by description and by due time are answered by the database, the latter from an index
+ * on the due time of deadlines. Archived tasks are kept in a table of their own.
+ * The notes of a task stay in the notes file, and only their offset is kept in the row.
+ * The row also keeps the ID of the task, which is distinct from the order of archived tasks.
+ * The loading thread, the save file watcher and the user all share one connection, so every method
+ * that uses it is synchronized, as in {@link FileStorage}.
+ */
+public class SqlStorage implements Storage {
+    private static final String[] SCHEMA = {
+        "CREATE TABLE IF NOT EXISTS tasks (ord BIGINT NOT NULL, task_type CHAR(1) NOT NULL,"
+                + " description VARCHAR NOT NULL, done BOOLEAN NOT NULL, due_by VARCHAR,"
+                + " event_from VARCHAR, event_to VARCHAR, due_key BIGINT)",
+        "CREATE TABLE IF NOT EXISTS archived_tasks (id BIGINT NOT NULL, task_type CHAR(1) NOT NULL,"
+                + " description VARCHAR NOT NULL, done BOOLEAN NOT NULL, due_by VARCHAR,"
+                + " event_from VARCHAR, event_to VARCHAR)",
+        // added after the tables were first created, so older databases get them too
+        "ALTER TABLE tasks ADD COLUMN IF NOT EXISTS notes_ref BIGINT",
+        "ALTER TABLE archived_tasks ADD COLUMN IF NOT EXISTS notes_ref BIGINT",
+        "ALTER TABLE tasks ADD COLUMN IF NOT EXISTS task_id BIGINT",
+        "ALTER TABLE archived_tasks ADD COLUMN IF NOT EXISTS task_id BIGINT",
+        "ALTER TABLE tasks ADD COLUMN IF NOT EXISTS ord BIGINT"
+    };
+
+    /**
+     * Space left between the keys of neighbouring tasks when keys are numbered.
+     */
+    private static final long ORDER_GAP = 1L << 20;
+
+    /**
+     * Statements that turn the positions kept by older databases into order keys.
+     */
+    private static final String[] POSITION_MIGRATION = {
+        "DROP INDEX IF EXISTS tasks_pos",
+        "DROP INDEX IF EXISTS tasks_due",
+        "UPDATE tasks SET ord = (CAST(pos AS BIGINT) + 1) * " + ORDER_GAP,
+        "ALTER TABLE tasks DROP COLUMN pos"
+    };
+
+    private static final String[] INDEXES = {
+        "CREATE UNIQUE INDEX IF NOT EXISTS tasks_ord ON tasks (ord)",
+        "CREATE INDEX IF NOT EXISTS tasks_due_ord ON tasks (due_key, ord)"
+    };
+
+    private static final String COLUMNS = "task_type, description, done, due_by, event_from, event_to, notes_ref,"
+            + " task_id";
+    private static final String INSERT_TASK = "INSERT INTO tasks (" + COLUMNS + ", due_key, ord)"
+            + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_TASK = "UPDATE tasks SET task_type = ?, description = ?, done = ?,"
+            + " due_by = ?, event_from = ?, event_to = ?, notes_ref = ?, task_id = ?, due_key = ? WHERE ord = ?";
+    private static final char LIKE_ESCAPE = '!';
+
+    private static final String READ_FAILED = "Failed to read tasks from database.";
+    private static final String WRITE_FAILED = "Failed to write tasks to database.";
+
+    private final String url;
+    private Connection connection = null;
+
+    /**
+     * Order key of the task at each position, ascending, read from the database when first needed.
+     */
+    private ArrayList<Long> orders = null;
+
+    /**
+     * Creates a storage backed by the database at the specified JDBC URL.
+     * The database and its tables are created when first used.
+     *
+     * @param inUrl JDBC URL of the database, such as {@code jdbc:h2:/path/to/wooper}.
+     */
+    public SqlStorage(String inUrl) {
+        url = inUrl;
+    }
+
+    @Override
+    public synchronized List<Task> load() throws WooperException {
+        try (Statement statement = connect().createStatement();
+                ResultSet rows = statement.executeQuery("SELECT " + COLUMNS + ", ord FROM tasks ORDER BY ord")) {
+            ArrayList<Long> keys = new ArrayList<>();
+            ArrayList<Task> tasks = readTasks(rows, keys);
+            orders = keys;
+            return tasks;
+        } catch (SQLException e) {
+            throw new WooperException(READ_FAILED);
+        }
+    }
+
+    @Override
+    public synchronized void save(List<Task> taskList) throws IOException {
+        try {
+            Connection c = connect();
+            try {
+                ArrayList<Long> keys = replaceTasks(c, taskList);
+                c.commit();
+                orders = keys;
+            } catch (SQLException e) {
+                c.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new IOException(WRITE_FAILED, e);
+        }
+    }
+
+    @Override
+    public synchronized void append(TaskChange change, List<Task> taskList) throws IOException {
+        int i = change.getIndex();
+        try {
+            Connection c = connect();
+            try {
+                ArrayList<Long> keys = getOrders(c);
+                switch (change.getType()) {
+                case ADD:
+                    long key = orderBefore(keys, i);
+                    if (key == -1) {
+                        // no room left between the neighbours, so every task gets a new key
+                        keys = replaceTasks(c, taskList);
+                        c.commit();
+                        orders = keys;
+                        return;
+                    }
+                    writeTask(c, INSERT_TASK, key, change.getTask());
+                    c.commit();
+                    keys.add(i, key);
+                    break;
+                case UPDATE:
+                    writeTask(c, UPDATE_TASK, keys.get(i), change.getTask());
+                    c.commit();
+                    break;
+                case DELETE:
+                    try (PreparedStatement delete = c.prepareStatement("DELETE FROM tasks WHERE ord = ?")) {
+                        delete.setLong(1, keys.get(i));
+                        delete.executeUpdate();
+                    }
+                    c.commit();
+                    keys.remove(i);
+                    break;
+                default:
+                    assert false : "Unknown change type";
+                }
+            } catch (SQLException e) {
+                c.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new IOException(WRITE_FAILED, e);
+        }
+    }
+
+    @Override
+    public synchronized void archive(List<Task> archived, List<Task> taskList) throws IOException, WooperException {
+        long firstId = getArchivedCount();
+        try {
+            Connection c = connect();
+            try (PreparedStatement insert = c.prepareStatement("INSERT INTO archived_tasks (" + COLUMNS
+                    + ", id) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+                for (int i = 0; i < archived.size(); i++) {
+                    setColumns(insert, archived.get(i));
+                    insert.setLong(9, firstId + i);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+                ArrayList<Long> keys = replaceTasks(c, taskList);
+                c.commit();
+                orders = keys;
+            } catch (SQLException e) {
+                c.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new IOException(WRITE_FAILED, e);
+        }
+    }
+
+    @Override
+    public synchronized long getArchivedCount() throws WooperException {
+        try (Statement statement = connect().createStatement();
+                ResultSet rows = statement.executeQuery("SELECT COUNT(*) FROM archived_tasks")) {
+            rows.next();
+            return rows.getLong(1);
+        } catch (SQLException e) {
+            throw new WooperException(READ_FAILED);
+        }
+    }
+
+    @Override
+    public synchronized List<Task> getArchivedTasks() throws WooperException {
+        try (Statement statement = connect().createStatement();
+                ResultSet rows = statement.executeQuery("SELECT " + COLUMNS + " FROM archived_tasks ORDER BY id")) {
+            return readTasks(rows, null);
+        } catch (SQLException e) {
+            throw new WooperException(READ_FAILED);
+        }
+    }
+
+    @Override
+    public synchronized int[] findTasks(String keyword) throws WooperException {
+        String pattern = "%" + escapeLike(keyword.toLowerCase()) + "%";
+        return queryPositions("SELECT ord FROM tasks WHERE LOWER(description) LIKE ? ESCAPE '" + LIKE_ESCAPE
+                + "' ORDER BY ord", pattern);
+    }
+
+    @Override
+    public synchronized int[] findDeadlines(long fromKey, long toKey) throws WooperException {
+        return queryPositions("SELECT ord FROM tasks WHERE due_key BETWEEN ? AND ? ORDER BY due_key, ord",
+                fromKey, toKey);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            throw new IOException("Failed to close database.", e);
+        } finally {
+            connection = null;
+            orders = null;
+        }
+    }
+
+    private synchronized Connection connect() throws SQLException {
+        if (connection != null) {
+            return connection;
+        }
+        Connection c = DriverManager.getConnection(url);
+        try (Statement statement = c.createStatement()) {
+            for (String sql : SCHEMA) {
+                statement.execute(sql);
+            }
+            if (hasPositionColumn(c)) {
+                for (String sql : POSITION_MIGRATION) {
+                    statement.execute(sql);
+                }
+            }
+            for (String sql : INDEXES) {
+                statement.execute(sql);
+            }
+            c.setAutoCommit(false);
+        } catch (SQLException e) {
+            c.close();
+            throw e;
+        }
+        connection = c;
+        return connection;
+    }
+
+    /**
+     * Returns whether the tasks table still has the position column of older databases.
+     */
+    private boolean hasPositionColumn(Connection c) throws SQLException {
+        try (ResultSet columns = c.getMetaData().getColumns(null, null, "TASKS", "POS")) {
+            return columns.next();
+        }
+    }
+
+    private ArrayList<Long> getOrders(Connection c) throws SQLException {
+        if (orders != null) {
+            return orders;
+        }
+        ArrayList<Long> keys = new ArrayList<>();
+        try (Statement statement = c.createStatement();
+                ResultSet rows = statement.executeQuery("SELECT ord FROM tasks ORDER BY ord")) {
+            while (rows.next()) {
+                keys.add(rows.getLong(1));
+            }
+        }
+        orders = keys;
+        return orders;
+    }
+
+    /**
+     * Returns a key for a task added at the specified position, between the keys of its neighbours.
+     *
+     * @return The key, or -1 if there is no room between the neighbours.
+     */
+    private long orderBefore(List<Long> keys, int position) {
+        long previous = position == 0 ? 0 : keys.get(position - 1);
+        if (position == keys.size()) {
+            return previous <= Long.MAX_VALUE - ORDER_GAP ? previous + ORDER_GAP : -1;
+        }
+        long next = keys.get(position);
+        return next - previous >= 2 ? previous + (next - previous) / 2 : -1;
+    }
+
+    /**
+     * Runs the specified query for order keys and returns the positions of the tasks they belong to,
+     * in the order the query returns them.
+     */
+    private int[] queryPositions(String sql, Object... params) throws WooperException {
+        try (PreparedStatement query = connect().prepareStatement(sql)) {
+            ArrayList<Long> keys = getOrders(connection);
+            for (int i = 0; i < params.length; i++) {
+                query.setObject(i + 1, params[i]);
+            }
+            try (ResultSet rows = query.executeQuery()) {
+                int[] positions = new int[16];
+                int count = 0;
+                while (rows.next()) {
+                    int position = Collections.binarySearch(keys, rows.getLong(1));
+                    if (position < 0) {
+                        // another process changed the tasks since their keys were read
+                        throw new WooperException(READ_FAILED);
+                    }
+                    if (count == positions.length) {
+                        positions = Arrays.copyOf(positions, count * 2);
+                    }
+                    positions[count++] = position;
+                }
+                return Arrays.copyOf(positions, count);
+            }
+        } catch (SQLException e) {
+            throw new WooperException(READ_FAILED);
+        }
+    }
+
+    /**
+     * Replaces every row with the specified tasks, numbering their keys afresh.
+     *
+     * @return The keys given to the tasks, by position.
+     */
+    private ArrayList<Long> replaceTasks(Connection c, List<Task> taskList) throws SQLException {
+        try (Statement statement = c.createStatement()) {
+            statement.executeUpdate("DELETE FROM tasks");
+        }
+        ArrayList<Long> keys = new ArrayList<>(taskList.size());
+        try (PreparedStatement insert = c.prepareStatement(INSERT_TASK)) {
+            for (int i = 0; i < taskList.size(); i++) {
+                keys.add((i + 1) * ORDER_GAP);
+                setColumns(insert, taskList.get(i));
+                setDueKey(insert, 9, taskList.get(i));
+                insert.setLong(10, keys.get(i));
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+        return keys;
+    }
+
+    /**
+     * Writes the specified task under the specified order key with a statement taking the task columns,
+     * the due key and the order key, in that order.
+     */
+    private void writeTask(Connection c, String sql, long key, Task t) throws SQLException {
+        try (PreparedStatement statement = c.prepareStatement(sql)) {
+            setColumns(statement, t);
+            setDueKey(statement, 9, t);
+            statement.setLong(10, key);
+            statement.executeUpdate();
+        }
+    }
+
+    private void setColumns(PreparedStatement statement, Task t) throws SQLException {
+        String type = "T";
+        String by = null;
+        String from = null;
+        String to = null;
+        if (t instanceof Deadline d) {
+            type = "D";
+            by = d.getDeadlineDueBy();
+        } else if (t instanceof Event e) {
+            type = "E";
+            from = e.getEventStart();
+            to = e.getEventEnd();
+        } else {
+            assert t instanceof ToDo : "Unknown task type";
+        }
+        statement.setString(1, type);
+        statement.setString(2, t.getTaskName());
+        statement.setBoolean(3, t.isDone());
+        statement.setString(4, by);
+        statement.setString(5, from);
+        statement.setString(6, to);
+        if (t.hasNotes()) {
+            statement.setLong(7, t.getNotesOffset());
+        } else {
+            statement.setNull(7, Types.BIGINT);
+        }
+        if (t.getId() > 0) {
+            statement.setLong(8, t.getId());
+        } else {
+            statement.setNull(8, Types.BIGINT);
+        }
+    }
+
+    private void setDueKey(PreparedStatement statement, int column, Task t) throws SQLException {
+        if (t instanceof Deadline d) {
+            statement.setLong(column, TaskIndex.dueKeyOf(d));
+        } else {
+            statement.setNull(column, Types.BIGINT);
+        }
+    }
+
+    /**
+     * Returns the tasks in the specified rows, adding the order key that follows the task columns
+     * to the specified list if one is given.
+     */
+    private ArrayList<Task> readTasks(ResultSet rows, List<Long> keys) throws SQLException, WooperException {
+        ArrayList<Task> tasks = new ArrayList<>();
+        while (rows.next()) {
+            Task t = TaskJsonReader.createTask(rows.getString(1), rows.getString(2), rows.getBoolean(3),
+                    orEmpty(rows.getString(4)), orEmpty(rows.getString(5)), orEmpty(rows.getString(6)));
+            long notesOffset = rows.getLong(7);
+            if (!rows.wasNull()) {
+                t.setNotesOffset(notesOffset);
+            }
+            long id = rows.getLong(8);
+            if (!rows.wasNull()) {
+                t.setId(id);
+            }
+            if (keys != null) {
+                keys.add(rows.getLong(9));
+            }
+            tasks.add(t);
+        }
+        return tasks;
+    }
+
+    private String orEmpty(String s) {
+        return s == null ? "" : s;
+    }
+
+    private String escapeLike(String s) {
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == LIKE_ESCAPE || c == '%' || c == '_') {
+                sb.append(LIKE_ESCAPE);
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+}
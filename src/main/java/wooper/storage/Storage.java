@@ -1,202 +1,228 @@
 package wooper.storage;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.util.ArrayList;
-
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
+import java.util.List;
 
 import wooper.exception.WooperException;
-import wooper.task.Deadline;
-import wooper.task.Event;
 import wooper.task.Task;
-import wooper.task.ToDo;
-import wooper.util.DateTimeUtil;
+import wooper.task.TaskChange;
+import wooper.task.TaskIndex;
 
 /**
- * Loads tasks from and saves tasks to a JSON file on disk.
- * Tasks are persisted in {@code data/wooper.json} as a JSON array. Each task is stored
- * with its type, description, completion status, and any relevant date information.
+ * Represents a backend that tasks are loaded from and saved to.
+ * {@link FileStorage} keeps tasks in a save file with a journal of changes, and {@link SqlStorage}
+ * keeps them in an embedded database, one row per task. The backend is chosen by {@link StorageConfig}.
+ * Capabilities that only some backends have, such as picking up changes made elsewhere or answering
+ * searches themselves, have defaults that report them as unavailable.
  */
-public class Storage {
+public interface Storage {
     /**
-     * Path to the JSON file used for persisting tasks.
+     * Returns the tasks held by this storage, in order.
+     *
+     * @return The list of tasks loaded from storage.
+     * @throws WooperException If the tasks cannot be read.
      */
-    private final Path filePath = Paths.get("data", "wooper.json");
+    List<Task> load() throws WooperException;
 
     /**
-     * Returns the list of tasks loaded from the save file.
-     * Returns an empty list if the save file does not exist or contains no tasks.
+     * Replaces every task held by this storage with the specified tasks.
      *
-     * @return The list of tasks loaded from storage.
-     * @throws WooperException If the file cannot be read or the JSON content is invalid.
+     * @param taskList Tasks to be saved.
+     * @throws IOException If writing fails.
      */
-    public ArrayList<Task> load() throws WooperException {
-        // if file dont exist = no data
-        if (!Files.exists(filePath)) {
-            return new ArrayList<>();
-        }
-        try {
-            String content = Files.readString(filePath).trim();
-
-            // file empty = no data
-            if (content.isEmpty()) {
-                return new ArrayList<>();
-            }
-
-            JSONArray jsonArr = new JSONArray(content);
-            ArrayList<Task> tasks = new ArrayList<>();
-
-            for (int i = 0; i < jsonArr.length(); i++) {
-                JSONObject obj = jsonArr.getJSONObject(i);
-                Task t = jsonToTask(obj);
-                tasks.add(t);
-            }
-
-            return tasks;
-
-        } catch (IOException e) {
-            throw new WooperException("Failed to read save file.");
-        } catch (JSONException e) {
-            // corrupted / not valid JSON
-            throw new WooperException("Save file is corrupted (invalid JSON).");
-        }
-    }
+    void save(List<Task> taskList) throws IOException;
 
     /**
-     * Saves the specified list of tasks to the save file.
-     * Creates the parent directory if it does not already exist.
+     * Records a single change made to the task list.
      *
-     * @param taskList List of tasks to be saved.
-     * @throws IOException If writing to the save file fails.
+     * @param change   Change that was just made to the task list.
+     * @param taskList Current list of tasks, with the change applied.
+     * @throws IOException If writing fails.
      */
-    public void save(ArrayList<Task> taskList) throws IOException {
-        // create folder if missing
-        Files.createDirectories(filePath.getParent());
+    void append(TaskChange change, List<Task> taskList) throws IOException;
 
-        JSONArray jsonArray = new JSONArray(
-                taskList.stream()
-                        .map(this::taskToJson)
-                        .toList()
-        );
+    /**
+     * Moves the specified tasks to the archive and saves the tasks that remain.
+     *
+     * @param archived Tasks to be archived.
+     * @param taskList Tasks remaining in the task list.
+     * @throws IOException     If writing fails.
+     * @throws WooperException If the archive cannot be read.
+     */
+    void archive(List<Task> archived, List<Task> taskList) throws IOException, WooperException;
 
-        // write to file
-        Files.writeString(filePath, jsonArray.toString(2));
-    }
+    /**
+     * Returns the number of archived tasks.
+     *
+     * @return The number of archived tasks.
+     * @throws WooperException If the archive cannot be read.
+     */
+    long getArchivedCount() throws WooperException;
 
     /**
-     * Returns a JSON representation of the specified task.
+     * Returns every archived task, in the order they were archived.
      *
-     * @param t Task to be converted.
-     * @return A {@link JSONObject} containing the task data.
+     * @return The archived tasks.
+     * @throws WooperException If the archive cannot be read.
      */
-    private JSONObject taskToJson(Task t) {
-        JSONObject obj = new JSONObject();
-        obj.put("done", t.isDone());
-        obj.put("desc", t.getTaskName());
+    List<Task> getArchivedTasks() throws WooperException;
 
-        if (t instanceof ToDo) {
-            obj.put("type", "T");
-        } else if (t instanceof Deadline d) {
-            obj.put("type", "D");
-            obj.put("by", d.getDeadlineDueBy());
-        } else if (t instanceof Event e) {
-            obj.put("type", "E");
-            obj.put("from", e.getEventStart());
-            obj.put("to", e.getEventEnd());
-        }
+    /**
+     * Releases any file or connection held open by this storage.
+     *
+     * @throws IOException If closing fails.
+     */
+    void close() throws IOException;
 
-        return obj;
+    /**
+     * Brings the specified tasks up to date with changes made elsewhere since they were loaded.
+     *
+     * @param tasks Tasks returned by the last load or refresh, with this storage's own changes applied.
+     * @return Null if nothing has changed, otherwise the up-to-date tasks.
+     * @throws WooperException If the tasks cannot be read.
+     */
+    default List<Task> refresh(List<Task> tasks) throws WooperException {
+        return null;
     }
 
     /**
-     * Returns a task constructed from the specified JSON object.
+     * Returns the changes that bring the specified tasks up to date with edits made to the stored tasks
+     * by something other than a storage.
      *
-     * @param obj JSON object containing task data.
-     * @return The task represented by the JSON object.
-     * @throws WooperException If the JSON object is missing required fields or contains invalid values.
+     * @param tasks Tasks returned by the last load or refresh, with this storage's own changes applied.
+     * @return The changes to be applied to {@code tasks} in order, or null if {@link #refresh} is needed instead.
+     * @throws WooperException If the tasks cannot be read.
      */
-    private Task jsonToTask(JSONObject obj) throws WooperException {
-        String type = obj.optString("type", "");
-        String desc = obj.optString("desc", "");
-        boolean done = obj.optBoolean("done", false);
-
-        if (desc.isBlank()) {
-            throw new WooperException("Save file is corrupted (missing description).");
-        }
+    default List<TaskChange> readExternalChanges(List<Task> tasks) throws WooperException {
+        return List.of();
+    }
 
-        Task task;
-        switch (type) {
-        case "T":
-            task = createTodo(desc);
-            break;
-        case "D":
-            task = createDeadline(obj, desc);
-            break;
-        case "E":
-            task = createEvent(obj, desc);
-            break;
-        default:
-            throw new WooperException("Save file is corrupted (unknown task type).");
-        }
+    /**
+     * Returns whether a write was refused because the tasks had been changed elsewhere first.
+     *
+     * @return {@code true} if the tasks must be loaded again before they can be saved.
+     */
+    default boolean isOutOfDate() {
+        return false;
+    }
 
-        task.setDone(done);
-        return task;
+    /**
+     * Returns the index stored alongside the tasks returned by the last load.
+     *
+     * @return The stored index, or null if there is none.
+     */
+    default TaskIndex loadIndex() {
+        return null;
     }
 
-    private Task createTodo(String desc) {
-        return new ToDo(desc);
+    /**
+     * Returns whether an index of the tasks can be stored alongside them.
+     *
+     * @return {@code true} if {@link #saveIndex} keeps the index.
+     */
+    default boolean canPersistIndex() {
+        return false;
     }
 
-    private Task createDeadline(JSONObject obj, String desc)
-            throws WooperException {
+    /**
+     * Stores the specified index alongside the tasks.
+     *
+     * @param index Index of the current tasks.
+     * @throws IOException If writing fails.
+     */
+    default void saveIndex(TaskIndex index) throws IOException {
+    }
 
-        String by = obj.optString("by", "");
-        if (by.isBlank()) {
-            throw new WooperException(
-                    "Save file is corrupted (missing deadline).");
-        }
+    /**
+     * Returns a description of each record that could not be read by the last load.
+     *
+     * @return The damaged records, or an empty list if there were none.
+     */
+    default List<String> getDamagedRecords() {
+        return List.of();
+    }
 
-        if (DateTimeUtil.isDateTime(by)) {
-            return new Deadline(desc, LocalDateTime.parse(by));
-        } else {
-            return new Deadline(desc, LocalDate.parse(by));
-        }
+    /**
+     * Returns where damaged records are moved to.
+     *
+     * @return The quarantine file, or null if this storage has none.
+     */
+    default Path getQuarantinePath() {
+        return null;
     }
 
-    private Task createEvent(JSONObject obj, String desc)
-            throws WooperException {
+    /**
+     * Returns whether the last load found damaged records and the stored tasks are left as they were,
+     * so that nothing is written until {@link #repair} is called.
+     *
+     * @return {@code true} if writes are refused until the stored tasks are repaired.
+     */
+    default boolean isRepairPending() {
+        return false;
+    }
 
-        String from = obj.optString("from", "");
-        String to = obj.optString("to", "");
+    /**
+     * Replaces the stored tasks, which held damaged records, with the specified tasks that could be read.
+     *
+     * @param taskList Tasks to be saved in place of the damaged ones.
+     * @throws IOException If writing fails.
+     */
+    default void repair(List<Task> taskList) throws IOException {
+    }
 
-        if (from.isBlank() || to.isBlank()) {
-            throw new WooperException(
-                    "Save file is corrupted (missing event time).");
-        }
+    /**
+     * Returns where the stored tasks are copied to before they are repaired.
+     *
+     * @return The backup file, or null if this storage has none.
+     */
+    default Path getBackupPath() {
+        return null;
+    }
 
-        boolean fromDT = DateTimeUtil.isDateTime(from);
-        boolean toDT = DateTimeUtil.isDateTime(to);
+    /**
+     * Returns the positions of the tasks whose descriptions contain the specified keyword, ignoring case,
+     * if this storage can search its tasks itself.
+     *
+     * @param keyword Keyword to be searched for.
+     * @return The positions of the matching tasks in ascending order, or null if the tasks must be searched
+     *         by the caller.
+     * @throws WooperException If the search fails.
+     */
+    default int[] findTasks(String keyword) throws WooperException {
+        return null;
+    }
 
-        if (fromDT != toDT) {
-            throw new WooperException(
-                    "Save file is corrupted (event time format mismatch).");
-        }
+    /**
+     * Returns the positions of the deadlines due within the specified range, if this storage can search
+     * its tasks itself. Due times are given as keys of {@link TaskIndex#dueKeyOf}.
+     *
+     * @param fromKey Earliest due time, inclusive.
+     * @param toKey   Latest due time, inclusive.
+     * @return The positions of the matching deadlines in order of due time, or null if the tasks must be
+     *         searched by the caller.
+     * @throws WooperException If the search fails.
+     */
+    default int[] findDeadlines(long fromKey, long toKey) throws WooperException {
+        return null;
+    }
 
-        if (fromDT) {
-            return new Event(desc,
-                    LocalDateTime.parse(from),
-                    LocalDateTime.parse(to));
+    /**
+     * Copies the specified tasks, together with the tasks archived in the source storage, to another storage.
+     * Tasks already held by the target are replaced, while archived tasks are added to its archive.
+     *
+     * @param tasks  Tasks held by the source storage, as last loaded and changed.
+     * @param source Storage the archived tasks are read from.
+     * @param target Storage the tasks are written to.
+     * @throws IOException     If writing to the target fails.
+     * @throws WooperException If the archive of the source cannot be read.
+     */
+    static void migrate(List<Task> tasks, Storage source, Storage target) throws IOException, WooperException {
+        List<Task> archived = source.getArchivedTasks();
+        if (archived.isEmpty()) {
+            target.save(tasks);
         } else {
-            return new Event(desc,
-                    LocalDate.parse(from),
-                    LocalDate.parse(to));
+            target.archive(archived, tasks);
         }
     }
 }
@@ -0,0 +1,323 @@
+package wooper.storage;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Properties;
+import javax.crypto.SecretKey;
+
+import wooper.enums.DurabilityMode;
+import wooper.enums.SnapshotFormat;
+import wooper.enums.StorageType;
+
+/**
+ * Holds the settings that control how tasks are persisted.
+ * Settings are read from {@code data/wooper.properties} if it exists, and can be overridden
+ * with system properties of the same name prefixed by {@code wooper.}
+ * (e.g. {@code -Dwooper.durability=interval}). Missing or invalid values fall back to defaults.
+ * The configuration also decides which {@link Storage} backend is used.
+ * The key for an encrypted save file is never kept in the config file itself: it is read from the
+ * {@code WOOPER_KEY} environment variable, or from the key file named by {@code key.file}.
+ */
+public class StorageConfig {
+    private static final Path CONFIG_PATH = Paths.get("data", "wooper.properties");
+    private static final String SYSTEM_PREFIX = "wooper.";
+    private static final String KEY_VARIABLE = "WOOPER_KEY";
+
+    private static final long DEFAULT_FLUSH_INTERVAL_MS = 200;
+    private static final long DEFAULT_RECENT_PARTITION_MONTHS = 3;
+    private static final Path DEFAULT_FILE_PATH = Paths.get("data", "wooper.json");
+
+    private final Properties props;
+
+    /**
+     * Creates a configuration from the specified properties.
+     *
+     * @param inProps Properties holding the storage settings.
+     */
+    public StorageConfig(Properties inProps) {
+        props = inProps;
+    }
+
+    /**
+     * Returns the configuration read from the config file and system properties.
+     *
+     * @return The storage configuration.
+     */
+    public static StorageConfig load() {
+        Properties props = new Properties();
+        if (Files.exists(CONFIG_PATH)) {
+            try (Reader reader = Files.newBufferedReader(CONFIG_PATH)) {
+                props.load(reader);
+            } catch (IOException e) {
+                // unreadable config file = use defaults
+            }
+        }
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith(SYSTEM_PREFIX)) {
+                props.setProperty(name.substring(SYSTEM_PREFIX.length()), System.getProperty(name));
+            }
+        }
+        return new StorageConfig(props);
+    }
+
+    /**
+     * Returns the storage for tasks, using the configured backend.
+     *
+     * @return A storage that has not loaded any tasks yet.
+     */
+    public Storage openStorage() {
+        return openStorage(getStorageType());
+    }
+
+    /**
+     * Returns the storage for tasks in the specified backend, set up with the configured settings.
+     *
+     * @param type Backend the tasks are stored in.
+     * @return A storage that has not loaded any tasks yet.
+     */
+    public Storage openStorage(StorageType type) {
+        if (type == StorageType.SQL) {
+            return new SqlStorage(getDatabaseUrl());
+        }
+        FileStorage storage = new FileStorage(getFilePath(), getSnapshotFormat());
+        storage.setLazyLoading(isLazyLoading());
+        storage.setCompressed(isCompressed());
+        // shards are written as plain JSON, so an encrypted save file is never partitioned
+        storage.setPartitioning(isPartitioned() && !isEncrypted(), getRecentPartitionMonths());
+        storage.setEncryption(isEncrypted(), getEncryptionKey());
+        return storage;
+    }
+
+    /**
+     * Returns the backend tasks are stored in.
+     * Accepts {@code file} or {@code sql}; defaults to {@code file}.
+     *
+     * @return The configured storage backend.
+     */
+    public StorageType getStorageType() {
+        StorageType type = parseStorageType(props.getProperty("storage", ""));
+        return type == null ? StorageType.FILE : type;
+    }
+
+    /**
+     * Returns the storage backend named by the specified value.
+     *
+     * @param value Name of the backend, {@code file} or {@code sql}.
+     * @return The named backend, or null if the name is not recognised.
+     */
+    public static StorageType parseStorageType(String value) {
+        switch (value.trim().toLowerCase()) {
+        case "file":
+            return StorageType.FILE;
+        case "sql":
+            return StorageType.SQL;
+        default:
+            return null;
+        }
+    }
+
+    /**
+     * Returns the JDBC URL of the database used by the {@code sql} backend.
+     * Defaults to an H2 database file named after the save file, in the same directory.
+     *
+     * @return The configured database URL.
+     */
+    public String getDatabaseUrl() {
+        String url = props.getProperty("database.url", "").trim();
+        if (!url.isEmpty()) {
+            return url;
+        }
+        Path file = getFilePath().toAbsolutePath();
+        String name = file.getFileName().toString();
+        int dot = name.indexOf('.');
+        return "jdbc:h2:" + file.resolveSibling(dot == -1 ? name : name.substring(0, dot));
+    }
+
+    /**
+     * Returns the path of the save file.
+     *
+     * @return The configured save file path, {@code data/wooper.json} by default.
+     */
+    public Path getFilePath() {
+        String file = props.getProperty("file", "").trim();
+        return file.isEmpty() ? DEFAULT_FILE_PATH : Paths.get(file);
+    }
+
+    /**
+     * Returns the format the save file is written in.
+     * Accepts {@code json}, {@code binary} or {@code paged}; defaults to {@code json}.
+     *
+     * @return The configured save file format.
+     */
+    public SnapshotFormat getSnapshotFormat() {
+        String value = props.getProperty("format", "").trim().toLowerCase();
+        switch (value) {
+        case "binary":
+            return SnapshotFormat.BINARY;
+        case "paged":
+            return SnapshotFormat.PAGED;
+        default:
+            return SnapshotFormat.JSON;
+        }
+    }
+
+    /**
+     * Returns whether tasks in a binary save file are read only when first accessed.
+     * Accepts {@code true} or {@code false}; defaults to {@code false}.
+     *
+     * @return Whether lazy loading is enabled.
+     */
+    public boolean isLazyLoading() {
+        return Boolean.parseBoolean(props.getProperty("lazy", "").trim());
+    }
+
+    /**
+     * Returns how eagerly changes are written to disk.
+     * Accepts {@code sync}, {@code interval} or {@code exit}; defaults to {@code sync}.
+     *
+     * @return The configured durability mode.
+     */
+    public DurabilityMode getDurabilityMode() {
+        String mode = props.getProperty("durability", "").trim().toLowerCase();
+        switch (mode) {
+        case "interval":
+            return DurabilityMode.INTERVAL;
+        case "exit":
+            return DurabilityMode.ON_EXIT;
+        case "sync":
+        default:
+            return DurabilityMode.SYNC;
+        }
+    }
+
+    /**
+     * Returns how long changes are collected before being written in interval mode.
+     *
+     * @return The flush interval in milliseconds.
+     */
+    public long getFlushIntervalMillis() {
+        return getLong("flush.interval.ms", DEFAULT_FLUSH_INTERVAL_MS);
+    }
+
+    /**
+     * Returns whether the save file is GZIP-compressed.
+     * Enabled by {@code compress=true} or by a save file name ending in {@code .gz}.
+     *
+     * @return Whether compression is enabled.
+     */
+    public boolean isCompressed() {
+        return Boolean.parseBoolean(props.getProperty("compress", "").trim())
+                || getFilePath().getFileName().toString().endsWith(".gz");
+    }
+
+    /**
+     * Returns whether tasks are stored in monthly shard files instead of a single save file.
+     * Accepts {@code true} or {@code false}; defaults to {@code false}.
+     *
+     * @return Whether partitioning is enabled.
+     */
+    public boolean isPartitioned() {
+        return Boolean.parseBoolean(props.getProperty("partitioned", "").trim());
+    }
+
+    /**
+     * Returns how many past months of shards are read at startup when partitioning is enabled.
+     * Older shards are read when first needed.
+     *
+     * @return The number of past months read at startup.
+     */
+    public int getRecentPartitionMonths() {
+        return (int) getLong("partition.recent.months", DEFAULT_RECENT_PARTITION_MONTHS);
+    }
+
+    /**
+     * Returns whether the save file is watched so that changes made to it elsewhere are shown while running.
+     * Accepts {@code true} or {@code false}; defaults to {@code false}.
+     *
+     * @return Whether watching is enabled.
+     */
+    public boolean isWatching() {
+        return Boolean.parseBoolean(props.getProperty("watch", "").trim());
+    }
+
+    /**
+     * Returns whether every change to the tasks is also recorded in a change feed that other tools can follow.
+     * Accepts {@code true} or {@code false}; defaults to {@code false}.
+     *
+     * @return Whether the change feed is enabled.
+     */
+    public boolean isChangeFeedEnabled() {
+        return Boolean.parseBoolean(props.getProperty("changefeed", "").trim());
+    }
+
+    /**
+     * Returns the path of the change feed, which sits next to the save file.
+     *
+     * @return The change feed path.
+     */
+    public Path getChangeFeedPath() {
+        Path file = getFilePath();
+        return file.resolveSibling(file.getFileName() + ".changes");
+    }
+
+    /**
+     * Returns the path of the file holding the notes of tasks, which sits next to the save file.
+     *
+     * @return The notes file path.
+     */
+    public Path getNotesPath() {
+        Path file = getFilePath();
+        return file.resolveSibling(file.getFileName() + ".notes");
+    }
+
+    /**
+     * Returns whether the save file is encrypted with AES-GCM, which keeps it in the paged format.
+     * Accepts {@code true} or {@code false}; defaults to {@code false}.
+     *
+     * @return Whether encryption is enabled.
+     */
+    public boolean isEncrypted() {
+        return Boolean.parseBoolean(props.getProperty("encrypt", "").trim());
+    }
+
+    /**
+     * Returns the AES key for the save file, given in Base64 by the {@code WOOPER_KEY} environment
+     * variable or, failing that, by the first line of the key file named by {@code key.file}.
+     *
+     * @return The key, or null if none was given or it is not a valid AES key.
+     */
+    public SecretKey getEncryptionKey() {
+        String key = System.getenv(KEY_VARIABLE);
+        if (key == null || key.isBlank()) {
+            key = readKeyFile();
+        }
+        return key == null ? null : PageCipher.parseKey(key);
+    }
+
+    private String readKeyFile() {
+        String file = props.getProperty("key.file", "").trim();
+        if (file.isEmpty()) {
+            return null;
+        }
+        try {
+            List<String> lines = Files.readAllLines(Paths.get(file));
+            return lines.isEmpty() ? null : lines.get(0);
+        } catch (IOException e) {
+            // unreadable key file = no key
+            return null;
+        }
+    }
+
+    private long getLong(String key, long defaultValue) {
+        try {
+            long value = Long.parseLong(props.getProperty(key, "").trim());
+            return value > 0 ? value : defaultValue;
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+}
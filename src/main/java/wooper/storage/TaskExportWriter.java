@@ -0,0 +1,106 @@
+package wooper.storage;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import wooper.enums.TransferFormat;
+import wooper.task.Deadline;
+import wooper.task.Event;
+import wooper.task.Task;
+import wooper.task.ToDo;
+import wooper.util.DateTimeUtil;
+
+/**
+ * Writes tasks to a CSV or NDJSON file one at a time, in the layout read by {@link TaskImportReader},
+ * so that exporting never holds the whole file in memory.
+ */
+public class TaskExportWriter {
+    private static final String CSV_HEADER = "type,description,done,by,from,to\n";
+
+    private final Writer out;
+    private final TransferFormat format;
+    private final TaskJsonWriter jsonWriter;
+
+    /**
+     * Creates a writer of tasks in the specified format and writes the CSV header row if needed.
+     * The output should be buffered, as it receives many small writes.
+     *
+     * @param inWriter Destination of the file content.
+     * @param inFormat Format of the file.
+     * @throws IOException If writing the header fails.
+     */
+    public TaskExportWriter(Writer inWriter, TransferFormat inFormat) throws IOException {
+        out = inWriter;
+        format = inFormat;
+        jsonWriter = new TaskJsonWriter(inWriter);
+        if (format == TransferFormat.CSV) {
+            out.write(CSV_HEADER);
+        }
+    }
+
+    /**
+     * Writes the specified task as one record.
+     *
+     * @param t Task to be written.
+     * @throws IOException If writing fails.
+     */
+    public void write(Task t) throws IOException {
+        String type = "T";
+        String by = "";
+        String from = "";
+        String to = "";
+        if (t instanceof Deadline d) {
+            type = "D";
+            by = toInputFormat(d.getDeadlineDueBy());
+        } else if (t instanceof Event e) {
+            type = "E";
+            from = toInputFormat(e.getEventStart());
+            to = toInputFormat(e.getEventEnd());
+        } else {
+            assert t instanceof ToDo : "Unknown task type";
+        }
+
+        if (format == TransferFormat.CSV) {
+            out.write(type);
+            out.write(',');
+            writeCsvField(t.getTaskName());
+            out.write(t.isDone() ? ",true," : ",false,");
+            out.write(by + "," + from + "," + to + "\n");
+            return;
+        }
+
+        out.write("{\"type\":\"" + type + "\",\"desc\":");
+        jsonWriter.writeString(t.getTaskName());
+        out.write(",\"done\":");
+        out.write(t.isDone() ? "true" : "false");
+        if (!by.isEmpty()) {
+            out.write(",\"by\":\"" + by + "\"");
+        }
+        if (!from.isEmpty()) {
+            out.write(",\"from\":\"" + from + "\",\"to\":\"" + to + "\"");
+        }
+        out.write("}\n");
+    }
+
+    private void writeCsvField(String s) throws IOException {
+        if (s.indexOf(',') == -1 && s.indexOf('"') == -1 && s.indexOf('\n') == -1 && s.indexOf('\r') == -1) {
+            out.write(s);
+            return;
+        }
+        out.write('"');
+        out.write(s.replace("\"", "\"\""));
+        out.write('"');
+    }
+
+    /**
+     * Returns a date or date-time as stored in a task, rewritten in the format typed in commands.
+     */
+    private static String toInputFormat(String stored) {
+        if (DateTimeUtil.isDateTime(stored)) {
+            return LocalDateTime.parse(stored).format(DateTimeUtil.DATE_TIME_FORMATTER);
+        }
+        return LocalDate.parse(stored).format(DateTimeUtil.DATE_FORMATTER);
+    }
+}
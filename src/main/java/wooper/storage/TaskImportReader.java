@@ -0,0 +1,276 @@
+package wooper.storage;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import wooper.enums.TransferFormat;
+import wooper.exception.WooperException;
+
+/**
+ * Reads task records from a CSV or NDJSON file one at a time, so that a file of any size can be
+ * imported without holding its text in memory. Records are returned as the text of their fields;
+ * turning them into tasks, and checking them, is left to the caller.
+ *
+ * <p>A CSV file has the columns {@code type,description,done,by,from,to}, optionally preceded by a header
+ * row naming them. Fields may be quoted, with a quote inside a quoted field written twice, and a quoted
+ * field may span lines. An NDJSON file has one JSON object per line with the fields {@code type},
+ * {@code desc}, {@code done}, {@code by}, {@code from} and {@code to}. In both, {@code type} is
+ * {@code T}, {@code D} or {@code E}, and dates are written as DD/MM/YYYY or DD/MM/YYYY HH:mm.</p>
+ */
+public class TaskImportReader {
+    private static final int FIELD_COUNT = 6;
+
+    private final BufferedReader in;
+    private final TransferFormat format;
+    private int lineNumber = 0;
+    private int recordLine = 0;
+    private boolean isFirstRecord = true;
+
+    /**
+     * Creates a reader of records in the specified format.
+     *
+     * @param inReader Source of the file content.
+     * @param inFormat Format of the file.
+     */
+    public TaskImportReader(Reader inReader, TransferFormat inFormat) {
+        in = inReader instanceof BufferedReader b ? b : new BufferedReader(inReader);
+        format = inFormat;
+    }
+
+    /**
+     * Returns the format of the specified file, as told by its extension.
+     *
+     * @param path File to be imported or exported.
+     * @return {@code CSV} for {@code .csv}, {@code NDJSON} for {@code .ndjson} or {@code .jsonl}.
+     * @throws WooperException If the extension is not recognised.
+     */
+    public static TransferFormat formatOf(Path path) throws WooperException {
+        String name = path.getFileName().toString().toLowerCase();
+        if (name.endsWith(".csv")) {
+            return TransferFormat.CSV;
+        }
+        if (name.endsWith(".ndjson") || name.endsWith(".jsonl")) {
+            return TransferFormat.NDJSON;
+        }
+        throw new WooperException("Let me know the file type: .csv, .ndjson or .jsonl.");
+    }
+
+    /**
+     * Returns up to the specified number of records following those already read.
+     *
+     * @param maxCount Largest number of records to be returned.
+     * @return The records read, which are fewer than {@code maxCount} only at the end of the file.
+     * @throws IOException     If reading fails.
+     * @throws WooperException If a record is malformed.
+     */
+    public List<Record> readBatch(int maxCount) throws IOException, WooperException {
+        ArrayList<Record> batch = new ArrayList<>(maxCount);
+        Record record;
+        while (batch.size() < maxCount && (record = next()) != null) {
+            batch.add(record);
+        }
+        return batch;
+    }
+
+    private Record next() throws IOException, WooperException {
+        if (format == TransferFormat.NDJSON) {
+            return nextJsonRecord();
+        }
+        List<String> fields = readCsvFields();
+        // the header row is recognised by its first column name
+        if (isFirstRecord && fields != null && fields.get(0).trim().equalsIgnoreCase("type")) {
+            fields = readCsvFields();
+        }
+        isFirstRecord = false;
+        if (fields == null) {
+            return null;
+        }
+        return new Record(recordLine, fields.get(0), fields.get(1), parseDone(fields.get(2)),
+                fields.get(3), fields.get(4), fields.get(5));
+    }
+
+    private Record nextJsonRecord() throws IOException, WooperException {
+        String line;
+        do {
+            line = in.readLine();
+            lineNumber++;
+            if (line == null) {
+                return null;
+            }
+        } while (line.isBlank());
+
+        String[] fields = {"", "", "", "", "", ""};
+        boolean isDone = false;
+        boolean isValid;
+        TaskJsonReader reader = new TaskJsonReader(new StringReader(line));
+        try {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                case "type":
+                    fields[0] = reader.nextString();
+                    break;
+                case "desc":
+                    fields[1] = reader.nextString();
+                    break;
+                case "done":
+                    isDone = reader.nextBoolean();
+                    break;
+                case "by":
+                    fields[3] = reader.nextString();
+                    break;
+                case "from":
+                    fields[4] = reader.nextString();
+                    break;
+                case "to":
+                    fields[5] = reader.nextString();
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+                }
+            }
+            reader.endObject();
+            isValid = reader.isAtEnd();
+        } catch (WooperException e) {
+            isValid = false;
+        }
+        if (!isValid) {
+            throw new WooperException("Line " + lineNumber + ": not a valid JSON object.");
+        }
+        return new Record(lineNumber, fields[0], fields[1], isDone, fields[3], fields[4], fields[5]);
+    }
+
+    /**
+     * Returns the fields of the next CSV record, reading further lines while a quoted field is open,
+     * or null at the end of the file.
+     */
+    private List<String> readCsvFields() throws IOException, WooperException {
+        String line;
+        do {
+            line = in.readLine();
+            lineNumber++;
+            if (line == null) {
+                return null;
+            }
+        } while (line.isBlank());
+
+        recordLine = lineNumber;
+        ArrayList<String> fields = new ArrayList<>(FIELD_COUNT);
+        StringBuilder field = new StringBuilder();
+        boolean isQuoted = false;
+        int i = 0;
+        while (true) {
+            if (i == line.length()) {
+                if (!isQuoted) {
+                    break;
+                }
+                // a quoted field carries on over the line break
+                line = in.readLine();
+                lineNumber++;
+                if (line == null) {
+                    throw new WooperException("Line " + recordLine + ": a quoted field is never closed.");
+                }
+                field.append('\n');
+                i = 0;
+                continue;
+            }
+            char c = line.charAt(i++);
+            if (isQuoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i < line.length() && line.charAt(i) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    isQuoted = false;
+                }
+            } else if (c == '"') {
+                isQuoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+
+        if (fields.size() > FIELD_COUNT) {
+            throw new WooperException("Line " + recordLine + ": expected at most " + FIELD_COUNT + " columns.");
+        }
+        while (fields.size() < FIELD_COUNT) {
+            fields.add("");
+        }
+        return fields;
+    }
+
+    private boolean parseDone(String value) throws WooperException {
+        switch (value.trim().toLowerCase()) {
+        case "true":
+            return true;
+        case "false":
+        case "":
+            return false;
+        default:
+            throw new WooperException("Line " + recordLine + ": done must be true or false.");
+        }
+    }
+
+    /**
+     * Represents the fields of one task in an imported file.
+     */
+    public static class Record {
+        private final int line;
+        private final String type;
+        private final String desc;
+        private final boolean isDone;
+        private final String by;
+        private final String from;
+        private final String to;
+
+        private Record(int inLine, String inType, String inDesc, boolean inIsDone, String inBy, String inFrom,
+                String inTo) {
+            line = inLine;
+            type = inType;
+            desc = inDesc;
+            isDone = inIsDone;
+            by = inBy;
+            from = inFrom;
+            to = inTo;
+        }
+
+        public int getLine() {
+            return line;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public String getDesc() {
+            return desc;
+        }
+
+        public boolean isDone() {
+            return isDone;
+        }
+
+        public String getBy() {
+            return by;
+        }
+
+        public String getFrom() {
+            return from;
+        }
+
+        public String getTo() {
+            return to;
+        }
+    }
+}
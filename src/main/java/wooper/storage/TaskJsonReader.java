@@ -0,0 +1,480 @@
+package wooper.storage;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+
+import wooper.exception.WooperException;
+import wooper.task.Deadline;
+import wooper.task.Event;
+import wooper.task.Task;
+import wooper.task.ToDo;
+import wooper.util.DateTimeUtil;
+
+/**
+ * Reads tasks from JSON text one token at a time, without building the whole document in memory.
+ * Supports the subset of JSON used by the save file and journal: objects, arrays, strings,
+ * integers, booleans and null. Keys that are not recognised are skipped.
+ */
+public class TaskJsonReader {
+    private static final String CORRUPTED = "Save file is corrupted (invalid JSON).";
+    private static final int MAX_DEPTH = 32;
+
+    private final Reader in;
+    private final char[] buffer = new char[8192];
+    private int pos = 0;
+    private int limit = 0;
+
+    private final StringBuilder sb = new StringBuilder();
+
+    /**
+     * Whether a comma is expected before the next element, for each open array or object.
+     */
+    private final boolean[] needsComma = new boolean[MAX_DEPTH];
+    private int depth = 0;
+
+    /**
+     * Creates a reader over the specified JSON text.
+     *
+     * @param inReader Source of the JSON text.
+     */
+    public TaskJsonReader(Reader inReader) {
+        in = inReader;
+    }
+
+    /**
+     * Returns whether there is nothing but whitespace left to read.
+     *
+     * @return {@code true} if the end of the input has been reached.
+     * @throws IOException If reading fails.
+     */
+    public boolean isAtEnd() throws IOException {
+        return peek() == -1;
+    }
+
+    /**
+     * Consumes the start of an array.
+     *
+     * @throws IOException     If reading fails.
+     * @throws WooperException If the next token is not the start of an array.
+     */
+    public void beginArray() throws IOException, WooperException {
+        begin('[');
+    }
+
+    /**
+     * Consumes the end of an array.
+     *
+     * @throws IOException     If reading fails.
+     * @throws WooperException If the array has more elements or is not closed.
+     */
+    public void endArray() throws IOException, WooperException {
+        end(']');
+    }
+
+    /**
+     * Starts reading a comma-separated run of values that is not enclosed in brackets,
+     * such as a slice taken from the middle of an array.
+     */
+    void beginFragment() throws WooperException {
+        if (depth == MAX_DEPTH) {
+            throw new WooperException(CORRUPTED);
+        }
+        needsComma[depth++] = false;
+    }
+
+    /**
+     * Finishes reading a run of values started with {@link #beginFragment()}.
+     * Requires the input to be used up.
+     */
+    void endFragment() throws IOException, WooperException {
+        if (!isAtEnd()) {
+            throw new WooperException(CORRUPTED);
+        }
+        depth--;
+    }
+
+    /**
+     * Consumes the start of an object.
+     *
+     * @throws IOException     If reading fails.
+     * @throws WooperException If the next token is not the start of an object.
+     */
+    public void beginObject() throws IOException, WooperException {
+        begin('{');
+    }
+
+    /**
+     * Consumes the end of an object.
+     *
+     * @throws IOException     If reading fails.
+     * @throws WooperException If the object has more members or is not closed.
+     */
+    public void endObject() throws IOException, WooperException {
+        end('}');
+    }
+
+    /**
+     * Returns whether the current array or object has another element.
+     * Consumes the comma separating it from the previous element.
+     *
+     * @return {@code true} if another element follows.
+     * @throws IOException     If reading fails.
+     * @throws WooperException If the elements are not separated correctly.
+     */
+    public boolean hasNext() throws IOException, WooperException {
+        int c = peek();
+        if (c == ']' || c == '}' || c == -1) {
+            return false;
+        }
+        if (depth > 0 && needsComma[depth - 1]) {
+            expect(',');
+        }
+        return true;
+    }
+
+    /**
+     * Returns the next member name of the current object.
+     *
+     * @return The member name.
+     * @throws IOException     If reading fails.
+     * @throws WooperException If the next token is not a member name.
+     */
+    public String nextName() throws IOException, WooperException {
+        String name = readString();
+        expect(':');
+        return name;
+    }
+
+    /**
+     * Returns the next value as a string.
+     *
+     * @return The string value.
+     * @throws IOException     If reading fails.
+     * @throws WooperException If the next value is not a string.
+     */
+    public String nextString() throws IOException, WooperException {
+        String s = readString();
+        markValueRead();
+        return s;
+    }
+
+    /**
+     * Returns the next value as a boolean. The strings {@code "true"} and {@code "false"} are also accepted.
+     *
+     * @return The boolean value.
+     * @throws IOException     If reading fails.
+     * @throws WooperException If the next value is not a boolean.
+     */
+    public boolean nextBoolean() throws IOException, WooperException {
+        String s = peek() == '"' ? readString() : readLiteral();
+        markValueRead();
+        if (s.equals("true")) {
+            return true;
+        }
+        if (s.equals("false")) {
+            return false;
+        }
+        throw new WooperException(CORRUPTED);
+    }
+
+    /**
+     * Returns the next value as a long.
+     *
+     * @return The numeric value.
+     * @throws IOException     If reading fails.
+     * @throws WooperException If the next value is not an integer.
+     */
+    public long nextLong() throws IOException, WooperException {
+        String s = readLiteral();
+        markValueRead();
+        try {
+            return Long.parseLong(s);
+        } catch (NumberFormatException e) {
+            throw new WooperException(CORRUPTED);
+        }
+    }
+
+    /**
+     * Skips the next value, including any nested arrays or objects.
+     *
+     * @throws IOException     If reading fails.
+     * @throws WooperException If the next value is malformed.
+     */
+    public void skipValue() throws IOException, WooperException {
+        int c = peek();
+        if (c == '[' || c == '{') {
+            begin((char) c);
+            boolean isObject = c == '{';
+            while (hasNext()) {
+                if (isObject) {
+                    nextName();
+                }
+                skipValue();
+            }
+            end(isObject ? '}' : ']');
+        } else if (c == '"') {
+            readString();
+            markValueRead();
+        } else {
+            readLiteral();
+            markValueRead();
+        }
+    }
+
+    /**
+     * Returns the task stored in the next object.
+     *
+     * @return The task represented by the object.
+     * @throws IOException     If reading fails.
+     * @throws WooperException If the object is malformed, missing required fields or contains invalid values.
+     */
+    public Task readTask() throws IOException, WooperException {
+        String type = "";
+        String desc = "";
+        boolean done = false;
+        String by = "";
+        String from = "";
+        String to = "";
+        long notes = -1;
+        long id = 0;
+
+        beginObject();
+        while (hasNext()) {
+            String name = nextName();
+            switch (name) {
+            case "type":
+                type = nextString();
+                break;
+            case "desc":
+                desc = nextString();
+                break;
+            case "done":
+                done = nextBoolean();
+                break;
+            case "by":
+                by = nextString();
+                break;
+            case "from":
+                from = nextString();
+                break;
+            case "to":
+                to = nextString();
+                break;
+            case "notes":
+                notes = nextLong();
+                break;
+            case "id":
+                id = nextLong();
+                break;
+            default:
+                skipValue();
+                break;
+            }
+        }
+        endObject();
+
+        Task task = createTask(type, desc, done, by, from, to);
+        if (notes != -1) {
+            task.setNotesOffset(notes);
+        }
+        if (id > 0) {
+            task.setId(id);
+        }
+        return task;
+    }
+
+    /**
+     * Returns a task built from the specified field values as stored in the save file.
+     *
+     * @throws WooperException If required fields are missing or contain invalid values.
+     */
+    static Task createTask(String type, String desc, boolean done, String by, String from, String to)
+            throws WooperException {
+        if (desc.isBlank()) {
+            throw new WooperException("Save file is corrupted (missing description).");
+        }
+
+        Task task;
+        try {
+            switch (type) {
+            case "T":
+                task = new ToDo(desc);
+                break;
+            case "D":
+                task = createDeadline(desc, by);
+                break;
+            case "E":
+                task = createEvent(desc, from, to);
+                break;
+            default:
+                throw new WooperException("Save file is corrupted (unknown task type).");
+            }
+        } catch (DateTimeParseException e) {
+            throw new WooperException("Save file is corrupted (invalid date).");
+        }
+
+        task.setDone(done);
+        return task;
+    }
+
+    private static Task createDeadline(String desc, String by) throws WooperException {
+        if (by.isBlank()) {
+            throw new WooperException("Save file is corrupted (missing deadline).");
+        }
+
+        if (DateTimeUtil.isDateTime(by)) {
+            return new Deadline(desc, LocalDateTime.parse(by));
+        } else {
+            return new Deadline(desc, LocalDate.parse(by));
+        }
+    }
+
+    private static Task createEvent(String desc, String from, String to) throws WooperException {
+        if (from.isBlank() || to.isBlank()) {
+            throw new WooperException("Save file is corrupted (missing event time).");
+        }
+
+        boolean isFromDateTime = DateTimeUtil.isDateTime(from);
+        if (isFromDateTime != DateTimeUtil.isDateTime(to)) {
+            throw new WooperException("Save file is corrupted (event time format mismatch).");
+        }
+
+        if (isFromDateTime) {
+            return new Event(desc, LocalDateTime.parse(from), LocalDateTime.parse(to));
+        } else {
+            return new Event(desc, LocalDate.parse(from), LocalDate.parse(to));
+        }
+    }
+
+    private void begin(char open) throws IOException, WooperException {
+        expect(open);
+        if (depth == MAX_DEPTH) {
+            throw new WooperException(CORRUPTED);
+        }
+        needsComma[depth++] = false;
+    }
+
+    private void end(char close) throws IOException, WooperException {
+        expect(close);
+        depth--;
+        markValueRead();
+    }
+
+    private void markValueRead() {
+        if (depth > 0) {
+            needsComma[depth - 1] = true;
+        }
+    }
+
+    private String readString() throws IOException, WooperException {
+        expect('"');
+        sb.setLength(0);
+        while (true) {
+            if (pos == limit && !fill()) {
+                throw new WooperException(CORRUPTED);
+            }
+            char c = buffer[pos++];
+            if (c == '"') {
+                return sb.toString();
+            }
+            if (c == '\\') {
+                sb.append(readEscape());
+            } else {
+                sb.append(c);
+            }
+        }
+    }
+
+    private char readEscape() throws IOException, WooperException {
+        int c = read();
+        switch (c) {
+        case '"':
+        case '\\':
+        case '/':
+            return (char) c;
+        case 'b':
+            return '\b';
+        case 'f':
+            return '\f';
+        case 'n':
+            return '\n';
+        case 'r':
+            return '\r';
+        case 't':
+            return '\t';
+        case 'u':
+            int code = 0;
+            for (int i = 0; i < 4; i++) {
+                int digit = Character.digit(read(), 16);
+                if (digit == -1) {
+                    throw new WooperException(CORRUPTED);
+                }
+                code = code * 16 + digit;
+            }
+            return (char) code;
+        default:
+            throw new WooperException(CORRUPTED);
+        }
+    }
+
+    /**
+     * Returns the next bare token, such as a number, {@code true}, {@code false} or {@code null}.
+     */
+    private String readLiteral() throws IOException, WooperException {
+        peek();
+        sb.setLength(0);
+        while (pos < limit || fill()) {
+            char c = buffer[pos];
+            if (c == ',' || c == ']' || c == '}' || c == ':' || c == '"' || Character.isWhitespace(c)) {
+                break;
+            }
+            sb.append(c);
+            pos++;
+        }
+        if (sb.length() == 0) {
+            throw new WooperException(CORRUPTED);
+        }
+        return sb.toString();
+    }
+
+    private void expect(char expected) throws IOException, WooperException {
+        if (peek() != expected) {
+            throw new WooperException(CORRUPTED);
+        }
+        pos++;
+    }
+
+    private int read() throws IOException {
+        if (pos == limit && !fill()) {
+            return -1;
+        }
+        return buffer[pos++];
+    }
+
+    /**
+     * Returns the next character that is not whitespace without consuming it, or -1 at the end of input.
+     */
+    private int peek() throws IOException {
+        while (pos < limit || fill()) {
+            char c = buffer[pos];
+            if (!Character.isWhitespace(c)) {
+                return c;
+            }
+            pos++;
+        }
+        return -1;
+    }
+
+    private boolean fill() throws IOException {
+        int n = in.read(buffer, 0, buffer.length);
+        if (n <= 0) {
+            return false;
+        }
+        pos = 0;
+        limit = n;
+        return true;
+    }
+}
@@ -0,0 +1,144 @@
+package wooper.storage;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+import wooper.task.Deadline;
+import wooper.task.Event;
+import wooper.task.Task;
+import wooper.task.ToDo;
+
+/**
+ * Writes tasks as JSON text directly to an output, without building intermediate objects or strings.
+ * A task list is written as a JSON array with one task object per line.
+ */
+public class TaskJsonWriter {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Writer out;
+
+    /**
+     * Creates a writer that writes JSON text to the specified output.
+     * The output should be buffered, as it receives many small writes.
+     *
+     * @param inWriter Destination of the JSON text.
+     */
+    public TaskJsonWriter(Writer inWriter) {
+        out = inWriter;
+    }
+
+    /**
+     * Writes the specified tasks as a JSON array.
+     *
+     * @param taskList Tasks to be written.
+     * @throws IOException If writing fails.
+     */
+    public void writeTaskList(List<Task> taskList) throws IOException {
+        out.write('[');
+        writeElements(taskList, 0, taskList.size());
+        out.write("\n]\n");
+    }
+
+    /**
+     * Writes the tasks in the specified range of the list as elements of the array written by
+     * {@link #writeTaskList}, each preceded by its separator. Writing consecutive ranges one after
+     * another gives the same text as writing the whole list at once.
+     *
+     * @param taskList Tasks of the whole array.
+     * @param from     Index of the first task to be written.
+     * @param to       Index after the last task to be written.
+     * @throws IOException If writing fails.
+     */
+    public void writeElements(List<Task> taskList, int from, int to) throws IOException {
+        for (int i = from; i < to; i++) {
+            out.write(i == 0 ? "\n  " : ",\n  ");
+            writeTask(taskList.get(i));
+        }
+    }
+
+    /**
+     * Writes the specified task as a single-line JSON object.
+     *
+     * @param t Task to be written.
+     * @throws IOException If writing fails.
+     */
+    public void writeTask(Task t) throws IOException {
+        out.write("{\"type\":\"");
+        if (t instanceof ToDo) {
+            out.write('T');
+        } else if (t instanceof Deadline) {
+            out.write('D');
+        } else if (t instanceof Event) {
+            out.write('E');
+        }
+        out.write("\",\"desc\":");
+        writeString(t.getTaskName());
+        out.write(",\"done\":");
+        out.write(t.isDone() ? "true" : "false");
+
+        if (t instanceof Deadline d) {
+            out.write(",\"by\":\"");
+            out.write(d.getDeadlineDueBy());
+            out.write('"');
+        } else if (t instanceof Event e) {
+            out.write(",\"from\":\"");
+            out.write(e.getEventStart());
+            out.write("\",\"to\":\"");
+            out.write(e.getEventEnd());
+            out.write('"');
+        }
+        if (t.hasNotes()) {
+            out.write(",\"notes\":");
+            out.write(Long.toString(t.getNotesOffset()));
+        }
+        if (t.getId() > 0) {
+            out.write(",\"id\":");
+            out.write(Long.toString(t.getId()));
+        }
+        out.write('}');
+    }
+
+    /**
+     * Writes the specified text as a quoted JSON string, escaping characters as needed.
+     *
+     * @param s Text to be written.
+     * @throws IOException If writing fails.
+     */
+    public void writeString(String s) throws IOException {
+        out.write('"');
+        int start = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c != '"' && c != '\\' && c >= 0x20) {
+                continue;
+            }
+            out.write(s, start, i - start);
+            start = i + 1;
+            switch (c) {
+            case '"':
+                out.write("\\\"");
+                break;
+            case '\\':
+                out.write("\\\\");
+                break;
+            case '\n':
+                out.write("\\n");
+                break;
+            case '\r':
+                out.write("\\r");
+                break;
+            case '\t':
+                out.write("\\t");
+                break;
+            default:
+                out.write("\\u00");
+                out.write(HEX[c >> 4]);
+                out.write(HEX[c & 0xF]);
+                break;
+            }
+        }
+        out.write(s, start, s.length() - start);
+        out.write('"');
+    }
+}
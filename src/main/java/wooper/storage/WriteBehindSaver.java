@@ -0,0 +1,251 @@
+package wooper.storage;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import wooper.enums.DurabilityMode;
+import wooper.task.Task;
+import wooper.task.TaskChange;
+
+/**
+ * Writes changes to storage in the background so that commands do not wait on the disk.
+ * Changes are encoded on the caller's thread, which keeps them consistent with the task list,
+ * and collected until the next flush, where they are written to the journal together.
+ * A batch that fails to be written is kept and written again at the next flush, after the failure
+ * has been reported once.
+ * If a checkpoint falls due, the pending changes are replaced by a single snapshot of the list.
+ * For a paged save file, the pages touched by each change are encoded instead and written at the next flush,
+ * and likewise the shard files touched by each change when tasks are partitioned by month.
+ * In {@link DurabilityMode#SYNC} mode, or for storage other than a {@link FileStorage},
+ * every change is written immediately instead.
+ */
+public class WriteBehindSaver {
+    private final Storage storage;
+
+    /**
+     * The storage when it is a {@link FileStorage}, which is the only kind whose writes can be deferred.
+     */
+    private final FileStorage fileStorage;
+    private final DurabilityMode mode;
+    private final long flushIntervalMillis;
+    private final ScheduledExecutorService executor;
+
+    /**
+     * Serialises flushes so that batches reach the disk in the order they were taken.
+     */
+    private final Object flushLock = new Object();
+
+    private final ArrayList<String> pendingLines = new ArrayList<>();
+    private final ArrayList<PagedTaskFile.PageWrite> pendingPages = new ArrayList<>();
+    private final ArrayList<ShardDirectory.ShardWrite> pendingShards = new ArrayList<>();
+    private FileStorage.EncodedSnapshot pendingSnapshot = null;
+    private boolean isTracking = false;
+    private boolean hasSnapshot = false;
+    private int linesSinceSnapshot = 0;
+    private boolean isFlushScheduled = false;
+    private boolean isWriting = false;
+    private IOException failure = null;
+
+    /**
+     * Creates a saver that writes to the specified storage.
+     *
+     * @param inStorage             Storage that changes are written to.
+     * @param inMode                How eagerly changes are written.
+     * @param inFlushIntervalMillis Delay before pending changes are written in interval mode.
+     */
+    public WriteBehindSaver(Storage inStorage, DurabilityMode inMode, long inFlushIntervalMillis) {
+        storage = inStorage;
+        fileStorage = inStorage instanceof FileStorage file ? file : null;
+        // other backends write each change as a single row, which needs no batching
+        mode = fileStorage == null ? DurabilityMode.SYNC : inMode;
+        flushIntervalMillis = inFlushIntervalMillis;
+
+        if (mode == DurabilityMode.SYNC) {
+            executor = null;
+        } else {
+            executor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "wooper-saver");
+                t.setDaemon(true);
+                return t;
+            });
+            Runtime.getRuntime().addShutdownHook(new Thread(this::flushQuietly, "wooper-saver-shutdown"));
+        }
+    }
+
+    /**
+     * Records the specified change so that it is written to storage.
+     * Must be called right after the change is made, before the task list changes again.
+     * A failed background write is reported here once, after the change has been recorded.
+     *
+     * @param change   Change made to the task list.
+     * @param taskList Current list of tasks.
+     * @throws IOException If writing fails, or an earlier background write failed.
+     */
+    public void submit(TaskChange change, List<Task> taskList) throws IOException {
+        if (mode == DurabilityMode.SYNC) {
+            storage.append(change, taskList);
+            return;
+        }
+
+        synchronized (this) {
+            if (fileStorage.isPartitioned()) {
+                pendingShards.addAll(fileStorage.encodeShardChange(change, taskList));
+                scheduleFlush();
+                throwIfFailed();
+                return;
+            }
+            if (fileStorage.isPaged()) {
+                pendingPages.addAll(fileStorage.encodePageChange(change, taskList));
+                scheduleFlush();
+                throwIfFailed();
+                return;
+            }
+
+            if (!isTracking) {
+                hasSnapshot = fileStorage.isJournalReady();
+                linesSinceSnapshot = fileStorage.getJournalEntries();
+                isTracking = true;
+            }
+
+            pendingLines.add(fileStorage.encodeChange(change));
+            linesSinceSnapshot++;
+
+            // the snapshot already includes every change encoded so far
+            if (!hasSnapshot || linesSinceSnapshot >= FileStorage.CHECKPOINT_INTERVAL) {
+                pendingSnapshot = fileStorage.encodeSnapshot(taskList);
+                pendingLines.clear();
+                linesSinceSnapshot = 0;
+                hasSnapshot = true;
+            }
+
+            scheduleFlush();
+            // the change is kept either way, and is written with the failed ones at the next flush
+            throwIfFailed();
+        }
+    }
+
+    /**
+     * Writes all pending changes to storage.
+     * If writing fails, the changes that were not written stay pending for the next flush.
+     *
+     * @throws IOException If writing fails.
+     */
+    public void flush() throws IOException {
+        synchronized (flushLock) {
+            FileStorage.EncodedSnapshot snapshot;
+            List<String> lines;
+            List<PagedTaskFile.PageWrite> pages;
+            List<ShardDirectory.ShardWrite> shards;
+            synchronized (this) {
+                // the failed changes are written again below, which reports any failure anew
+                failure = null;
+                snapshot = pendingSnapshot;
+                lines = new ArrayList<>(pendingLines);
+                pages = new ArrayList<>(pendingPages);
+                shards = new ArrayList<>(pendingShards);
+                pendingSnapshot = null;
+                pendingLines.clear();
+                pendingPages.clear();
+                pendingShards.clear();
+                isFlushScheduled = false;
+                isWriting = true;
+            }
+
+            // each part is forgotten once written, so that only what is left is kept on failure
+            try {
+                if (snapshot != null) {
+                    fileStorage.writeSnapshot(snapshot);
+                    snapshot = null;
+                }
+                if (!lines.isEmpty()) {
+                    fileStorage.appendToJournal(lines);
+                    lines = List.of();
+                }
+                if (!pages.isEmpty()) {
+                    fileStorage.writePages(pages);
+                    pages = List.of();
+                }
+                if (!shards.isEmpty()) {
+                    fileStorage.writeShards(shards);
+                }
+            } catch (IOException e) {
+                // a write refused over changes made elsewhere is dropped, as the tasks are loaded again
+                if (!storage.isOutOfDate()) {
+                    synchronized (this) {
+                        keepUnwritten(snapshot, lines, pages, shards);
+                        failure = e;
+                    }
+                }
+                throw e;
+            } finally {
+                synchronized (this) {
+                    isWriting = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns whether some changes have been submitted but not yet written to storage.
+     *
+     * @return {@code true} if changes are waiting to be written or are being written.
+     */
+    public synchronized boolean hasPendingChanges() {
+        return isWriting || pendingSnapshot != null || !pendingLines.isEmpty() || !pendingPages.isEmpty()
+                || !pendingShards.isEmpty();
+    }
+
+    /**
+     * Forgets what is known about the journal, after the tasks were brought up to date with changes
+     * written by another process. The journal is looked at again on the next submit.
+     */
+    public synchronized void resetTracking() {
+        isTracking = false;
+    }
+
+    private void scheduleFlush() {
+        if (mode == DurabilityMode.INTERVAL && !isFlushScheduled) {
+            executor.schedule(this::flushQuietly, flushIntervalMillis, TimeUnit.MILLISECONDS);
+            isFlushScheduled = true;
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (IOException e) {
+            // reported on the next submit, and written again on the next flush
+        }
+    }
+
+    /**
+     * Puts the parts of a failed batch that were not written back in front of the changes submitted since.
+     * A snapshot taken since the batch already includes every change in it.
+     */
+    private void keepUnwritten(FileStorage.EncodedSnapshot snapshot, List<String> lines,
+            List<PagedTaskFile.PageWrite> pages, List<ShardDirectory.ShardWrite> shards) {
+        if (pendingSnapshot == null) {
+            pendingSnapshot = snapshot;
+            pendingLines.addAll(0, lines);
+        }
+        pendingPages.addAll(0, pages);
+        pendingShards.addAll(0, shards);
+        scheduleFlush();
+    }
+
+    /**
+     * Reports a failed background write once. Its changes are still pending and are written again
+     * at the next flush.
+     */
+    private void throwIfFailed() throws IOException {
+        if (failure != null) {
+            IOException e = new IOException("An earlier save did not complete.", failure);
+            failure = null;
+            throw e;
+        }
+    }
+}
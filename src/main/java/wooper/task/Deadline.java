@@ -2,6 +2,7 @@ package wooper.task;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.temporal.Temporal;
 
 import wooper.util.DateTimeUtil;
 
@@ -45,6 +46,7 @@ public class Deadline extends Task {
     public void setDeadline(LocalDateTime inDatetime) {
         datetime = inDatetime;
         date = null;
+        markDirty();
     }
 
     /**
@@ -55,6 +57,7 @@ public class Deadline extends Task {
     public void setDeadline(LocalDate inDate) {
         date = inDate;
         datetime = null;
+        markDirty();
     }
 
     /**
@@ -68,6 +71,15 @@ public class Deadline extends Task {
                 : date.toString();
     }
 
+    /**
+     * Returns the deadline of the task as a date or date-time.
+     *
+     * @return The deadline as a {@link LocalDate} or {@link LocalDateTime}.
+     */
+    public Temporal getDueTemporal() {
+        return hasTime() ? datetime : date;
+    }
+
     private boolean hasTime() {
         return datetime != null;
     }
@@ -2,6 +2,7 @@ package wooper.task;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.temporal.Temporal;
 
 import wooper.util.DateTimeUtil;
 
@@ -63,6 +64,7 @@ public class Event extends Task {
     public void setEventStart(LocalDateTime inStartDT) {
         startDateTime = inStartDT;
         startDate = null;
+        markDirty();
     }
 
     /**
@@ -73,6 +75,7 @@ public class Event extends Task {
     public void setEventStart(LocalDate inStartDate) {
         startDate = inStartDate;
         startDateTime = null;
+        markDirty();
     }
 
     /**
@@ -94,6 +97,7 @@ public class Event extends Task {
     public void setEventEnd(LocalDateTime inEndDT) {
         endDateTime = inEndDT;
         endDate = null;
+        markDirty();
     }
 
     /**
@@ -104,6 +108,25 @@ public class Event extends Task {
     public void setEventEnd(LocalDate inEndDate) {
         endDate = inEndDate;
         endDateTime = null;
+        markDirty();
+    }
+
+    /**
+     * Returns the start of the event as a date or date-time.
+     *
+     * @return The start as a {@link LocalDate} or {@link LocalDateTime}.
+     */
+    public Temporal getStartTemporal() {
+        return hasTime() ? startDateTime : startDate;
+    }
+
+    /**
+     * Returns the end of the event as a date or date-time.
+     *
+     * @return The end as a {@link LocalDate} or {@link LocalDateTime}.
+     */
+    public Temporal getEndTemporal() {
+        return hasTime() ? endDateTime : endDate;
     }
 
     private boolean hasTime() {
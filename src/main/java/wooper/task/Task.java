@@ -2,11 +2,30 @@ package wooper.task;
 
 /**
  * Represents a generic task with a description and completion status.
+ * A task can have notes, which are kept out of line in a notes file and referred to by their offset,
+ * so that long notes are only read when they are looked at.
+ * A task held by the task manager also has an ID, which stays the same as other tasks are added or removed,
+ * and is saved with the task so that it is kept across sessions.
  */
 public class Task {
     private String taskName = null;
     private boolean isDone = false;
 
+    /**
+     * ID given by the {@link TaskTree} holding the task or read back from storage, or 0 if it has none.
+     */
+    private long id = 0;
+
+    /**
+     * Offset of the task's notes in the notes file, or -1 if the task has no notes.
+     */
+    private long notesOffset = -1;
+
+    /**
+     * Whether the task has changed since it was last written to storage.
+     */
+    private boolean isDirty = false;
+
     /**
      * Creates a task with the specified description.
      *
@@ -22,6 +41,7 @@ public class Task {
 
     public void setTaskName(String inTaskName) {
         taskName = inTaskName;
+        markDirty();
     }
 
     public boolean isDone() {
@@ -30,6 +50,46 @@ public class Task {
 
     public void setDone(boolean done) {
         isDone = done;
+        markDirty();
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long inId) {
+        id = inId;
+    }
+
+    public long getNotesOffset() {
+        return notesOffset;
+    }
+
+    public void setNotesOffset(long inNotesOffset) {
+        notesOffset = inNotesOffset;
+        markDirty();
+    }
+
+    public boolean hasNotes() {
+        return notesOffset != -1;
+    }
+
+    public boolean isDirty() {
+        return isDirty;
+    }
+
+    /**
+     * Records that the task has been written to storage and has not changed since.
+     */
+    public void clearDirty() {
+        isDirty = false;
+    }
+
+    /**
+     * Records that the task has changed and needs to be written to storage again.
+     */
+    protected void markDirty() {
+        isDirty = true;
     }
 
     @Override
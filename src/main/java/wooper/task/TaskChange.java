@@ -0,0 +1,65 @@
+package wooper.task;
+
+import wooper.enums.ChangeType;
+
+/**
+ * Represents a single change made to the task list.
+ * Records the kind of change, the position of the affected task and the task itself,
+ * so that the change can be persisted and replayed later.
+ */
+public class TaskChange {
+    private final ChangeType type;
+    private final int index;
+    private final Task task;
+
+    private TaskChange(ChangeType inType, int inIndex, Task inTask) {
+        type = inType;
+        index = inIndex;
+        task = inTask;
+    }
+
+    /**
+     * Returns a change describing a task added at the specified position.
+     *
+     * @param index Position of the new task in the task list.
+     * @param task  The task that was added.
+     * @return The change describing the addition.
+     */
+    public static TaskChange add(int index, Task task) {
+        return new TaskChange(ChangeType.ADD, index, task);
+    }
+
+    /**
+     * Returns a change describing a task modified at the specified position.
+     *
+     * @param index Position of the modified task in the task list.
+     * @param task  The task after modification.
+     * @return The change describing the update.
+     */
+    public static TaskChange update(int index, Task task) {
+        return new TaskChange(ChangeType.UPDATE, index, task);
+    }
+
+    /**
+     * Returns a change describing a task removed from the specified position.
+     *
+     * @param index Position the task was removed from.
+     * @param task  The task that was removed.
+     * @return The change describing the deletion.
+     */
+    public static TaskChange delete(int index, Task task) {
+        return new TaskChange(ChangeType.DELETE, index, task);
+    }
+
+    public ChangeType getType() {
+        return type;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public Task getTask() {
+        return task;
+    }
+}
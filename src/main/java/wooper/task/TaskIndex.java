@@ -0,0 +1,460 @@
+package wooper.task;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.Temporal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Represents secondary indexes over a task list, kept up to date as the list changes.
+ * Holds the IDs of the tasks whose description contains each word, and the IDs of the deadlines
+ * ordered by when they are due. Tasks are indexed by their ID rather than their position, as in
+ * {@link TrigramIndex}, so adding or removing a task does not move the entries of the others.
+ */
+public class TaskIndex {
+    private static final long[] NO_IDS = new long[0];
+
+    /**
+     * IDs of the tasks containing each word, in ascending order.
+     */
+    private final HashMap<String, Postings> postings = new HashMap<>();
+
+    /**
+     * Words of each indexed task, by task ID, so that only those words are visited when it is dropped.
+     */
+    private final HashMap<Long, List<String>> tokensById = new HashMap<>();
+
+    /**
+     * Due times of the deadlines as minutes since the epoch, in ascending order, with the ID
+     * of each deadline at the same index of {@code dueIds}. Deadlines due at the same time are ordered by ID.
+     */
+    private long[] dueKeys = new long[0];
+    private long[] dueIds = new long[0];
+    private int dueCount = 0;
+
+    /**
+     * Due time of each indexed deadline, by task ID, so that its entry can be found by binary search.
+     */
+    private final HashMap<Long, Long> dueKeyById = new HashMap<>();
+
+    private int size = 0;
+
+    /**
+     * Checksum of the IDs of the indexed tasks, as returned by {@link #idChecksumOf}.
+     */
+    private long idChecksum = 0;
+
+    private TaskIndex() {
+    }
+
+    /**
+     * Returns an index over the specified tasks, which must have IDs.
+     *
+     * @param taskList Tasks to be indexed.
+     * @return The index of the tasks.
+     */
+    public static TaskIndex build(List<Task> taskList) {
+        TaskIndex index = new TaskIndex();
+        for (Task t : taskList) {
+            index.add(t);
+        }
+        return index;
+    }
+
+    /**
+     * Returns an index holding the specified entries, as read back from storage.
+     *
+     * @param size       Number of tasks indexed.
+     * @param idChecksum Checksum of the IDs of the tasks indexed, as returned by {@link #getIdChecksum}.
+     * @param postings   IDs of the tasks containing each word, each in ascending order.
+     * @param dueKeys    Due times of the deadlines as minutes since the epoch, in ascending order.
+     * @param dueIds     ID of the deadline with each due time, ascending among deadlines due at the same time.
+     * @return The index holding the entries.
+     */
+    public static TaskIndex of(int size, long idChecksum, Map<String, long[]> postings, long[] dueKeys,
+            long[] dueIds) {
+        assert dueKeys.length == dueIds.length : "Each due time should have an ID";
+        TaskIndex index = new TaskIndex();
+        index.size = size;
+        index.idChecksum = idChecksum;
+        for (Map.Entry<String, long[]> entry : postings.entrySet()) {
+            index.postings.put(entry.getKey(), new Postings(entry.getValue()));
+            for (long id : entry.getValue()) {
+                index.tokensById.computeIfAbsent(id, k -> new ArrayList<>()).add(entry.getKey());
+            }
+        }
+        index.dueKeys = dueKeys.clone();
+        index.dueIds = dueIds.clone();
+        index.dueCount = dueKeys.length;
+        for (int i = 0; i < dueKeys.length; i++) {
+            index.dueKeyById.put(dueIds[i], dueKeys[i]);
+        }
+        return index;
+    }
+
+    /**
+     * Returns the words of the specified description that are indexed, in lower case and without repeats.
+     *
+     * @param description Description of a task.
+     * @return The distinct words of the description, in order of appearance.
+     */
+    public static Set<String> tokensOf(String description) {
+        Set<String> tokens = new LinkedHashSet<>();
+        int start = -1;
+        for (int i = 0; i <= description.length(); i++) {
+            boolean isWordChar = i < description.length() && Character.isLetterOrDigit(description.charAt(i));
+            if (isWordChar && start == -1) {
+                start = i;
+            } else if (!isWordChar && start != -1) {
+                tokens.add(description.substring(start, i).toLowerCase());
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Returns the number of tasks indexed.
+     *
+     * @return The size of the indexed task list.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns a checksum of the IDs of the indexed tasks, kept up to date as tasks are added and removed.
+     * An index read back from storage only refers to the loaded tasks if this matches their checksum.
+     *
+     * @return The checksum of the indexed IDs.
+     */
+    public long getIdChecksum() {
+        return idChecksum;
+    }
+
+    /**
+     * Returns a checksum of the IDs of the specified tasks, which does not depend on their order.
+     *
+     * @param taskList Tasks with IDs.
+     * @return The checksum of their IDs.
+     */
+    public static long idChecksumOf(List<Task> taskList) {
+        long checksum = 0;
+        for (Task t : taskList) {
+            checksum += mix(t.getId());
+        }
+        return checksum;
+    }
+
+    /**
+     * Returns the indexed words.
+     *
+     * @return The words that appear in at least one description.
+     */
+    public Set<String> getTokens() {
+        return postings.keySet();
+    }
+
+    /**
+     * Returns the IDs of the tasks whose description contains the specified word.
+     *
+     * @param token Word in lower case.
+     * @return The IDs in ascending order, or an empty array if no task contains the word.
+     */
+    public long[] getPostings(String token) {
+        Postings p = postings.get(token);
+        return p == null ? NO_IDS : Arrays.copyOf(p.ids, p.count);
+    }
+
+    /**
+     * Returns the IDs of the tasks whose description contains every one of the specified words.
+     * The shortest list of IDs is checked against the others, so the time taken depends on how
+     * many tasks contain the rarest word rather than on the size of the list.
+     *
+     * @param tokens Words in lower case, such as those returned by {@link #tokensOf}.
+     * @return The IDs in ascending order, or an empty array if no task contains every word.
+     */
+    public long[] findAll(Collection<String> tokens) {
+        Postings[] lists = new Postings[tokens.size()];
+        int n = 0;
+        for (String token : tokens) {
+            Postings p = postings.get(token);
+            if (p == null) {
+                return NO_IDS;
+            }
+            lists[n++] = p;
+        }
+        if (n == 0) {
+            return NO_IDS;
+        }
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.count, b.count));
+
+        long[] matches = Arrays.copyOf(lists[0].ids, lists[0].count);
+        int matchCount = matches.length;
+        for (int i = 1; i < n && matchCount > 0; i++) {
+            Postings p = lists[i];
+            int kept = 0;
+            int from = 0;
+            for (int j = 0; j < matchCount; j++) {
+                int at = Arrays.binarySearch(p.ids, from, p.count, matches[j]);
+                if (at >= 0) {
+                    matches[kept++] = matches[j];
+                    from = at + 1;
+                } else {
+                    from = -at - 1;
+                }
+            }
+            matchCount = kept;
+        }
+        return Arrays.copyOf(matches, matchCount);
+    }
+
+    /**
+     * Returns the IDs of the deadlines, ordered by when they are due.
+     * Deadlines due at the same time are ordered by ID.
+     *
+     * @return The IDs of every deadline in the list.
+     */
+    public long[] getDeadlineOrder() {
+        return Arrays.copyOf(dueIds, dueCount);
+    }
+
+    /**
+     * Returns the IDs of the deadlines due within the specified range, ordered by when they are due.
+     * The range is found by binary search, so the time taken depends on the number of deadlines in it.
+     *
+     * @param fromKey Earliest due time, inclusive, as a key of {@link #dueKeyOf}.
+     * @param toKey   Latest due time, inclusive.
+     * @return The IDs of the deadlines due within the range.
+     */
+    public long[] findDeadlines(long fromKey, long toKey) {
+        int from = firstDueAtOrAfter(fromKey);
+        int to = toKey == Long.MAX_VALUE ? dueCount : firstDueAtOrAfter(toKey + 1);
+        return from >= to ? NO_IDS : Arrays.copyOfRange(dueIds, from, to);
+    }
+
+    /**
+     * Returns the due times of the deadlines, in the order of {@link #getDeadlineOrder()}.
+     *
+     * @return The due times as minutes since the epoch.
+     */
+    public long[] getDeadlineKeys() {
+        return Arrays.copyOf(dueKeys, dueCount);
+    }
+
+    /**
+     * Indexes the specified task, which was added to the list and has an ID.
+     *
+     * @param t Task that was added.
+     */
+    public void add(Task t) {
+        assert t.getId() > 0 : "Indexed task should have an ID";
+        size++;
+        idChecksum += mix(t.getId());
+        indexTokens(t.getId(), tokensOf(t.getTaskName()));
+        if (t instanceof Deadline d) {
+            insertDue(dueKeyOf(d), t.getId());
+        }
+    }
+
+    /**
+     * Drops the task with the specified ID, which was removed from the list.
+     * Only the postings of the task's own words are visited.
+     *
+     * @param id ID of the task that was removed.
+     */
+    public void remove(long id) {
+        size--;
+        idChecksum -= mix(id);
+        List<String> tokens = tokensById.remove(id);
+        if (tokens != null) {
+            for (String token : tokens) {
+                removePosting(token, id);
+            }
+        }
+        removeDue(id);
+    }
+
+    /**
+     * Re-indexes the specified task after it was modified or replaced by an edited task with the same ID.
+     * Only the words that were removed from or added to the description are visited.
+     *
+     * @param t The task after modification.
+     */
+    public void update(Task t) {
+        long id = t.getId();
+        Set<String> tokens = tokensOf(t.getTaskName());
+        List<String> oldTokens = tokensById.remove(id);
+        if (oldTokens != null) {
+            for (String token : oldTokens) {
+                if (!tokens.contains(token)) {
+                    removePosting(token, id);
+                }
+            }
+        }
+        indexTokens(id, tokens);
+        Long oldKey = dueKeyById.get(id);
+        Long key = t instanceof Deadline d ? dueKeyOf(d) : null;
+        if (oldKey != null && oldKey.equals(key)) {
+            return;
+        }
+        removeDue(id);
+        if (key != null) {
+            insertDue(key, id);
+        }
+    }
+
+    /**
+     * Returns the due time of the specified deadline as minutes since the epoch.
+     * A deadline without a time is due at the start of its day.
+     *
+     * @param d Deadline to be placed.
+     * @return The due time used to order the deadline.
+     */
+    public static long dueKeyOf(Deadline d) {
+        return dueKeyOf(d.getDueTemporal());
+    }
+
+    /**
+     * Returns the specified date or date-time as minutes since the epoch, as deadlines are ordered.
+     * A date without a time stands for the start of its day.
+     *
+     * @param due Date or date-time to be placed.
+     * @return The key the date or date-time is ordered by.
+     */
+    public static long dueKeyOf(Temporal due) {
+        LocalDateTime dateTime = due instanceof LocalDate date ? date.atStartOfDay() : (LocalDateTime) due;
+        return Math.floorDiv(dateTime.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    /**
+     * Spreads the bits of the specified ID, so that different sets of IDs are unlikely to have the same sum.
+     */
+    private static long mix(long id) {
+        long z = id * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private void indexTokens(long id, Set<String> tokens) {
+        if (tokens.isEmpty()) {
+            return;
+        }
+        for (String token : tokens) {
+            postings.computeIfAbsent(token, k -> new Postings(NO_IDS)).insert(id);
+        }
+        tokensById.put(id, List.copyOf(tokens));
+    }
+
+    private void removePosting(String token, long id) {
+        Postings p = postings.get(token);
+        if (p != null && p.remove(id) && p.count == 0) {
+            postings.remove(token);
+        }
+    }
+
+    private void removeDue(long id) {
+        Long key = dueKeyById.remove(id);
+        if (key == null) {
+            return;
+        }
+        int at = dueIndexOf(key, id);
+        assert at < dueCount && dueIds[at] == id : "Indexed deadline should have a due entry";
+        System.arraycopy(dueKeys, at + 1, dueKeys, at, dueCount - at - 1);
+        System.arraycopy(dueIds, at + 1, dueIds, at, dueCount - at - 1);
+        dueCount--;
+    }
+
+    private int firstDueAtOrAfter(long key) {
+        int lo = 0;
+        int hi = dueCount;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (dueKeys[mid] < key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Returns the index of the due entry for the specified due time and ID, or where it would be inserted.
+     */
+    private int dueIndexOf(long key, long id) {
+        int lo = 0;
+        int hi = dueCount;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (dueKeys[mid] < key || dueKeys[mid] == key && dueIds[mid] < id) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private void insertDue(long key, long id) {
+        dueKeyById.put(id, key);
+        int lo = dueIndexOf(key, id);
+        if (dueCount == dueKeys.length) {
+            int capacity = Math.max(8, dueCount + (dueCount >> 1));
+            dueKeys = Arrays.copyOf(dueKeys, capacity);
+            dueIds = Arrays.copyOf(dueIds, capacity);
+        }
+        System.arraycopy(dueKeys, lo, dueKeys, lo + 1, dueCount - lo);
+        System.arraycopy(dueIds, lo, dueIds, lo + 1, dueCount - lo);
+        dueKeys[lo] = key;
+        dueIds[lo] = id;
+        dueCount++;
+    }
+
+    /**
+     * Holds the IDs of the tasks containing one word, in ascending order.
+     * IDs are given in increasing order, so a task is usually added at the end.
+     */
+    private static class Postings {
+        private long[] ids;
+        private int count;
+
+        private Postings(long[] inIds) {
+            ids = inIds;
+            count = inIds.length;
+        }
+
+        private void insert(long id) {
+            int at = Arrays.binarySearch(ids, 0, count, id);
+            if (at >= 0) {
+                return;
+            }
+            at = -at - 1;
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, Math.max(4, count + (count >> 1)));
+            }
+            System.arraycopy(ids, at, ids, at + 1, count - at);
+            ids[at] = id;
+            count++;
+        }
+
+        private boolean remove(long id) {
+            int at = Arrays.binarySearch(ids, 0, count, id);
+            if (at < 0) {
+                return false;
+            }
+            System.arraycopy(ids, at + 1, ids, at, count - at - 1);
+            count--;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,363 @@
+package wooper.task;
+
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Represents a task list held in a balanced tree ordered by position, so that a task can be read,
+ * added or removed at any position in O(log n) time instead of shifting every task after it.
+ * Each node records the size of its subtree, which is how positions are found.
+ *
+ * <p>Every task in the tree has an ID, given when it is first added and kept while it stays in the list,
+ * however the tasks before it move. A task is found by its ID in O(1) time, and its position in
+ * O(log n) time. A task replacing another with {@link #set} takes over the replaced task's ID, as it is
+ * the same task edited. IDs are saved with the tasks, so a task read back from storage keeps its ID.</p>
+ */
+public class TaskTree extends AbstractList<Task> {
+    private Node root = null;
+    private final HashMap<Long, Node> nodesById = new HashMap<>();
+    private long nextId = 1;
+
+    @Override
+    public Task get(int index) {
+        checkIndex(index, size());
+        return nodeAt(index).task;
+    }
+
+    @Override
+    public int size() {
+        return sizeOf(root);
+    }
+
+    @Override
+    public Task set(int index, Task t) {
+        checkIndex(index, size());
+        Node n = nodeAt(index);
+        Task old = n.task;
+        t.setId(old.getId());
+        n.task = t;
+        return old;
+    }
+
+    @Override
+    public void add(int index, Task t) {
+        checkIndex(index, size() + 1);
+        Node n = new Node(t);
+        assignId(n);
+        root = insert(root, index, n);
+        root.parent = null;
+        modCount++;
+    }
+
+    @Override
+    public Task remove(int index) {
+        checkIndex(index, size());
+        Task t = nodeAt(index).task;
+        root = delete(root, index);
+        if (root != null) {
+            root.parent = null;
+        }
+        nodesById.remove(t.getId());
+        modCount++;
+        return t;
+    }
+
+    /**
+     * Adds the specified tasks to the end of the list, in order.
+     * Tasks added to an empty list are built into a balanced tree directly, in O(n) time.
+     * Tasks without an ID are given one above every ID the tasks already have, so none takes the ID of a
+     * later task.
+     *
+     * @param tasks Tasks to be added.
+     * @return {@code true} if any task was added.
+     */
+    @Override
+    public boolean addAll(Collection<? extends Task> tasks) {
+        if (root != null) {
+            return super.addAll(tasks);
+        }
+        for (Task t : tasks) {
+            nextId = Math.max(nextId, t.getId() + 1);
+        }
+        Node[] nodes = new Node[tasks.size()];
+        int i = 0;
+        for (Task t : tasks) {
+            nodes[i] = new Node(t);
+            assignId(nodes[i++]);
+        }
+        root = build(nodes, 0, nodes.length);
+        if (root != null) {
+            root.parent = null;
+        }
+        modCount++;
+        return nodes.length > 0;
+    }
+
+    @Override
+    public void clear() {
+        root = null;
+        nodesById.clear();
+        modCount++;
+    }
+
+    @Override
+    public Iterator<Task> iterator() {
+        return new Iterator<>() {
+            private Node next = root == null ? null : leftmost(root);
+            private Node last = null;
+            private int expectedModCount = modCount;
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Task next() {
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                last = next;
+                next = successor(next);
+                return last.task;
+            }
+
+            @Override
+            public void remove() {
+                if (last == null) {
+                    throw new IllegalStateException();
+                }
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                // nodes are relinked rather than copied on removal, so the next node stays valid
+                TaskTree.this.remove(positionOf(last));
+                last = null;
+                expectedModCount = modCount;
+            }
+        };
+    }
+
+    /**
+     * Returns the task with the specified ID.
+     *
+     * @param id ID of the task.
+     * @return The task, or null if no task in the list has the ID.
+     */
+    public Task getById(long id) {
+        Node n = nodesById.get(id);
+        return n == null ? null : n.task;
+    }
+
+    /**
+     * Returns the position of the task with the specified ID.
+     *
+     * @param id ID of the task.
+     * @return The zero-based position of the task, or -1 if no task in the list has the ID.
+     */
+    public int indexOfId(long id) {
+        Node n = nodesById.get(id);
+        return n == null ? -1 : positionOf(n);
+    }
+
+    /**
+     * Gives the task of the specified node an ID, keeping the one it has unless another task in the
+     * list already uses it.
+     */
+    private void assignId(Node n) {
+        long id = n.task.getId();
+        if (id <= 0 || nodesById.containsKey(id)) {
+            id = nextId;
+            n.task.setId(id);
+        }
+        nextId = Math.max(nextId, id + 1);
+        nodesById.put(id, n);
+    }
+
+    private Node nodeAt(int index) {
+        Node n = root;
+        while (true) {
+            int leftSize = sizeOf(n.left);
+            if (index < leftSize) {
+                n = n.left;
+            } else if (index == leftSize) {
+                return n;
+            } else {
+                index -= leftSize + 1;
+                n = n.right;
+            }
+        }
+    }
+
+    private int positionOf(Node n) {
+        int position = sizeOf(n.left);
+        for (Node child = n; child.parent != null; child = child.parent) {
+            if (child == child.parent.right) {
+                position += sizeOf(child.parent.left) + 1;
+            }
+        }
+        return position;
+    }
+
+    private Node insert(Node node, int index, Node n) {
+        if (node == null) {
+            return n;
+        }
+        int leftSize = sizeOf(node.left);
+        if (index <= leftSize) {
+            setLeft(node, insert(node.left, index, n));
+        } else {
+            setRight(node, insert(node.right, index - leftSize - 1, n));
+        }
+        return rebalance(node);
+    }
+
+    private Node delete(Node node, int index) {
+        int leftSize = sizeOf(node.left);
+        if (index < leftSize) {
+            setLeft(node, delete(node.left, index));
+        } else if (index > leftSize) {
+            setRight(node, delete(node.right, index - leftSize - 1));
+        } else if (node.left == null) {
+            return node.right;
+        } else if (node.right == null) {
+            return node.left;
+        } else {
+            // the next node takes the place of the removed one
+            Node successor = leftmost(node.right);
+            setRight(successor, deleteLeftmost(node.right));
+            setLeft(successor, node.left);
+            node = successor;
+        }
+        return rebalance(node);
+    }
+
+    private Node deleteLeftmost(Node node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        setLeft(node, deleteLeftmost(node.left));
+        return rebalance(node);
+    }
+
+    private Node build(Node[] nodes, int from, int to) {
+        if (from >= to) {
+            return null;
+        }
+        int mid = (from + to) >>> 1;
+        Node n = nodes[mid];
+        setLeft(n, build(nodes, from, mid));
+        setRight(n, build(nodes, mid + 1, to));
+        update(n);
+        return n;
+    }
+
+    private Node rebalance(Node n) {
+        update(n);
+        int balance = heightOf(n.left) - heightOf(n.right);
+        if (balance > 1) {
+            if (heightOf(n.left.left) < heightOf(n.left.right)) {
+                setLeft(n, rotateLeft(n.left));
+            }
+            return rotateRight(n);
+        }
+        if (balance < -1) {
+            if (heightOf(n.right.right) < heightOf(n.right.left)) {
+                setRight(n, rotateRight(n.right));
+            }
+            return rotateLeft(n);
+        }
+        return n;
+    }
+
+    private Node rotateRight(Node n) {
+        Node left = n.left;
+        setLeft(n, left.right);
+        setRight(left, n);
+        update(n);
+        update(left);
+        return left;
+    }
+
+    private Node rotateLeft(Node n) {
+        Node right = n.right;
+        setRight(n, right.left);
+        setLeft(right, n);
+        update(n);
+        update(right);
+        return right;
+    }
+
+    private static Node leftmost(Node n) {
+        while (n.left != null) {
+            n = n.left;
+        }
+        return n;
+    }
+
+    private static Node successor(Node n) {
+        if (n.right != null) {
+            return leftmost(n.right);
+        }
+        while (n.parent != null && n == n.parent.right) {
+            n = n.parent;
+        }
+        return n.parent;
+    }
+
+    private static void setLeft(Node parent, Node child) {
+        parent.left = child;
+        if (child != null) {
+            child.parent = parent;
+        }
+    }
+
+    private static void setRight(Node parent, Node child) {
+        parent.right = child;
+        if (child != null) {
+            child.parent = parent;
+        }
+    }
+
+    private static void update(Node n) {
+        n.height = 1 + Math.max(heightOf(n.left), heightOf(n.right));
+        n.size = 1 + sizeOf(n.left) + sizeOf(n.right);
+    }
+
+    private static int heightOf(Node n) {
+        return n == null ? 0 : n.height;
+    }
+
+    private static int sizeOf(Node n) {
+        return n == null ? 0 : n.size;
+    }
+
+    private static void checkIndex(int index, int size) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    /**
+     * Represents one task in the tree, with the height and size of the subtree below it.
+     */
+    private static class Node {
+        private Task task;
+        private Node left = null;
+        private Node right = null;
+        private Node parent = null;
+        private int height = 1;
+        private int size = 1;
+
+        private Node(Task inTask) {
+            task = inTask;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package wooper.task;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Represents an index of the three-character sequences in task descriptions, used to answer substring
+ * searches without reading every description. Descriptions are indexed in lower case, as they are matched.
+ * Tasks are indexed by their ID rather than their position, so adding or removing a task does not move
+ * the entries of the others.
+ *
+ * <p>A task containing a keyword contains every three-character sequence of the keyword, so the tasks
+ * holding all of them are the only candidates. Each candidate is then checked with
+ * {@link String#contains}, which makes the result exactly that of checking every task.</p>
+ */
+public class TrigramIndex {
+    /**
+     * Length of the sequences indexed, and so the shortest keyword the index can answer.
+     */
+    public static final int GRAM_LENGTH = 3;
+
+    private final HashMap<Long, HashSet<Long>> postings = new HashMap<>();
+
+    /**
+     * Description of each indexed task in lower case, by task ID.
+     */
+    private final HashMap<Long, String> descriptions = new HashMap<>();
+
+    /**
+     * Returns an index over the specified tasks, which must have IDs.
+     *
+     * @param tasks Tasks to be indexed.
+     * @return The index of the tasks.
+     */
+    public static TrigramIndex build(List<Task> tasks) {
+        TrigramIndex index = new TrigramIndex();
+        for (Task t : tasks) {
+            index.add(t);
+        }
+        return index;
+    }
+
+    /**
+     * Indexes the specified task.
+     *
+     * @param t Task that was added.
+     */
+    public void add(Task t) {
+        assert t.getId() > 0 : "Indexed task should have an ID";
+        String description = t.getTaskName().toLowerCase();
+        descriptions.put(t.getId(), description);
+        for (int i = 0; i + GRAM_LENGTH <= description.length(); i++) {
+            postings.computeIfAbsent(gramAt(description, i), k -> new HashSet<>()).add(t.getId());
+        }
+    }
+
+    /**
+     * Drops the task with the specified ID, which was removed from the list.
+     *
+     * @param id ID of the task that was removed.
+     */
+    public void remove(long id) {
+        String description = descriptions.remove(id);
+        if (description == null) {
+            return;
+        }
+        for (int i = 0; i + GRAM_LENGTH <= description.length(); i++) {
+            long gram = gramAt(description, i);
+            HashSet<Long> ids = postings.get(gram);
+            if (ids != null && ids.remove(id) && ids.isEmpty()) {
+                postings.remove(gram);
+            }
+        }
+    }
+
+    /**
+     * Re-indexes the specified task after its description may have changed.
+     *
+     * @param t The task after modification.
+     */
+    public void update(Task t) {
+        String description = descriptions.get(t.getId());
+        if (description != null && description.equals(t.getTaskName().toLowerCase())) {
+            return;
+        }
+        remove(t.getId());
+        add(t);
+    }
+
+    /**
+     * Returns the IDs of the tasks whose description contains the specified keyword.
+     *
+     * @param keyword Keyword in lower case, at least {@link #GRAM_LENGTH} characters long.
+     * @return The IDs of the matching tasks, in no particular order.
+     */
+    public long[] find(String keyword) {
+        assert keyword.length() >= GRAM_LENGTH : "Keyword should be long enough to have a sequence";
+        ArrayList<HashSet<Long>> lists = new ArrayList<>();
+        for (int i = 0; i + GRAM_LENGTH <= keyword.length(); i++) {
+            HashSet<Long> ids = postings.get(gramAt(keyword, i));
+            if (ids == null) {
+                return new long[0];
+            }
+            lists.add(ids);
+        }
+        // the fewest candidates are those of the rarest sequence
+        lists.sort(Comparator.comparingInt(HashSet::size));
+
+        long[] matches = new long[lists.get(0).size()];
+        int count = 0;
+        for (Long id : lists.get(0)) {
+            if (isInAll(id, lists) && descriptions.get(id).contains(keyword)) {
+                matches[count++] = id;
+            }
+        }
+        return Arrays.copyOf(matches, count);
+    }
+
+    private static boolean isInAll(Long id, List<HashSet<Long>> lists) {
+        for (int i = 1; i < lists.size(); i++) {
+            if (!lists.get(i).contains(id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long gramAt(String s, int i) {
+        return ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+    }
+}
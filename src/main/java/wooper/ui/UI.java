@@ -1,6 +1,8 @@
 package wooper.ui;
 
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.List;
 
 import wooper.task.Task;
 
@@ -20,6 +22,91 @@ public class UI {
         return greetMsg;
     }
 
+    /**
+     * Prints a note shown with the greeting while the saved tasks are loaded in the background.
+     */
+    public String printLoadingMessage() {
+        return "I'm still fetching your saved tasks, but you can add new ones right away.";
+    }
+
+    /**
+     * Prints a message telling the user the saved tasks have loaded.
+     *
+     * @param taskListSize The total number of tasks, including those added while loading.
+     */
+    public String printTasksLoadedMessage(int taskListSize) {
+        return "Woo-pah! Your saved tasks are ready.\n"
+                + "Now you have " + taskListSize + " tasks in the list.";
+    }
+
+    /**
+     * Prints a message telling the user that changes are not saved because the saved tasks could not be loaded.
+     *
+     * @param addedCount Number of tasks added while loading, which are only kept until exit.
+     */
+    public String printLoadFailedMessage(int addedCount) {
+        String str = "Your save file is left as it is, so I can't make changes until Wooper is restarted.";
+        if (addedCount > 0) {
+            str += "\nThe " + addedCount + " tasks you added are only kept until you exit, "
+                    + "but you can still export them.";
+        }
+        return str;
+    }
+
+    /**
+     * Prints a message telling the user a command will be answered once the saved tasks have loaded.
+     */
+    public String printStillLoadingMessage() {
+        return "Hold on, I'm still fetching your saved tasks. I'll answer that as soon as they're ready.";
+    }
+
+    /**
+     * Prints a warning listing the saved records that could not be read and where they were moved to,
+     * and that nothing is saved until the user asks for the save file to be repaired.
+     *
+     * @param reports        Description of each damaged record.
+     * @param quarantinePath File the damaged records were moved to.
+     * @param backupPath     File the damaged save file was copied to.
+     */
+    public String printDamagedRecordsMessage(List<String> reports, Path quarantinePath, Path backupPath) {
+        String str = "Woop... Some saved tasks were damaged and could not be loaded:";
+        for (String report : reports) {
+            str += "\n - " + report;
+        }
+        str += "\nThey have been moved to " + quarantinePath + ", and your save file was copied to "
+                + backupPath + ".";
+        str += "\n" + printRepairPendingMessage();
+        return str;
+    }
+
+    /**
+     * Prints a message telling the user that changes are not saved until the damaged save file is repaired.
+     */
+    public String printRepairPendingMessage() {
+        return "Your save file is left as it is for now, so I can't make changes yet. "
+                + "Type repair to save just the tasks I could read.";
+    }
+
+    /**
+     * Prints a confirmation that the damaged save file was replaced by the tasks that could be read.
+     *
+     * @param taskListSize Number of tasks saved.
+     * @param backupPath   File the damaged save file was copied to.
+     */
+    public String printRepairedMessage(int taskListSize, Path backupPath) {
+        return "Woop! I've saved the " + taskListSize + " tasks I could read. "
+                + "Your old save file is still in " + backupPath + ".";
+    }
+
+    /**
+     * Prints a note that the tasks were changed outside Wooper, followed by the updated task list.
+     *
+     * @param taskList List of tasks after the changes.
+     */
+    public String printExternalChangeMessage(List<Task> taskList) {
+        return "Woop! Your tasks were changed elsewhere.\n" + printTaskList(taskList);
+    }
+
     /**
      * Prints the farewell message shown when the application exits.
      */
@@ -33,7 +120,7 @@ public class UI {
      *
      * @param taskList List of tasks to be displayed.
      */
-    public String printTaskList(ArrayList<Task> taskList) {
+    public String printTaskList(List<Task> taskList) {
         String str = "";
         if (taskList.isEmpty()) {
             str = "Woop! Your task list is empty!";
@@ -78,6 +165,16 @@ public class UI {
         return str;
     }
 
+    /**
+     * Prints a confirmation message for a task added while the saved tasks are still loading.
+     *
+     * @param t The task that was added.
+     */
+    public String printAddTaskWhileLoadingMessage(Task t) {
+        return "Got it. I've added this task:" + "\n" + t.toString() + "\n"
+                + "It will go after your saved tasks once they have loaded.";
+    }
+
     /**
      * Prints a confirmation message indicating that a task has been deleted.
      *
@@ -118,6 +215,126 @@ public class UI {
         return str;
     }
 
+    /**
+     * Prints the deadlines due within a range, in order of when they are due.
+     *
+     * @param taskList Deadlines due within the range.
+     */
+    public String printDueTasksMessage(ArrayList<Task> taskList) {
+        if (taskList.isEmpty()) {
+            return "Woop! Nothing is due then.";
+        }
+        String str = "Here are the deadlines due then:\n";
+        for (int i = 0; i < taskList.size(); i++) {
+            str += (i + 1) + ". " + taskList.get(i).toString() + "\n";
+        }
+        return str;
+    }
+
+    /**
+     * Prints the tasks that match a search query, followed by the matching archived tasks.
+     *
+     * @param taskList     List of tasks that matched the search criteria.
+     * @param archivedList List of archived tasks that matched the search criteria.
+     */
+    public String printFindTasksMessage(ArrayList<Task> taskList, ArrayList<Task> archivedList) {
+        if (taskList.isEmpty() && archivedList.isEmpty()) {
+            return "Woop! No matching tasks found, even in the archive.";
+        }
+        String str = taskList.isEmpty() ? "" : printFindTasksMessage(taskList);
+        if (!archivedList.isEmpty()) {
+            str += "From the archive:\n";
+            for (int i = 0; i < archivedList.size(); i++) {
+                str += (i + 1) + ". " + archivedList.get(i).toString() + "\n";
+            }
+        }
+        return str;
+    }
+
+    /**
+     * Prints a confirmation message indicating that completed tasks have been archived.
+     *
+     * @param archivedCount Number of tasks moved to the archive.
+     * @param taskListSize  The total number of tasks after archiving.
+     */
+    public String printArchiveMessage(int archivedCount, int taskListSize) {
+        if (archivedCount == 0) {
+            return "Woop! There are no completed tasks to archive.";
+        }
+        String str = "Woo-pah! I've archived " + archivedCount + " completed tasks.\n"
+                + "Now you have " + taskListSize + " tasks in the list.";
+        return str;
+    }
+
+    /**
+     * Prints a note on how many tasks are kept in the archive and how to search them.
+     *
+     * @param archivedCount Number of tasks in the archive.
+     */
+    public String printArchivedCountMessage(long archivedCount) {
+        return "(" + archivedCount + " completed tasks are archived. Use find KEYWORD /archive to search them.)";
+    }
+
+    /**
+     * Prints a confirmation message after the tasks were copied to another storage backend.
+     *
+     * @param taskCount   Number of tasks copied, not counting archived tasks.
+     * @param storageName Name of the backend the tasks were copied to.
+     */
+    public String printMigrateMessage(int taskCount, String storageName) {
+        return "Woo-pah! I've copied your " + taskCount + " tasks to " + storageName + " storage.\n"
+                + "Set storage=" + storageName + " in data/wooper.properties to use it from the next start.";
+    }
+
+    /**
+     * Prints a confirmation message after tasks were imported from a file.
+     *
+     * @param importedCount Number of tasks imported.
+     * @param taskListSize  The total number of tasks after importing.
+     */
+    public String printImportMessage(int importedCount, int taskListSize) {
+        if (importedCount == 0) {
+            return "Woop! There were no tasks in that file to import.";
+        }
+        return "Woo-pah! I've imported " + importedCount + " tasks.\n"
+                + "Now you have " + taskListSize + " tasks in the list.";
+    }
+
+    /**
+     * Prints a confirmation message after the tasks were exported to a file.
+     *
+     * @param exportedCount Number of tasks exported.
+     * @param fileName      Name of the file the tasks were written to.
+     */
+    public String printExportMessage(int exportedCount, String fileName) {
+        return "Woo-pah! I've exported " + exportedCount + " tasks to " + fileName + ".";
+    }
+
+    /**
+     * Prints the notes of a task, or says that it has none.
+     *
+     * @param task  Task whose notes are shown.
+     * @param notes Notes of the task, or null if it has none.
+     */
+    public String printNotesMessage(Task task, String notes) {
+        if (notes == null) {
+            return "Woop! There are no notes for this task:\n  " + task;
+        }
+        return "Here are your notes for this task:\n  " + task + "\n" + notes;
+    }
+
+    /**
+     * Prints a confirmation message after the notes of a task were saved or cleared.
+     *
+     * @param task Task whose notes were changed.
+     */
+    public String printNotesSavedMessage(Task task) {
+        if (!task.hasNotes()) {
+            return "Woo-pah! I've cleared the notes of this task:\n  " + task;
+        }
+        return "Woo-pah! I've saved your notes for this task:\n  " + task;
+    }
+
     /**
      * Prints a confirmation message indicating that a task has been updated.
      *
@@ -39,22 +39,32 @@ public class MainWindow extends AnchorPane {
 
     /**
      * Injects the Wooper application instance into the main window.
-     * Displays the greeting message returned by the application upon initialisation.
+     * Displays the greeting message returned by the application upon initialisation,
+     * then the answers given once the saved tasks have loaded in the background,
+     * and later any changes made to the saved tasks elsewhere.
      *
      * @param w Wooper application logic instance.
      */
     public void setWooper(Wooper w) {
         wooper = w;
+        wooper.setExternalChangeListener(this::showLater);
+        wooper.setLoadListener(this::showLater);
+        // bye may only be answered once the saved tasks have loaded, and exits after its answer is shown
+        wooper.setExitListener(() -> Platform.runLater(Platform::exit));
         String greeting = wooper.initWooper();
         dialogContainer.getChildren().add(
                 WooperDialogBox.getWooperDialog(greeting)
         );
     }
 
+    private void showLater(String message) {
+        Platform.runLater(() -> dialogContainer.getChildren().add(WooperDialogBox.getWooperDialog(message)));
+    }
+
     /**
      * Handles user input submitted through the text field.
      * Displays the user's input and the corresponding response from the Wooper
-     * application. Exits the application if the user enters the {@code bye} command.
+     * application. The application exits through the exit listener once {@code bye} has been handled.
      */
     @FXML
     private void handleUserInput() {
@@ -65,9 +75,5 @@ public class MainWindow extends AnchorPane {
                 WooperDialogBox.getWooperDialog(response)
         );
         userInput.clear();
-
-        if (input.trim().equalsIgnoreCase("bye")) {
-            Platform.exit();
-        }
     }
 }
@@ -83,6 +83,8 @@ public class DateTimeUtil {
                 throw new WooperException("Please give a deadline!");
             } else if (type == CommandType.EVENT) {
                 throw new WooperException("Please give event's start and/or end date!");
+            } else if (type == CommandType.DUE) {
+                throw new WooperException("Please give a date!");
             }
         }
 
@@ -1,7 +1,9 @@
 package wooper;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -10,12 +12,17 @@ import java.time.LocalDateTime;
 import java.time.Year;
 import java.time.temporal.Temporal;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import wooper.exception.WooperException;
+import wooper.task.Deadline;
 import wooper.task.Task;
+import wooper.task.TaskChange;
+import wooper.task.TaskIndex;
 import wooper.task.ToDo;
 
 public class TaskManagerTest {
@@ -76,6 +83,47 @@ public class TaskManagerTest {
         assertThrows(WooperException.class, () -> tm.unmarkTaskDone(-1));
     }
 
+    /**
+     * getTaskById / getTaskNo
+     */
+    @Test
+    public void getTaskById_earlierTaskDeleted_sameTaskFoundAtNewPosition() throws WooperException {
+        tm.addToDoTask("read book");
+        Task t = tm.addToDoTask("return book");
+        tm.deleteTask(0);
+
+        assertEquals(t, tm.getTaskById(t.getId()));
+        assertEquals(0, tm.getTaskNo(t.getId()));
+        assertThrows(WooperException.class, () -> tm.getTaskById(t.getId() + 1));
+    }
+
+    @Test
+    public void getTaskById_doneTasksRemoved_idsKept() throws WooperException {
+        tm.addToDoTask("read book");
+        tm.markTaskDone(0);
+        Task t = tm.addToDoTask("return book");
+        long id = t.getId();
+        tm.removeDoneTasks();
+
+        assertEquals(id, t.getId());
+        assertEquals(0, tm.getTaskNo(id));
+    }
+
+    /**
+     * setTaskNotes
+     */
+    @Test
+    public void setTaskNotes_validIndex_offsetSetAndCleared() throws WooperException {
+        tm.addToDoTask("read book");
+        Task t = tm.setTaskNotes(0, 42);
+        assertTrue(t.hasNotes());
+        assertEquals(42L, t.getNotesOffset());
+
+        tm.setTaskNotes(0, -1);
+        assertFalse(t.hasNotes());
+        assertThrows(WooperException.class, () -> tm.setTaskNotes(1, 42));
+    }
+
     /**
      * addToDoTask
      */
@@ -209,6 +257,52 @@ public class TaskManagerTest {
         assertEquals(0, tm.findTasks("gym").size());
     }
 
+    @Test
+    public void findTasks_randomChanges_sameAsCheckingEveryTask() throws WooperException {
+        String[] words = {"read", "Book", "bookshelf", "return", "ÖL", "milk", "re-read"};
+        Random random = new Random(7);
+        for (int i = 0; i < 300; i++) {
+            int op = tm.getTaskListSize() == 0 ? 0 : random.nextInt(5);
+            String name = words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)];
+            if (op <= 1) {
+                tm.addToDoTask(name);
+            } else if (op == 2) {
+                tm.deleteTask(random.nextInt(tm.getTaskListSize()));
+            } else if (op == 3) {
+                tm.updateTask(random.nextInt(tm.getTaskListSize()), buildUpdateArgs("todo", name, "", "", ""));
+            } else {
+                tm.markTaskDone(random.nextInt(tm.getTaskListSize()));
+                tm.removeDoneTasks();
+            }
+            if (i % 10 == 0) {
+                for (String keyword : new String[] {"ook", "READ", "k r", "öl", "re", "shelf b", "gym"}) {
+                    assertEquals(tm.findTasks(keyword, tm.getAllTasks()), tm.findTasks(keyword), keyword);
+                }
+            }
+        }
+    }
+
+    /**
+     * findTasksByWords
+     */
+    @Test
+    public void findTasksByWords_severalWords_tasksWithEveryWordReturned() throws WooperException {
+        tm.addToDoTask("Read book");
+        tm.addToDoTask("read the bookshelf manual");
+        tm.addToDoTask("return book, then read");
+        tm.getIndex();
+        tm.addToDoTask("book: read it again");
+        tm.deleteTask(0);
+
+        ArrayList<Task> matched = tm.findTasksByWords("BOOK read");
+        assertEquals(2, matched.size());
+        assertEquals("return book, then read", matched.get(0).getTaskName());
+        assertEquals("book: read it again", matched.get(1).getTaskName());
+        assertEquals(0, tm.findTasksByWords("read gym").size());
+        assertEquals(1, tm.findTasksByWords("book again", tm.getAllTasks()).size());
+        assertThrows(WooperException.class, () -> tm.findTasksByWords(" , "));
+    }
+
     /**
      * updateTask
      */
@@ -339,6 +433,156 @@ public class TaskManagerTest {
         assertThrows(WooperException.class, () -> tm.updateTask(0, args));
     }
 
+    /**
+     * removeDoneTasks
+     */
+    @Test
+    public void removeDoneTasks_mixedTasks_onlyActiveTasksKept() throws WooperException {
+        tm.addToDoTask("read book");
+        tm.addToDoTask("buy milk");
+        tm.addToDoTask("water plants");
+        tm.markTaskDone(0);
+        tm.markTaskDone(2);
+
+        ArrayList<Task> archived = tm.removeDoneTasks();
+        assertEquals(2, archived.size());
+        assertEquals("read book", archived.get(0).getTaskName());
+        assertEquals(1, tm.getTaskListSize());
+        assertEquals("buy milk", tm.getAllTasks().get(0).getTaskName());
+    }
+
+    /**
+     * getIndex
+     */
+    @Test
+    public void getIndex_afterChanges_sameAsRebuiltIndex() throws WooperException {
+        tm.addToDoTask("read book");
+        tm.addDeadlineTask("return book", LocalDate.of(2026, 6, 6));
+        tm.getIndex();
+        tm.addDeadlineTask("submit report", LocalDateTime.of(2026, 3, 1, 12, 0));
+        tm.addToDoTask("buy milk");
+        tm.deleteTask(0);
+        tm.updateTask(1, buildUpdateArgs("deadline", "read report", "01/01/2026", "", ""));
+
+        TaskIndex rebuilt = TaskIndex.build(tm.getAllTasks());
+        TaskIndex index = tm.getIndex();
+        assertEquals(rebuilt.getTokens(), index.getTokens());
+        for (String token : rebuilt.getTokens()) {
+            assertArrayEquals(rebuilt.getPostings(token), index.getPostings(token));
+        }
+        assertEquals(tm.getAllTasks().size(), index.size());
+        assertArrayEquals(new long[] {3, 2}, index.getDeadlineOrder());
+        assertArrayEquals(new long[] {3}, index.getPostings("report"));
+        assertArrayEquals(new long[0], index.getPostings("submit"));
+    }
+
+    @Test
+    public void useIndex_indexOfOtherIds_indexIgnored() throws WooperException {
+        TaskManager other = new TaskManager();
+        other.addToDoTask("read book");
+        other.addToDoTask("buy milk");
+        other.deleteTask(0);
+        other.addToDoTask("read book");
+        TaskIndex stale = other.getIndex();
+
+        tm.loadTaskList(new ArrayList<>(List.of(new ToDo("buy milk"), new ToDo("read book"))));
+        tm.useIndex(stale);
+        assertEquals("read book", tm.findTasksByWords("book").get(0).getTaskName());
+
+        TaskIndex current = TaskIndex.build(tm.getAllTasks());
+        tm.replaceTaskList(new ArrayList<>(tm.getAllTasks()));
+        tm.useIndex(current);
+        assertSame(current, tm.getIndex());
+    }
+
+    /**
+     * findDeadlines
+     */
+    @Test
+    public void findDeadlines_range_deadlinesDueWithinReturnedInDueOrder() throws WooperException {
+        tm.addDeadlineTask("return book", LocalDate.of(2026, 6, 6));
+        tm.addToDoTask("read book");
+        tm.addDeadlineTask("submit report", LocalDateTime.of(2026, 3, 1, 12, 0));
+        tm.addDeadlineTask("pay rent", LocalDate.of(2026, 3, 1));
+        tm.getIndex();
+        tm.addDeadlineTask("renew pass", LocalDateTime.of(2026, 3, 1, 12, 0));
+        tm.deleteTask(0);
+
+        long from = TaskIndex.dueKeyOf(LocalDate.of(2026, 3, 1));
+        long to = TaskIndex.dueKeyOf(LocalDateTime.of(2026, 3, 1, 12, 0));
+        ArrayList<Task> due = tm.findDeadlines(from, to);
+        assertEquals(3, due.size());
+        assertEquals("pay rent", due.get(0).getTaskName());
+        assertEquals("submit report", due.get(1).getTaskName());
+        assertEquals("renew pass", due.get(2).getTaskName());
+        assertEquals(1, tm.findDeadlines(from, to - 1).size());
+        assertEquals(0, tm.findDeadlines(to + 1, Long.MAX_VALUE).size());
+        assertEquals(3, tm.findDeadlines(Long.MIN_VALUE, Long.MAX_VALUE).size());
+    }
+
+    @Test
+    public void findDeadlines_sameDueTimeAddedEarlierInList_listOrderKept() throws WooperException {
+        tm.addDeadlineTask("pay rent", LocalDate.of(2026, 3, 1));
+        tm.addToDoTask("pay bills");
+        tm.getIndex();
+        tm.applyChanges(List.of(TaskChange.add(0, new Deadline("renew pass", LocalDate.of(2026, 3, 1)))));
+        tm.getAllTasks().get(2).setDone(true);
+        tm.removeDoneTasks();
+
+        long key = TaskIndex.dueKeyOf(LocalDate.of(2026, 3, 1));
+        ArrayList<Task> due = tm.findDeadlines(key, key);
+        assertEquals(2, due.size());
+        assertEquals("renew pass", due.get(0).getTaskName());
+        assertEquals("pay rent", due.get(1).getTaskName());
+        assertEquals(1, tm.findTasksByWords("pay").size());
+    }
+
+    @Test
+    public void getIndex_randomDeadlineChanges_sameDueOrderAsRebuiltIndex() throws WooperException {
+        Random random = new Random(11);
+        tm.getIndex();
+        for (int i = 0; i < 400; i++) {
+            int op = tm.getTaskListSize() == 0 ? 0 : random.nextInt(4);
+            // few distinct days, so that many deadlines share a due time
+            String by = "0" + (1 + random.nextInt(3)) + "/03/2026";
+            if (op <= 1) {
+                tm.addDeadlineTask("deadline " + i, LocalDate.of(2026, 3, 1 + random.nextInt(3)));
+            } else if (op == 2) {
+                tm.deleteTask(random.nextInt(tm.getTaskListSize()));
+            } else {
+                tm.updateTask(random.nextInt(tm.getTaskListSize()), buildUpdateArgs("deadline", "", by, "", ""));
+            }
+        }
+
+        TaskIndex rebuilt = TaskIndex.build(tm.getAllTasks());
+        assertArrayEquals(rebuilt.getDeadlineOrder(), tm.getIndex().getDeadlineOrder());
+        assertArrayEquals(rebuilt.getDeadlineKeys(), tm.getIndex().getDeadlineKeys());
+    }
+
+    /**
+     * createTask / addTasks
+     */
+    @Test
+    public void createTask_validFields_taskCreatedButNotAdded() throws WooperException {
+        Task t = tm.createTask("e", " camp ", true, "", "02/02/2026", "03/02/2026");
+        assertEquals("camp", t.getTaskName());
+        assertTrue(t.isDone());
+        assertEquals(0, tm.getTaskListSize());
+
+        tm.getIndex();
+        tm.addTasks(List.of(t, tm.createTask("D", "return book", false, "06/06/2026 18:00", "", "")));
+        assertEquals(2, tm.getTaskListSize());
+        assertArrayEquals(new long[] {2}, tm.getIndex().getPostings("book"));
+    }
+
+    @Test
+    public void createTask_invalidFields_sameRulesAsCommands() {
+        assertThrows(WooperException.class, () -> tm.createTask("T", " ", false, "", "", ""));
+        assertThrows(WooperException.class, () -> tm.createTask("D", "return book", false, "2026-06-06", "", ""));
+        assertThrows(WooperException.class, () -> tm.createTask("E", "camp", false, "", "03/02/2026", "02/02/2026"));
+        assertThrows(WooperException.class, () -> tm.createTask("X", "camp", false, "", "", ""));
+    }
+
     /**
      * Helper: builds args list in the exact positions TaskManager expects.
      * args.get(1)=taskType, get(2)=taskName, get(3)=by, get(4)=from, get(5)=to
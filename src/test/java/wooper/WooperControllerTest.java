@@ -0,0 +1,76 @@
+package wooper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import wooper.exception.WooperException;
+import wooper.storage.FileStorage;
+import wooper.storage.StorageConfig;
+import wooper.task.Task;
+
+public class WooperControllerTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void handleUserInput_todoWhileLoading_answeredBeforeLoadFinishes() throws Exception {
+        Path saveFile = tempDir.resolve("wooper.json");
+        Properties props = new Properties();
+        props.setProperty("file", saveFile.toString());
+        SlowFileStorage storage = new SlowFileStorage(saveFile);
+        WooperController controller = new WooperController(new StorageConfig(props), storage);
+        CountDownLatch loaded = new CountDownLatch(1);
+        controller.setLoadListener(message -> loaded.countDown());
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            controller.init();
+            assertTrue(storage.loadStarted.await(5, TimeUnit.SECONDS));
+
+            // the storage is held by the load until it is released
+            Future<String> reply = executor.submit(() -> controller.handleUserInput("todo read book"));
+            assertTrue(reply.get(5, TimeUnit.SECONDS).contains("once they have loaded"));
+        } finally {
+            storage.release.countDown();
+            executor.shutdownNow();
+        }
+
+        assertTrue(loaded.await(5, TimeUnit.SECONDS));
+        assertEquals(1, new FileStorage(saveFile).load().size());
+    }
+
+    /**
+     * File storage whose load holds the storage until it is released.
+     */
+    private static class SlowFileStorage extends FileStorage {
+        private final CountDownLatch loadStarted = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        SlowFileStorage(Path inFilePath) {
+            super(inFilePath);
+        }
+
+        @Override
+        public synchronized List<Task> load() throws WooperException {
+            loadStarted.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return super.load();
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package wooper.parser;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -130,6 +131,91 @@ public class ParserTest {
         assertEquals(expectedArgs, actual.getArgs());
     }
 
+    @Test
+    public void getActionAndArguments_findCommandWithArchiveFlag_keywordAndFlagReturned() {
+        ArrayList<String> expectedArgs = new ArrayList<>(List.of("old book", "/archive"));
+        ParseResult actual = parser.getActionAndArguments("find old book /ARCHIVE");
+        assertEquals(CommandType.FIND, actual.getCommandType());
+        assertEquals(expectedArgs, actual.getArgs());
+    }
+
+    @Test
+    public void getActionAndArguments_findCommandWithWordsFlag_keywordAndFlagsReturned() {
+        ParseResult actual = parser.getActionAndArguments("find old book /archive /Words");
+        assertEquals(CommandType.FIND, actual.getCommandType());
+        assertEquals(new ArrayList<>(List.of("old book", "/words", "/archive")), actual.getArgs());
+
+        actual = parser.getActionAndArguments("find passwords");
+        assertEquals(new ArrayList<>(List.of("passwords")), actual.getArgs());
+    }
+
+    @Test
+    public void getActionAndArguments_findCommandWithLeadingFlags_keywordAndFlagsReturned() {
+        ParseResult actual = parser.getActionAndArguments("find /words novel");
+        assertEquals(CommandType.FIND, actual.getCommandType());
+        assertEquals(new ArrayList<>(List.of("novel", "/words")), actual.getArgs());
+
+        actual = parser.getActionAndArguments("find /ARCHIVE old /words book");
+        assertEquals(new ArrayList<>(List.of("old book", "/words", "/archive")), actual.getArgs());
+
+        actual = parser.getActionAndArguments("find /words");
+        assertEquals(new ArrayList<>(List.of("", "/words")), actual.getArgs());
+    }
+
+    @Test
+    public void getActionAndArguments_dueCommand_rangeReturned() {
+        ParseResult actual = parser.getActionAndArguments("due /BEFORE 06/06/2026");
+        assertEquals(CommandType.DUE, actual.getCommandType());
+        assertEquals(new ArrayList<>(List.of("/before", "06/06/2026")), actual.getArgs());
+
+        actual = parser.getActionAndArguments("due /between 01/03/2026 /and 06/03/2026 18:00");
+        assertEquals(new ArrayList<>(List.of("/between", "01/03/2026", "06/03/2026 18:00")), actual.getArgs());
+        assertEquals(new ArrayList<>(List.of("/between", "01/03/2026", "")),
+                parser.getActionAndArguments("due /between 01/03/2026").getArgs());
+    }
+
+    @Test
+    public void getActionAndArguments_archiveCommand_archiveReturned() {
+        ParseResult actual = parser.getActionAndArguments("archive");
+        assertEquals(CommandType.ARCHIVE, actual.getCommandType());
+        assertTrue(actual.getArgs().isEmpty());
+    }
+
+    @Test
+    public void getActionAndArguments_repairCommand_repairReturned() {
+        ParseResult actual = parser.getActionAndArguments("repair");
+        assertEquals(CommandType.REPAIR, actual.getCommandType());
+        assertTrue(actual.getArgs().isEmpty());
+    }
+
+    @Test
+    public void getActionAndArguments_migrateCommand_backendReturned() {
+        ParseResult actual = parser.getActionAndArguments("migrate  sql ");
+        assertEquals(CommandType.MIGRATE, actual.getCommandType());
+        assertEquals(new ArrayList<>(List.of("sql")), actual.getArgs());
+    }
+
+    @Test
+    public void getActionAndArguments_importAndExportCommands_pathReturned() {
+        ParseResult actual = parser.getActionAndArguments("import data/tasks.csv ");
+        assertEquals(CommandType.IMPORT, actual.getCommandType());
+        assertEquals(new ArrayList<>(List.of("data/tasks.csv")), actual.getArgs());
+
+        actual = parser.getActionAndArguments("EXPORT tasks.ndjson");
+        assertEquals(CommandType.EXPORT, actual.getCommandType());
+        assertEquals(new ArrayList<>(List.of("tasks.ndjson")), actual.getArgs());
+    }
+
+    @Test
+    public void getActionAndArguments_noteCommand_taskNumberAndNotesReturned() {
+        ParseResult actual = parser.getActionAndArguments("note 2 call the  shop, then /by pay");
+        assertEquals(CommandType.NOTE, actual.getCommandType());
+        assertEquals(new ArrayList<>(List.of("2", "call the  shop, then /by pay")), actual.getArgs());
+
+        assertEquals(new ArrayList<>(List.of("2", "")), parser.getActionAndArguments("note 2").getArgs());
+        assertEquals(new ArrayList<>(List.of("2", "/clear")), parser.getActionAndArguments("note 2 /CLEAR ").getArgs());
+    }
+
     /**
      * deadline parsing edge cases
      */
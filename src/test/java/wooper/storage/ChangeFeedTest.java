@@ -0,0 +1,95 @@
+package wooper.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import wooper.enums.ChangeType;
+import wooper.exception.WooperException;
+import wooper.task.Task;
+import wooper.task.TaskChange;
+import wooper.task.ToDo;
+
+public class ChangeFeedTest {
+    @TempDir
+    Path tempDir;
+
+    private Path feedFile() {
+        return tempDir.resolve("wooper.json.changes");
+    }
+
+    @Test
+    public void append_newFeed_changesReadBackInOrder() throws IOException, WooperException {
+        ChangeFeed feed = new ChangeFeed(feedFile());
+        Task t = new ToDo("read book");
+        assertEquals(1, feed.append(List.of(TaskChange.add(0, t))));
+        t.setDone(true);
+        assertEquals(2, feed.append(List.of(TaskChange.update(0, t))));
+
+        List<ChangeFeed.Entry> entries = feed.readAfter(0, 10);
+        assertEquals(2, entries.size());
+        assertEquals(1, entries.get(0).getSeq());
+        assertEquals(ChangeType.ADD, entries.get(0).getChange().getType());
+        assertFalse(entries.get(0).getChange().getTask().isDone());
+        assertEquals(ChangeType.UPDATE, entries.get(1).getChange().getType());
+        assertTrue(entries.get(1).getChange().getTask().isDone());
+        assertEquals("read book", entries.get(1).getChange().getTask().getTaskName());
+    }
+
+    @Test
+    public void append_anotherInstance_sequenceContinues() throws IOException, WooperException {
+        new ChangeFeed(feedFile()).append(List.of(TaskChange.add(0, new ToDo("a")), TaskChange.add(1, new ToDo("b"))));
+        assertEquals(3, new ChangeFeed(feedFile()).append(List.of(TaskChange.delete(0, new ToDo("a")))));
+    }
+
+    @Test
+    public void readAfter_manyEntries_onlyLaterEntriesReturned() throws IOException, WooperException {
+        ChangeFeed feed = new ChangeFeed(feedFile());
+        ArrayList<TaskChange> changes = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            changes.add(TaskChange.add(i, new ToDo("task " + i)));
+        }
+        feed.append(changes);
+
+        List<ChangeFeed.Entry> entries = feed.readAfter(4321, 3);
+        assertEquals(3, entries.size());
+        assertEquals(4322, entries.get(0).getSeq());
+        assertEquals("task 4321", entries.get(0).getChange().getTask().getTaskName());
+        assertEquals(4324, entries.get(2).getSeq());
+        assertTrue(feed.readAfter(5000, 10).isEmpty());
+    }
+
+    @Test
+    public void append_tornLastEntry_entryDropped() throws IOException, WooperException {
+        ChangeFeed feed = new ChangeFeed(feedFile());
+        feed.append(List.of(TaskChange.add(0, new ToDo("a"))));
+        Files.write(feedFile(), "{\"seq\":2,\"time\":1,\"op\":\"A\",\"i\":1,\"ta".getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.APPEND);
+
+        assertEquals(1, feed.readAfter(0, 10).size());
+        assertEquals(2, feed.append(List.of(TaskChange.add(1, new ToDo("b")))));
+        assertEquals("b", feed.readAfter(1, 10).get(0).getChange().getTask().getTaskName());
+    }
+
+    @Test
+    public void appendReload_readBack_reloadEntryReturned() throws IOException, WooperException {
+        ChangeFeed feed = new ChangeFeed(feedFile());
+        feed.append(List.of(TaskChange.add(0, new ToDo("a"))));
+        assertEquals(2, feed.appendReload());
+
+        List<ChangeFeed.Entry> entries = feed.readAfter(1, 10);
+        assertEquals(1, entries.size());
+        assertTrue(entries.get(0).isReload());
+    }
+}
@@ -0,0 +1,971 @@
+package wooper.storage;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import javax.crypto.SecretKey;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import wooper.TaskManager;
+import wooper.enums.ChangeType;
+import wooper.enums.SnapshotFormat;
+import wooper.exception.WooperException;
+import wooper.task.Deadline;
+import wooper.task.Event;
+import wooper.task.Task;
+import wooper.task.TaskChange;
+import wooper.task.TaskIndex;
+import wooper.task.TaskTree;
+import wooper.task.ToDo;
+
+public class FileStorageTest {
+    private static final SecretKey KEY = PageCipher.parseKey("MDEyMzQ1Njc4OWFiY2RlZjAxMjM0NTY3ODlhYmNkZWY=");
+
+    @TempDir
+    Path tempDir;
+
+    private Path saveFile() {
+        return tempDir.resolve("wooper.json");
+    }
+
+    /**
+     * load / save
+     */
+    @Test
+    public void load_missingFile_emptyListReturned() throws WooperException {
+        assertEquals(0, new FileStorage(saveFile()).load().size());
+    }
+
+    @Test
+    public void save_thenLoad_tasksRestored() throws IOException, WooperException {
+        ArrayList<Task> tasks = new ArrayList<>();
+        tasks.add(new ToDo("read book"));
+        tasks.add(new Deadline("return book", LocalDate.of(2026, 6, 6)));
+        tasks.get(1).setDone(true);
+
+        new FileStorage(saveFile()).save(tasks);
+        List<Task> loaded = new FileStorage(saveFile()).load();
+
+        assertEquals(2, loaded.size());
+        assertEquals(tasks.get(0).toString(), loaded.get(0).toString());
+        assertEquals(tasks.get(1).toString(), loaded.get(1).toString());
+    }
+
+    @Test
+    public void save_taskManagerList_savedInParallelWithIds() throws IOException, WooperException {
+        TaskManager tm = new TaskManager();
+        for (int i = 0; i <= ParallelTaskWriter.MIN_TASK_COUNT; i++) {
+            tm.addToDoTask("task " + i);
+        }
+        tm.deleteTask(0);
+        List<Task> tasks = tm.getAllTasks();
+        assertTrue(ParallelTaskWriter.canEncode(tasks));
+
+        for (SnapshotFormat format : new SnapshotFormat[] {SnapshotFormat.JSON, SnapshotFormat.BINARY}) {
+            Path file = tempDir.resolve("wooper-" + format + ".json");
+            new FileStorage(file, format).save(tasks);
+            List<Task> loaded = new FileStorage(file).load();
+
+            assertEquals(tasks.size(), loaded.size(), format.toString());
+            for (int i = 0; i < tasks.size(); i += 1000) {
+                assertEquals(tasks.get(i).getTaskName(), loaded.get(i).getTaskName(), format.toString());
+                assertEquals(tasks.get(i).getId(), loaded.get(i).getId(), format.toString());
+            }
+        }
+    }
+
+    @Test
+    public void load_legacyPrettyPrintedFile_tasksRestored() throws IOException, WooperException {
+        Files.writeString(saveFile(), "[\n  {\n    \"done\": true,\n    \"by\": \"2026-06-06T14:00\",\n"
+                + "    \"type\": \"D\",\n    \"desc\": \"return book\"\n  },\n  {\n    \"done\": false,\n"
+                + "    \"from\": \"2026-02-02\",\n    \"to\": \"2026-02-03\",\n    \"type\": \"E\",\n"
+                + "    \"desc\": \"camp\"\n  }\n]");
+
+        List<Task> loaded = new FileStorage(saveFile()).load();
+
+        assertEquals(2, loaded.size());
+        assertEquals("[D][X] return book (by: Sat, 06 Jun 2026 14:00)", loaded.get(0).toString());
+        assertEquals("[E][ ] camp (from: Mon, 02 Feb 2026 to: Tue, 03 Feb 2026)", loaded.get(1).toString());
+    }
+
+    @Test
+    public void save_specialCharactersInDescription_descriptionRestored() throws IOException, WooperException {
+        String desc = "say \"hi\" \\ tab\there\nnext line \u00e9\u2603";
+        ArrayList<Task> tasks = new ArrayList<>();
+        tasks.add(new ToDo(desc));
+
+        new FileStorage(saveFile()).save(tasks);
+
+        assertEquals(desc, new FileStorage(saveFile()).load().get(0).getTaskName());
+    }
+
+    @Test
+    public void load_malformedFile_damagedRecordQuarantined() throws IOException, WooperException {
+        Files.writeString(saveFile(), "[{\"type\":\"T\",\"desc\":\"a\"");
+        FileStorage storage = new FileStorage(saveFile());
+
+        assertTrue(storage.load().isEmpty());
+        assertEquals(1, storage.getDamagedRecords().size());
+        assertTrue(Files.readString(storage.getQuarantinePath()).contains("{\"type\":\"T\",\"desc\":\"a\""));
+    }
+
+    @Test
+    public void load_jsonTaskDamaged_otherTasksLoaded() throws IOException, WooperException {
+        ArrayList<Task> tasks = sampleTasks();
+        new FileStorage(saveFile()).save(tasks);
+        Files.writeString(saveFile(), Files.readString(saveFile()).replace("\"desc\":\"submit\"", "\"desc\":submit"));
+
+        FileStorage storage = new FileStorage(saveFile());
+        tasks.remove(2);
+        List<Task> loaded = storage.load();
+        assertSameTasks(tasks, loaded);
+        assertEquals(List.of("line 4: Save file is corrupted (invalid JSON)."), storage.getDamagedRecords());
+
+        // once repaired, the damaged task is removed from the save file, so it is only reported once
+        storage.repair(loaded);
+        FileStorage reloaded = new FileStorage(saveFile());
+        assertSameTasks(tasks, reloaded.load());
+        assertTrue(reloaded.getDamagedRecords().isEmpty());
+    }
+
+    @Test
+    public void load_everyTaskDamaged_saveFileKeptAndBackedUp() throws IOException, WooperException {
+        Files.writeString(saveFile(), "[{\"type\":\"T\",\"desc\":}, {\"type\":\"X\"}]");
+        byte[] original = Files.readAllBytes(saveFile());
+        FileStorage storage = new FileStorage(saveFile());
+
+        assertTrue(storage.load().isEmpty());
+        assertTrue(storage.isRepairPending());
+        assertArrayEquals(original, Files.readAllBytes(saveFile()));
+        assertArrayEquals(original, Files.readAllBytes(storage.getBackupPath()));
+        assertThrows(IOException.class, () -> storage.save(List.of(new ToDo("read book"))));
+        assertArrayEquals(original, Files.readAllBytes(saveFile()));
+
+        // loading the same damaged file again does not move its records to the quarantine twice
+        long quarantined = Files.size(storage.getQuarantinePath());
+        assertTrue(new FileStorage(saveFile()).load().isEmpty());
+        assertEquals(quarantined, Files.size(storage.getQuarantinePath()));
+
+        storage.repair(List.of(new ToDo("read book")));
+        assertFalse(storage.isRepairPending());
+        assertEquals(1, new FileStorage(saveFile()).load().size());
+        assertArrayEquals(original, Files.readAllBytes(storage.getBackupPath()));
+    }
+
+    @Test
+    public void load_binaryTaskCorrupted_otherTasksLoaded() throws IOException, WooperException {
+        ArrayList<Task> tasks = sampleTasks();
+        new FileStorage(saveFile(), SnapshotFormat.BINARY).save(tasks);
+        byte[] content = Files.readAllBytes(saveFile());
+        int at = new String(content, StandardCharsets.ISO_8859_1).indexOf("camp");
+        content[at] = 'd';
+        Files.write(saveFile(), content);
+
+        FileStorage storage = new FileStorage(saveFile());
+        tasks.remove(3);
+        assertSameTasks(tasks, storage.load());
+        assertEquals(List.of("task 4: Save file is corrupted (record checksum mismatch)."),
+                storage.getDamagedRecords());
+    }
+
+    @Test
+    public void load_pagedPageCorrupted_otherPagesLoaded() throws IOException, WooperException {
+        ArrayList<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            tasks.add(new ToDo("task " + i));
+        }
+        FileStorage storage = new FileStorage(saveFile(), SnapshotFormat.PAGED);
+        storage.save(tasks);
+        storage.close();
+        byte[] content = Files.readAllBytes(saveFile());
+        content[PagedTaskFile.PAGE_SIZE + 100] ^= 1;
+        Files.write(saveFile(), content);
+
+        FileStorage reloaded = new FileStorage(saveFile(), SnapshotFormat.PAGED);
+        List<Task> loaded = reloaded.load();
+        reloaded.close();
+        assertEquals(List.of("page 1: Save file is corrupted (invalid page)."), reloaded.getDamagedRecords());
+        assertTrue(loaded.size() > 0 && loaded.size() < tasks.size());
+        assertEquals(tasks.get(tasks.size() - 1).toString(), loaded.get(loaded.size() - 1).toString());
+    }
+
+    @Test
+    public void save_binaryFormat_tasksRestored() throws IOException, WooperException {
+        ArrayList<Task> tasks = sampleTasks();
+        new FileStorage(saveFile(), SnapshotFormat.BINARY).save(tasks);
+
+        byte[] head = Files.readAllBytes(saveFile());
+        assertTrue(BinaryTaskCodec.hasMagic(head, head.length));
+        assertSameTasks(tasks, new FileStorage(saveFile()).load());
+    }
+
+    @Test
+    public void convert_jsonToBinaryAndBack_tasksUnchanged() throws IOException, WooperException {
+        ArrayList<Task> tasks = sampleTasks();
+        new FileStorage(saveFile()).save(tasks);
+        Path binary = tempDir.resolve("wooper.bin");
+        Path json = tempDir.resolve("copy.json");
+
+        FileStorage.convert(saveFile(), binary, SnapshotFormat.BINARY);
+        FileStorage.convert(binary, json, SnapshotFormat.JSON);
+
+        assertSameTasks(tasks, new FileStorage(binary).load());
+        assertEquals(Files.readString(saveFile()), Files.readString(json));
+    }
+
+    @Test
+    public void load_largeJsonFile_sameTasksAsSmallFile() throws IOException, WooperException {
+        ArrayList<Task> tasks = new ArrayList<>();
+        while (tasks.size() * 60 < ParallelTaskLoader.MIN_FILE_SIZE * 2) {
+            for (Task t : sampleTasks()) {
+                tasks.add(t);
+            }
+            tasks.add(new ToDo("tricky \"},{\" [brackets] \\ " + tasks.size()));
+        }
+        new FileStorage(saveFile()).save(tasks);
+        assertTrue(Files.size(saveFile()) >= ParallelTaskLoader.MIN_FILE_SIZE);
+
+        assertSameTasks(tasks, new FileStorage(saveFile()).load());
+    }
+
+    @Test
+    public void load_largeMalformedJsonFile_otherTasksLoaded() throws IOException, WooperException {
+        StringBuilder sb = new StringBuilder("[");
+        int count = 0;
+        while (sb.length() < ParallelTaskLoader.MIN_FILE_SIZE) {
+            sb.append("{\"type\":\"T\",\"desc\":\"a\"},\n");
+            count++;
+        }
+        sb.append("{\"type\":\"T\",\"desc\":}]");
+        Files.writeString(saveFile(), sb);
+
+        FileStorage storage = new FileStorage(saveFile());
+        assertEquals(count, storage.load().size());
+        assertEquals(1, storage.getDamagedRecords().size());
+    }
+
+    @Test
+    public void save_pagedFormat_tasksRestored() throws IOException, WooperException {
+        ArrayList<Task> tasks = sampleTasks();
+        FileStorage storage = new FileStorage(saveFile(), SnapshotFormat.PAGED);
+        storage.save(tasks);
+        storage.close();
+
+        byte[] head = Files.readAllBytes(saveFile());
+        assertTrue(PagedTaskFile.hasMagic(head, head.length));
+        assertSameTasks(tasks, new FileStorage(saveFile()).load());
+    }
+
+    @Test
+    public void load_largePagedFile_tasksRestoredAndFileKept() throws IOException, WooperException {
+        ArrayList<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 30000; i++) {
+            tasks.add(new ToDo("a task long enough to fill the pages " + i));
+        }
+        FileStorage storage = new FileStorage(saveFile(), SnapshotFormat.PAGED);
+        storage.save(tasks);
+        storage.close();
+        byte[] before = Files.readAllBytes(saveFile());
+        assertTrue(before.length >= ParallelTaskLoader.MIN_FILE_SIZE);
+
+        FileStorage reloaded = new FileStorage(saveFile(), SnapshotFormat.PAGED);
+        List<Task> loaded = reloaded.load();
+        reloaded.close();
+        assertEquals(List.of(), reloaded.getDamagedRecords());
+        assertSameTasks(tasks, loaded);
+        assertArrayEquals(before, Files.readAllBytes(saveFile()));
+    }
+
+    @Test
+    public void append_pagedTaskMarked_onlyItsPageRewritten() throws IOException, WooperException {
+        ArrayList<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            tasks.add(new ToDo("task " + i));
+        }
+        FileStorage storage = new FileStorage(saveFile(), SnapshotFormat.PAGED);
+        storage.save(tasks);
+        byte[] before = Files.readAllBytes(saveFile());
+
+        tasks.get(1500).setDone(true);
+        storage.append(TaskChange.update(1500, tasks.get(1500)), tasks);
+        storage.close();
+
+        byte[] after = Files.readAllBytes(saveFile());
+        assertEquals(before.length, after.length);
+        int changedPages = 0;
+        for (int page = 0; page < before.length / PagedTaskFile.PAGE_SIZE; page++) {
+            int from = page * PagedTaskFile.PAGE_SIZE;
+            if (!Arrays.equals(before, from, from + PagedTaskFile.PAGE_SIZE,
+                    after, from, from + PagedTaskFile.PAGE_SIZE)) {
+                changedPages++;
+            }
+        }
+        assertEquals(1, changedPages);
+        assertSameTasks(tasks, new FileStorage(saveFile()).load());
+    }
+
+    @Test
+    public void append_pagedDeleteThenAdd_spaceReused() throws IOException, WooperException {
+        ArrayList<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            tasks.add(new ToDo("task " + i));
+        }
+        FileStorage storage = new FileStorage(saveFile(), SnapshotFormat.PAGED);
+        storage.save(tasks);
+        long size = Files.size(saveFile());
+
+        for (int i = 0; i < 100; i++) {
+            Task removed = tasks.remove(10);
+            storage.append(TaskChange.delete(10, removed), tasks);
+        }
+        for (int i = 0; i < 100; i++) {
+            tasks.add(new ToDo("new task " + i));
+            storage.append(TaskChange.add(tasks.size() - 1, tasks.get(tasks.size() - 1)), tasks);
+        }
+        storage.close();
+
+        assertEquals(size, Files.size(saveFile()));
+        assertSameTasks(tasks, new FileStorage(saveFile()).load());
+    }
+
+    @Test
+    public void append_pagedTaskGrowsPastPage_taskMovedAndRestored() throws IOException, WooperException {
+        ArrayList<Task> tasks = sampleTasks();
+        FileStorage storage = new FileStorage(saveFile(), SnapshotFormat.PAGED);
+        storage.save(tasks);
+
+        tasks.get(1).setTaskName("x".repeat(3 * PagedTaskFile.PAGE_SIZE));
+        storage.append(TaskChange.update(1, tasks.get(1)), tasks);
+        storage.close();
+
+        assertSameTasks(tasks, new FileStorage(saveFile()).load());
+    }
+
+    @Test
+    public void save_encrypted_tasksRestoredAndNotReadable() throws IOException, WooperException {
+        ArrayList<Task> tasks = sampleTasks();
+        FileStorage storage = encryptedStorage(KEY);
+        storage.save(tasks);
+        storage.close();
+
+        String content = new String(Files.readAllBytes(saveFile()), StandardCharsets.ISO_8859_1);
+        assertFalse(content.contains("return book"));
+        FileStorage reloaded = encryptedStorage(KEY);
+        assertSameTasks(tasks, reloaded.load());
+        reloaded.close();
+    }
+
+    @Test
+    public void append_encryptedTaskMarked_onlyItsPageRewritten() throws IOException, WooperException {
+        ArrayList<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            tasks.add(new ToDo("task " + i));
+        }
+        FileStorage storage = encryptedStorage(KEY);
+        storage.save(tasks);
+        byte[] before = Files.readAllBytes(saveFile());
+
+        tasks.get(1500).setDone(true);
+        storage.append(TaskChange.update(1500, tasks.get(1500)), tasks);
+        storage.close();
+
+        byte[] after = Files.readAllBytes(saveFile());
+        assertEquals(before.length, after.length);
+        int changedPages = 0;
+        for (int page = 0; page < before.length / PagedTaskFile.PAGE_SIZE; page++) {
+            int from = page * PagedTaskFile.PAGE_SIZE;
+            if (!Arrays.equals(before, from, from + PagedTaskFile.PAGE_SIZE,
+                    after, from, from + PagedTaskFile.PAGE_SIZE)) {
+                changedPages++;
+            }
+        }
+        assertEquals(1, changedPages);
+        assertSameTasks(tasks, encryptedStorage(KEY).load());
+    }
+
+    @Test
+    public void load_encryptedWrongOrMissingKey_exceptionThrown() throws IOException {
+        FileStorage storage = encryptedStorage(KEY);
+        storage.save(sampleTasks());
+        storage.close();
+
+        assertThrows(WooperException.class, () -> encryptedStorage(
+                PageCipher.parseKey("AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA=")).load());
+        assertThrows(WooperException.class, () -> new FileStorage(saveFile()).load());
+        assertThrows(WooperException.class, () -> encryptedStorage(null).load());
+    }
+
+    @Test
+    public void load_plainFileWithEncryptionOn_fileEncrypted() throws IOException, WooperException {
+        ArrayList<Task> tasks = sampleTasks();
+        new FileStorage(saveFile()).save(tasks);
+
+        FileStorage storage = encryptedStorage(KEY);
+        assertSameTasks(tasks, storage.load());
+        storage.close();
+
+        byte[] head = Files.readAllBytes(saveFile());
+        assertTrue(PagedTaskFile.hasMagic(head, head.length));
+        assertFalse(new String(head, StandardCharsets.ISO_8859_1).contains("return book"));
+        assertSameTasks(tasks, encryptedStorage(KEY).load());
+    }
+
+    @Test
+    public void load_plainFileWithIndexAndEncryptionOn_indexRemoved() throws IOException, WooperException {
+        ArrayList<Task> tasks = sampleTasks();
+        FileStorage plain = new FileStorage(saveFile());
+        plain.save(tasks);
+        plain.saveIndex(TaskIndex.build(withIds(tasks)));
+        Path indexFile = tempDir.resolve("wooper.json.index");
+        assertTrue(Files.exists(indexFile));
+
+        FileStorage storage = encryptedStorage(KEY);
+        storage.load();
+        storage.close();
+        assertFalse(Files.exists(indexFile));
+    }
+
+    @Test
+    public void load_largeEncryptedFile_tasksRestoredAndFileKept() throws IOException, WooperException {
+        ArrayList<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 30000; i++) {
+            tasks.add(new ToDo("a task long enough to fill the pages " + i));
+        }
+        FileStorage storage = encryptedStorage(KEY);
+        storage.save(tasks);
+        storage.close();
+        byte[] before = Files.readAllBytes(saveFile());
+        assertTrue(before.length >= ParallelTaskLoader.MIN_FILE_SIZE);
+
+        FileStorage reloaded = encryptedStorage(KEY);
+        List<Task> loaded = reloaded.load();
+        reloaded.close();
+        assertEquals(List.of(), reloaded.getDamagedRecords());
+        assertSameTasks(tasks, loaded);
+        assertArrayEquals(before, Files.readAllBytes(saveFile()));
+    }
+
+    @Test
+    public void load_encryptedPageCorrupted_quarantineEncrypted() throws IOException, WooperException {
+        ArrayList<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            tasks.add(new ToDo("task " + i));
+        }
+        FileStorage storage = encryptedStorage(KEY);
+        storage.save(tasks);
+        storage.close();
+        byte[] content = Files.readAllBytes(saveFile());
+        content[PagedTaskFile.PAGE_SIZE + 100] ^= 1;
+        Files.write(saveFile(), content);
+
+        FileStorage reloaded = encryptedStorage(KEY);
+        reloaded.load();
+        reloaded.close();
+        List<String> lines = Files.readAllLines(reloaded.getQuarantinePath(), StandardCharsets.UTF_8);
+        assertEquals(List.of("# 1 encrypted damaged records"), lines.subList(0, 1));
+        byte[] plain = new PageCipher(KEY).open(Base64.getDecoder().decode(lines.get(1)), 0);
+        assertTrue(new String(plain, StandardCharsets.ISO_8859_1)
+                .startsWith("# page 1: Save file is corrupted (invalid page).\n"));
+    }
+
+    private FileStorage encryptedStorage(SecretKey key) {
+        FileStorage storage = new FileStorage(saveFile());
+        storage.setEncryption(true, key);
+        return storage;
+    }
+
+    @Test
+    public void save_partitioned_tasksRestored() throws IOException, WooperException {
+        ArrayList<Task> tasks = sampleTasks();
+        FileStorage storage = new FileStorage(saveFile());
+        storage.setPartitioning(true, 3);
+        storage.save(tasks);
+
+        assertTrue(Files.exists(tempDir.resolve("wooper.json.shards").resolve("undated.json")));
+        assertTrue(Files.exists(tempDir.resolve("wooper.json.shards").resolve("1969-12.json")));
+        assertSameTasks(tasks, loadPartitioned());
+    }
+
+    @Test
+    public void load_partitioned_oldShardsReadWhenAccessed() throws IOException, WooperException {
+        LocalDate today = LocalDate.now();
+        ArrayList<Task> tasks = new ArrayList<>();
+        tasks.add(new Deadline("old", today.minusYears(2)));
+        tasks.add(new ToDo("todo"));
+        tasks.add(new Deadline("soon", today.plusDays(3)));
+        FileStorage storage = new FileStorage(saveFile());
+        storage.setPartitioning(true, 3);
+        storage.save(tasks);
+
+        ShardedTaskList loaded = (ShardedTaskList) loadPartitioned();
+        int oldShard = ShardDirectory.shardOf(today.minusYears(2));
+        assertFalse(loaded.isShardLoaded(oldShard));
+        assertTrue(loaded.isShardLoaded(ShardDirectory.shardOf(today.plusDays(3))));
+        assertEquals(tasks.get(0).toString(), loaded.get(0).toString());
+        assertTrue(loaded.isShardLoaded(oldShard));
+    }
+
+    @Test
+    public void load_partitionedWithExistingSaveFile_tasksMovedToShards() throws IOException, WooperException {
+        ArrayList<Task> tasks = sampleTasks();
+        new FileStorage(saveFile()).save(tasks);
+
+        assertSameTasks(tasks, loadPartitioned());
+        assertTrue(Files.exists(tempDir.resolve("wooper.json.shards").resolve("manifest")));
+        assertSameTasks(tasks, loadPartitioned());
+    }
+
+    @Test
+    public void append_partitionedTaskMovedToOtherMonth_tasksRestored() throws IOException, WooperException {
+        new FileStorage(saveFile()).save(sampleTasks());
+        FileStorage storage = new FileStorage(saveFile());
+        storage.setPartitioning(true, 3);
+        List<Task> tasks = storage.load();
+
+        ((Deadline) tasks.get(1)).setDeadline(LocalDate.of(2030, 1, 1));
+        storage.append(TaskChange.update(1, tasks.get(1)), tasks);
+        Task removed = tasks.remove(2);
+        storage.append(TaskChange.delete(2, removed), tasks);
+        tasks.add(new Deadline("new", LocalDate.of(2026, 2, 20)));
+        storage.append(TaskChange.add(tasks.size() - 1, tasks.get(tasks.size() - 1)), tasks);
+
+        assertSameTasks(tasks, loadPartitioned());
+        assertFalse(Files.exists(tempDir.resolve("wooper.json.shards").resolve("1969-12.json")));
+    }
+
+    @Test
+    public void save_gzExtension_fileCompressedAndRestored() throws IOException, WooperException {
+        ArrayList<Task> tasks = sampleTasks();
+        Path compressed = tempDir.resolve("wooper.json.gz");
+        FileStorage storage = new FileStorage(compressed);
+        storage.save(tasks);
+        tasks.get(0).setDone(true);
+        storage.append(TaskChange.update(0, tasks.get(0)), tasks);
+
+        byte[] head = Files.readAllBytes(compressed);
+        assertEquals(0x1F, head[0] & 0xFF);
+        assertEquals(0x8B, head[1] & 0xFF);
+        assertSameTasks(tasks, new FileStorage(compressed).load());
+    }
+
+    @Test
+    public void load_uncompressedFileWithCompressionOn_readThenCompressedOnSave() throws IOException, WooperException {
+        ArrayList<Task> tasks = sampleTasks();
+        new FileStorage(saveFile(), SnapshotFormat.BINARY).save(tasks);
+
+        FileStorage storage = new FileStorage(saveFile());
+        storage.setCompressed(true);
+        List<Task> loaded = storage.load();
+        assertSameTasks(tasks, loaded);
+        storage.save(loaded);
+
+        assertEquals(0x1F, Files.readAllBytes(saveFile())[0] & 0xFF);
+        assertSameTasks(tasks, new FileStorage(saveFile()).load());
+    }
+
+    @Test
+    public void load_lazyBinaryFile_onlyAccessedTasksRead() throws IOException, WooperException {
+        ArrayList<Task> tasks = sampleTasks();
+        new FileStorage(saveFile(), SnapshotFormat.BINARY).save(tasks);
+
+        FileStorage storage = new FileStorage(saveFile(), SnapshotFormat.BINARY);
+        storage.setLazyLoading(true);
+        List<Task> loaded = storage.load();
+
+        assertTrue(loaded instanceof LazyTaskList);
+        assertEquals(tasks.size(), loaded.size());
+        assertEquals(0, ((LazyTaskList) loaded).getMaterializedCount());
+        assertEquals(tasks.get(3).toString(), loaded.get(3).toString());
+        assertEquals(1, ((LazyTaskList) loaded).getMaterializedCount());
+    }
+
+    @Test
+    public void save_lazyListWithChanges_unreadTasksCopied() throws IOException, WooperException {
+        ArrayList<Task> tasks = sampleTasks();
+        new FileStorage(saveFile(), SnapshotFormat.BINARY).save(tasks);
+
+        FileStorage storage = new FileStorage(saveFile(), SnapshotFormat.BINARY);
+        storage.setLazyLoading(true);
+        List<Task> loaded = storage.load();
+        loaded.get(0).setDone(true);
+        storage.append(TaskChange.update(0, loaded.get(0)), loaded);
+        Task removed = loaded.remove(1);
+        storage.append(TaskChange.delete(1, removed), loaded);
+        loaded.add(new ToDo("new"));
+        storage.save(loaded);
+
+        tasks.get(0).setDone(true);
+        tasks.remove(1);
+        tasks.add(new ToDo("new"));
+        assertEquals(2, ((LazyTaskList) loaded).getMaterializedCount());
+        assertSameTasks(tasks, new FileStorage(saveFile()).load());
+    }
+
+    /**
+     * append
+     */
+    @Test
+    public void append_changesJournalled_changesReplayedOnLoad() throws IOException, WooperException {
+        FileStorage storage = new FileStorage(saveFile());
+        ArrayList<Task> tasks = new ArrayList<>();
+        tasks.add(new ToDo("a"));
+        storage.save(tasks);
+        String snapshot = Files.readString(saveFile());
+
+        tasks.add(new ToDo("b"));
+        storage.append(TaskChange.add(1, tasks.get(1)), tasks);
+        tasks.get(0).setDone(true);
+        storage.append(TaskChange.update(0, tasks.get(0)), tasks);
+        Task removed = tasks.remove(1);
+        storage.append(TaskChange.delete(1, removed), tasks);
+        tasks.add(new ToDo("c"));
+        storage.append(TaskChange.add(1, tasks.get(1)), tasks);
+
+        // only the journal grows, the save file itself is untouched
+        assertEquals(snapshot, Files.readString(saveFile()));
+
+        List<Task> loaded = new FileStorage(saveFile()).load();
+        assertEquals(2, loaded.size());
+        assertTrue(loaded.get(0).isDone());
+        assertEquals("c", loaded.get(1).getTaskName());
+    }
+
+    @Test
+    public void load_tornJournalEntry_entryDroppedAndJournalRepaired() throws IOException, WooperException {
+        FileStorage storage = new FileStorage(saveFile());
+        ArrayList<Task> tasks = new ArrayList<>();
+        storage.save(tasks);
+        tasks.add(new ToDo("a"));
+        storage.append(TaskChange.add(0, tasks.get(0)), tasks);
+
+        Path journal = tempDir.resolve("wooper.json.journal");
+        Files.writeString(journal, "{\"seq\":2,\"op\":\"A\",\"i\":1,\"ta", StandardOpenOption.APPEND);
+
+        FileStorage reopened = new FileStorage(saveFile());
+        assertEquals(1, reopened.load().size());
+
+        tasks.add(new ToDo("b"));
+        reopened.append(TaskChange.add(1, tasks.get(1)), tasks);
+        assertEquals(2, new FileStorage(saveFile()).load().size());
+    }
+
+    @Test
+    public void load_journalFromOlderSaveFile_journalIgnored() throws IOException, WooperException {
+        FileStorage storage = new FileStorage(saveFile());
+        ArrayList<Task> tasks = new ArrayList<>();
+        storage.save(tasks);
+        tasks.add(new ToDo("a"));
+        storage.append(TaskChange.add(0, tasks.get(0)), tasks);
+
+        // simulate a checkpoint interrupted after the save file was replaced
+        Path journal = tempDir.resolve("wooper.json.journal");
+        byte[] oldJournal = Files.readAllBytes(journal);
+        storage.save(tasks);
+        Files.write(journal, oldJournal);
+
+        assertEquals(1, new FileStorage(saveFile()).load().size());
+    }
+
+    /**
+     * sharing the save file
+     */
+    @Test
+    public void refresh_changesAppendedElsewhere_replayedIntoSameList() throws IOException, WooperException {
+        new FileStorage(saveFile()).save(sampleTasks());
+        FileStorage mine = new FileStorage(saveFile());
+        List<Task> myTasks = mine.load();
+        assertNull(mine.refresh(myTasks));
+
+        FileStorage other = new FileStorage(saveFile());
+        List<Task> otherTasks = other.load();
+        otherTasks.add(new ToDo("water plants"));
+        other.append(TaskChange.add(5, otherTasks.get(5)), otherTasks);
+        otherTasks.get(0).setDone(true);
+        other.append(TaskChange.update(0, otherTasks.get(0)), otherTasks);
+
+        assertSame(myTasks, mine.refresh(myTasks));
+        assertSameTasks(otherTasks, myTasks);
+        assertNull(mine.refresh(myTasks));
+
+        // changes of our own still go to the end of the journal
+        myTasks.remove(1);
+        mine.append(TaskChange.delete(1, otherTasks.get(1)), myTasks);
+        assertSameTasks(myTasks, new FileStorage(saveFile()).load());
+    }
+
+    @Test
+    public void refresh_saveFileRewrittenElsewhere_tasksLoadedAgain() throws IOException, WooperException {
+        new FileStorage(saveFile()).save(sampleTasks());
+        FileStorage mine = new FileStorage(saveFile());
+        List<Task> myTasks = mine.load();
+
+        FileStorage other = new FileStorage(saveFile());
+        List<Task> otherTasks = other.load();
+        otherTasks.remove(0);
+        other.save(otherTasks);
+
+        List<Task> refreshed = mine.refresh(myTasks);
+        assertSameTasks(otherTasks, refreshed);
+        assertEquals(5, myTasks.size());
+    }
+
+    @Test
+    public void append_changedElsewhereSinceLoad_refusedUntilRefreshed() throws IOException, WooperException {
+        new FileStorage(saveFile()).save(sampleTasks());
+        FileStorage mine = new FileStorage(saveFile());
+        List<Task> myTasks = mine.load();
+
+        FileStorage other = new FileStorage(saveFile());
+        List<Task> otherTasks = other.load();
+        otherTasks.remove(0);
+        other.append(TaskChange.delete(0, otherTasks.get(0)), otherTasks);
+
+        myTasks.add(new ToDo("water plants"));
+        assertThrows(IOException.class, () -> mine.append(TaskChange.add(5, myTasks.get(5)), myTasks));
+        assertTrue(mine.isOutOfDate());
+        assertSameTasks(otherTasks, new FileStorage(saveFile()).load());
+
+        // the list holding the refused change is dropped for the tasks on disk
+        List<Task> refreshed = mine.refresh(myTasks);
+        assertFalse(mine.isOutOfDate());
+        assertSameTasks(otherTasks, refreshed);
+        refreshed.add(new ToDo("water plants"));
+        mine.append(TaskChange.add(4, refreshed.get(4)), refreshed);
+        assertSameTasks(refreshed, new FileStorage(saveFile()).load());
+    }
+
+    @Test
+    public void readExternalChanges_saveFileEditedByHand_onlyEditedTasksChanged() throws IOException, WooperException {
+        FileStorage storage = new FileStorage(saveFile());
+        storage.save(sampleTasks());
+        List<Task> tasks = storage.load();
+        assertEquals(List.of(), storage.readExternalChanges(tasks));
+
+        String edited = Files.readString(saveFile())
+                .replace("\"desc\":\"return book\",\"done\":true", "\"desc\":\"return book\",\"done\":false")
+                .replace("\n]", ",\n  {\"type\":\"T\",\"desc\":\"water plants\",\"done\":false}\n]");
+        Files.writeString(saveFile(), edited);
+
+        List<TaskChange> changes = storage.readExternalChanges(tasks);
+        assertEquals(2, changes.size());
+        assertEquals(ChangeType.UPDATE, changes.get(0).getType());
+        assertEquals(1, changes.get(0).getIndex());
+        assertFalse(changes.get(0).getTask().isDone());
+        assertEquals(ChangeType.ADD, changes.get(1).getType());
+        assertEquals(5, changes.get(1).getIndex());
+        tasks.set(1, changes.get(0).getTask());
+        tasks.add(changes.get(1).getTask());
+        assertEquals(List.of(), storage.readExternalChanges(tasks));
+
+        // the edited file is what later changes are journalled against
+        tasks.remove(0);
+        storage.append(TaskChange.delete(0, tasks.get(0)), tasks);
+        assertSameTasks(tasks, new FileStorage(saveFile()).load());
+    }
+
+    private List<Task> loadPartitioned() throws WooperException {
+        FileStorage storage = new FileStorage(saveFile());
+        storage.setPartitioning(true, 3);
+        return storage.load();
+    }
+
+    @Test
+    public void loadIndex_savedAfterLastChange_indexLoaded() throws IOException, WooperException {
+        ArrayList<Task> tasks = sampleTasks();
+        FileStorage storage = new FileStorage(saveFile());
+        storage.save(tasks);
+        tasks.add(new ToDo("water plants"));
+        storage.append(TaskChange.add(tasks.size() - 1, tasks.get(tasks.size() - 1)), tasks);
+        storage.saveIndex(TaskIndex.build(withIds(tasks)));
+
+        FileStorage reloaded = new FileStorage(saveFile());
+        reloaded.load();
+        TaskIndex index = reloaded.loadIndex();
+        assertEquals(tasks.size(), index.size());
+        assertArrayEquals(new long[] {6}, index.getPostings("plants"));
+        assertArrayEquals(new long[] {3, 2}, index.getDeadlineOrder());
+    }
+
+    @Test
+    public void loadIndex_changedAfterSaving_indexStale() throws IOException, WooperException {
+        ArrayList<Task> tasks = sampleTasks();
+        FileStorage storage = new FileStorage(saveFile());
+        storage.save(tasks);
+        storage.saveIndex(TaskIndex.build(withIds(tasks)));
+        tasks.remove(0);
+        storage.append(TaskChange.delete(0, tasks.get(0)), tasks);
+
+        FileStorage reloaded = new FileStorage(saveFile());
+        reloaded.load();
+        assertNull(reloaded.loadIndex());
+    }
+
+    @Test
+    public void saveAndAppend_everyFormat_generationAdvancedOncePerWrite() throws IOException, WooperException {
+        for (SnapshotFormat format : SnapshotFormat.values()) {
+            Path file = tempDir.resolve("wooper-" + format + ".json");
+            FileStorage storage = new FileStorage(file, format);
+            storage.load();
+            ArrayList<Task> tasks = new ArrayList<>();
+            for (int i = 0; i < ParallelTaskWriter.MIN_TASK_COUNT; i++) {
+                tasks.add(new ToDo("task " + i));
+            }
+
+            storage.save(tasks);
+            assertEquals(1L, readGeneration(file), format.toString());
+            tasks.add(new ToDo("water plants"));
+            storage.append(TaskChange.add(tasks.size() - 1, tasks.get(tasks.size() - 1)), tasks);
+            assertEquals(2L, readGeneration(file), format.toString());
+            storage.close();
+        }
+    }
+
+    @Test
+    public void archive_doneTasks_countedAndReadFromArchive() throws IOException, WooperException {
+        ArrayList<Task> tasks = sampleTasks();
+        FileStorage storage = new FileStorage(saveFile());
+        storage.save(tasks);
+        List<Task> archived = List.of(tasks.get(1), tasks.get(4));
+        tasks.removeAll(archived);
+        storage.archive(archived, tasks);
+        storage.archive(List.of(new ToDo("old")), tasks);
+
+        FileStorage reloaded = new FileStorage(saveFile());
+        assertSameTasks(tasks, reloaded.load());
+        assertEquals(3, reloaded.getArchivedCount());
+        List<Task> expected = new ArrayList<>(archived);
+        expected.add(new ToDo("old"));
+        assertSameTasks(expected, reloaded.getArchivedTasks());
+    }
+
+    @Test
+    public void archive_changedElsewhereSinceLoad_nothingArchived() throws IOException, WooperException {
+        new FileStorage(saveFile()).save(sampleTasks());
+        FileStorage mine = new FileStorage(saveFile());
+        List<Task> myTasks = mine.load();
+
+        FileStorage other = new FileStorage(saveFile());
+        List<Task> otherTasks = other.load();
+        otherTasks.add(new ToDo("water plants"));
+        other.append(TaskChange.add(5, otherTasks.get(5)), otherTasks);
+
+        List<Task> archived = List.of(myTasks.remove(1));
+        assertThrows(IOException.class, () -> mine.archive(archived, myTasks));
+        assertEquals(0, mine.getArchivedCount());
+
+        FileStorage reloaded = new FileStorage(saveFile());
+        assertSameTasks(otherTasks, reloaded.load());
+        assertEquals(0, reloaded.getArchivedCount());
+        assertTrue(reloaded.getArchivedTasks().isEmpty());
+    }
+
+    @Test
+    public void archive_saveFileCannotBeWritten_archiveCutBack() throws IOException, WooperException {
+        ArrayList<Task> tasks = sampleTasks();
+        FileStorage storage = new FileStorage(saveFile());
+        storage.save(tasks);
+        storage.archive(List.of(tasks.remove(0)), tasks);
+        assertEquals(1, storage.getArchivedTasks().size());
+
+        // a directory in place of the temporary file stops the save file from being written
+        Files.createDirectories(saveFile().resolveSibling(saveFile().getFileName() + ".tmp").resolve("blocked"));
+        List<Task> archived = List.of(tasks.remove(0));
+        assertThrows(IOException.class, () -> storage.archive(archived, tasks));
+        assertEquals(1, storage.getArchivedCount());
+        assertEquals(1, storage.getArchivedTasks().size());
+
+        FileStorage reloaded = new FileStorage(saveFile());
+        assertEquals(1, reloaded.getArchivedCount());
+        assertSameTasks(List.of(sampleTasks().get(0)), reloaded.getArchivedTasks());
+    }
+
+    @Test
+    public void save_largeJsonList_sameBytesAsSingleThread() throws IOException, WooperException {
+        ArrayList<Task> tasks = largeTaskList();
+        new FileStorage(saveFile()).save(tasks);
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        Writer writer = new OutputStreamWriter(expected, StandardCharsets.UTF_8);
+        new TaskJsonWriter(writer).writeTaskList(tasks);
+        writer.flush();
+        assertArrayEquals(expected.toByteArray(), Files.readAllBytes(saveFile()));
+        assertSameTasks(tasks, new FileStorage(saveFile()).load());
+    }
+
+    @Test
+    public void save_largeBinaryList_sameBytesAsSingleThread() throws IOException, WooperException {
+        ArrayList<Task> tasks = largeTaskList();
+        new FileStorage(saveFile(), SnapshotFormat.BINARY).save(tasks);
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        BinaryTaskCodec.writeTaskList(expected, tasks);
+        assertArrayEquals(expected.toByteArray(), Files.readAllBytes(saveFile()));
+        FileStorage lazy = new FileStorage(saveFile());
+        lazy.setLazyLoading(true);
+        assertSameTasks(tasks, lazy.load());
+    }
+
+    private ArrayList<Task> largeTaskList() {
+        ArrayList<Task> tasks = new ArrayList<>();
+        while (tasks.size() < ParallelTaskWriter.MIN_TASK_COUNT * 3) {
+            tasks.addAll(sampleTasks());
+        }
+        return tasks;
+    }
+
+    private ArrayList<Task> sampleTasks() {
+        ArrayList<Task> tasks = new ArrayList<>();
+        tasks.add(new ToDo("read b\u00f6\u00f6k"));
+        tasks.add(new Deadline("return book", LocalDate.of(2026, 6, 6)));
+        tasks.add(new Deadline("submit", LocalDateTime.of(1969, 12, 31, 23, 59)));
+        tasks.add(new Event("camp", LocalDate.of(2026, 2, 2), LocalDate.of(2026, 2, 3)));
+        tasks.add(new Event("meeting", LocalDateTime.of(2026, 2, 2, 14, 0), LocalDateTime.of(2026, 2, 2, 16, 30)));
+        tasks.get(1).setDone(true);
+        tasks.get(4).setDone(true);
+        return tasks;
+    }
+
+    private long readGeneration(Path file) throws IOException {
+        SaveFileLock lock = new SaveFileLock(file.resolveSibling(file.getFileName() + ".lock"));
+        lock.lock();
+        try {
+            return lock.readGeneration();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private List<Task> withIds(List<Task> tasks) {
+        TaskTree tree = new TaskTree();
+        tree.addAll(tasks);
+        return tree;
+    }
+
+    private void assertSameTasks(List<Task> expected, List<Task> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).toString(), actual.get(i).toString());
+        }
+    }
+}
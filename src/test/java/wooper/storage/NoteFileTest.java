@@ -0,0 +1,93 @@
+package wooper.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import javax.crypto.SecretKey;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import wooper.enums.SnapshotFormat;
+import wooper.exception.WooperException;
+import wooper.task.Deadline;
+import wooper.task.Task;
+import wooper.task.ToDo;
+
+public class NoteFileTest {
+    private static final SecretKey KEY = PageCipher.parseKey("MDEyMzQ1Njc4OWFiY2RlZjAxMjM0NTY3ODlhYmNkZWY=");
+
+    @TempDir
+    Path tempDir;
+
+    private Path notesFile() {
+        return tempDir.resolve("wooper.json.notes");
+    }
+
+    @Test
+    public void write_severalNotes_eachReadBackByOffset() throws IOException, WooperException {
+        NoteFile notes = new NoteFile(notesFile(), null);
+        long first = notes.write("bring the receipt");
+        long second = notes.write("line one\nline two, with ümläuts");
+
+        assertEquals(0L, first);
+        assertTrue(second > first);
+        assertEquals("bring the receipt", notes.read(first));
+        assertEquals("line one\nline two, with ümläuts", new NoteFile(notesFile(), null).read(second));
+    }
+
+    @Test
+    public void read_corruptedNotes_exceptionThrown() throws IOException {
+        NoteFile notes = new NoteFile(notesFile(), null);
+        long offset = notes.write("bring the receipt");
+        byte[] bytes = Files.readAllBytes(notesFile());
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(notesFile(), bytes);
+
+        assertThrows(WooperException.class, () -> notes.read(offset));
+        assertThrows(WooperException.class, () -> notes.read(offset + 100));
+    }
+
+    @Test
+    public void write_withKey_notesEncrypted() throws IOException, WooperException {
+        long offset = new NoteFile(notesFile(), KEY).write("bring the receipt");
+
+        assertFalse(new String(Files.readAllBytes(notesFile()), StandardCharsets.ISO_8859_1).contains("receipt"));
+        assertEquals("bring the receipt", new NoteFile(notesFile(), KEY).read(offset));
+        assertThrows(WooperException.class, () -> new NoteFile(notesFile(), null).read(offset));
+    }
+
+    @Test
+    public void save_everyFormat_notesOffsetsRestored() throws IOException, WooperException {
+        for (SnapshotFormat format : SnapshotFormat.values()) {
+            Path saveFile = tempDir.resolve("wooper-" + format + ".json");
+            FileStorage storage = new FileStorage(saveFile, format);
+            storage.save(tasksWithNotes());
+            storage.close();
+
+            List<Task> loaded = new FileStorage(saveFile).load();
+            assertEquals(12345678901L, loaded.get(0).getNotesOffset(), format.toString());
+            assertFalse(loaded.get(1).hasNotes(), format.toString());
+            assertEquals(7L, loaded.get(2).getNotesOffset(), format.toString());
+        }
+    }
+
+    private ArrayList<Task> tasksWithNotes() {
+        ArrayList<Task> tasks = new ArrayList<>();
+        tasks.add(new ToDo("return book"));
+        tasks.add(new ToDo("buy milk"));
+        tasks.add(new Deadline("submit report", LocalDate.of(2026, 3, 1)));
+        tasks.get(0).setNotesOffset(12345678901L);
+        tasks.get(2).setNotesOffset(7);
+        return tasks;
+    }
+}
@@ -0,0 +1,159 @@
+package wooper.storage;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import wooper.exception.WooperException;
+import wooper.task.Deadline;
+import wooper.task.Event;
+import wooper.task.Task;
+import wooper.task.TaskChange;
+import wooper.task.TaskIndex;
+import wooper.task.ToDo;
+
+public class SqlStorageTest {
+    @TempDir
+    Path tempDir;
+
+    private SqlStorage open() {
+        return new SqlStorage("jdbc:h2:" + tempDir.resolve("wooper").toAbsolutePath());
+    }
+
+    @Test
+    public void save_thenLoad_tasksRestored() throws IOException, WooperException {
+        ArrayList<Task> tasks = sampleTasks();
+        SqlStorage storage = open();
+        storage.save(tasks);
+        storage.close();
+
+        SqlStorage reopened = open();
+        assertSameTasks(tasks, reopened.load());
+        reopened.close();
+    }
+
+    @Test
+    public void append_changesInMiddle_positionsShifted() throws IOException, WooperException {
+        ArrayList<Task> tasks = sampleTasks();
+        SqlStorage storage = open();
+        storage.save(tasks);
+
+        tasks.add(1, new ToDo("water plants"));
+        storage.append(TaskChange.add(1, tasks.get(1)), tasks);
+        tasks.get(3).setDone(true);
+        storage.append(TaskChange.update(3, tasks.get(3)), tasks);
+        Task removed = tasks.remove(0);
+        storage.append(TaskChange.delete(0, removed), tasks);
+
+        assertSameTasks(tasks, storage.load());
+        storage.close();
+    }
+
+    @Test
+    public void append_manyAddsAtSamePosition_keysRenumberedAndOrderKept() throws IOException, WooperException {
+        ArrayList<Task> tasks = sampleTasks();
+        SqlStorage storage = open();
+        storage.save(tasks);
+
+        // each add halves the room before the task after it, until the keys are renumbered
+        for (int i = 0; i < 50; i++) {
+            tasks.add(1, new ToDo("chore " + i));
+            storage.append(TaskChange.add(1, tasks.get(1)), tasks);
+        }
+        Task removed = tasks.remove(30);
+        storage.append(TaskChange.delete(30, removed), tasks);
+        assertArrayEquals(new int[] {50}, storage.findTasks("return"));
+        storage.close();
+
+        SqlStorage reopened = open();
+        assertSameTasks(tasks, reopened.load());
+        reopened.close();
+    }
+
+    @Test
+    public void append_beforeLoad_rowsFoundByKeysInDatabase() throws IOException, WooperException {
+        ArrayList<Task> tasks = sampleTasks();
+        SqlStorage storage = open();
+        storage.save(tasks);
+        storage.close();
+
+        SqlStorage reopened = open();
+        tasks.get(2).setDone(true);
+        reopened.append(TaskChange.update(2, tasks.get(2)), tasks);
+        Task removed = tasks.remove(0);
+        reopened.append(TaskChange.delete(0, removed), tasks);
+        assertSameTasks(tasks, reopened.load());
+        reopened.close();
+    }
+
+    @Test
+    public void findTasks_keywordWithWildcards_matchedLikeTaskManager() throws IOException, WooperException {
+        ArrayList<Task> tasks = sampleTasks();
+        tasks.add(new ToDo("save 100% of pay"));
+        SqlStorage storage = open();
+        storage.save(tasks);
+
+        assertArrayEquals(new int[] {1}, storage.findTasks("BOOK"));
+        assertArrayEquals(new int[] {5}, storage.findTasks("0%"));
+        assertArrayEquals(new int[] {}, storage.findTasks("_"));
+        storage.close();
+    }
+
+    @Test
+    public void findDeadlines_range_deadlinesInDueOrder() throws IOException, WooperException {
+        ArrayList<Task> tasks = sampleTasks();
+        SqlStorage storage = open();
+        storage.save(tasks);
+
+        long from = TaskIndex.dueKeyOf(new Deadline("x", LocalDate.of(1969, 1, 1)));
+        long to = TaskIndex.dueKeyOf(new Deadline("x", LocalDate.of(2026, 6, 6)));
+        assertArrayEquals(new int[] {2, 1}, storage.findDeadlines(from, to));
+        assertArrayEquals(new int[] {2}, storage.findDeadlines(from, to - 1));
+        storage.close();
+    }
+
+    @Test
+    public void migrate_fileToSql_tasksAndArchiveCopied() throws IOException, WooperException {
+        FileStorage file = new FileStorage(tempDir.resolve("wooper.json"));
+        ArrayList<Task> tasks = sampleTasks();
+        file.save(tasks);
+        List<Task> loaded = file.load();
+        ArrayList<Task> archived = new ArrayList<>(List.of(loaded.remove(1)));
+        file.archive(archived, loaded);
+
+        SqlStorage sql = open();
+        Storage.migrate(loaded, file, sql);
+        assertSameTasks(loaded, sql.load());
+        assertEquals(1, sql.getArchivedCount());
+        assertSameTasks(archived, sql.getArchivedTasks());
+        sql.close();
+    }
+
+    private ArrayList<Task> sampleTasks() {
+        ArrayList<Task> tasks = new ArrayList<>();
+        tasks.add(new ToDo("read b\u00f6\u00f6k"));
+        tasks.add(new Deadline("return book", LocalDate.of(2026, 6, 6)));
+        tasks.add(new Deadline("submit", LocalDateTime.of(1969, 12, 31, 23, 59)));
+        tasks.add(new Event("camp", LocalDate.of(2026, 2, 2), LocalDate.of(2026, 2, 3)));
+        tasks.add(new Event("meeting", LocalDateTime.of(2026, 2, 2, 14, 0), LocalDateTime.of(2026, 2, 2, 16, 30)));
+        tasks.get(1).setDone(true);
+        tasks.get(4).setDone(true);
+        return tasks;
+    }
+
+    private void assertSameTasks(List<Task> expected, List<Task> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).toString(), actual.get(i).toString());
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package wooper.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import wooper.enums.TransferFormat;
+import wooper.exception.WooperException;
+import wooper.task.Deadline;
+import wooper.task.Event;
+import wooper.task.Task;
+import wooper.task.ToDo;
+
+public class TaskImportReaderTest {
+    @Test
+    public void formatOf_knownExtensions_formatReturned() throws WooperException {
+        assertEquals(TransferFormat.CSV, TaskImportReader.formatOf(Path.of("data", "tasks.CSV")));
+        assertEquals(TransferFormat.NDJSON, TaskImportReader.formatOf(Path.of("tasks.ndjson")));
+        assertEquals(TransferFormat.NDJSON, TaskImportReader.formatOf(Path.of("tasks.jsonl")));
+        assertThrows(WooperException.class, () -> TaskImportReader.formatOf(Path.of("tasks.txt")));
+    }
+
+    @Test
+    public void readBatch_exportedCsv_sameFieldsReturned() throws IOException, WooperException {
+        List<TaskImportReader.Record> records = roundTrip(TransferFormat.CSV);
+        assertEquals(4, records.size());
+        assertEquals("say \"hi\", then\nleave", records.get(0).getDesc());
+        assertEquals("D", records.get(1).getType());
+        assertEquals("06/06/2026", records.get(1).getBy());
+        assertTrue(records.get(1).isDone());
+        assertEquals("02/02/2026 14:00", records.get(2).getFrom());
+        assertEquals("02/02/2026 16:30", records.get(2).getTo());
+        assertEquals(6, records.get(3).getLine());
+    }
+
+    @Test
+    public void readBatch_exportedNdjson_sameFieldsReturned() throws IOException, WooperException {
+        List<TaskImportReader.Record> records = roundTrip(TransferFormat.NDJSON);
+        assertEquals(4, records.size());
+        assertEquals("say \"hi\", then\nleave", records.get(0).getDesc());
+        assertEquals("06/06/2026", records.get(1).getBy());
+        assertEquals("02/02/2026 16:30", records.get(2).getTo());
+        assertEquals(4, records.get(3).getLine());
+    }
+
+    @Test
+    public void readBatch_batchSizeSmallerThanFile_recordsSplitIntoBatches() throws IOException, WooperException {
+        TaskImportReader reader = new TaskImportReader(new StringReader("T,a\nT,b\n\nT,c\n"), TransferFormat.CSV);
+        assertEquals(2, reader.readBatch(2).size());
+        assertEquals("c", reader.readBatch(2).get(0).getDesc());
+        assertTrue(reader.readBatch(2).isEmpty());
+    }
+
+    @Test
+    public void readBatch_malformedRecords_exceptionWithLineThrown() {
+        WooperException e = assertThrows(WooperException.class, () -> new TaskImportReader(
+                new StringReader("T,a\nT,b,maybe\n"), TransferFormat.CSV).readBatch(10));
+        assertTrue(e.getMessage().startsWith("Line 2:"));
+        assertThrows(WooperException.class, () -> new TaskImportReader(
+                new StringReader("T,\"never closed\n"), TransferFormat.CSV).readBatch(10));
+        assertThrows(WooperException.class, () -> new TaskImportReader(
+                new StringReader("{\"type\":\"T\",\"desc\":\"a\"} x\n"), TransferFormat.NDJSON).readBatch(10));
+    }
+
+    private List<TaskImportReader.Record> roundTrip(TransferFormat format) throws IOException, WooperException {
+        ArrayList<Task> tasks = new ArrayList<>();
+        tasks.add(new ToDo("say \"hi\", then\nleave"));
+        tasks.add(new Deadline("return book", LocalDate.of(2026, 6, 6)));
+        tasks.get(1).setDone(true);
+        tasks.add(new Event("meeting", LocalDateTime.of(2026, 2, 2, 14, 0), LocalDateTime.of(2026, 2, 2, 16, 30)));
+        tasks.add(new ToDo("read"));
+
+        StringWriter out = new StringWriter();
+        TaskExportWriter writer = new TaskExportWriter(out, format);
+        for (Task t : tasks) {
+            writer.write(t);
+        }
+        return new TaskImportReader(new StringReader(out.toString()), format).readBatch(100);
+    }
+}
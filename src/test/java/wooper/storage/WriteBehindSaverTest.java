@@ -0,0 +1,95 @@
+package wooper.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import wooper.enums.DurabilityMode;
+import wooper.exception.WooperException;
+import wooper.task.Task;
+import wooper.task.TaskChange;
+import wooper.task.ToDo;
+
+public class WriteBehindSaverTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void submit_onExitMode_nothingWrittenUntilFlush() throws IOException, WooperException {
+        Path saveFile = tempDir.resolve("wooper.json");
+        WriteBehindSaver saver = new WriteBehindSaver(new FileStorage(saveFile), DurabilityMode.ON_EXIT, 200);
+        ArrayList<Task> tasks = new ArrayList<>();
+
+        for (int i = 0; i < 50; i++) {
+            tasks.add(new ToDo("task " + i));
+            saver.submit(TaskChange.add(i, tasks.get(i)), tasks);
+        }
+        tasks.get(3).setDone(true);
+        saver.submit(TaskChange.update(3, tasks.get(3)), tasks);
+        assertFalse(Files.exists(saveFile));
+
+        saver.flush();
+        List<Task> loaded = new FileStorage(saveFile).load();
+        assertEquals(50, loaded.size());
+        assertTrue(loaded.get(3).isDone());
+    }
+
+    @Test
+    public void submit_changesAfterSnapshot_changesJournalledOnTop() throws IOException, WooperException {
+        Path saveFile = tempDir.resolve("wooper.json");
+        FileStorage storage = new FileStorage(saveFile);
+        ArrayList<Task> tasks = new ArrayList<>();
+        storage.save(tasks);
+
+        WriteBehindSaver saver = new WriteBehindSaver(storage, DurabilityMode.INTERVAL, 60_000);
+        tasks.add(new ToDo("a"));
+        saver.submit(TaskChange.add(0, tasks.get(0)), tasks);
+        tasks.add(new ToDo("b"));
+        saver.submit(TaskChange.add(1, tasks.get(1)), tasks);
+        Task removed = tasks.remove(0);
+        saver.submit(TaskChange.delete(0, removed), tasks);
+        saver.flush();
+
+        List<Task> loaded = new FileStorage(saveFile).load();
+        assertEquals(1, loaded.size());
+        assertEquals("b", loaded.get(0).getTaskName());
+    }
+
+    @Test
+    public void flush_writeFails_changesKeptAndFailureReportedOnce() throws IOException, WooperException {
+        // a file in place of the save file's folder makes every write fail
+        Path folder = tempDir.resolve("data");
+        Files.writeString(folder, "");
+        Path saveFile = folder.resolve("wooper.json");
+        WriteBehindSaver saver = new WriteBehindSaver(new FileStorage(saveFile), DurabilityMode.ON_EXIT, 200);
+        ArrayList<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            tasks.add(new ToDo("task " + i));
+            saver.submit(TaskChange.add(i, tasks.get(i)), tasks);
+        }
+
+        assertThrows(IOException.class, saver::flush);
+        assertTrue(saver.hasPendingChanges());
+        tasks.add(new ToDo("task 3"));
+        assertThrows(IOException.class, () -> saver.submit(TaskChange.add(3, tasks.get(3)), tasks));
+        tasks.add(new ToDo("task 4"));
+        saver.submit(TaskChange.add(4, tasks.get(4)), tasks);
+
+        Files.delete(folder);
+        saver.flush();
+        assertFalse(saver.hasPendingChanges());
+        List<Task> loaded = new FileStorage(saveFile).load();
+        assertEquals(5, loaded.size());
+        assertEquals("task 4", loaded.get(4).getTaskName());
+    }
+}
@@ -0,0 +1,105 @@
+package wooper.task;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class TaskTreeTest {
+    @Test
+    public void addAndRemove_randomPositions_sameAsArrayList() {
+        TaskTree tree = new TaskTree();
+        ArrayList<Task> expected = new ArrayList<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 5000; i++) {
+            if (expected.isEmpty() || random.nextInt(3) > 0) {
+                int at = random.nextInt(expected.size() + 1);
+                Task t = new ToDo("task " + i);
+                tree.add(at, t);
+                expected.add(at, t);
+            } else {
+                int at = random.nextInt(expected.size());
+                assertSame(expected.remove(at), tree.remove(at));
+            }
+        }
+
+        assertEquals(expected, tree);
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(i, tree.indexOfId(expected.get(i).getId()));
+        }
+    }
+
+    @Test
+    public void remove_earlierTask_idsKeptAndPositionsShifted() {
+        TaskTree tree = new TaskTree();
+        tree.addAll(List.of(new ToDo("a"), new ToDo("b"), new ToDo("c")));
+        Task c = tree.get(2);
+        long id = c.getId();
+
+        Task a = tree.remove(0);
+        assertEquals(id, c.getId());
+        assertSame(c, tree.getById(id));
+        assertEquals(1, tree.indexOfId(id));
+        assertNull(tree.getById(a.getId()));
+        assertEquals(-1, tree.indexOfId(a.getId()));
+    }
+
+    @Test
+    public void set_replacementTask_idTakenOver() {
+        TaskTree tree = new TaskTree();
+        tree.add(new ToDo("a"));
+        long id = tree.get(0).getId();
+
+        Task edited = new ToDo("a, edited");
+        tree.set(0, edited);
+        assertEquals(id, edited.getId());
+        assertSame(edited, tree.getById(id));
+    }
+
+    @Test
+    public void addAll_savedIds_idsKeptAndNewIdsAboveThem() {
+        Task saved = new ToDo("a");
+        saved.setId(7);
+        Task unsaved = new ToDo("b");
+        Task later = new ToDo("c");
+        later.setId(2);
+
+        TaskTree tree = new TaskTree();
+        tree.addAll(List.of(unsaved, saved, later));
+        assertEquals(7L, saved.getId());
+        assertEquals(2L, later.getId());
+        assertEquals(8L, unsaved.getId());
+        tree.add(new ToDo("d"));
+        assertEquals(9L, tree.get(3).getId());
+    }
+
+    @Test
+    public void iterator_removeEveryOtherTask_restKeptInOrder() {
+        TaskTree tree = new TaskTree();
+        ArrayList<Task> expected = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Task t = new ToDo("task " + i);
+            tree.add(t);
+            if (i % 2 == 1) {
+                expected.add(t);
+            }
+        }
+
+        Iterator<Task> it = tree.iterator();
+        for (int i = 0; it.hasNext(); i++) {
+            it.next();
+            if (i % 2 == 0) {
+                it.remove();
+            }
+        }
+        assertEquals(expected, tree);
+        assertThrows(IndexOutOfBoundsException.class, () -> tree.get(50));
+    }
+}